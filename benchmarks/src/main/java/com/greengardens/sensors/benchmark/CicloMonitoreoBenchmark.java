@@ -0,0 +1,67 @@
+package com.greengardens.sensors.benchmark;
+
+import com.greengardens.sensors.ConfiguracionAlarmas;
+import com.greengardens.sensors.EstrategiaFactory;
+import com.greengardens.sensors.GeneradorFlota;
+import com.greengardens.sensors.ISensor;
+import com.greengardens.sensors.SistemaAlarma;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ciclo completo de SistemaAlarma sobre flotas sintéticas de GeneradorFlota,
+ * con gestión de alarmas y con medición por lotes activada o no.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class CicloMonitoreoBenchmark {
+    @Param({"100", "10000", "100000"})
+    public int sensores;
+    
+    @Param({"0", "2"})
+    public int profundidad;
+    
+    @Param({"false", "true"})
+    public boolean medicionPorLotes;
+    
+    private SistemaAlarma sistema;
+    
+    @Setup(Level.Trial)
+    public void preparar() {
+        EstrategiaFactory.fijarSemilla(42L);
+        sistema = new SistemaAlarma();
+        sistema.setEcoConsola(false);
+        sistema.configurarAlarmas(ConfiguracionAlarmas.POR_DEFECTO);
+        sistema.setMedicionPorLotes(medicionPorLotes);
+        sistema.agregarSensores(new GeneradorFlota(sensores, profundidad, 8, 42L).generar());
+    }
+    
+    @TearDown(Level.Trial)
+    public void limpiar() {
+        sistema.cerrar();
+        EstrategiaFactory.quitarSemilla();
+    }
+    
+    @Benchmark
+    public List<ISensor> ciclo() {
+        return sistema.ejecutarCicloMonitoreo();
+    }
+}
@@ -0,0 +1,68 @@
+package com.greengardens.sensors.benchmark;
+
+import com.greengardens.sensors.EstrategiaFactory;
+import com.greengardens.sensors.ISensor;
+import com.greengardens.sensors.Sensor;
+import com.greengardens.sensors.SistemaAlarmaFragmentado;
+import com.greengardens.sensors.TipoSensor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escalabilidad de SistemaAlarmaFragmentado: un ciclo sobre la misma flota
+ * repartida en 1, 2, 4 u 8 fragmentos, cada uno en su hilo.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class FragmentacionBenchmark {
+    @Param({"100000"})
+    public int sensores;
+    
+    @Param({"1", "2", "4", "8"})
+    public int fragmentos;
+    
+    private SistemaAlarmaFragmentado sistema;
+    
+    @Setup(Level.Trial)
+    public void preparar() {
+        EstrategiaFactory.fijarSemilla(42L);
+        sistema = new SistemaAlarmaFragmentado(fragmentos);
+        List<ISensor> flota = new ArrayList<>(sensores);
+        TipoSensor[] tipos = TipoSensor.values();
+        for (int i = 0; i < sensores; i++) {
+            // Umbral inalcanzable: se mide el ciclo, no la notificación de alarmas
+            flota.add(new Sensor("BENCH-" + i, tipos[i % tipos.length], Double.MAX_VALUE, 1));
+        }
+        sistema.agregarSensores(flota);
+    }
+    
+    @TearDown(Level.Trial)
+    public void limpiar() {
+        sistema.cerrar();
+        EstrategiaFactory.quitarSemilla();
+    }
+    
+    @Benchmark
+    public List<ISensor> ciclo() {
+        return sistema.ejecutarCicloMonitoreo();
+    }
+}
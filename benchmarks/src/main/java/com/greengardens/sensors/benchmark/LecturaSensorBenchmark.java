@@ -0,0 +1,64 @@
+package com.greengardens.sensors.benchmark;
+
+import com.greengardens.sensors.EstrategiaFactory;
+import com.greengardens.sensors.Lectura;
+import com.greengardens.sensors.Sensor;
+import com.greengardens.sensors.TipoSensor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lectura de un único sensor simple: medida directa, lectura inmutable
+ * y medida servida desde la caché de edad máxima.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LecturaSensorBenchmark {
+    private Sensor sensor;
+    private Sensor sensorConCache;
+    
+    @Setup(Level.Trial)
+    public void preparar() {
+        EstrategiaFactory.fijarSemilla(42L);
+        sensor = new Sensor("BENCH-001", TipoSensor.TEMPERATURA, 30.0);
+        sensorConCache = new Sensor("BENCH-002", TipoSensor.TEMPERATURA, 30.0);
+        sensorConCache.setEdadMaximaCache(Duration.ofHours(1));
+    }
+    
+    @TearDown(Level.Trial)
+    public void limpiar() {
+        EstrategiaFactory.quitarSemilla();
+    }
+    
+    @Benchmark
+    public double medidaActual() {
+        return sensor.obtenerMedidaActual();
+    }
+    
+    @Benchmark
+    public Lectura lectura() {
+        return sensor.obtenerLectura();
+    }
+    
+    @Benchmark
+    public double medidaEnCache() {
+        return sensorConCache.obtenerMedidaActual();
+    }
+}
@@ -0,0 +1,65 @@
+package com.greengardens.sensors.benchmark;
+
+import com.greengardens.sensors.EstrategiaFactory;
+import com.greengardens.sensors.ISensor;
+import com.greengardens.sensors.Sensor;
+import com.greengardens.sensors.SistemaAlarma;
+import com.greengardens.sensors.TipoSensor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Notificación de una alarma a 1, 10 y 100 observers en línea.
+ * El único sensor supera siempre su umbral y el sistema no gestiona estados,
+ * de modo que cada ciclo notifica una alarma.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NotificacionAlarmaBenchmark {
+    @Param({"1", "10", "100"})
+    public int observers;
+    
+    private SistemaAlarma sistema;
+    
+    @Setup(Level.Trial)
+    public void preparar(Blackhole blackhole) {
+        EstrategiaFactory.fijarSemilla(42L);
+        sistema = new SistemaAlarma();
+        sistema.setEcoConsola(false);
+        sistema.agregarSensor(new Sensor("BENCH-ALARMA", TipoSensor.VIENTO, -1.0, 1));
+        for (int i = 0; i < observers; i++) {
+            // El observer consulta el mensaje, como haría un canal de notificación real
+            sistema.agregarObserver(evento -> blackhole.consume(evento.getMensaje()));
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void limpiar() {
+        sistema.cerrar();
+        EstrategiaFactory.quitarSemilla();
+    }
+    
+    @Benchmark
+    public List<ISensor> notificar() {
+        return sistema.ejecutarCicloMonitoreo();
+    }
+}
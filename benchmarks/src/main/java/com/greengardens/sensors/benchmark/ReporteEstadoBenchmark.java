@@ -0,0 +1,66 @@
+package com.greengardens.sensors.benchmark;
+
+import com.greengardens.sensors.EstrategiaFactory;
+import com.greengardens.sensors.GeneradorFlota;
+import com.greengardens.sensors.SistemaAlarma;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generación del reporte de estado: el reporte en streaming sobre las últimas
+ * lecturas frente al reporte en String que vuelve a medir cada sensor.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReporteEstadoBenchmark {
+    @Param({"100", "10000", "50000"})
+    public int sensores;
+    
+    private SistemaAlarma sistema;
+    private StringBuilder destino;
+    
+    @Setup(Level.Trial)
+    public void preparar() {
+        EstrategiaFactory.fijarSemilla(42L);
+        sistema = new SistemaAlarma();
+        sistema.setEcoConsola(false);
+        sistema.agregarSensores(new GeneradorFlota(sensores, 0, 1, 42L).generar());
+        sistema.ejecutarCicloMonitoreo(); // Para que el reporte en streaming tenga últimas lecturas
+        destino = new StringBuilder(sensores * 96);
+    }
+    
+    @TearDown(Level.Trial)
+    public void limpiar() {
+        sistema.cerrar();
+        EstrategiaFactory.quitarSemilla();
+    }
+    
+    @Benchmark
+    public int reporteStreaming() throws IOException {
+        destino.setLength(0);
+        return sistema.escribirReporteEstado(destino);
+    }
+    
+    @Benchmark
+    public String reporteTexto() {
+        return sistema.generarReporteEstado();
+    }
+}
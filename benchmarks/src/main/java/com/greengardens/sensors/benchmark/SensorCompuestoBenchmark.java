@@ -0,0 +1,69 @@
+package com.greengardens.sensors.benchmark;
+
+import com.greengardens.sensors.EstrategiaFactory;
+import com.greengardens.sensors.ModoAgregacion;
+import com.greengardens.sensors.Sensor;
+import com.greengardens.sensors.SensorCompuesto;
+import com.greengardens.sensors.TipoSensor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Promedio de un SensorCompuesto plano según el número de hijos y el modo de agregación.
+ * Cada invocación mide antes un hijo, por turnos, como haría su propio sondeo: en PUSH esa
+ * medida llega al compuesto y actualiza el promedio incremental, que es lo que se quiere medir;
+ * en CONSULTA se vuelve además a medir a todos los hijos.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SensorCompuestoBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int hijos;
+    
+    @Param({"CONSULTA", "PUSH"})
+    public ModoAgregacion modo;
+    
+    private SensorCompuesto compuesto;
+    private Sensor[] sensoresHijos;
+    private int siguienteHijo;
+    
+    @Setup(Level.Trial)
+    public void preparar() {
+        EstrategiaFactory.fijarSemilla(42L);
+        compuesto = new SensorCompuesto("BENCH-COMP", TipoSensor.HUMEDAD_SUELO, 60.0, modo);
+        sensoresHijos = new Sensor[hijos];
+        for (int i = 0; i < hijos; i++) {
+            sensoresHijos[i] = new Sensor("BENCH-HUM-" + i, TipoSensor.HUMEDAD_SUELO, 60.0, 1);
+            compuesto.agregarSensor(sensoresHijos[i]);
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void limpiar() {
+        EstrategiaFactory.quitarSemilla();
+    }
+    
+    @Benchmark
+    public double promedio() {
+        sensoresHijos[siguienteHijo].obtenerMedidaActual();
+        siguienteHijo = siguienteHijo + 1 == hijos ? 0 : siguienteHijo + 1;
+        return compuesto.obtenerMedidaActual();
+    }
+}
@@ -90,16 +90,17 @@ public class MainDemo {
         System.out.println("   SistemaAlarma (Subject) - AlarmaObserver (Observer)");
         
         SistemaAlarma sistema = new SistemaAlarma();
+        sistema.setEcoConsola(true);
         
         // Agregar múltiples observers
-        sistema.agregarObserver((sensor, mensaje) -> 
-            System.out.println("   📧 Observer 1: Enviando email para " + sensor.getId()));
+        sistema.agregarObserver(evento -> 
+            System.out.println("   📧 Observer 1: Enviando email para " + evento.getSensor().getId()));
         
-        sistema.agregarObserver((sensor, mensaje) -> 
-            System.out.println("   📱 Observer 2: Enviando SMS para " + sensor.getId()));
+        sistema.agregarObserver(evento -> 
+            System.out.println("   📱 Observer 2: Enviando SMS para " + evento.getSensor().getId()));
         
-        sistema.agregarObserver((sensor, mensaje) -> 
-            System.out.println("   🔔 Observer 3: Activando sirena para " + sensor.getId()));
+        sistema.agregarObserver(evento -> 
+            System.out.println("   🔔 Observer 3: Activando sirena para " + evento.getSensor().getId()));
         
         // Agregar sensores al sistema
         for (ISensor sensor : todosSensores) {
@@ -0,0 +1,66 @@
+package com.greengardens.sensors;
+
+/**
+ * Resumen inmutable de las lecturas de un intervalo: mínimo, máximo, media y número
+ */
+public final class Agregado {
+    private final long inicioMillis;
+    private final Resolucion resolucion;
+    private final double minimo;
+    private final double maximo;
+    private final double suma;
+    private final long cuenta;
+    
+    /**
+     * Constructor del agregado
+     * @param inicioMillis Inicio del intervalo en milisegundos desde epoch
+     * @param resolucion Resolución del intervalo
+     * @param minimo Valor mínimo
+     * @param maximo Valor máximo
+     * @param suma Suma de los valores
+     * @param cuenta Número de lecturas
+     */
+    public Agregado(long inicioMillis, Resolucion resolucion, double minimo, double maximo,
+                    double suma, long cuenta) {
+        this.inicioMillis = inicioMillis;
+        this.resolucion = resolucion;
+        this.minimo = minimo;
+        this.maximo = maximo;
+        this.suma = suma;
+        this.cuenta = cuenta;
+    }
+    
+    public long getInicioMillis() {
+        return inicioMillis;
+    }
+    
+    public Resolucion getResolucion() {
+        return resolucion;
+    }
+    
+    public double getMinimo() {
+        return minimo;
+    }
+    
+    public double getMaximo() {
+        return maximo;
+    }
+    
+    public double getSuma() {
+        return suma;
+    }
+    
+    public long getCuenta() {
+        return cuenta;
+    }
+    
+    public double getMedia() {
+        return cuenta == 0 ? Double.NaN : suma / cuenta;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Agregado{inicio=%d, resolucion=%s, min=%.2f, max=%.2f, media=%.2f, cuenta=%d}",
+                inicioMillis, resolucion, minimo, maximo, getMedia(), cuenta);
+    }
+}
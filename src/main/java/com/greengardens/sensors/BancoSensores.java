@@ -0,0 +1,361 @@
+package com.greengardens.sensors;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Almacén de sensores en estructura de arrays para flotas muy grandes.
+ * Cada sensor es un handle entero que indexa arrays paralelos de umbral, medida
+ * y marca de tiempo, más una máscara de bits de conexión, en lugar de un objeto Sensor
+ * por sensor. Evaluar qué sensores superan su umbral es un bucle sobre arrays
+ * contiguos sin seguir punteros. Para el resto del sistema, cada handle puede
+ * exponerse como ISensor mediante una vista.
+ */
+public class BancoSensores {
+    private static final int CAPACIDAD_INICIAL = 1024;
+    private static final TipoSensor[] TIPOS = TipoSensor.values();
+    
+    private String[] ids;
+    private byte[] tipos; // Ordinal de TipoSensor
+    private double[] umbrales;
+    private double[] medidas; // NaN mientras el sensor no haya medido
+    private long[] marcasNanos;
+    private long[] conectados; // Un bit por handle, 64 handles por palabra
+    private int tamano;
+    private final EstrategiaMedicion[] estrategias; // Una compartida por tipo, medición por lotes
+    private final int[][] handlesPorTipo;
+    private final int[] cantidadPorTipo;
+    private double[] bufferMedidas;
+    
+    /**
+     * Constructor del banco con la capacidad inicial por defecto
+     */
+    public BancoSensores() {
+        this(CAPACIDAD_INICIAL);
+    }
+    
+    /**
+     * Constructor del banco
+     * @param capacidadInicial Sensores que caben antes de tener que crecer
+     */
+    public BancoSensores(int capacidadInicial) {
+        if (capacidadInicial <= 0) {
+            throw new IllegalArgumentException("La capacidad inicial debe ser positiva");
+        }
+        this.ids = new String[capacidadInicial];
+        this.tipos = new byte[capacidadInicial];
+        this.umbrales = new double[capacidadInicial];
+        this.medidas = new double[capacidadInicial];
+        this.marcasNanos = new long[capacidadInicial];
+        this.conectados = new long[palabras(capacidadInicial)];
+        this.estrategias = new EstrategiaMedicion[TIPOS.length];
+        this.handlesPorTipo = new int[TIPOS.length][];
+        this.cantidadPorTipo = new int[TIPOS.length];
+        for (TipoSensor tipo : TIPOS) {
+            estrategias[tipo.ordinal()] = EstrategiaFactory.crearEstrategiaCompartida(tipo);
+            handlesPorTipo[tipo.ordinal()] = new int[16];
+        }
+        this.bufferMedidas = new double[16];
+    }
+    
+    /**
+     * Da de alta un sensor conectado y sin medida
+     * @param id Identificador del sensor
+     * @param tipo Tipo de sensor
+     * @param umbral Valor umbral para disparar alarmas
+     * @return Handle del sensor en el banco
+     */
+    public synchronized int registrar(String id, TipoSensor tipo, double umbral) {
+        Objects.requireNonNull(id, "El ID del sensor no puede ser null");
+        Objects.requireNonNull(tipo, "El tipo de sensor no puede ser null");
+        if (tamano == ids.length) {
+            crecer();
+        }
+        int handle = tamano++;
+        ids[handle] = id;
+        tipos[handle] = (byte) tipo.ordinal();
+        umbrales[handle] = umbral;
+        medidas[handle] = Double.NaN;
+        marcasNanos[handle] = Long.MIN_VALUE;
+        marcarConexion(handle, true);
+        
+        int ordinal = tipo.ordinal();
+        if (cantidadPorTipo[ordinal] == handlesPorTipo[ordinal].length) {
+            handlesPorTipo[ordinal] = Arrays.copyOf(handlesPorTipo[ordinal], cantidadPorTipo[ordinal] * 2);
+        }
+        handlesPorTipo[ordinal][cantidadPorTipo[ordinal]++] = handle;
+        return handle;
+    }
+    
+    private void crecer() {
+        int capacidad = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacidad);
+        tipos = Arrays.copyOf(tipos, capacidad);
+        umbrales = Arrays.copyOf(umbrales, capacidad);
+        medidas = Arrays.copyOf(medidas, capacidad);
+        marcasNanos = Arrays.copyOf(marcasNanos, capacidad);
+        conectados = Arrays.copyOf(conectados, palabras(capacidad));
+    }
+    
+    private static int palabras(int capacidad) {
+        return (capacidad + 63) >>> 6;
+    }
+    
+    private boolean estaConectado(int handle) {
+        return (conectados[handle >>> 6] & (1L << handle)) != 0L;
+    }
+    
+    private void marcarConexion(int handle, boolean conectado) {
+        if (conectado) {
+            conectados[handle >>> 6] |= 1L << handle;
+        } else {
+            conectados[handle >>> 6] &= ~(1L << handle);
+        }
+    }
+    
+    /**
+     * Mide todos los sensores conectados con una llamada por lotes a la estrategia de cada tipo
+     * @return Número de sensores medidos
+     */
+    public synchronized int medirTodos() {
+        long marcaNanos = HistorialLecturas.ahoraEpochNanos();
+        int medidos = 0;
+        for (int ordinal = 0; ordinal < TIPOS.length; ordinal++) {
+            int cantidad = cantidadPorTipo[ordinal];
+            if (cantidad == 0) {
+                continue;
+            }
+            if (bufferMedidas.length < cantidad) {
+                bufferMedidas = new double[Math.max(cantidad, bufferMedidas.length * 2)];
+            }
+            estrategias[ordinal].generarMedidas(bufferMedidas, 0, cantidad);
+            int[] handles = handlesPorTipo[ordinal];
+            for (int i = 0; i < cantidad; i++) {
+                int handle = handles[i];
+                if (estaConectado(handle)) {
+                    medidas[handle] = bufferMedidas[i];
+                    marcasNanos[handle] = marcaNanos;
+                    medidos++;
+                }
+            }
+        }
+        return medidos;
+    }
+    
+    /**
+     * Registra una medida obtenida fuera del banco
+     * @param handle Handle del sensor
+     * @param medida Valor medido
+     * @param marcaNanos Instante de la medida en nanosegundos desde epoch
+     */
+    public synchronized void actualizarMedida(int handle, double medida, long marcaNanos) {
+        Objects.checkIndex(handle, tamano);
+        medidas[handle] = medida;
+        marcasNanos[handle] = marcaNanos;
+    }
+    
+    /**
+     * Marca en destino los sensores conectados cuya última medida supera su umbral,
+     * con la misma semántica que Sensor.superaUmbral() sobre la medida ya tomada.
+     * Las comparaciones de cada 64 handles se acumulan sin saltos en una máscara, que se
+     * cruza con la palabra correspondiente de conectados en lugar de consultar la conexión
+     * handle a handle; solo los handles en alarma se marcan en destino uno a uno.
+     * @param destino BitSet donde se marcan los handles en alarma; se limpia antes
+     * @return Número de sensores en alarma
+     */
+    public synchronized int evaluarUmbrales(BitSet destino) {
+        destino.clear();
+        double[] medidas = this.medidas;
+        double[] umbrales = this.umbrales;
+        long[] conectados = this.conectados;
+        int enAlarma = 0;
+        int palabras = palabras(tamano);
+        for (int palabra = 0; palabra < palabras; palabra++) {
+            int base = palabra << 6;
+            int fin = Math.min(tamano, base + 64);
+            long mascara = 0L;
+            for (int handle = base; handle < fin; handle++) {
+                // Una medida NaN compara como false, igual que un sensor sin medida
+                mascara |= (medidas[handle] > umbrales[handle] ? 1L : 0L) << (handle - base);
+            }
+            mascara &= conectados[palabra];
+            enAlarma += Long.bitCount(mascara);
+            while (mascara != 0L) {
+                destino.set(base + Long.numberOfTrailingZeros(mascara));
+                mascara &= mascara - 1;
+            }
+        }
+        return enAlarma;
+    }
+    
+    /**
+     * Obtiene una vista ISensor de un sensor del banco
+     * @param handle Handle del sensor
+     * @return Vista que lee y escribe en los arrays del banco
+     */
+    public ISensor vista(int handle) {
+        synchronized (this) {
+            Objects.checkIndex(handle, tamano);
+        }
+        return new VistaSensor(handle);
+    }
+    
+    public synchronized int getTamano() {
+        return tamano;
+    }
+    
+    public synchronized String getId(int handle) {
+        Objects.checkIndex(handle, tamano);
+        return ids[handle];
+    }
+    
+    public synchronized TipoSensor getTipo(int handle) {
+        Objects.checkIndex(handle, tamano);
+        return TIPOS[tipos[handle]];
+    }
+    
+    public synchronized double getUmbral(int handle) {
+        Objects.checkIndex(handle, tamano);
+        return umbrales[handle];
+    }
+    
+    /**
+     * Obtiene la última medida de un sensor
+     * @param handle Handle del sensor
+     * @return Medida, o NaN si todavía no ha medido
+     */
+    public synchronized double getMedida(int handle) {
+        Objects.checkIndex(handle, tamano);
+        return medidas[handle];
+    }
+    
+    public synchronized boolean isConectado(int handle) {
+        Objects.checkIndex(handle, tamano);
+        return estaConectado(handle);
+    }
+    
+    public synchronized void setConectado(int handle, boolean conectado) {
+        Objects.checkIndex(handle, tamano);
+        marcarConexion(handle, conectado);
+    }
+    
+    /**
+     * Estima la memoria de los arrays del banco
+     * @return Bytes aproximados en el heap, sin contar los String de los ids
+     */
+    public synchronized long bytesEstimados() {
+        long porSensor = Integer.BYTES + Byte.BYTES + 2L * Double.BYTES + Long.BYTES + Integer.BYTES;
+        return (long) ids.length * porSensor + (long) conectados.length * Long.BYTES;
+    }
+    
+    /**
+     * Vista de un sensor del banco con el contrato de ISensor.
+     * No guarda estado propio: dos vistas del mismo handle son iguales.
+     */
+    private final class VistaSensor implements ISensor {
+        private final int handle;
+        
+        private VistaSensor(int handle) {
+            this.handle = handle;
+        }
+        
+        @Override
+        public double obtenerMedidaActual() {
+            synchronized (BancoSensores.this) {
+                if (!estaConectado(handle)) {
+                    throw new IllegalStateException("No se puede obtener medida de un sensor desconectado");
+                }
+                double medida = estrategias[tipos[handle]].generarMedida();
+                medidas[handle] = medida;
+                marcasNanos[handle] = HistorialLecturas.ahoraEpochNanos();
+                return medida;
+            }
+        }
+        
+        @Override
+        public Lectura obtenerLectura() {
+            synchronized (BancoSensores.this) {
+                if (!estaConectado(handle)) {
+                    return Lectura.sinMedida(this);
+                }
+                double medida = obtenerMedidaActual();
+                return new Lectura(this, medida, EstadoConexion.CONECTADO, marcasNanos[handle]);
+            }
+        }
+        
+        @Override
+        public Optional<Lectura> getUltimaLectura() {
+            synchronized (BancoSensores.this) {
+                if (marcasNanos[handle] == Long.MIN_VALUE) {
+                    return Optional.empty();
+                }
+                return Optional.of(new Lectura(this, medidas[handle], EstadoConexion.CONECTADO,
+                        marcasNanos[handle]));
+            }
+        }
+        
+        @Override
+        public boolean superaUmbral() {
+            synchronized (BancoSensores.this) {
+                if (!estaConectado(handle)) {
+                    return false;
+                }
+                return obtenerMedidaActual() > umbrales[handle];
+            }
+        }
+        
+        @Override
+        public String getId() {
+            return BancoSensores.this.getId(handle);
+        }
+        
+        @Override
+        public TipoSensor getTipo() {
+            return BancoSensores.this.getTipo(handle);
+        }
+        
+        @Override
+        public EstadoConexion getEstadoConexion() {
+            return isConectado(handle) ? EstadoConexion.CONECTADO : EstadoConexion.DESCONECTADO;
+        }
+        
+        @Override
+        public void setEstadoConexion(EstadoConexion estadoConexion) {
+            Objects.requireNonNull(estadoConexion);
+            EstadoConexion anterior;
+            synchronized (BancoSensores.this) {
+                anterior = getEstadoConexion();
+                setConectado(handle, estadoConexion == EstadoConexion.CONECTADO);
+            }
+            if (anterior != estadoConexion) {
+                EventoConexionJfr.registrar(this, anterior, estadoConexion);
+            }
+        }
+        
+        @Override
+        public double getUmbral() {
+            return BancoSensores.this.getUmbral(handle);
+        }
+        
+        @Override
+        public boolean equals(Object otro) {
+            return otro instanceof VistaSensor vista && vista.banco() == BancoSensores.this && vista.handle == handle;
+        }
+        
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(BancoSensores.this) * 31 + handle;
+        }
+        
+        private BancoSensores banco() {
+            return BancoSensores.this;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("Sensor{id='%s', tipo=%s, handle=%d}", getId(), getTipo().getNombre(), handle);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.greengardens.sensors;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Bloque inmutable de lecturas comprimidas con CodificadorGorilla.
+ * Conserva el rango temporal del bloque para poder descartarlo sin descomprimir.
+ */
+public final class BloqueGorilla {
+    private static final int TAMANO_CABECERA = 3 * Integer.BYTES + 2 * Long.BYTES;
+    
+    private final long[] palabras;
+    private final int bits;
+    private final int cantidad;
+    private final int decimales;
+    private final long primeraMarca;
+    private final long ultimaMarca;
+    
+    BloqueGorilla(long[] palabras, int bits, int cantidad, int decimales, long primeraMarca, long ultimaMarca) {
+        this.palabras = palabras;
+        this.bits = bits;
+        this.cantidad = cantidad;
+        this.decimales = decimales;
+        this.primeraMarca = primeraMarca;
+        this.ultimaMarca = ultimaMarca;
+    }
+    
+    /**
+     * Crea un decodificador en streaming sobre este bloque
+     * @return Decodificador posicionado antes de la primera lectura
+     */
+    public DecodificadorGorilla decodificador() {
+        return new DecodificadorGorilla(palabras, cantidad, decimales);
+    }
+    
+    /**
+     * Serializa el bloque en el buffer indicado
+     * @param destino Buffer con al menos getTamanoSerializado() bytes libres
+     */
+    public void escribirEn(ByteBuffer destino) {
+        destino.putInt(cantidad);
+        destino.putInt(bits);
+        destino.putInt(decimales);
+        destino.putLong(primeraMarca);
+        destino.putLong(ultimaMarca);
+        for (long palabra : palabras) {
+            destino.putLong(palabra);
+        }
+    }
+    
+    /**
+     * Lee un bloque serializado con escribirEn
+     * @param origen Buffer posicionado al inicio del bloque
+     * @return Bloque leído
+     */
+    public static BloqueGorilla leerDe(ByteBuffer origen) {
+        int cantidad = origen.getInt();
+        int bits = origen.getInt();
+        int decimales = origen.getInt();
+        long primeraMarca = origen.getLong();
+        long ultimaMarca = origen.getLong();
+        long[] palabras = new long[(bits + 63) >>> 6];
+        for (int i = 0; i < palabras.length; i++) {
+            palabras[i] = origen.getLong();
+        }
+        return new BloqueGorilla(palabras, bits, cantidad, decimales, primeraMarca, ultimaMarca);
+    }
+    
+    /**
+     * Tamaño en bytes del bloque serializado
+     * @return Bytes de cabecera más datos comprimidos
+     */
+    public int getTamanoSerializado() {
+        return TAMANO_CABECERA + palabras.length * Long.BYTES;
+    }
+    
+    /**
+     * Relación entre el tamaño sin comprimir (16 bytes por lectura) y el comprimido
+     * @return Factor de compresión
+     */
+    public double getRatioCompresion() {
+        return cantidad == 0 ? 0.0 : (cantidad * 16.0) / getTamanoSerializado();
+    }
+    
+    public int getCantidad() {
+        return cantidad;
+    }
+    
+    public int getDecimales() {
+        return decimales;
+    }
+    
+    public int getBits() {
+        return bits;
+    }
+    
+    public long getPrimeraMarca() {
+        return primeraMarca;
+    }
+    
+    public long getUltimaMarca() {
+        return ultimaMarca;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("BloqueGorilla{lecturas=%d, bytes=%d, ratio=%.2f}",
+                cantidad, getTamanoSerializado(), getRatioCompresion());
+    }
+}
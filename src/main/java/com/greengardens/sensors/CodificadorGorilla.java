@@ -0,0 +1,229 @@
+package com.greengardens.sensors;
+
+import java.util.Arrays;
+
+/**
+ * Codificador en streaming de series temporales al estilo Gorilla (Facebook).
+ * Las marcas de tiempo se guardan como delta de deltas y los valores como XOR
+ * con el valor anterior, escribiendo solo los bits significativos.
+ * Trabaja directamente con primitivos long/double y produce un BloqueGorilla.
+ *
+ * Las marcas de tiempo se tratan sin pérdida en cualquier unidad (p. ej. nanosegundos),
+ * por eso los tramos de delta de deltas son más anchos que en el formato original.
+ *
+ * Opcionalmente admite un modo decimal: como las estrategias redondean a 2 decimales,
+ * cada valor se escala a entero y se guarda su delta con los mismos tramos que las
+ * marcas, lo que comprime mucho más que el XOR de los bits del double. Los valores
+ * que no son exactamente representables con esos decimales se guardan en crudo.
+ */
+public class CodificadorGorilla {
+    public static final int SIN_DECIMALES = -1;
+    public static final int MAX_DECIMALES = 9;
+    
+    private static final int CAPACIDAD_INICIAL_PALABRAS = 16;
+    
+    private final int decimales;
+    private final double factorDecimal;
+    private long[] palabras;
+    private int bits;
+    private int cantidad;
+    private long primeraMarca;
+    private long ultimaMarca;
+    private long ultimoDelta;
+    private long ultimoValor;
+    private int ultimosCerosIniciales;
+    private int ultimosCerosFinales;
+    private long ultimoEntero;
+    
+    /**
+     * Constructor del codificador con valores XOR (Gorilla clásico)
+     */
+    public CodificadorGorilla() {
+        this(SIN_DECIMALES);
+    }
+    
+    /**
+     * Constructor del codificador
+     * @param decimales Decimales del modo decimal, o SIN_DECIMALES para XOR de doubles
+     */
+    public CodificadorGorilla(int decimales) {
+        if (decimales < SIN_DECIMALES || decimales > MAX_DECIMALES) {
+            throw new IllegalArgumentException("Número de decimales no soportado: " + decimales);
+        }
+        this.decimales = decimales;
+        this.factorDecimal = Math.pow(10, Math.max(0, decimales));
+        this.palabras = new long[CAPACIDAD_INICIAL_PALABRAS];
+        reiniciar();
+    }
+    
+    /**
+     * Añade una lectura al bloque en construcción. Las marcas deben ser no decrecientes.
+     * @param marca Marca de tiempo
+     * @param valor Valor medido
+     */
+    public void agregar(long marca, double valor) {
+        long bitsValor = Double.doubleToRawLongBits(valor);
+        
+        if (cantidad == 0) {
+            escribirBits(marca, 64);
+            primeraMarca = marca;
+        } else {
+            long delta = marca - ultimaMarca;
+            codificarTramos(delta - ultimoDelta);
+            ultimoDelta = delta;
+        }
+        
+        if (decimales != SIN_DECIMALES) {
+            codificarDecimal(valor, bitsValor);
+        } else if (cantidad == 0) {
+            escribirBits(bitsValor, 64);
+        } else {
+            codificarValor(bitsValor);
+        }
+        
+        ultimaMarca = marca;
+        ultimoValor = bitsValor;
+        cantidad++;
+    }
+    
+    /**
+     * Cierra el bloque actual y devuelve una copia inmutable.
+     * El codificador queda listo para empezar un bloque nuevo.
+     * @return Bloque comprimido con todas las lecturas añadidas
+     */
+    public BloqueGorilla sellar() {
+        BloqueGorilla bloque = new BloqueGorilla(Arrays.copyOf(palabras, (bits + 63) >>> 6),
+                bits, cantidad, decimales, primeraMarca, ultimaMarca);
+        reiniciar();
+        return bloque;
+    }
+    
+    /**
+     * Descarta el bloque en construcción
+     */
+    public final void reiniciar() {
+        Arrays.fill(palabras, 0L);
+        bits = 0;
+        cantidad = 0;
+        primeraMarca = 0;
+        ultimaMarca = 0;
+        ultimoDelta = 0;
+        ultimoValor = 0;
+        ultimosCerosIniciales = -1;
+        ultimosCerosFinales = 0;
+        ultimoEntero = 0;
+    }
+    
+    public int getCantidad() {
+        return cantidad;
+    }
+    
+    public int getBitsEscritos() {
+        return bits;
+    }
+    
+    public int getDecimales() {
+        return decimales;
+    }
+    
+    /**
+     * Tramos: '0' (cero), '10' + 7 bits, '110' + 12, '1110' + 20, '11110' + 32, '11111' + 64.
+     * En modo decimal el tramo de 64 bits lleva un bit extra a 0 para distinguirlo del escape.
+     */
+    private void codificarTramos(long dod) {
+        if (dod == 0) {
+            escribirBits(0b0, 1);
+        } else if (cabeEn(dod, 7)) {
+            escribirBits(0b10, 2);
+            escribirBits(dod, 7);
+        } else if (cabeEn(dod, 12)) {
+            escribirBits(0b110, 3);
+            escribirBits(dod, 12);
+        } else if (cabeEn(dod, 20)) {
+            escribirBits(0b1110, 4);
+            escribirBits(dod, 20);
+        } else if (cabeEn(dod, 32)) {
+            escribirBits(0b11110, 5);
+            escribirBits(dod, 32);
+        } else {
+            escribirBits(0b11111, 5);
+            if (decimales != SIN_DECIMALES) {
+                escribirBits(0b0, 1);
+            }
+            escribirBits(dod, 64);
+        }
+    }
+    
+    /**
+     * Modo decimal: delta del valor escalado a entero, o '11111' + '1' + 64 bits en crudo
+     */
+    private void codificarDecimal(double valor, long bitsValor) {
+        double escalado = valor * factorDecimal;
+        long entero = Math.round(escalado);
+        boolean representable = Math.abs(escalado) < 1e15
+                && Double.doubleToRawLongBits(entero / factorDecimal) == bitsValor;
+        
+        if (representable) {
+            codificarTramos(entero - ultimoEntero);
+            ultimoEntero = entero;
+        } else {
+            escribirBits(0b111111, 6);
+            escribirBits(bitsValor, 64);
+        }
+    }
+    
+    /**
+     * '0' si el valor se repite; '10' + bits significativos si caben en la ventana anterior;
+     * '11' + 5 bits de ceros iniciales + 6 bits de longitud + bits significativos en otro caso
+     */
+    private void codificarValor(long bitsValor) {
+        long xor = bitsValor ^ ultimoValor;
+        if (xor == 0) {
+            escribirBits(0b0, 1);
+            return;
+        }
+        
+        int cerosIniciales = Math.min(Long.numberOfLeadingZeros(xor), 31);
+        int cerosFinales = Long.numberOfTrailingZeros(xor);
+        
+        if (ultimosCerosIniciales >= 0 && cerosIniciales >= ultimosCerosIniciales
+                && cerosFinales >= ultimosCerosFinales) {
+            escribirBits(0b10, 2);
+            escribirBits(xor >>> ultimosCerosFinales, 64 - ultimosCerosIniciales - ultimosCerosFinales);
+        } else {
+            int significativos = 64 - cerosIniciales - cerosFinales;
+            escribirBits(0b11, 2);
+            escribirBits(cerosIniciales, 5);
+            escribirBits(significativos == 64 ? 0 : significativos, 6);
+            escribirBits(xor >>> cerosFinales, significativos);
+            ultimosCerosIniciales = cerosIniciales;
+            ultimosCerosFinales = cerosFinales;
+        }
+    }
+    
+    private static boolean cabeEn(long valor, int numeroBits) {
+        return ((valor << (64 - numeroBits)) >> (64 - numeroBits)) == valor;
+    }
+    
+    /**
+     * Escribe los n bits menos significativos de valor, del más al menos significativo
+     */
+    private void escribirBits(long valor, int n) {
+        int necesarias = (bits + n + 63) >>> 6;
+        if (necesarias > palabras.length) {
+            palabras = Arrays.copyOf(palabras, Math.max(necesarias, palabras.length * 2));
+        }
+        
+        long v = n == 64 ? valor : valor & ((1L << n) - 1);
+        int indice = bits >>> 6;
+        int libres = 64 - (bits & 63);
+        if (n <= libres) {
+            palabras[indice] |= v << (libres - n);
+        } else {
+            int resto = n - libres;
+            palabras[indice] |= v >>> resto;
+            palabras[indice + 1] |= v << (64 - resto);
+        }
+        bits += n;
+    }
+}
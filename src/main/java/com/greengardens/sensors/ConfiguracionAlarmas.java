@@ -0,0 +1,73 @@
+package com.greengardens.sensors;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Configuración inmutable de la gestión de alarmas por estados.
+ * Una alarma se dispara al superar el umbral y solo se despeja cuando la medida
+ * baja del umbral menos la banda de histéresis, de modo que un sensor que oscila
+ * alrededor del umbral no notifica en cada ciclo.
+ */
+public final class ConfiguracionAlarmas {
+    public static final ConfiguracionAlarmas POR_DEFECTO =
+            new ConfiguracionAlarmas(0.05, Duration.ofMinutes(5), 10);
+    
+    private final double bandaHisteresis;
+    private final Duration intervaloRenotificacion;
+    private final int umbralTormenta;
+    
+    /**
+     * Constructor de la configuración
+     * @param bandaHisteresis Fracción del umbral que la medida debe bajar para despejar la alarma (0.05 = 5%)
+     * @param intervaloRenotificacion Tiempo mínimo entre recordatorios de una alarma en curso
+     * @param umbralTormenta Notificaciones de un mismo tipo en un ciclo a partir de las cuales
+     *                       se agrupan en una sola; 0 desactiva el modo tormenta
+     */
+    public ConfiguracionAlarmas(double bandaHisteresis, Duration intervaloRenotificacion, int umbralTormenta) {
+        if (!(bandaHisteresis >= 0.0)) {
+            throw new IllegalArgumentException("La banda de histéresis no puede ser negativa");
+        }
+        Objects.requireNonNull(intervaloRenotificacion, "El intervalo de renotificación no puede ser null");
+        if (intervaloRenotificacion.isNegative()) {
+            throw new IllegalArgumentException("El intervalo de renotificación no puede ser negativo");
+        }
+        if (umbralTormenta < 0) {
+            throw new IllegalArgumentException("El umbral de tormenta no puede ser negativo");
+        }
+        this.bandaHisteresis = bandaHisteresis;
+        this.intervaloRenotificacion = intervaloRenotificacion;
+        this.umbralTormenta = umbralTormenta;
+    }
+    
+    public double getBandaHisteresis() {
+        return bandaHisteresis;
+    }
+    
+    public Duration getIntervaloRenotificacion() {
+        return intervaloRenotificacion;
+    }
+    
+    public int getUmbralTormenta() {
+        return umbralTormenta;
+    }
+    
+    public boolean isModoTormenta() {
+        return umbralTormenta > 0;
+    }
+    
+    /**
+     * Calcula el nivel por debajo del cual se despeja la alarma de un sensor
+     * @param umbral Umbral del sensor
+     * @return Nivel de despeje
+     */
+    public double nivelDespeje(double umbral) {
+        return umbral - Math.abs(umbral) * bandaHisteresis;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("ConfiguracionAlarmas{histeresis=%.1f%%, renotificacion=%ds, tormenta=%d}",
+                bandaHisteresis * 100, intervaloRenotificacion.toSeconds(), umbralTormenta);
+    }
+}
@@ -0,0 +1,142 @@
+package com.greengardens.sensors;
+
+/**
+ * Decodificador en streaming de un BloqueGorilla.
+ * Recorre las lecturas en orden sin crear objetos por lectura:
+ * avanzar con siguiente() y consultar marca() y valor().
+ */
+public class DecodificadorGorilla {
+    private final long[] palabras;
+    private final int cantidad;
+    private final int decimales;
+    private final double factorDecimal;
+    private int leidas;
+    private int posicion; // Posición en bits
+    private long marca;
+    private long delta;
+    private long bitsValor;
+    private int cerosIniciales;
+    private int cerosFinales;
+    private long ultimoEntero;
+    
+    DecodificadorGorilla(long[] palabras, int cantidad, int decimales) {
+        this.palabras = palabras;
+        this.cantidad = cantidad;
+        this.decimales = decimales;
+        this.factorDecimal = Math.pow(10, Math.max(0, decimales));
+    }
+    
+    /**
+     * Avanza a la siguiente lectura del bloque
+     * @return true si hay una lectura disponible
+     */
+    public boolean siguiente() {
+        if (leidas == cantidad) {
+            return false;
+        }
+        
+        if (leidas == 0) {
+            marca = leerBits(64);
+        } else {
+            delta += decodificarTramos();
+            marca += delta;
+        }
+        
+        if (decimales != CodificadorGorilla.SIN_DECIMALES) {
+            decodificarDecimal();
+        } else if (leidas == 0) {
+            bitsValor = leerBits(64);
+        } else {
+            decodificarValor();
+        }
+        leidas++;
+        return true;
+    }
+    
+    public long marca() {
+        return marca;
+    }
+    
+    public double valor() {
+        return Double.longBitsToDouble(bitsValor);
+    }
+    
+    private long decodificarTramos() {
+        int unos = contarUnos();
+        if (unos == 5 && decimales != CodificadorGorilla.SIN_DECIMALES) {
+            leerBits(1); // Bit que distingue el tramo de 64 bits del escape en crudo
+        }
+        return leerTramo(unos);
+    }
+    
+    private int contarUnos() {
+        int unos = 0;
+        while (unos < 5 && leerBits(1) == 1) {
+            unos++;
+        }
+        return unos;
+    }
+    
+    private long leerTramo(int unos) {
+        return switch (unos) {
+            case 0 -> 0;
+            case 1 -> extenderSigno(leerBits(7), 7);
+            case 2 -> extenderSigno(leerBits(12), 12);
+            case 3 -> extenderSigno(leerBits(20), 20);
+            case 4 -> extenderSigno(leerBits(32), 32);
+            default -> leerBits(64);
+        };
+    }
+    
+    private void decodificarDecimal() {
+        int unos = contarUnos();
+        if (unos == 5 && leerBits(1) == 1) {
+            bitsValor = leerBits(64);
+            return;
+        }
+        ultimoEntero += leerTramo(unos);
+        bitsValor = Double.doubleToRawLongBits(ultimoEntero / factorDecimal);
+    }
+    
+    private void decodificarValor() {
+        if (leerBits(1) == 0) {
+            return; // Valor repetido
+        }
+        
+        if (leerBits(1) == 1) {
+            cerosIniciales = (int) leerBits(5);
+            int significativos = (int) leerBits(6);
+            if (significativos == 0) {
+                significativos = 64;
+            }
+            cerosFinales = 64 - cerosIniciales - significativos;
+        }
+        
+        int significativos = 64 - cerosIniciales - cerosFinales;
+        bitsValor ^= leerBits(significativos) << cerosFinales;
+    }
+    
+    private static long extenderSigno(long valor, int numeroBits) {
+        return (valor << (64 - numeroBits)) >> (64 - numeroBits);
+    }
+    
+    /**
+     * Lee n bits (1..64) desde la posición actual, del más al menos significativo
+     */
+    private long leerBits(int n) {
+        int indice = posicion >>> 6;
+        int usados = posicion & 63;
+        int libres = 64 - usados;
+        long resultado;
+        if (n <= libres) {
+            resultado = (palabras[indice] << usados) >>> (64 - n);
+        } else {
+            int resto = n - libres;
+            long alto = (palabras[indice] << usados) >>> usados;
+            long bajo = palabras[indice + 1] >>> (64 - resto);
+            resultado = (alto << resto) | bajo;
+        }
+        posicion += n;
+        return resultado;
+    }
+}
@@ -0,0 +1,434 @@
+package com.greengardens.sensors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Despacho asíncrono de alarmas a través de un buffer circular acotado.
+ * El ciclo de monitoreo solo escribe la alarma en el anillo; cada observer suscrito
+ * tiene su propio hilo consumidor con su cursor y su política de desbordamiento,
+ * de modo que un observer lento no retrasa la lectura de sensores ni a los demás observers
+ * (salvo con la política BLOQUEAR, cuando su retraso llena el anillo).
+ * Las suscripciones COALESCER_POR_SENSOR no leen del anillo: el productor deja la última
+ * alarma de cada sensor en una ranura de la suscripción, así que por mucho que se retrase
+ * el observer no pierde la alarma más reciente de ningún sensor. Guardan una ranura por
+ * sensor pendiente, reutilizadas de una alarma a otra.
+ */
+public class DespachadorAlarmas implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(DespachadorAlarmas.class);
+    private static final AtomicInteger CONTADOR_HILOS = new AtomicInteger();
+    public static final int CAPACIDAD_POR_DEFECTO = 1024;
+    public static final Duration UMBRAL_RETRASO_POR_DEFECTO = Duration.ofSeconds(1);
+    
+    private final EventoAlarma[] anillo; // Eventos preasignados que se sobrescriben al publicar
+    private final long[] publicacionNanos;
+    private final int mascara;
+    private final long umbralRetrasoNanos;
+    private final ReentrantLock lock;
+    private final Condition hayAlarmas;
+    private final Condition hayEspacio;
+    private volatile Suscripcion[] suscripciones; // Copia al escribir
+    private long publicadas; // Secuencia de la próxima alarma a escribir
+    private boolean cerrado;
+    
+    /**
+     * Constructor con la capacidad y el umbral de retraso por defecto
+     */
+    public DespachadorAlarmas() {
+        this(CAPACIDAD_POR_DEFECTO, UMBRAL_RETRASO_POR_DEFECTO);
+    }
+    
+    /**
+     * Constructor del despachador
+     * @param capacidad Alarmas que caben en el anillo, se redondea a potencia de dos
+     * @param umbralRetraso Tiempo desde la publicación a partir del cual una entrega cuenta como retrasada
+     */
+    public DespachadorAlarmas(int capacidad, Duration umbralRetraso) {
+        if (capacidad <= 0 || capacidad > 1 << 30) {
+            throw new IllegalArgumentException("La capacidad debe estar entre 1 y 2^30");
+        }
+        Objects.requireNonNull(umbralRetraso, "El umbral de retraso no puede ser null");
+        int tamano = Integer.highestOneBit(capacidad - 1) << 1;
+        tamano = Math.max(tamano, 1);
+        this.anillo = new EventoAlarma[tamano];
+        for (int i = 0; i < tamano; i++) {
+            anillo[i] = new EventoAlarma();
+        }
+        this.publicacionNanos = new long[tamano];
+        this.mascara = tamano - 1;
+        this.umbralRetrasoNanos = umbralRetraso.toNanos();
+        this.lock = new ReentrantLock();
+        this.hayAlarmas = lock.newCondition();
+        this.hayEspacio = lock.newCondition();
+        this.suscripciones = new Suscripcion[0];
+    }
+    
+    /**
+     * Suscribe un observer con su propio hilo consumidor
+     * @param observer Observer que recibirá las alarmas
+     * @param politica Qué hacer cuando el observer se queda atrás
+     * @return Suscripción con los contadores del observer
+     */
+    public Suscripcion suscribir(SistemaAlarma.AlarmaObserver observer, PoliticaDesbordamiento politica) {
+        Objects.requireNonNull(observer, "El observer no puede ser null");
+        Objects.requireNonNull(politica, "La política no puede ser null");
+        Suscripcion suscripcion;
+        lock.lock();
+        try {
+            if (cerrado) {
+                throw new IllegalStateException("El despachador de alarmas está cerrado");
+            }
+            suscripcion = new Suscripcion(observer, politica, publicadas);
+            Suscripcion[] actuales = suscripciones;
+            Suscripcion[] nuevas = new Suscripcion[actuales.length + 1];
+            System.arraycopy(actuales, 0, nuevas, 0, actuales.length);
+            nuevas[actuales.length] = suscripcion;
+            suscripciones = nuevas;
+        } finally {
+            lock.unlock();
+        }
+        suscripcion.hilo.start();
+        return suscripcion;
+    }
+    
+    /**
+     * Cancela la suscripción de un observer; las alarmas que tenía pendientes se descartan
+     * @param observer Observer a desuscribir
+     * @return true si estaba suscrito
+     */
+    public boolean desuscribir(SistemaAlarma.AlarmaObserver observer) {
+        lock.lock();
+        try {
+            Suscripcion[] actuales = suscripciones;
+            for (int i = 0; i < actuales.length; i++) {
+                if (actuales[i].observer == observer) {
+                    Suscripcion[] nuevas = new Suscripcion[actuales.length - 1];
+                    System.arraycopy(actuales, 0, nuevas, 0, i);
+                    System.arraycopy(actuales, i + 1, nuevas, i, nuevas.length - i);
+                    suscripciones = nuevas;
+                    actuales[i].activa = false;
+                    hayAlarmas.signalAll();
+                    hayEspacio.signalAll();
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Copia el evento en el anillo, sin crear objetos. Solo espera si un observer con
+     * política BLOQUEAR tiene el anillo lleno, y solo esa espera crea objetos.
+     * El evento puede reutilizarse al volver.
+     * @param evento Evento de alarma
+     */
+    public void publicar(EventoAlarma evento) {
+        if (suscripciones.length == 0) {
+            return;
+        }
+        tomarLockSinEncolarse();
+        try {
+            while (!cerrado && publicadas - cursorMasLentoBloqueante() >= anillo.length) {
+                hayEspacio.awaitUninterruptibly();
+            }
+            if (cerrado) {
+                return;
+            }
+            int posicion = (int) publicadas & mascara;
+            long ahora = System.nanoTime();
+            anillo[posicion].copiarDe(evento);
+            publicacionNanos[posicion] = ahora;
+            publicadas++;
+            for (Suscripcion suscripcion : suscripciones) {
+                if (suscripcion.politica == PoliticaDesbordamiento.COALESCER_POR_SENSOR) {
+                    suscripcion.coalescer(evento, ahora);
+                }
+            }
+            hayAlarmas.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Toma el lock sin pasar por lock(), que crea un nodo de espera cuando lo encuentra
+     * ocupado. Los consumidores solo lo retienen mientras copian su lote, así que basta
+     * con ceder el procesador hasta que se libere.
+     */
+    private void tomarLockSinEncolarse() {
+        while (!lock.tryLock()) {
+            Thread.yield();
+        }
+    }
+    
+    /**
+     * Cierra el despachador: los consumidores entregan lo que tienen pendiente y terminan
+     * @param espera Tiempo máximo de espera por los consumidores
+     * @return true si todos terminaron dentro del plazo
+     */
+    public boolean cerrar(Duration espera) throws InterruptedException {
+        lock.lock();
+        try {
+            cerrado = true;
+            hayAlarmas.signalAll();
+            hayEspacio.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        long limite = System.nanoTime() + espera.toNanos();
+        for (Suscripcion suscripcion : suscripciones) {
+            long restante = limite - System.nanoTime();
+            suscripcion.hilo.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(restante)));
+            if (suscripcion.hilo.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    public void close() {
+        try {
+            cerrar(Duration.ofSeconds(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    public int getCapacidad() {
+        return anillo.length;
+    }
+    
+    public int getNumeroSuscripciones() {
+        return suscripciones.length;
+    }
+    
+    /**
+     * Menor cursor entre los observers que bloquean al productor; llamar con el lock
+     */
+    private long cursorMasLentoBloqueante() {
+        long minimo = publicadas;
+        for (Suscripcion suscripcion : suscripciones) {
+            if (suscripcion.politica == PoliticaDesbordamiento.BLOQUEAR) {
+                minimo = Math.min(minimo, suscripcion.cursor);
+            }
+        }
+        return minimo;
+    }
+    
+    /**
+     * Consumidor de un observer: lee del anillo por lotes y entrega fuera del lock
+     */
+    public final class Suscripcion {
+        private final SistemaAlarma.AlarmaObserver observer;
+        private final PoliticaDesbordamiento politica;
+        private final Thread hilo;
+        private final EventoAlarma[] lote; // Eventos propios del consumidor, reutilizados en cada lote
+        private final long[] lotePublicacion;
+        private final Map<ISensor, Ranura> ranuraPorSensor; // Solo COALESCER_POR_SENSOR, protegidos por el lock
+        private final ArrayDeque<Ranura> ranurasPendientes; // En orden de la primera alarma pendiente
+        private final ArrayDeque<Ranura> ranurasLibres;
+        private long cursor; // Secuencia de la próxima alarma a leer, protegida por el lock
+        private volatile boolean activa;
+        private volatile long entregadas;
+        private volatile long descartadas;
+        private volatile long coalescidas;
+        private volatile long retrasadas;
+        
+        private Suscripcion(SistemaAlarma.AlarmaObserver observer, PoliticaDesbordamiento politica, long cursor) {
+            this.observer = observer;
+            this.politica = politica;
+            this.cursor = cursor;
+            this.activa = true;
+            this.lote = new EventoAlarma[anillo.length];
+            for (int i = 0; i < lote.length; i++) {
+                lote[i] = new EventoAlarma();
+            }
+            this.lotePublicacion = new long[anillo.length];
+            boolean coalescer = politica == PoliticaDesbordamiento.COALESCER_POR_SENSOR;
+            this.ranuraPorSensor = coalescer ? new IdentityHashMap<>() : null;
+            this.ranurasPendientes = coalescer ? new ArrayDeque<>() : null;
+            this.ranurasLibres = coalescer ? new ArrayDeque<>() : null;
+            this.hilo = new Thread(this::consumir, "DespachoAlarmas-" + CONTADOR_HILOS.incrementAndGet());
+            this.hilo.setDaemon(true);
+        }
+        
+        private void consumir() {
+            while (true) {
+                int cantidad = tomarLote();
+                if (cantidad < 0) {
+                    return;
+                }
+                entregarLote(cantidad);
+            }
+        }
+        
+        /**
+         * Copia las alarmas pendientes al lote local
+         * @return Número de alarmas copiadas, o -1 si el consumidor debe terminar
+         */
+        private int tomarLote() {
+            lock.lock();
+            try {
+                while (activa && !hayPendientes() && !cerrado) {
+                    hayAlarmas.awaitUninterruptibly();
+                }
+                if (!activa || !hayPendientes()) {
+                    return -1;
+                }
+                if (ranurasPendientes != null) {
+                    return tomarRanuras();
+                }
+                long pendientes = publicadas - cursor;
+                if (pendientes > anillo.length) {
+                    // Las alarmas más antiguas ya se sobrescribieron
+                    descartadas += pendientes - anillo.length;
+                    cursor = publicadas - anillo.length;
+                    pendientes = anillo.length;
+                }
+                int cantidad = (int) pendientes;
+                for (int i = 0; i < cantidad; i++) {
+                    int posicion = (int) (cursor + i) & mascara;
+                    lote[i].copiarDe(anillo[posicion]);
+                    lotePublicacion[i] = publicacionNanos[posicion];
+                }
+                cursor += cantidad;
+                if (politica == PoliticaDesbordamiento.BLOQUEAR) {
+                    hayEspacio.signalAll();
+                }
+                return cantidad;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        /**
+         * Deja la alarma en la ranura de su sensor; llamar con el lock
+         */
+        private void coalescer(EventoAlarma evento, long publicacion) {
+            Ranura ranura = ranuraPorSensor.get(evento.getSensor());
+            if (ranura != null) {
+                coalescidas++;
+            } else {
+                ranura = ranurasLibres.isEmpty() ? new Ranura() : ranurasLibres.pollFirst();
+                ranuraPorSensor.put(evento.getSensor(), ranura);
+                ranurasPendientes.addLast(ranura);
+            }
+            ranura.evento.copiarDe(evento);
+            ranura.publicacion = publicacion;
+        }
+        
+        /**
+         * Pasa al lote las ranuras pendientes y las devuelve a las libres; llamar con el lock
+         */
+        private int tomarRanuras() {
+            int cantidad = 0;
+            while (cantidad < lote.length && !ranurasPendientes.isEmpty()) {
+                Ranura ranura = ranurasPendientes.pollFirst();
+                ranuraPorSensor.remove(ranura.evento.getSensor());
+                lote[cantidad].copiarDe(ranura.evento);
+                lotePublicacion[cantidad++] = ranura.publicacion;
+                ranura.evento.limpiar();
+                ranurasLibres.addLast(ranura);
+            }
+            return cantidad;
+        }
+        
+        private boolean hayPendientes() {
+            return ranurasPendientes != null ? !ranurasPendientes.isEmpty() : cursor != publicadas;
+        }
+        
+        private void entregarLote(int cantidad) {
+            for (int i = 0; i < cantidad && activa; i++) {
+                EventoNotificacionJfr evento = EventoNotificacionJfr.iniciar();
+                try {
+                    observer.onAlarma(lote[i]);
+                } catch (Exception e) {
+                    logger.error("Error al notificar observer: {}", e.getMessage());
+                }
+                EventoNotificacionJfr.confirmar(evento, lote[i], observer, true);
+                entregadas++;
+                if (System.nanoTime() - lotePublicacion[i] > umbralRetrasoNanos) {
+                    retrasadas++;
+                }
+            }
+            for (int i = 0; i < cantidad; i++) {
+                lote[i].limpiar();
+            }
+        }
+        
+        public SistemaAlarma.AlarmaObserver getObserver() {
+            return observer;
+        }
+        
+        public PoliticaDesbordamiento getPolitica() {
+            return politica;
+        }
+        
+        public long getEntregadas() {
+            return entregadas;
+        }
+        
+        /**
+         * Alarmas perdidas porque el anillo se sobrescribió antes de leerlas
+         */
+        public long getDescartadas() {
+            return descartadas;
+        }
+        
+        /**
+         * Alarmas sustituidas por otra más reciente del mismo sensor
+         */
+        public long getCoalescidas() {
+            return coalescidas;
+        }
+        
+        /**
+         * Alarmas entregadas después del umbral de retraso
+         */
+        public long getRetrasadas() {
+            return retrasadas;
+        }
+        
+        /**
+         * Alarmas publicadas que el observer todavía no ha leído
+         */
+        public long getPendientes() {
+            lock.lock();
+            try {
+                if (ranurasPendientes != null) {
+                    return ranurasPendientes.size();
+                }
+                return Math.min(publicadas - cursor, anillo.length);
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("Suscripcion{politica=%s, entregadas=%d, descartadas=%d, coalescidas=%d, retrasadas=%d}",
+                    politica.name(), entregadas, descartadas, coalescidas, retrasadas);
+        }
+    }
+    
+    /**
+     * Última alarma pendiente de un sensor en una suscripción COALESCER_POR_SENSOR
+     */
+    private static final class Ranura {
+        private final EventoAlarma evento = new EventoAlarma();
+        private long publicacion;
+    }
+}
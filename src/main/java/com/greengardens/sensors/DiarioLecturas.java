@@ -0,0 +1,496 @@
+package com.greengardens.sensors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Diario persistente de solo escritura al final para las lecturas de sensores.
+ * Cada lectura ocupa un registro binario de tamaño fijo escrito sobre un segmento
+ * mapeado en memoria, por lo que registrar es una simple copia en memoria.
+ * Los segmentos rotan al llenarse y se sincronizan con disco desde un hilo propio
+ * cada intervalo de commit agrupado, nunca desde el hilo de monitoreo.
+ *
+ * Formato del registro (32 bytes): handle del sensor (int), flags (int),
+ * marca de tiempo en nanosegundos desde epoch (long), valor (double), CRC32C de los
+ * 24 bytes anteriores (int) y 4 bytes de relleno. La suma de control detecta los
+ * registros a medio escribir tras una caída, que el orden de escritura en una página
+ * mapeada no garantiza.
+ * La correspondencia handle - id de sensor se guarda en un fichero de texto aparte,
+ * una línea terminada en salto por sensor. Los sensores nuevos se acumulan en memoria
+ * y se añaden a ese fichero en cada commit, sincronizándolo antes que los segmentos.
+ * Para almacenamiento a largo plazo, compactar() convierte el diario en bloques
+ * Gorilla por sensor, mucho más pequeños que los registros de tamaño fijo.
+ */
+public class DiarioLecturas implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(DiarioLecturas.class);
+    
+    public static final int TAMANO_REGISTRO = 32;
+    public static final int FLAG_PRESENTE = 1;   // Distingue un registro escrito del relleno a cero
+    public static final int FLAG_ALARMA = 1 << 1;
+    public static final int FLAG_SIN_MEDIDA = 1 << 2;
+    public static final int REGISTROS_POR_SEGMENTO_POR_DEFECTO = 1 << 20;
+    public static final int LECTURAS_POR_BLOQUE_COMPACTADO = 1 << 16;
+    
+    private static final String PREFIJO_SEGMENTO = "segmento-";
+    private static final String EXTENSION_SEGMENTO = ".diario";
+    private static final String FICHERO_SENSORES = "sensores.txt";
+    private static final int BYTES_CON_SUMA = 24; // Bytes del registro cubiertos por el CRC
+    
+    private final Path directorio;
+    private final int registrosPorSegmento;
+    private final Map<String, Integer> handles;
+    private int siguienteHandle;
+    private final StringBuilder sensoresPendientes; // Correspondencias aún no escritas en disco
+    private final FileChannel canalSensores;
+    private final byte[] registro; // Registro en preparación, para calcular su CRC
+    private final ByteBuffer vistaRegistro;
+    private final CRC32C crc;
+    private final ScheduledExecutorService sincronizador;
+    private FileChannel canal;
+    private MappedByteBuffer segmento;
+    private int numeroSegmento;
+    private int posicion; // Registros escritos en el segmento actual
+    private boolean cerrado;
+    
+    /**
+     * Constructor del diario con valores por defecto
+     * @param directorio Directorio donde se guardan los segmentos
+     */
+    public DiarioLecturas(Path directorio) {
+        this(directorio, REGISTROS_POR_SEGMENTO_POR_DEFECTO, Duration.ofSeconds(1));
+    }
+    
+    /**
+     * Constructor del diario
+     * Si el directorio ya contiene segmentos, se continúa en un segmento nuevo.
+     * @param directorio Directorio donde se guardan los segmentos
+     * @param registrosPorSegmento Número de registros antes de rotar de segmento
+     * @param intervaloCommit Intervalo de sincronización agrupada con disco
+     */
+    public DiarioLecturas(Path directorio, int registrosPorSegmento, Duration intervaloCommit) {
+        this.directorio = Objects.requireNonNull(directorio, "El directorio no puede ser null");
+        Objects.requireNonNull(intervaloCommit, "El intervalo de commit no puede ser null");
+        if (registrosPorSegmento <= 0) {
+            throw new IllegalArgumentException("El número de registros por segmento debe ser positivo");
+        }
+        if (intervaloCommit.isZero() || intervaloCommit.isNegative()) {
+            throw new IllegalArgumentException("El intervalo de commit debe ser positivo");
+        }
+        this.registrosPorSegmento = registrosPorSegmento;
+        this.sensoresPendientes = new StringBuilder();
+        this.registro = new byte[TAMANO_REGISTRO];
+        this.vistaRegistro = ByteBuffer.wrap(registro);
+        this.crc = new CRC32C();
+        
+        try {
+            Files.createDirectories(directorio);
+            this.handles = new HashMap<>();
+            byte[] contenido = leerFicheroSensores(directorio);
+            int confirmados = bytesConfirmados(contenido);
+            parsearSensores(contenido, confirmados).forEach((handle, id) -> {
+                handles.put(id, handle);
+                siguienteHandle = Math.max(siguienteHandle, handle + 1);
+            });
+            this.canalSensores = FileChannel.open(directorio.resolve(FICHERO_SENSORES),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            // Se descarta la línea cortada por una caída para que la siguiente no se escriba pegada a ella
+            canalSensores.truncate(confirmados);
+            this.numeroSegmento = siguienteNumeroSegmento(directorio);
+            abrirSegmento();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el diario en " + directorio, e);
+        }
+        
+        this.sincronizador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "DiarioLecturas-commit");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        long intervalo = intervaloCommit.toNanos();
+        sincronizador.scheduleWithFixedDelay(this::sincronizar, intervalo, intervalo, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Registra una lectura completa en el diario
+     * @param lectura Lectura a persistir
+     */
+    public void registrar(Lectura lectura) {
+        int flags = 0;
+        if (!lectura.tieneMedida()) {
+            flags |= FLAG_SIN_MEDIDA;
+        } else if (lectura.superaUmbral()) {
+            flags |= FLAG_ALARMA;
+        }
+        registrar(obtenerHandle(lectura.getSensor().getId()), lectura.getMarcaTiempoNanos(),
+                lectura.getValor(), flags);
+    }
+    
+    /**
+     * Añade un registro al final del diario. Solo escribe en memoria mapeada.
+     * @param handle Handle numérico del sensor
+     * @param marcaNanos Instante en nanosegundos desde epoch
+     * @param valor Valor medido
+     * @param flags Combinación de FLAG_ALARMA y FLAG_SIN_MEDIDA
+     */
+    public synchronized void registrar(int handle, long marcaNanos, double valor, int flags) {
+        if (cerrado) {
+            throw new IllegalStateException("El diario está cerrado");
+        }
+        if (posicion == registrosPorSegmento) {
+            rotarSegmento();
+        }
+        
+        vistaRegistro.putInt(0, handle);
+        vistaRegistro.putInt(4, flags | FLAG_PRESENTE);
+        vistaRegistro.putLong(8, marcaNanos);
+        vistaRegistro.putDouble(16, valor);
+        crc.reset();
+        crc.update(registro, 0, BYTES_CON_SUMA);
+        vistaRegistro.putInt(BYTES_CON_SUMA, (int) crc.getValue());
+        segmento.put(posicion * TAMANO_REGISTRO, registro);
+        posicion++;
+    }
+    
+    /**
+     * Obtiene el handle numérico de un sensor, asignándolo la primera vez.
+     * La correspondencia se guarda en disco en el siguiente commit, no en esta llamada.
+     * Los handles nuevos siguen al mayor ya asignado, aunque el fichero de sensores tenga huecos.
+     * @param idSensor Identificador del sensor
+     * @return Handle persistente del sensor
+     */
+    public synchronized int obtenerHandle(String idSensor) {
+        Integer handle = handles.get(idSensor);
+        if (handle == null) {
+            handle = siguienteHandle++;
+            handles.put(idSensor, handle);
+            sensoresPendientes.append(handle).append(';').append(idSensor).append('\n');
+        }
+        return handle;
+    }
+    
+    /**
+     * Fuerza a disco las correspondencias de sensores nuevos y después los registros
+     * escritos en el segmento actual.
+     */
+    public void sincronizar() {
+        MappedByteBuffer actual;
+        synchronized (this) {
+            if (cerrado) {
+                return;
+            }
+            actual = segmento;
+        }
+        // La sincronización se hace fuera del bloqueo para no detener a los escritores
+        escribirSensoresPendientes();
+        actual.force();
+    }
+    
+    /**
+     * Añade al fichero de sensores las correspondencias acumuladas y lo sincroniza.
+     * Solo se llama desde el hilo de commit o al cerrar, así que no hay escrituras concurrentes.
+     */
+    private void escribirSensoresPendientes() {
+        String pendientes;
+        synchronized (this) {
+            if (sensoresPendientes.length() == 0) {
+                return;
+            }
+            pendientes = sensoresPendientes.toString();
+            sensoresPendientes.setLength(0);
+        }
+        ByteBuffer datos = ByteBuffer.wrap(pendientes.getBytes(StandardCharsets.UTF_8));
+        try {
+            while (datos.hasRemaining()) {
+                canalSensores.write(datos);
+            }
+            canalSensores.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir el fichero de sensores del diario", e);
+        }
+    }
+    
+    /**
+     * Cierra el diario sincronizando los datos pendientes
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (cerrado) {
+                return;
+            }
+            cerrado = true;
+            sincronizador.shutdown();
+        }
+        // Espera a que termine un commit en curso antes de escribir en el fichero de sensores
+        try {
+            sincronizador.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            escribirSensoresPendientes();
+            segmento.force();
+            cerrarCanal(canal);
+            cerrarCanal(canalSensores);
+        }
+    }
+    
+    /**
+     * Cambia al siguiente segmento. El segmento lleno se sincroniza en segundo plano.
+     */
+    private void rotarSegmento() {
+        MappedByteBuffer anterior = segmento;
+        FileChannel canalAnterior = canal;
+        try {
+            abrirSegmento();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo rotar el segmento del diario", e);
+        }
+        sincronizador.execute(() -> {
+            escribirSensoresPendientes();
+            anterior.force();
+            cerrarCanal(canalAnterior);
+        });
+    }
+    
+    private void abrirSegmento() throws IOException {
+        Path ruta = directorio.resolve(nombreSegmento(numeroSegmento++));
+        canal = FileChannel.open(ruta, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segmento = canal.map(FileChannel.MapMode.READ_WRITE, 0, (long) registrosPorSegmento * TAMANO_REGISTRO);
+        posicion = 0;
+    }
+    
+    private static void cerrarCanal(FileChannel canal) {
+        try {
+            canal.close();
+        } catch (IOException e) {
+            logger.error("Error al cerrar fichero del diario: {}", e.getMessage());
+        }
+    }
+    
+    private static String nombreSegmento(int numero) {
+        return String.format("%s%08d%s", PREFIJO_SEGMENTO, numero, EXTENSION_SEGMENTO);
+    }
+    
+    /**
+     * Recorre secuencialmente todos los registros del diario, en orden de escritura.
+     * Cada segmento se mapea en solo lectura y se entrega registro a registro
+     * como primitivos, sin crear objetos por registro. Un segmento se deja de leer en el
+     * primer registro sin escribir o cuyo CRC no cuadra, que solo puede ser la cola
+     * pendiente de commit cuando se produjo una caída.
+     * @param directorio Directorio del diario
+     * @param consumidor Receptor de los registros
+     * @return Número de registros leídos
+     */
+    public static long reproducir(Path directorio, ConsumidorRegistros consumidor) {
+        Objects.requireNonNull(consumidor, "El consumidor no puede ser null");
+        long leidos = 0;
+        byte[] registro = new byte[BYTES_CON_SUMA];
+        CRC32C crc = new CRC32C();
+        try {
+            for (Path ruta : listarSegmentos(directorio)) {
+                try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+                    MappedByteBuffer datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+                    int limite = datos.capacity() - TAMANO_REGISTRO;
+                    for (int desplazamiento = 0; desplazamiento <= limite; desplazamiento += TAMANO_REGISTRO) {
+                        int flags = datos.getInt(desplazamiento + 4);
+                        if ((flags & FLAG_PRESENTE) == 0) {
+                            break; // Resto del segmento sin escribir
+                        }
+                        datos.get(desplazamiento, registro);
+                        crc.reset();
+                        crc.update(registro, 0, BYTES_CON_SUMA);
+                        if ((int) crc.getValue() != datos.getInt(desplazamiento + BYTES_CON_SUMA)) {
+                            logger.warn("Registro incompleto en {}, posición {}: se ignora el resto del segmento",
+                                    ruta.getFileName(), desplazamiento / TAMANO_REGISTRO);
+                            break;
+                        }
+                        consumidor.aceptar(datos.getInt(desplazamiento), datos.getLong(desplazamiento + 8),
+                                datos.getDouble(desplazamiento + 16), flags);
+                        leidos++;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo reproducir el diario en " + directorio, e);
+        }
+        return leidos;
+    }
+    
+    /**
+     * Compacta el diario en un fichero de bloques Gorilla agrupados por sensor.
+     * Cada bloque se guarda precedido del handle de su sensor. Se conservan marca y valor;
+     * de los flags solo se recupera FLAG_SIN_MEDIDA (valor NaN).
+     * @param directorio Directorio del diario
+     * @param destino Fichero compactado a crear
+     * @return Número de lecturas compactadas
+     */
+    public static long compactar(Path directorio, Path destino) {
+        Map<Integer, CodificadorGorilla> codificadores = new HashMap<>();
+        try (FileChannel salida = FileChannel.open(destino, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long compactadas = reproducir(directorio, (handle, marcaNanos, valor, flags) -> {
+                CodificadorGorilla codificador = codificadores.computeIfAbsent(handle,
+                        h -> new CodificadorGorilla(2));
+                codificador.agregar(marcaNanos, valor);
+                if (codificador.getCantidad() == LECTURAS_POR_BLOQUE_COMPACTADO) {
+                    escribirBloque(salida, handle, codificador.sellar());
+                }
+            });
+            for (Map.Entry<Integer, CodificadorGorilla> entrada : codificadores.entrySet()) {
+                if (entrada.getValue().getCantidad() > 0) {
+                    escribirBloque(salida, entrada.getKey(), entrada.getValue().sellar());
+                }
+            }
+            salida.force(true);
+            return compactadas;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo compactar el diario en " + destino, e);
+        }
+    }
+    
+    /**
+     * Recorre un fichero creado con compactar(), bloque a bloque
+     * @param fichero Fichero compactado
+     * @param consumidor Receptor de los registros
+     * @return Número de registros leídos
+     */
+    public static long reproducirCompactado(Path fichero, ConsumidorRegistros consumidor) {
+        Objects.requireNonNull(consumidor, "El consumidor no puede ser null");
+        long leidos = 0;
+        try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.READ)) {
+            MappedByteBuffer datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            while (datos.hasRemaining()) {
+                int handle = datos.getInt();
+                DecodificadorGorilla decodificador = BloqueGorilla.leerDe(datos).decodificador();
+                while (decodificador.siguiente()) {
+                    double valor = decodificador.valor();
+                    int flags = FLAG_PRESENTE | (Double.isNaN(valor) ? FLAG_SIN_MEDIDA : 0);
+                    consumidor.aceptar(handle, decodificador.marca(), valor, flags);
+                    leidos++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el diario compactado " + fichero, e);
+        }
+        return leidos;
+    }
+    
+    private static void escribirBloque(FileChannel salida, int handle, BloqueGorilla bloque) {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + bloque.getTamanoSerializado());
+        buffer.putInt(handle);
+        bloque.escribirEn(buffer);
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                salida.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir un bloque compactado", e);
+        }
+    }
+    
+    /**
+     * Lee la correspondencia handle - id de sensor de un diario.
+     * Los registros confirmados siempre tienen su correspondencia; tras una caída solo puede
+     * faltar la de sensores cuyas lecturas quedaron en la cola aún no confirmada.
+     * Una última línea sin salto final es una escritura cortada por la caída y se ignora.
+     * @param directorio Directorio del diario
+     * @return Mapa de handle a id de sensor
+     */
+    public static Map<Integer, String> leerSensores(Path directorio) {
+        byte[] contenido = leerFicheroSensores(directorio);
+        return parsearSensores(contenido, bytesConfirmados(contenido));
+    }
+    
+    private static byte[] leerFicheroSensores(Path directorio) {
+        Path fichero = directorio.resolve(FICHERO_SENSORES);
+        if (!Files.exists(fichero)) {
+            return new byte[0];
+        }
+        try {
+            return Files.readAllBytes(fichero);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el fichero de sensores", e);
+        }
+    }
+    
+    /**
+     * Longitud del fichero de sensores hasta el último salto de línea, incluido
+     */
+    private static int bytesConfirmados(byte[] contenido) {
+        int fin = contenido.length;
+        while (fin > 0 && contenido[fin - 1] != '\n') {
+            fin--;
+        }
+        return fin;
+    }
+    
+    private static Map<Integer, String> parsearSensores(byte[] contenido, int longitud) {
+        Map<Integer, String> sensores = new HashMap<>();
+        for (String linea : new String(contenido, 0, longitud, StandardCharsets.UTF_8).split("\n")) {
+            int separador = linea.indexOf(';');
+            if (separador > 0) {
+                sensores.put(Integer.parseInt(linea.substring(0, separador)), linea.substring(separador + 1));
+            }
+        }
+        return sensores;
+    }
+    
+    private static int siguienteNumeroSegmento(Path directorio) throws IOException {
+        List<Path> segmentos = listarSegmentos(directorio);
+        if (segmentos.isEmpty()) {
+            return 0;
+        }
+        String ultimo = segmentos.get(segmentos.size() - 1).getFileName().toString();
+        return Integer.parseInt(ultimo.substring(PREFIJO_SEGMENTO.length(),
+                ultimo.length() - EXTENSION_SEGMENTO.length())) + 1;
+    }
+    
+    private static List<Path> listarSegmentos(Path directorio) throws IOException {
+        if (!Files.isDirectory(directorio)) {
+            return List.of();
+        }
+        try (Stream<Path> rutas = Files.list(directorio)) {
+            return rutas.filter(ruta -> {
+                        String nombre = ruta.getFileName().toString();
+                        return nombre.startsWith(PREFIJO_SEGMENTO) && nombre.endsWith(EXTENSION_SEGMENTO);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+    
+    public Path getDirectorio() {
+        return directorio;
+    }
+    
+    /**
+     * Receptor de registros durante la reproducción del diario
+     */
+    @FunctionalInterface
+    public interface ConsumidorRegistros {
+        void aceptar(int handle, long marcaNanos, double valor, int flags);
+    }
+}
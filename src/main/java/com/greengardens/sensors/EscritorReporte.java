@@ -0,0 +1,135 @@
+package com.greengardens.sensors;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Escribe el reporte de estado sensor a sensor en un Appendable.
+ * No mide ningún sensor: usa la última lectura conocida y su antigüedad.
+ * Reutiliza un único buffer de línea, por lo que la memoria usada no depende
+ * del número de sensores.
+ */
+final class EscritorReporte {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    
+    private final Appendable destino;
+    private final Set<TipoSensor> tipos;
+    private final Set<EstadoConexion> estados;
+    private final StringBuilder linea;
+    
+    /**
+     * @param destino Donde se escribe el reporte
+     * @param tipos Tipos incluidos
+     * @param estados Estados de conexión incluidos
+     */
+    EscritorReporte(Appendable destino, Set<TipoSensor> tipos, Set<EstadoConexion> estados) {
+        this.destino = destino;
+        this.tipos = tipos;
+        this.estados = estados;
+        this.linea = new StringBuilder(256);
+    }
+    
+    /**
+     * Escribe el reporte completo
+     * @return Número de sensores incluidos tras aplicar los filtros
+     */
+    int escribir(RegistroSensores.Instantanea sensores, boolean sistemaActivo) throws IOException {
+        long ahoraNanos = HistorialLecturas.ahoraEpochNanos();
+        linea.setLength(0);
+        linea.append("=== REPORTE DEL SISTEMA DE ALARMA ===\n");
+        linea.append("Estado del sistema: ").append(sistemaActivo ? "ACTIVO" : "INACTIVO").append('\n');
+        linea.append("Total de sensores: ").append(sensores.tamano()).append('\n');
+        linea.append("Tiempo de reporte: ").append(LocalDateTime.now().format(FORMATTER)).append("\n\n");
+        destino.append(linea);
+        
+        int incluidos = 0;
+        for (ISensor sensor : sensores) {
+            if (!tipos.contains(sensor.getTipo()) || !estados.contains(sensor.getEstadoConexion())) {
+                continue;
+            }
+            linea.setLength(0);
+            escribirSensor(sensor, ahoraNanos);
+            destino.append(linea);
+            incluidos++;
+        }
+        
+        linea.setLength(0);
+        linea.append("Sensores incluidos en el reporte: ").append(incluidos).append('\n');
+        destino.append(linea);
+        if (destino instanceof Flushable flushable) {
+            flushable.flush();
+        }
+        return incluidos;
+    }
+    
+    private void escribirSensor(ISensor sensor, long ahoraNanos) {
+        TipoSensor tipo = sensor.getTipo();
+        linea.append("Sensor ID: ").append(sensor.getId()).append('\n');
+        linea.append("  Tipo: ").append(tipo.getNombre()).append('\n');
+        linea.append("  Estado: ").append(sensor.getEstadoConexion()).append('\n');
+        linea.append("  Umbral: ");
+        anexarDecimal(sensor.getUmbral());
+        linea.append(' ').append(tipo.getUnidadMedida()).append('\n');
+        
+        try {
+            Optional<Lectura> ultima = sensor.getUltimaLectura();
+            if (ultima.isPresent() && ultima.get().tieneMedida()) {
+                Lectura lectura = ultima.get();
+                linea.append("  Última medida: ");
+                anexarDecimal(lectura.getValor());
+                linea.append(' ').append(tipo.getUnidadMedida())
+                        .append(lectura.getValor() > sensor.getUmbral() ? " ⚠️ ALARMA" : " ✅ OK")
+                        .append(" (hace ");
+                anexarAntiguedad(ahoraNanos - lectura.getMarcaTiempoNanos());
+                linea.append(")\n");
+            } else {
+                linea.append("  Sin medida conocida\n");
+            }
+        } catch (Exception e) {
+            linea.append("  Error al consultar la última medida: ").append(e.getMessage()).append('\n');
+        }
+        
+        if (sensor instanceof SensorCompuesto sensorCompuesto) {
+            linea.append("  Sensores individuales: ").append(sensorCompuesto.getNumeroSensoresConectados())
+                    .append('/').append(sensorCompuesto.getNumeroSensores()).append(" conectados\n");
+        }
+        linea.append('\n');
+    }
+    
+    /**
+     * Añade el valor con dos decimales sin pasar por String.format
+     */
+    private void anexarDecimal(double valor) {
+        if (!Double.isFinite(valor)) {
+            linea.append(valor);
+            return;
+        }
+        long centesimas = Math.round(Math.abs(valor) * 100.0);
+        if (valor < 0 && centesimas != 0) {
+            linea.append('-');
+        }
+        long resto = centesimas % 100;
+        linea.append(centesimas / 100).append('.');
+        if (resto < 10) {
+            linea.append('0');
+        }
+        linea.append(resto);
+    }
+    
+    private void anexarAntiguedad(long nanos) {
+        long millis = Math.max(0, nanos / 1_000_000L);
+        if (millis < 1_000) {
+            linea.append(millis).append(" ms");
+        } else if (millis < 120_000) {
+            linea.append(millis / 1_000).append(" s");
+        } else if (millis < 7_200_000) {
+            linea.append(millis / 60_000).append(" min");
+        } else {
+            linea.append(millis / 3_600_000).append(" h");
+        }
+    }
+}
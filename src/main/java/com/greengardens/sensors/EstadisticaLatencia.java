@@ -0,0 +1,78 @@
+package com.greengardens.sensors;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Contador concurrente de latencias con cantidad, media y máximo.
+ * Es la alternativa ligera a HistogramaLatencias para llevar una por sensor: son
+ * tres campos long en el propio objeto (unos 40 bytes, sin objetos auxiliares)
+ * actualizados con operaciones atómicas, y registrar no bloquea ni crea objetos.
+ * No reparte la contención como LongAdder; a cambio no crece con ella, y una
+ * estadística por sensor rara vez la registran dos hilos a la vez.
+ */
+public final class EstadisticaLatencia {
+    private static final VarHandle CANTIDAD;
+    private static final VarHandle SUMA_NANOS;
+    private static final VarHandle MAXIMO_NANOS;
+    
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            CANTIDAD = lookup.findVarHandle(EstadisticaLatencia.class, "cantidad", long.class);
+            SUMA_NANOS = lookup.findVarHandle(EstadisticaLatencia.class, "sumaNanos", long.class);
+            MAXIMO_NANOS = lookup.findVarHandle(EstadisticaLatencia.class, "maximoNanos", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    
+    private volatile long cantidad;
+    private volatile long sumaNanos;
+    private volatile long maximoNanos;
+    
+    /**
+     * Registra una latencia
+     * @param nanos Duración en nanosegundos
+     */
+    public void registrar(long nanos) {
+        CANTIDAD.getAndAdd(this, 1L);
+        SUMA_NANOS.getAndAdd(this, nanos);
+        long actual;
+        while (nanos > (actual = maximoNanos) && !MAXIMO_NANOS.compareAndSet(this, actual, nanos)) {
+            // Otro hilo subió el máximo a la vez: se compara con el nuevo
+        }
+    }
+    
+    public long getCantidad() {
+        return cantidad;
+    }
+    
+    /**
+     * Obtiene la latencia media
+     * @return Media en nanosegundos, o NaN si no hay registros
+     */
+    public double getMediaNanos() {
+        long total = cantidad;
+        return total == 0 ? Double.NaN : (double) sumaNanos / total;
+    }
+    
+    public long getMaximoNanos() {
+        return maximoNanos;
+    }
+    
+    /**
+     * Vacía la estadística. Los registros concurrentes con el reinicio pueden perderse
+     */
+    public void reiniciar() {
+        cantidad = 0;
+        sumaNanos = 0;
+        maximoNanos = 0;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("EstadisticaLatencia{cantidad=%d, media=%.0f ns, max=%d ns}",
+                getCantidad(), getMediaNanos(), getMaximoNanos());
+    }
+}
@@ -0,0 +1,25 @@
+package com.greengardens.sensors;
+
+/**
+ * Enumeración que representa el estado de alarma de un sensor
+ */
+public enum EstadoAlarma {
+    DISPARADA("La medida acaba de superar el umbral"),
+    EN_CURSO("La medida sigue por encima del nivel de despeje"),
+    DESPEJADA("La medida bajó del nivel de despeje o nunca superó el umbral");
+    
+    private final String descripcion;
+    
+    EstadoAlarma(String descripcion) {
+        this.descripcion = descripcion;
+    }
+    
+    public String getDescripcion() {
+        return descripcion;
+    }
+    
+    @Override
+    public String toString() {
+        return descripcion;
+    }
+}
@@ -1,10 +1,18 @@
 package com.greengardens.sensors;
 
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
 /**
  * Factory para crear estrategias de medición
  * Patrón Factory Method
+ * Cada estrategia tiene su propio generador, por lo que los sensores no compiten
+ * por un Random compartido al leerse en paralelo. Con una semilla fijada, el
+ * generador de cada sensor se deriva de la semilla y de su id, y una misma
+ * ejecución produce exactamente las mismas lecturas.
  */
 public class EstrategiaFactory {
+    private static volatile Long semilla; // null: generadores con semilla aleatoria
     
     /**
      * Crea la estrategia apropiada según el tipo de sensor
@@ -12,12 +20,84 @@ public class EstrategiaFactory {
      * @return Estrategia de medición correspondiente
      */
     public static EstrategiaMedicion crearEstrategia(TipoSensor tipo) {
+        return crearEstrategia(tipo, new SplittableRandom());
+    }
+    
+    /**
+     * Crea la estrategia de un sensor concreto; con semilla fijada su secuencia es reproducible
+     * @param tipo Tipo de sensor
+     * @param idSensor Identificador del sensor, del que se deriva su generador
+     * @return Estrategia de medición correspondiente
+     */
+    public static EstrategiaMedicion crearEstrategia(TipoSensor tipo, String idSensor) {
+        Long actual = semilla;
+        if (actual == null) {
+            return crearEstrategia(tipo);
+        }
+        return crearEstrategia(tipo, new SplittableRandom(derivarSemilla(actual, tipo, idSensor)));
+    }
+    
+    /**
+     * Mezcla la semilla con el tipo y con cada carácter del id en 64 bits. El hashCode de
+     * String no sirve: ids distintos con el mismo hash ("Aa" y "BB") compartirían secuencia.
+     */
+    static long derivarSemilla(long semillaBase, TipoSensor tipo, String idSensor) {
+        long derivada = mezclar(semillaBase ^ tipo.ordinal());
+        for (int i = 0; i < idSensor.length(); i++) {
+            derivada = mezclar(derivada ^ idSensor.charAt(i));
+        }
+        return mezclar(derivada ^ idSensor.length());
+    }
+    
+    /**
+     * Finalizador de SplitMix64 (variante 13 de Stafford): cada bit de entrada afecta a todos los de salida
+     */
+    private static long mezclar(long valor) {
+        long z = valor + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    /**
+     * Crea una estrategia compartida por todos los sensores de un tipo, para el BancoSensores,
+     * cuyos sensores no tienen estrategia propia. Con semilla fijada su generador se deriva
+     * de la semilla y del tipo.
+     * @param tipo Tipo de sensor
+     * @return Estrategia de medición correspondiente
+     */
+    public static EstrategiaMedicion crearEstrategiaCompartida(TipoSensor tipo) {
+        return crearEstrategia(tipo, tipo.name());
+    }
+    
+    /**
+     * Crea la estrategia apropiada usando el generador indicado
+     * @param tipo Tipo de sensor
+     * @param random Generador de números aleatorios de la estrategia
+     * @return Estrategia de medición correspondiente
+     */
+    public static EstrategiaMedicion crearEstrategia(TipoSensor tipo, RandomGenerator random) {
         return switch (tipo) {
-            case HUMEDAD_SUELO -> new EstrategiaHumedad();
-            case TEMPERATURA -> new EstrategiaTemperatura();
-            case LUZ_SOLAR -> new EstrategiaLuzSolar();
-            case PH_SUELO -> new EstrategiaPH();
-            case VIENTO -> new EstrategiaViento();
+            case HUMEDAD_SUELO -> new EstrategiaHumedad(random);
+            case TEMPERATURA -> new EstrategiaTemperatura(random);
+            case LUZ_SOLAR -> new EstrategiaLuzSolar(random);
+            case PH_SUELO -> new EstrategiaPH(random);
+            case VIENTO -> new EstrategiaViento(random);
         };
     }
+    
+    /**
+     * Fija la semilla de la ejecución para los sensores que se creen a partir de ahora
+     * @param nuevaSemilla Semilla de la simulación
+     */
+    public static void fijarSemilla(long nuevaSemilla) {
+        semilla = nuevaSemilla;
+    }
+    
+    /**
+     * Vuelve a crear generadores con semilla aleatoria
+     */
+    public static void quitarSemilla() {
+        semilla = null;
+    }
 }
@@ -1,5 +1,7 @@
 package com.greengardens.sensors;
 
+import java.util.Objects;
+
 /**
  * Interface para el patrón Strategy - Strategy
  * Define diferentes estrategias de medición según el tipo de sensor
@@ -12,6 +14,35 @@ public interface EstrategiaMedicion {
      */
     double generarMedida();
     
+    /**
+     * Genera en una sola llamada las medidas de varios sensores del mismo tipo
+     * @param destino Array donde escribir las medidas
+     * @param desde Posición de la primera medida
+     * @param cantidad Número de medidas a generar
+     */
+    default void generarMedidas(double[] destino, int desde, int cantidad) {
+        Objects.checkFromIndexSize(desde, cantidad, destino.length);
+        for (int i = desde; i < desde + cantidad; i++) {
+            destino[i] = generarMedida();
+        }
+    }
+    
+    /**
+     * Genera la medida de cada estrategia de un lote, cada una con su propio generador.
+     * Se espera que todas las estrategias del lote sean de la misma clase que esta.
+     * @param estrategias Estrategias a medir, en las mismas posiciones que destino
+     * @param destino Array donde escribir las medidas
+     * @param desde Posición de la primera medida
+     * @param cantidad Número de medidas a generar
+     */
+    default void generarMedidas(EstrategiaMedicion[] estrategias, double[] destino, int desde, int cantidad) {
+        Objects.checkFromIndexSize(desde, cantidad, estrategias.length);
+        Objects.checkFromIndexSize(desde, cantidad, destino.length);
+        for (int i = desde; i < desde + cantidad; i++) {
+            destino[i] = estrategias[i].generarMedida();
+        }
+    }
+    
     /**
      * Obtiene el nombre de la estrategia
      * @return Nombre descriptivo
@@ -1,18 +1,48 @@
 package com.greengardens.sensors;
 
-import java.util.Random;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * Estrategia específica para sensores de pH
  * Patrón Strategy - ConcreteStrategy
  */
 public class EstrategiaPH implements EstrategiaMedicion {
-    private static final Random random = new Random();
     private static final double MIN_PH = 4.0;
     private static final double MAX_PH = 10.0;
     
+    private final RandomGenerator random;
+    
+    /**
+     * Constructor con un generador propio de semilla aleatoria
+     */
+    public EstrategiaPH() {
+        this(new SplittableRandom());
+    }
+    
+    /**
+     * Constructor con un generador concreto, para simulaciones reproducibles
+     * @param random Generador de números aleatorios
+     */
+    public EstrategiaPH(RandomGenerator random) {
+        this.random = Objects.requireNonNull(random, "El generador no puede ser null");
+    }
+    
     @Override
-    public double generarMedida() {
+    public synchronized double generarMedida() {
+        return medir();
+    }
+    
+    @Override
+    public synchronized void generarMedidas(double[] destino, int desde, int cantidad) {
+        Objects.checkFromIndexSize(desde, cantidad, destino.length);
+        for (int i = desde; i < desde + cantidad; i++) {
+            destino[i] = medir();
+        }
+    }
+    
+    private double medir() {
         // Simular pH del suelo
         double base = MIN_PH + random.nextDouble() * (MAX_PH - MIN_PH);
         
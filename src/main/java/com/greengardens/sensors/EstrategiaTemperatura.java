@@ -1,23 +1,58 @@
 package com.greengardens.sensors;
 
-import java.util.Random;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * Estrategia específica para sensores de temperatura
  * Patrón Strategy - ConcreteStrategy
  */
 public class EstrategiaTemperatura implements EstrategiaMedicion {
-    private static final Random random = new Random();
     private static final double MIN_TEMP = 5.0;
     private static final double MAX_TEMP = 45.0;
     
+    private final RandomGenerator random;
+    private double fase; // Fase de la variación diurna simulada, en [0, 2π)
+    
+    /**
+     * Constructor con un generador propio de semilla aleatoria
+     */
+    public EstrategiaTemperatura() {
+        this(new SplittableRandom());
+    }
+    
+    /**
+     * Constructor con un generador concreto, para simulaciones reproducibles
+     * @param random Generador de números aleatorios
+     */
+    public EstrategiaTemperatura(RandomGenerator random) {
+        this.random = Objects.requireNonNull(random, "El generador no puede ser null");
+    }
+    
     @Override
-    public double generarMedida() {
+    public synchronized double generarMedida() {
+        return medir();
+    }
+    
+    @Override
+    public synchronized void generarMedidas(double[] destino, int desde, int cantidad) {
+        Objects.checkFromIndexSize(desde, cantidad, destino.length);
+        for (int i = desde; i < desde + cantidad; i++) {
+            destino[i] = medir();
+        }
+    }
+    
+    private double medir() {
         // Simular temperatura ambiente con variaciones diurnas
         double base = MIN_TEMP + random.nextDouble() * (MAX_TEMP - MIN_TEMP);
         
-        // Simular variación por hora del día
-        double variacionDiurna = Math.sin(System.currentTimeMillis() / 1000.0) * 5.0;
+        // Simular variación por hora del día; la fase avanza con cada muestra y no con el reloj
+        double variacionDiurna = Math.sin(fase) * 5.0;
+        fase += 1.0;
+        if (fase >= 2 * Math.PI) {
+            fase -= 2 * Math.PI; // Mantenerla acotada evita la reducción de rango cara de Math.sin
+        }
         double resultado = Math.max(MIN_TEMP, Math.min(MAX_TEMP, base + variacionDiurna));
         
         return Math.round(resultado * 100.0) / 100.0;
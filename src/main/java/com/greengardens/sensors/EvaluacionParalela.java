@@ -0,0 +1,188 @@
+package com.greengardens.sensors;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Evaluación fork/join de un árbol de sensores compuestos.
+ * El trabajo se reparte según el número de hojas de cada subárbol y, por debajo
+ * del umbral secuencial, se evalúa en el propio hilo. Cada compuesto guarda los
+ * valores de sus hijos en orden y los suma con la misma operación que el camino
+ * secuencial, por lo que el promedio es idéntico bit a bit. Como en obtenerMedidaActual(),
+ * cada compuesto evaluado, raíz incluida, guarda su promedio y lo notifica a sus observers.
+ * Los compuestos en modo PUSH se tratan como hojas: su valor ya está calculado.
+ */
+final class EvaluacionParalela {
+    private final Map<ISensor, Integer> tamanos; // Hojas por subárbol, calculado antes de evaluar
+    private final int umbralSecuencial;
+    private final LongAdder hojasEvaluadas;
+    
+    private EvaluacionParalela(int umbralSecuencial) {
+        this.tamanos = new IdentityHashMap<>();
+        this.umbralSecuencial = umbralSecuencial;
+        this.hojasEvaluadas = new LongAdder();
+    }
+    
+    /**
+     * Evalúa el compuesto raíz en el pool indicado
+     * @param raiz Compuesto a evaluar
+     * @param pool Pool fork/join
+     * @param umbralSecuencial Hojas por debajo de las cuales no se divide el trabajo
+     * @return Promedio, hojas evaluadas y duración
+     */
+    static ResultadoEvaluacion evaluar(SensorCompuesto raiz, ForkJoinPool pool, int umbralSecuencial) {
+        long inicio = System.nanoTime();
+        EvaluacionParalela evaluacion = new EvaluacionParalela(umbralSecuencial);
+        evaluacion.calcularTamano(raiz);
+        double promedio = pool.invoke(evaluacion.new TareaNodo(raiz));
+        return new ResultadoEvaluacion(promedio, evaluacion.hojasEvaluadas.sum(),
+                Duration.ofNanos(System.nanoTime() - inicio));
+    }
+    
+    private int calcularTamano(ISensor sensor) {
+        if (!esCompuestoConsulta(sensor)) {
+            return 1;
+        }
+        int tamano = 0;
+        for (ISensor hijo : ((SensorCompuesto) sensor).getSensoresHijos()) {
+            tamano += calcularTamano(hijo);
+        }
+        tamano = Math.max(1, tamano);
+        tamanos.put(sensor, tamano);
+        return tamano;
+    }
+    
+    private static boolean esCompuestoConsulta(ISensor sensor) {
+        return sensor instanceof SensorCompuesto compuesto && compuesto.getModo() == ModoAgregacion.CONSULTA;
+    }
+    
+    private int tamano(ISensor sensor) {
+        return tamanos.getOrDefault(sensor, 1);
+    }
+    
+    /**
+     * Hijos conectados de un compuesto, o excepción igual que en el camino secuencial
+     */
+    private static List<ISensor> hijosConectados(SensorCompuesto compuesto) {
+        if (compuesto.getEstadoConexion() == EstadoConexion.DESCONECTADO) {
+            throw new IllegalStateException("No se puede obtener medida de un sensor desconectado");
+        }
+        List<ISensor> conectados = compuesto.getSensoresHijos().stream()
+                .filter(sensor -> sensor.getEstadoConexion() == EstadoConexion.CONECTADO)
+                .toList();
+        if (conectados.isEmpty()) {
+            throw new IllegalStateException("No hay sensores conectados para calcular el promedio");
+        }
+        return conectados;
+    }
+    
+    private static double promedio(double[] valores) {
+        return Arrays.stream(valores).sum() / valores.length;
+    }
+    
+    private double evaluarSecuencial(ISensor sensor) {
+        if (!esCompuestoConsulta(sensor)) {
+            hojasEvaluadas.increment();
+            return sensor.obtenerMedidaActual();
+        }
+        List<ISensor> conectados = hijosConectados((SensorCompuesto) sensor);
+        double[] valores = new double[conectados.size()];
+        for (int i = 0; i < valores.length; i++) {
+            valores[i] = evaluarSecuencial(conectados.get(i));
+        }
+        return registrar(sensor, promedio(valores));
+    }
+    
+    private static double registrar(ISensor compuesto, double promedio) {
+        ((SensorCompuesto) compuesto).registrarPromedio(promedio);
+        return promedio;
+    }
+    
+    /**
+     * Evalúa un compuesto completo
+     */
+    private final class TareaNodo extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+        
+        private final ISensor nodo;
+        
+        TareaNodo(ISensor nodo) {
+            this.nodo = nodo;
+        }
+        
+        @Override
+        protected Double compute() {
+            if (!esCompuestoConsulta(nodo) || tamano(nodo) <= umbralSecuencial) {
+                return evaluarSecuencial(nodo);
+            }
+            
+            List<ISensor> conectados = hijosConectados((SensorCompuesto) nodo);
+            int[] prefijos = new int[conectados.size() + 1];
+            for (int i = 0; i < conectados.size(); i++) {
+                prefijos[i + 1] = prefijos[i] + tamano(conectados.get(i));
+            }
+            double[] valores = new double[conectados.size()];
+            new TareaRango(conectados, prefijos, valores, 0, conectados.size()).compute();
+            return registrar(nodo, promedio(valores));
+        }
+    }
+    
+    /**
+     * Evalúa un rango de hijos de un compuesto, dividiéndolo por número de hojas
+     */
+    private final class TareaRango extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final List<ISensor> hijos;
+        private final int[] prefijos;
+        private final double[] valores;
+        private final int desde;
+        private final int hasta;
+        
+        TareaRango(List<ISensor> hijos, int[] prefijos, double[] valores, int desde, int hasta) {
+            this.hijos = hijos;
+            this.prefijos = prefijos;
+            this.valores = valores;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+        
+        @Override
+        protected void compute() {
+            if (hasta - desde == 1) {
+                valores[desde] = new TareaNodo(hijos.get(desde)).compute();
+                return;
+            }
+            
+            int tamanoRango = prefijos[hasta] - prefijos[desde];
+            if (tamanoRango <= umbralSecuencial) {
+                for (int i = desde; i < hasta; i++) {
+                    valores[i] = evaluarSecuencial(hijos.get(i));
+                }
+                return;
+            }
+            
+            int medio = puntoDeCorte(prefijos[desde] + tamanoRango / 2);
+            invokeAll(new TareaRango(hijos, prefijos, valores, desde, medio),
+                    new TareaRango(hijos, prefijos, valores, medio, hasta));
+        }
+        
+        /**
+         * Primer índice cuyo prefijo alcanza la mitad de hojas, dentro de (desde, hasta)
+         */
+        private int puntoDeCorte(int mitad) {
+            int indice = Arrays.binarySearch(prefijos, desde, hasta + 1, mitad);
+            if (indice < 0) {
+                indice = -indice - 1;
+            }
+            return Math.min(Math.max(indice, desde + 1), hasta - 1);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.greengardens.sensors;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Evento de alarma estructurado y reutilizable.
+ * Los datos se guardan como primitivos y el mensaje de texto solo se genera
+ * la primera vez que se pide, quedando cacheado. Los eventos provienen de un pool:
+ * solo son válidos durante la llamada al observer, por lo que quien necesite
+ * conservarlos debe usar copiar().
+ */
+public final class EventoAlarma {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    
+    private TipoEventoAlarma tipoEvento;
+    private ISensor sensor;
+    private int handle;
+    private double valor;
+    private double umbral;
+    private long marcaTiempoNanos;
+    private int sensoresAfectados;
+    private String mensaje; // Generado bajo demanda
+    
+    EventoAlarma() {
+    }
+    
+    /**
+     * Rellena el evento para reutilizarlo, descartando el mensaje cacheado
+     */
+    void rellenar(TipoEventoAlarma tipoEvento, ISensor sensor, int handle, double valor, double umbral,
+                  long marcaTiempoNanos, int sensoresAfectados) {
+        this.tipoEvento = tipoEvento;
+        this.sensor = sensor;
+        this.handle = handle;
+        this.valor = valor;
+        this.umbral = umbral;
+        this.marcaTiempoNanos = marcaTiempoNanos;
+        this.sensoresAfectados = sensoresAfectados;
+        this.mensaje = null;
+    }
+    
+    /**
+     * Copia el contenido de otro evento, incluido su mensaje si ya estaba generado
+     */
+    void copiarDe(EventoAlarma origen) {
+        rellenar(origen.tipoEvento, origen.sensor, origen.handle, origen.valor, origen.umbral,
+                origen.marcaTiempoNanos, origen.sensoresAfectados);
+        this.mensaje = origen.mensaje;
+    }
+    
+    /**
+     * Suelta las referencias para que un evento del pool no retenga sensores removidos
+     */
+    void limpiar() {
+        this.tipoEvento = null;
+        this.sensor = null;
+        this.mensaje = null;
+    }
+    
+    /**
+     * Crea una copia independiente del pool, válida después de la notificación
+     * @return Copia del evento
+     */
+    public EventoAlarma copiar() {
+        EventoAlarma copia = new EventoAlarma();
+        copia.copiarDe(this);
+        return copia;
+    }
+    
+    /**
+     * Obtiene el mensaje legible del evento, generándolo la primera vez
+     * @return Mensaje de la alarma
+     */
+    public String getMensaje() {
+        if (mensaje == null) {
+            mensaje = generarMensaje();
+        }
+        return mensaje;
+    }
+    
+    private String generarMensaje() {
+        TipoSensor tipo = sensor.getTipo();
+        if (tipoEvento == TipoEventoAlarma.TORMENTA) {
+            return String.format(
+                "%s - Tipo: %s, Sensores: %d, Peor: %s, Valor: %.2f %s, Umbral: %.2f, Tiempo: %s",
+                tipoEvento.getTitulo(),
+                tipo.getNombre(),
+                sensoresAfectados,
+                sensor.getId(),
+                valor,
+                tipo.getUnidadMedida(),
+                umbral,
+                getFechaHora().format(FORMATTER)
+            );
+        }
+        return String.format(
+            "%s - Sensor: %s, Tipo: %s, Valor: %.2f %s, Umbral: %.2f, Tiempo: %s",
+            tipoEvento.getTitulo(),
+            sensor.getId(),
+            tipo.getNombre(),
+            valor,
+            tipo.getUnidadMedida(),
+            umbral,
+            getFechaHora().format(FORMATTER)
+        );
+    }
+    
+    public TipoEventoAlarma getTipoEvento() {
+        return tipoEvento;
+    }
+    
+    /**
+     * Obtiene el sensor del evento; en una tormenta, el más alejado de su umbral
+     * @return Sensor que disparó la alarma
+     */
+    public ISensor getSensor() {
+        return sensor;
+    }
+    
+    /**
+     * Obtiene el handle del sensor en el sistema que lo monitorea
+     * @return Handle del sensor, o -1 si ya no está registrado
+     */
+    public int getHandle() {
+        return handle;
+    }
+    
+    public TipoSensor getTipoSensor() {
+        return sensor.getTipo();
+    }
+    
+    public double getValor() {
+        return valor;
+    }
+    
+    public double getUmbral() {
+        return umbral;
+    }
+    
+    public long getMarcaTiempoNanos() {
+        return marcaTiempoNanos;
+    }
+    
+    public long getMarcaTiempoMillis() {
+        return marcaTiempoNanos / 1_000_000L;
+    }
+    
+    /**
+     * Obtiene el número de alarmas agrupadas en el evento
+     * @return Sensores afectados en una tormenta, 1 en el resto de eventos
+     */
+    public int getSensoresAfectados() {
+        return sensoresAfectados;
+    }
+    
+    public LocalDateTime getFechaHora() {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(0, marcaTiempoNanos), ZoneId.systemDefault());
+    }
+    
+    @Override
+    public String toString() {
+        return getMensaje();
+    }
+}
@@ -0,0 +1,32 @@
+package com.greengardens.sensors;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Evento de Flight Recorder de un ciclo de monitoreo, de su inicio a su fin.
+ * Por defecto solo se registran los ciclos de 10 ms o más.
+ */
+@Name("com.greengardens.sensors.CicloMonitoreo")
+@Label("Ciclo de monitoreo")
+@Category({"Green Garden", "Sensores"})
+@Description("Ciclo de monitoreo de un SistemaAlarma")
+@StackTrace(false)
+@Threshold("10 ms")
+final class EventoCicloJfr extends Event {
+    @Label("Modo")
+    @Description("Secuencial, por lotes o paralelo")
+    String modo;
+    
+    @Label("Sensores")
+    int sensores;
+    
+    @Label("Alarmas")
+    @Description("Alarmas notificadas en el ciclo; una tormenta cuenta como una")
+    int alarmas;
+}
@@ -0,0 +1,41 @@
+package com.greengardens.sensors;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento instantáneo de Flight Recorder de un cambio de EstadoConexion de un sensor
+ */
+@Name("com.greengardens.sensors.CambioConexion")
+@Label("Cambio de conexión")
+@Category({"Green Garden", "Sensores"})
+@StackTrace(false)
+final class EventoConexionJfr extends Event {
+    @Label("Sensor")
+    String sensor;
+    
+    @Label("Estado anterior")
+    String anterior;
+    
+    @Label("Estado nuevo")
+    String nuevo;
+    
+    /**
+     * Registra el cambio si el evento está activado en la grabación
+     */
+    static void registrar(ISensor sensor, EstadoConexion anterior, EstadoConexion nuevo) {
+        if (!GrabacionJfr.isActiva()) {
+            return;
+        }
+        EventoConexionJfr evento = new EventoConexionJfr();
+        if (evento.isEnabled()) {
+            evento.sensor = sensor.getId();
+            evento.anterior = anterior.name();
+            evento.nuevo = nuevo.name();
+            evento.commit();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.greengardens.sensors;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Evento de Flight Recorder de una llamada a obtenerMedidaActual() u obtenerLectura(),
+ * o de la medición de un grupo de sensores del mismo tipo en la medición por lotes.
+ * Por defecto solo se registran las medidas de 1 ms o más.
+ */
+@Name("com.greengardens.sensors.Medicion")
+@Label("Medición de sensor")
+@Category({"Green Garden", "Sensores"})
+@Description("Medición de un sensor simple o compuesto, o de un lote de sensores del mismo tipo")
+@StackTrace(false)
+@Threshold("1 ms")
+final class EventoMedicionJfr extends Event {
+    @Label("Sensor")
+    String sensor;
+    
+    @Label("Tipo")
+    String tipo;
+    
+    @Label("Compuesto")
+    boolean compuesto;
+    
+    @Label("Sensores medidos")
+    @Description("1 salvo en la medición por lotes, donde el evento cubre todo el grupo")
+    int sensoresMedidos;
+    
+    /**
+     * Cierra el evento y lo confirma si supera el umbral configurado
+     */
+    void confirmar(ISensor medido) {
+        end();
+        if (shouldCommit()) {
+            this.sensor = medido.getId();
+            this.tipo = medido.getTipo().name();
+            this.compuesto = medido instanceof SensorCompuesto;
+            this.sensoresMedidos = 1;
+            commit();
+        }
+    }
+    
+    /**
+     * Cierra el evento de un lote y lo confirma si supera el umbral configurado.
+     * El sensor queda vacío: el lote no pertenece a ninguno en particular.
+     */
+    void confirmarLote(TipoSensor tipoMedido, int cantidad) {
+        end();
+        if (shouldCommit()) {
+            this.tipo = tipoMedido.name();
+            this.sensoresMedidos = cantidad;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.greengardens.sensors;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Evento de Flight Recorder de la entrega de una alarma a un observer.
+ * Se emite uno por observer, tanto en línea como desde el despacho asíncrono.
+ * Por defecto solo se registran las entregas de 1 ms o más.
+ */
+@Name("com.greengardens.sensors.NotificacionAlarma")
+@Label("Notificación de alarma")
+@Category({"Green Garden", "Alarmas"})
+@Description("Entrega de un evento de alarma a un observer")
+@StackTrace(false)
+@Threshold("1 ms")
+final class EventoNotificacionJfr extends Event {
+    @Label("Sensor")
+    String sensor;
+    
+    @Label("Evento")
+    String tipoEvento;
+    
+    @Label("Observer")
+    @Description("Clase del observer notificado")
+    String observer;
+    
+    @Label("Asíncrona")
+    @Description("Entregada por un hilo de DespachadorAlarmas")
+    boolean asincrona;
+    
+    /**
+     * Crea e inicia el evento si hay una grabación en curso
+     * @return Evento iniciado, o null si no hay grabación
+     */
+    static EventoNotificacionJfr iniciar() {
+        if (!GrabacionJfr.isActiva()) {
+            return null;
+        }
+        EventoNotificacionJfr evento = new EventoNotificacionJfr();
+        evento.begin();
+        return evento;
+    }
+    
+    /**
+     * Completa y confirma el evento si supera el umbral configurado.
+     * Los textos solo se calculan cuando el evento va a registrarse.
+     */
+    static void confirmar(EventoNotificacionJfr evento, EventoAlarma alarma, Object observer, boolean asincrona) {
+        if (evento != null) {
+            evento.confirmar(alarma, observer, asincrona);
+        }
+    }
+    
+    private void confirmar(EventoAlarma alarma, Object observer, boolean asincrona) {
+        end();
+        if (shouldCommit()) {
+            this.sensor = alarma.getSensor().getId();
+            this.tipoEvento = alarma.getTipoEvento().name();
+            this.observer = observer.getClass().getName();
+            this.asincrona = asincrona;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.greengardens.sensors;
+
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Filtro inmutable de lecturas por tipo de sensor y prefijo de identificador,
+ * aplicado por el publicador antes de encolar, de modo que las lecturas
+ * descartadas no ocupan buffer ni consumen demanda del suscriptor.
+ */
+public final class FiltroLecturas implements Predicate<Lectura> {
+    public static final FiltroLecturas TODAS = new FiltroLecturas(EnumSet.allOf(TipoSensor.class), "");
+    
+    private final Set<TipoSensor> tipos;
+    private final String prefijoId;
+    
+    private FiltroLecturas(Set<TipoSensor> tipos, String prefijoId) {
+        this.tipos = tipos;
+        this.prefijoId = prefijoId;
+    }
+    
+    /**
+     * Restringe el filtro a los tipos indicados
+     * @param primero Tipo admitido
+     * @param resto Otros tipos admitidos
+     * @return Filtro nuevo con los tipos indicados y el mismo prefijo
+     */
+    public FiltroLecturas conTipos(TipoSensor primero, TipoSensor... resto) {
+        return new FiltroLecturas(EnumSet.of(primero, resto), prefijoId);
+    }
+    
+    /**
+     * Restringe el filtro a los sensores cuyo id empieza por el prefijo indicado
+     * @param prefijo Prefijo del identificador; vacío admite todos
+     * @return Filtro nuevo con el prefijo indicado y los mismos tipos
+     */
+    public FiltroLecturas conPrefijo(String prefijo) {
+        return new FiltroLecturas(tipos, Objects.requireNonNull(prefijo, "El prefijo no puede ser null"));
+    }
+    
+    @Override
+    public boolean test(Lectura lectura) {
+        ISensor sensor = lectura.getSensor();
+        return tipos.contains(sensor.getTipo()) && sensor.getId().startsWith(prefijoId);
+    }
+    
+    public Set<TipoSensor> getTipos() {
+        return EnumSet.copyOf(tipos);
+    }
+    
+    public String getPrefijoId() {
+        return prefijoId;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("FiltroLecturas{tipos=%s, prefijo='%s'}", tipos, prefijoId);
+    }
+}
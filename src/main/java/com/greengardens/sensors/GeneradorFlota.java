@@ -0,0 +1,136 @@
+package com.greengardens.sensors;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Generador de flotas sintéticas de sensores para pruebas de capacidad.
+ * Reparte las hojas entre todos los TipoSensor y agrupa la mayoría en jerarquías
+ * aleatorias de SensorCompuesto con la profundidad y ramificación indicadas.
+ * Con la misma semilla genera la misma topología y, fijando la semilla de
+ * EstrategiaFactory, las mismas medidas.
+ */
+public class GeneradorFlota {
+    private static final double FRACCION_INDEPENDIENTES = 0.2; // Hojas que no cuelgan de ningún compuesto
+    private static final Map<TipoSensor, Double> UMBRALES = crearUmbrales();
+    
+    private final int numeroHojas;
+    private final int profundidad;
+    private final int ramificacion;
+    private final long semilla;
+    private int hojasGeneradas;
+    private int compuestosGenerados;
+    
+    /**
+     * Constructor del generador
+     * @param numeroHojas Sensores simples de la flota
+     * @param profundidad Niveles de compuestos por encima de las hojas (0 = flota plana)
+     * @param ramificacion Máximo de hijos por compuesto
+     * @param semilla Semilla de la topología
+     */
+    public GeneradorFlota(int numeroHojas, int profundidad, int ramificacion, long semilla) {
+        if (numeroHojas <= 0) {
+            throw new IllegalArgumentException("El número de sensores debe ser positivo");
+        }
+        if (profundidad < 0) {
+            throw new IllegalArgumentException("La profundidad no puede ser negativa");
+        }
+        if (ramificacion < 1) {
+            throw new IllegalArgumentException("La ramificación debe ser al menos 1");
+        }
+        this.numeroHojas = numeroHojas;
+        this.profundidad = profundidad;
+        this.ramificacion = ramificacion;
+        this.semilla = semilla;
+    }
+    
+    /**
+     * Umbrales cercanos al máximo de cada estrategia, para que solo una fracción
+     * pequeña de las lecturas dispare alarma
+     */
+    private static Map<TipoSensor, Double> crearUmbrales() {
+        Map<TipoSensor, Double> umbrales = new EnumMap<>(TipoSensor.class);
+        umbrales.put(TipoSensor.HUMEDAD_SUELO, 92.0);
+        umbrales.put(TipoSensor.TEMPERATURA, 44.0);
+        umbrales.put(TipoSensor.LUZ_SOLAR, 116_000.0);
+        umbrales.put(TipoSensor.PH_SUELO, 9.8);
+        umbrales.put(TipoSensor.VIENTO, 58.0);
+        return umbrales;
+    }
+    
+    /**
+     * Genera una flota nueva
+     * @return Sensores de nivel superior: hojas independientes y raíces de las jerarquías
+     */
+    public List<ISensor> generar() {
+        SplittableRandom random = new SplittableRandom(semilla);
+        TipoSensor[] tipos = TipoSensor.values();
+        List<ISensor> flota = new ArrayList<>();
+        hojasGeneradas = 0;
+        compuestosGenerados = 0;
+        
+        for (int t = 0; t < tipos.length; t++) {
+            TipoSensor tipo = tipos[t];
+            int hojasDelTipo = numeroHojas / tipos.length + (t < numeroHojas % tipos.length ? 1 : 0);
+            List<ISensor> agrupables = new ArrayList<>(hojasDelTipo);
+            for (int i = 0; i < hojasDelTipo; i++) {
+                Sensor hoja = new Sensor(String.format("FLOTA-%s-%d", tipo.name(), i), tipo, UMBRALES.get(tipo));
+                hojasGeneradas++;
+                if (profundidad == 0 || random.nextDouble() < FRACCION_INDEPENDIENTES) {
+                    flota.add(hoja);
+                } else {
+                    agrupables.add(hoja);
+                }
+            }
+            
+            int[] siguiente = {0};
+            while (siguiente[0] < agrupables.size()) {
+                flota.add(construirArbol(tipo, profundidad, agrupables, siguiente, random));
+            }
+        }
+        return flota;
+    }
+    
+    /**
+     * Construye un subárbol consumiendo hojas en orden hasta agotarlas
+     */
+    private ISensor construirArbol(TipoSensor tipo, int nivel, List<ISensor> hojas, int[] siguiente,
+                                   SplittableRandom random) {
+        if (nivel == 0) {
+            return hojas.get(siguiente[0]++);
+        }
+        SensorCompuesto compuesto = new SensorCompuesto(
+                String.format("FLOTA-%s-C%d", tipo.name(), compuestosGenerados++), tipo, UMBRALES.get(tipo));
+        int hijos = ramificacion == 1 ? 1 : random.nextInt(2, ramificacion + 1);
+        for (int i = 0; i < hijos && siguiente[0] < hojas.size(); i++) {
+            compuesto.agregarSensor(construirArbol(tipo, nivel - 1, hojas, siguiente, random));
+        }
+        return compuesto;
+    }
+    
+    /**
+     * Obtiene el umbral que el generador asigna a un tipo de sensor
+     * @param tipo Tipo de sensor
+     * @return Umbral de alarma
+     */
+    public static double umbralDe(TipoSensor tipo) {
+        return UMBRALES.get(tipo);
+    }
+    
+    public int getHojasGeneradas() {
+        return hojasGeneradas;
+    }
+    
+    public int getCompuestosGenerados() {
+        return compuestosGenerados;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("GeneradorFlota{hojas=%d, profundidad=%d, ramificacion=%d, semilla=%d}",
+                numeroHojas, profundidad, ramificacion, semilla);
+    }
+}
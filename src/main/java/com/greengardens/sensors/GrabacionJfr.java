@@ -0,0 +1,50 @@
+package com.greengardens.sensors;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * Indica si hay alguna grabación de Flight Recorder en curso.
+ * Los eventos JFR del paquete solo se crean cuando la hay: sin grabación, el coste
+ * es una lectura volatile y no depende de que el JIT elimine el objeto del evento.
+ */
+final class GrabacionJfr {
+    private static volatile boolean activa;
+    
+    static {
+        try {
+            FlightRecorder.addListener(new FlightRecorderListener() {
+                @Override
+                public void recordingStateChanged(Recording recording) {
+                    actualizar();
+                }
+            });
+            // Una grabación iniciada antes de cargar esta clase no vuelve a notificar su estado
+            if (FlightRecorder.isInitialized()) {
+                actualizar();
+            }
+        } catch (SecurityException | IllegalStateException e) {
+            activa = false; // JVM sin Flight Recorder disponible: los eventos quedan desactivados
+        }
+    }
+    
+    private GrabacionJfr() {
+    }
+    
+    private static void actualizar() {
+        boolean enCurso = false;
+        for (Recording recording : FlightRecorder.getFlightRecorder().getRecordings()) {
+            if (recording.getState() == RecordingState.RUNNING) {
+                enCurso = true;
+                break;
+            }
+        }
+        activa = enCurso;
+    }
+    
+    static boolean isActiva() {
+        return activa;
+    }
+}
@@ -0,0 +1,144 @@
+package com.greengardens.sensors;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma concurrente de valores no negativos con cubetas log-lineales, al estilo HdrHistogram.
+ * Los valores menores que 64 tienen cubeta propia; a partir de ahí cada potencia de dos se
+ * divide en 32 cubetas, de modo que el error relativo de un percentil es como mucho 1/32.
+ * Registrar un valor son dos sumas atómicas y una comparación, sin bloqueos ni objetos;
+ * la lectura recorre las cubetas y no es una instantánea atómica respecto a los registros
+ * concurrentes. Los valores por encima del máximo se cuentan en la última cubeta.
+ */
+public final class HistogramaLatencias {
+    private static final int BITS_SUBCUBETA = 6;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    private static final int MITAD = SUBCUBETAS >> 1;
+    
+    private final long valorMaximo;
+    private final AtomicLongArray cuentas;
+    private final LongAdder suma;
+    private final AtomicLong maximo;
+    
+    /**
+     * Constructor del histograma
+     * @param valorMaximo Mayor valor distinguible; los superiores se acumulan con él
+     */
+    public HistogramaLatencias(long valorMaximo) {
+        if (valorMaximo <= 0) {
+            throw new IllegalArgumentException("El valor máximo del histograma debe ser positivo");
+        }
+        this.valorMaximo = valorMaximo;
+        this.cuentas = new AtomicLongArray(indice(valorMaximo) + 1);
+        this.suma = new LongAdder();
+        this.maximo = new AtomicLong();
+    }
+    
+    /**
+     * Registra un valor. Los negativos cuentan como 0
+     * @param valor Valor a registrar, normalmente nanosegundos
+     */
+    public void registrar(long valor) {
+        long acotado = Math.max(0, valor);
+        cuentas.incrementAndGet(indice(Math.min(acotado, valorMaximo)));
+        suma.add(acotado);
+        long actual;
+        while (acotado > (actual = maximo.get()) && !maximo.compareAndSet(actual, acotado)) {
+            // Otro hilo registró un máximo a la vez: se reintenta con el nuevo
+        }
+    }
+    
+    private static int indice(long valor) {
+        if (valor < SUBCUBETAS) {
+            return (int) valor;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int desplazamiento = exponente - (BITS_SUBCUBETA - 1);
+        return SUBCUBETAS + (exponente - BITS_SUBCUBETA) * MITAD + (int) (valor >>> desplazamiento) - MITAD;
+    }
+    
+    /**
+     * Mayor valor que cae en la cubeta indicada
+     */
+    private static long valorSuperior(int indice) {
+        if (indice < SUBCUBETAS) {
+            return indice;
+        }
+        int relativo = indice - SUBCUBETAS;
+        int desplazamiento = relativo / MITAD + 1;
+        long mantisa = relativo % MITAD + MITAD;
+        return (mantisa << desplazamiento) + (1L << desplazamiento) - 1;
+    }
+    
+    /**
+     * Calcula un percentil de los valores registrados
+     * @param percentil Percentil entre 0 y 100
+     * @return Valor del percentil, con error relativo de como mucho 1/32, o 0 si está vacío
+     */
+    public long percentil(double percentil) {
+        if (percentil < 0.0 || percentil > 100.0) {
+            throw new IllegalArgumentException("El percentil debe estar entre 0 y 100");
+        }
+        long total = getCantidad();
+        if (total == 0) {
+            return 0;
+        }
+        long objetivo = Math.max(1, (long) Math.ceil(percentil / 100.0 * total));
+        long acumulado = 0;
+        for (int i = 0; i < cuentas.length(); i++) {
+            acumulado += cuentas.get(i);
+            if (acumulado >= objetivo) {
+                return Math.min(valorSuperior(i), getMaximo());
+            }
+        }
+        return getMaximo();
+    }
+    
+    /**
+     * Obtiene el número de valores registrados
+     * @return Total de registros
+     */
+    public long getCantidad() {
+        long total = 0;
+        for (int i = 0; i < cuentas.length(); i++) {
+            total += cuentas.get(i);
+        }
+        return total;
+    }
+    
+    /**
+     * Obtiene la media exacta de los valores registrados
+     * @return Media, o NaN si está vacío
+     */
+    public double getMedia() {
+        long total = getCantidad();
+        return total == 0 ? Double.NaN : (double) suma.sum() / total;
+    }
+    
+    public long getMaximo() {
+        return maximo.get();
+    }
+    
+    public long getValorMaximo() {
+        return valorMaximo;
+    }
+    
+    /**
+     * Vacía el histograma. Los registros concurrentes con el reinicio pueden perderse
+     */
+    public void reiniciar() {
+        for (int i = 0; i < cuentas.length(); i++) {
+            cuentas.set(i, 0);
+        }
+        suma.reset();
+        maximo.set(0);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("HistogramaLatencias{cantidad=%d, p50=%d, p99=%d, max=%d}",
+                getCantidad(), percentil(50), percentil(99), getMaximo());
+    }
+}
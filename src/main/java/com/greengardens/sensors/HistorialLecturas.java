@@ -0,0 +1,288 @@
+package com.greengardens.sensors;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Historial de lecturas de capacidad fija implementado como buffer circular.
+ * Guarda valores y marcas de tiempo en arrays primitivos (double[] y long[]),
+ * sin boxing ni objetos por lectura, por lo que su coste en memoria es fijo:
+ * 16 bytes por posición más la cabecera de los dos arrays.
+ * Las marcas de tiempo nunca retroceden, aunque dos hilos registren fuera de orden,
+ * lo que permite buscar ventanas por tiempo con búsqueda binaria.
+ * Opcionalmente, las lecturas que salen del buffer se archivan comprimidas
+ * en bloques Gorilla, conservando un número máximo de bloques.
+ */
+public class HistorialLecturas {
+    private static final long BASE_EPOCH_NANOS =
+            System.currentTimeMillis() * 1_000_000L - System.nanoTime();
+    private static final long BYTES_CABECERA_ARRAY = 16;
+    private static final int DECIMALES_ARCHIVO = 2; // Precisión de las estrategias de medición
+    
+    private final double[] valores;
+    private final long[] marcasNanos;
+    private int siguiente; // Posición donde se escribirá la próxima lectura
+    private int tamano;
+    private final int maxBloquesArchivados;
+    private final CodificadorGorilla codificadorArchivo; // null si no se archiva
+    private final Deque<BloqueGorilla> bloquesArchivados;
+    
+    /**
+     * Constructor del historial sin archivo comprimido
+     * @param capacidad Número máximo de lecturas conservadas
+     */
+    public HistorialLecturas(int capacidad) {
+        this(capacidad, 0);
+    }
+    
+    /**
+     * Constructor del historial con archivo comprimido de las lecturas desplazadas
+     * @param capacidad Número máximo de lecturas conservadas sin comprimir
+     * @param maxBloquesArchivados Bloques comprimidos conservados, cada uno de capacidad lecturas
+     */
+    public HistorialLecturas(int capacidad, int maxBloquesArchivados) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad del historial debe ser positiva");
+        }
+        if (maxBloquesArchivados < 0) {
+            throw new IllegalArgumentException("El número de bloques archivados no puede ser negativo");
+        }
+        this.valores = new double[capacidad];
+        this.marcasNanos = new long[capacidad];
+        this.maxBloquesArchivados = maxBloquesArchivados;
+        this.codificadorArchivo = maxBloquesArchivados > 0 ? new CodificadorGorilla(DECIMALES_ARCHIVO) : null;
+        this.bloquesArchivados = new ArrayDeque<>();
+    }
+    
+    /**
+     * Obtiene el instante actual en nanosegundos desde epoch sin crear objetos
+     * @return Marca de tiempo en nanosegundos desde epoch
+     */
+    public static long ahoraEpochNanos() {
+        return BASE_EPOCH_NANOS + System.nanoTime();
+    }
+    
+    /**
+     * Convierte un valor de System.nanoTime() a nanosegundos desde epoch
+     * @param nanoTime Valor devuelto por System.nanoTime()
+     * @return Marca de tiempo en nanosegundos desde epoch
+     */
+    static long aEpochNanos(long nanoTime) {
+        return BASE_EPOCH_NANOS + nanoTime;
+    }
+    
+    /**
+     * Estima la memoria ocupada por un historial de la capacidad indicada
+     * @param capacidad Capacidad del historial
+     * @return Bytes aproximados en el heap
+     */
+    public static long bytesEstimados(int capacidad) {
+        return 2 * BYTES_CABECERA_ARRAY + (long) capacidad * (Double.BYTES + Long.BYTES);
+    }
+    
+    /**
+     * Registra una lectura sobrescribiendo la más antigua si el buffer está lleno. O(1)
+     * Una marca que no es posterior a la de la última lectura, por ejemplo la de una medida
+     * que otro hilo registró después de una más reciente, se sustituye por esa marca + 1 ns.
+     * @param valor Valor medido
+     * @param marcaNanos Instante de la lectura en nanosegundos desde epoch
+     * @return Marca con la que quedó registrada la lectura
+     */
+    public synchronized long registrar(double valor, long marcaNanos) {
+        if (tamano > 0) {
+            long ultima = marcasNanos[indiceFisico(tamano - 1)];
+            if (marcaNanos <= ultima) {
+                marcaNanos = ultima + 1;
+            }
+        }
+        if (tamano == valores.length && codificadorArchivo != null) {
+            archivar(marcasNanos[siguiente], valores[siguiente]);
+        }
+        valores[siguiente] = valor;
+        marcasNanos[siguiente] = marcaNanos;
+        siguiente = (siguiente + 1) % valores.length;
+        if (tamano < valores.length) {
+            tamano++;
+        }
+        return marcaNanos;
+    }
+    
+    /**
+     * Añade al bloque comprimido en curso la lectura que va a ser sobrescrita
+     */
+    private void archivar(long marcaNanos, double valor) {
+        codificadorArchivo.agregar(marcaNanos, valor);
+        if (codificadorArchivo.getCantidad() == valores.length) {
+            bloquesArchivados.addLast(codificadorArchivo.sellar());
+            if (bloquesArchivados.size() > maxBloquesArchivados) {
+                bloquesArchivados.removeFirst();
+            }
+        }
+    }
+    
+    /**
+     * Comprime el contenido actual del buffer, de la lectura más antigua a la más reciente
+     * @return Bloque Gorilla con las lecturas del historial
+     */
+    public synchronized BloqueGorilla comprimir() {
+        CodificadorGorilla codificador = new CodificadorGorilla(DECIMALES_ARCHIVO);
+        for (int i = 0; i < tamano; i++) {
+            int indice = indiceFisico(i);
+            codificador.agregar(marcasNanos[indice], valores[indice]);
+        }
+        return codificador.sellar();
+    }
+    
+    /**
+     * Obtiene los bloques archivados, del más antiguo al más reciente
+     * @return Copia de la lista de bloques comprimidos
+     */
+    public synchronized List<BloqueGorilla> getBloquesArchivados() {
+        return List.copyOf(bloquesArchivados);
+    }
+    
+    /**
+     * Copia las últimas n lecturas en el array destino, de la más antigua a la más reciente
+     * @param n Número de lecturas solicitadas
+     * @param destino Array donde copiar los valores
+     * @return Número de valores copiados
+     */
+    public synchronized int ultimos(int n, double[] destino) {
+        int cantidad = Math.max(0, Math.min(Math.min(n, tamano), destino.length));
+        int inicio = indiceFisico(tamano - cantidad);
+        int tramo = Math.min(cantidad, valores.length - inicio);
+        System.arraycopy(valores, inicio, destino, 0, tramo);
+        System.arraycopy(valores, 0, destino, tramo, cantidad - tramo);
+        return cantidad;
+    }
+    
+    /**
+     * Obtiene las últimas n lecturas, de la más antigua a la más reciente
+     * @param n Número de lecturas solicitadas
+     * @return Array con los valores disponibles
+     */
+    public synchronized double[] ultimos(int n) {
+        double[] destino = new double[Math.max(0, Math.min(n, tamano))];
+        ultimos(destino.length, destino);
+        return destino;
+    }
+    
+    /**
+     * Copia las lecturas registradas desde el instante indicado (incluido)
+     * @param marcaNanos Instante inicial en nanosegundos desde epoch
+     * @param destino Array donde copiar los valores
+     * @return Número de valores copiados
+     */
+    public synchronized int desde(long marcaNanos, double[] destino) {
+        return ultimos(contarDesde(marcaNanos), destino);
+    }
+    
+    /**
+     * Cuenta las lecturas registradas desde el instante indicado (incluido). O(log n)
+     * @param marcaNanos Instante inicial en nanosegundos desde epoch
+     * @return Número de lecturas en la ventana
+     */
+    public synchronized int contarDesde(long marcaNanos) {
+        int bajo = 0;
+        int alto = tamano;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (marcasNanos[indiceFisico(medio)] < marcaNanos) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return tamano - bajo;
+    }
+    
+    /**
+     * Calcula el mínimo de las últimas n lecturas
+     * @param n Tamaño de la ventana
+     * @return Valor mínimo, o NaN si no hay lecturas
+     */
+    public synchronized double minimo(int n) {
+        int cantidad = Math.min(n, tamano);
+        if (cantidad <= 0) {
+            return Double.NaN;
+        }
+        double minimo = Double.POSITIVE_INFINITY;
+        for (int i = tamano - cantidad; i < tamano; i++) {
+            minimo = Math.min(minimo, valores[indiceFisico(i)]);
+        }
+        return minimo;
+    }
+    
+    /**
+     * Calcula el máximo de las últimas n lecturas
+     * @param n Tamaño de la ventana
+     * @return Valor máximo, o NaN si no hay lecturas
+     */
+    public synchronized double maximo(int n) {
+        int cantidad = Math.min(n, tamano);
+        if (cantidad <= 0) {
+            return Double.NaN;
+        }
+        double maximo = Double.NEGATIVE_INFINITY;
+        for (int i = tamano - cantidad; i < tamano; i++) {
+            maximo = Math.max(maximo, valores[indiceFisico(i)]);
+        }
+        return maximo;
+    }
+    
+    /**
+     * Calcula la media de las últimas n lecturas
+     * @param n Tamaño de la ventana
+     * @return Media, o NaN si no hay lecturas
+     */
+    public synchronized double media(int n) {
+        int cantidad = Math.min(n, tamano);
+        if (cantidad <= 0) {
+            return Double.NaN;
+        }
+        double suma = 0.0;
+        for (int i = tamano - cantidad; i < tamano; i++) {
+            suma += valores[indiceFisico(i)];
+        }
+        return suma / cantidad;
+    }
+    
+    /**
+     * Obtiene el valor de la lectura más reciente
+     * @return Valor, o NaN si está vacío
+     */
+    public synchronized double ultimoValor() {
+        return tamano == 0 ? Double.NaN : valores[indiceFisico(tamano - 1)];
+    }
+    
+    /**
+     * Obtiene la marca de tiempo de la lectura más reciente
+     * @return Nanosegundos desde epoch, o Long.MIN_VALUE si está vacío
+     */
+    public synchronized long ultimaMarcaNanos() {
+        return tamano == 0 ? Long.MIN_VALUE : marcasNanos[indiceFisico(tamano - 1)];
+    }
+    
+    public synchronized int getTamano() {
+        return tamano;
+    }
+    
+    public int getCapacidad() {
+        return valores.length;
+    }
+    
+    /**
+     * Convierte una posición lógica (0 = más antigua) en índice del array
+     */
+    private int indiceFisico(int posicionLogica) {
+        int inicio = tamano < valores.length ? 0 : siguiente;
+        int indice = inicio + posicionLogica;
+        return indice >= valores.length ? indice - valores.length : indice;
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return String.format("HistorialLecturas{lecturas=%d/%d}", tamano, valores.length);
+    }
+}
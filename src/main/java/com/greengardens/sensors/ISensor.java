@@ -1,5 +1,7 @@
 package com.greengardens.sensors;
 
+import java.util.Optional;
+
 /**
  * Interface que define el contrato para todos los sensores
  * Parte del patrón Composite - Component
@@ -12,6 +14,27 @@ public interface ISensor {
      */
     double obtenerMedidaActual();
     
+    /**
+     * Toma una única muestra del sensor como lectura inmutable.
+     * Un sensor desconectado devuelve una lectura sin medida en lugar de fallar.
+     * @return Lectura con valor, instante y estado de conexión
+     */
+    default Lectura obtenerLectura() {
+        if (getEstadoConexion() == EstadoConexion.DESCONECTADO) {
+            return Lectura.sinMedida(this);
+        }
+        return new Lectura(this, obtenerMedidaActual(), EstadoConexion.CONECTADO,
+                HistorialLecturas.ahoraEpochNanos());
+    }
+    
+    /**
+     * Obtiene la última lectura conocida sin volver a medir el sensor
+     * @return Última lectura, o vacío si el sensor no conserva ninguna
+     */
+    default Optional<Lectura> getUltimaLectura() {
+        return Optional.empty();
+    }
+    
     /**
      * Verifica si la medida supera el umbral
      * @return true si supera el umbral
@@ -36,9 +59,33 @@ public interface ISensor {
      */
     EstadoConexion getEstadoConexion();
     
+    /**
+     * Cambia el estado de conexión
+     * @param estadoConexion Nuevo estado de conexión
+     */
+    void setEstadoConexion(EstadoConexion estadoConexion);
+    
     /**
      * Obtiene el umbral configurado
      * @return Valor del umbral
      */
     double getUmbral();
+    
+    /**
+     * Suscribe un observer a las nuevas medidas y cambios de estado del sensor
+     * @param observer Observer a agregar
+     * @return true si el sensor admite observers
+     */
+    default boolean agregarSensorObserver(SensorObserver observer) {
+        return false;
+    }
+    
+    /**
+     * Desuscribe un observer del sensor
+     * @param observer Observer a remover
+     * @return true si fue removido
+     */
+    default boolean removerSensorObserver(SensorObserver observer) {
+        return false;
+    }
 }
@@ -0,0 +1,141 @@
+package com.greengardens.sensors;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Intervalos inmutables de muestreo de un tipo de sensor: el de partida y los
+ * límites entre los que el muestreo adaptativo puede acortarlo o alargarlo.
+ * El mínimo fija la latencia de detección de una alarma cerca del umbral; la vigilancia
+ * limita el intervalo mientras un salto como el mayor ya visto en el sensor bastaría
+ * para cruzar el umbral, y también durante las primeras lecturas del sensor, cuando
+ * ese mayor salto todavía no dice nada de cómo se comporta la magnitud.
+ */
+public final class IntervalosMuestreo {
+    /** Periodo del antiguo sondeo a ritmo fijo */
+    public static final Duration VIGILANCIA_POR_DEFECTO = Duration.ofSeconds(5);
+    /** Cinco minutos de lecturas al ritmo de vigilancia por defecto */
+    public static final int LECTURAS_APRENDIZAJE_POR_DEFECTO = 60;
+    
+    private final Duration inicial;
+    private final Duration minimo;
+    private final Duration maximo;
+    private final Duration vigilancia;
+    private final int lecturasAprendizaje;
+    
+    /**
+     * Constructor de los intervalos con la vigilancia por defecto, ajustada a los límites
+     * @param inicial Intervalo con el que empieza cada sensor
+     * @param minimo Intervalo más corto, usado cerca del umbral o en alarma
+     * @param maximo Intervalo más largo, usado con medidas estables y lejos del umbral
+     */
+    public IntervalosMuestreo(Duration inicial, Duration minimo, Duration maximo) {
+        this(inicial, minimo, maximo, acotar(VIGILANCIA_POR_DEFECTO, minimo, maximo));
+    }
+    
+    /**
+     * Constructor de los intervalos
+     * @param inicial Intervalo con el que empieza cada sensor
+     * @param minimo Intervalo más corto, usado cerca del umbral o en alarma
+     * @param maximo Intervalo más largo, usado con medidas estables y lejos del umbral
+     * @param vigilancia Intervalo más largo cuando la distancia al umbral no supera
+     *                   el mayor salto entre lecturas observado en el sensor
+     */
+    public IntervalosMuestreo(Duration inicial, Duration minimo, Duration maximo, Duration vigilancia) {
+        this(inicial, minimo, maximo, vigilancia, LECTURAS_APRENDIZAJE_POR_DEFECTO);
+    }
+    
+    /**
+     * Constructor de los intervalos
+     * @param inicial Intervalo con el que empieza cada sensor
+     * @param minimo Intervalo más corto, usado cerca del umbral o en alarma
+     * @param maximo Intervalo más largo, usado con medidas estables y lejos del umbral
+     * @param vigilancia Intervalo más largo cuando la distancia al umbral no supera
+     *                   el mayor salto entre lecturas observado en el sensor
+     * @param lecturasAprendizaje Lecturas que debe acumular un sensor antes de que su
+     *                            intervalo pueda superar el de vigilancia
+     */
+    public IntervalosMuestreo(Duration inicial, Duration minimo, Duration maximo, Duration vigilancia,
+                              int lecturasAprendizaje) {
+        Objects.requireNonNull(inicial, "El intervalo inicial no puede ser null");
+        Objects.requireNonNull(minimo, "El intervalo mínimo no puede ser null");
+        Objects.requireNonNull(maximo, "El intervalo máximo no puede ser null");
+        Objects.requireNonNull(vigilancia, "El intervalo de vigilancia no puede ser null");
+        if (minimo.isNegative() || minimo.isZero()) {
+            throw new IllegalArgumentException("El intervalo mínimo debe ser positivo");
+        }
+        if (inicial.compareTo(minimo) < 0 || inicial.compareTo(maximo) > 0) {
+            throw new IllegalArgumentException("El intervalo inicial debe estar entre el mínimo y el máximo");
+        }
+        if (vigilancia.compareTo(minimo) < 0 || vigilancia.compareTo(maximo) > 0) {
+            throw new IllegalArgumentException("El intervalo de vigilancia debe estar entre el mínimo y el máximo");
+        }
+        if (lecturasAprendizaje < 0) {
+            throw new IllegalArgumentException("Las lecturas de aprendizaje no pueden ser negativas");
+        }
+        this.inicial = inicial;
+        this.minimo = minimo;
+        this.maximo = maximo;
+        this.vigilancia = vigilancia;
+        this.lecturasAprendizaje = lecturasAprendizaje;
+    }
+    
+    private static Duration acotar(Duration valor, Duration minimo, Duration maximo) {
+        Objects.requireNonNull(minimo, "El intervalo mínimo no puede ser null");
+        Objects.requireNonNull(maximo, "El intervalo máximo no puede ser null");
+        return valor.compareTo(minimo) < 0 ? minimo : valor.compareTo(maximo) > 0 ? maximo : valor;
+    }
+    
+    /**
+     * Obtiene los intervalos por defecto de un tipo de sensor según lo rápido que
+     * cambia su magnitud: el pH del suelo apenas varía y el viento va a ráfagas.
+     * Los mínimos coinciden con los 5 segundos del antiguo sondeo a ritmo fijo, salvo el
+     * del viento, más corto. Los máximos solo se alcanzan lejos del umbral: a menos de
+     * un salto máximo de él, el intervalo no pasa de esos 5 segundos. Tampoco pasa de ellos
+     * hasta acumular unos minutos de lecturas; el pH, que apenas varía, necesita menos.
+     * @param tipo Tipo de sensor
+     * @return Intervalos por defecto
+     */
+    public static IntervalosMuestreo porDefecto(TipoSensor tipo) {
+        return switch (Objects.requireNonNull(tipo, "El tipo de sensor no puede ser null")) {
+            case HUMEDAD_SUELO -> porDefecto(Duration.ofSeconds(30), Duration.ofSeconds(5), Duration.ofMinutes(5), 60);
+            case TEMPERATURA -> porDefecto(Duration.ofSeconds(15), Duration.ofSeconds(5), Duration.ofMinutes(2), 60);
+            case LUZ_SOLAR -> porDefecto(Duration.ofSeconds(15), Duration.ofSeconds(5), Duration.ofMinutes(2), 60);
+            case PH_SUELO -> porDefecto(Duration.ofMinutes(1), Duration.ofSeconds(5), Duration.ofMinutes(15), 24);
+            case VIENTO -> porDefecto(Duration.ofSeconds(2), Duration.ofSeconds(1), Duration.ofSeconds(30), 120);
+        };
+    }
+    
+    private static IntervalosMuestreo porDefecto(Duration inicial, Duration minimo, Duration maximo,
+                                                 int lecturasAprendizaje) {
+        return new IntervalosMuestreo(inicial, minimo, maximo, acotar(VIGILANCIA_POR_DEFECTO, minimo, maximo),
+                lecturasAprendizaje);
+    }
+    
+    public Duration getInicial() {
+        return inicial;
+    }
+    
+    public Duration getMinimo() {
+        return minimo;
+    }
+    
+    public Duration getMaximo() {
+        return maximo;
+    }
+    
+    public Duration getVigilancia() {
+        return vigilancia;
+    }
+    
+    public int getLecturasAprendizaje() {
+        return lecturasAprendizaje;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("IntervalosMuestreo{inicial=%d ms, minimo=%d ms, maximo=%d ms, vigilancia=%d ms, "
+                        + "aprendizaje=%d lecturas}", inicial.toMillis(), minimo.toMillis(), maximo.toMillis(),
+                vigilancia.toMillis(), lecturasAprendizaje);
+    }
+}
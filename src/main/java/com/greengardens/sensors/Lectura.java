@@ -0,0 +1,92 @@
+package com.greengardens.sensors;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Objects;
+
+/**
+ * Muestra inmutable de un sensor tomada en un instante concreto.
+ * Permite que el ciclo de monitoreo, la notificación de alarmas y los reportes
+ * trabajen sobre una única lectura física en lugar de volver a medir.
+ */
+public final class Lectura {
+    private final ISensor sensor;
+    private final double valor;
+    private final EstadoConexion estadoConexion;
+    private final long marcaTiempoNanos;
+    
+    /**
+     * Constructor de una lectura
+     * @param sensor Sensor que produjo la lectura
+     * @param valor Valor medido, o NaN si no hubo medida
+     * @param estadoConexion Estado de conexión del sensor al leerlo
+     * @param marcaTiempoNanos Instante de la lectura en nanosegundos desde epoch
+     */
+    public Lectura(ISensor sensor, double valor, EstadoConexion estadoConexion, long marcaTiempoNanos) {
+        this.sensor = Objects.requireNonNull(sensor, "El sensor no puede ser null");
+        this.valor = valor;
+        this.estadoConexion = Objects.requireNonNull(estadoConexion, "El estado no puede ser null");
+        this.marcaTiempoNanos = marcaTiempoNanos;
+    }
+    
+    /**
+     * Crea una lectura sin medida, para sensores desconectados o sin datos disponibles
+     * @param sensor Sensor consultado
+     * @return Lectura con valor NaN
+     */
+    public static Lectura sinMedida(ISensor sensor) {
+        return new Lectura(sensor, Double.NaN, sensor.getEstadoConexion(),
+                HistorialLecturas.ahoraEpochNanos());
+    }
+    
+    /**
+     * Indica si la lectura contiene una medida válida
+     * @return true si el sensor estaba conectado y devolvió un valor
+     */
+    public boolean tieneMedida() {
+        return estadoConexion == EstadoConexion.CONECTADO && !Double.isNaN(valor);
+    }
+    
+    /**
+     * Verifica si el valor de esta lectura supera el umbral del sensor
+     * @return true si hay medida y supera el umbral
+     */
+    public boolean superaUmbral() {
+        return tieneMedida() && valor > sensor.getUmbral();
+    }
+    
+    public ISensor getSensor() {
+        return sensor;
+    }
+    
+    public double getValor() {
+        return valor;
+    }
+    
+    public EstadoConexion getEstadoConexion() {
+        return estadoConexion;
+    }
+    
+    public long getMarcaTiempoNanos() {
+        return marcaTiempoNanos;
+    }
+    
+    public long getMarcaTiempoMillis() {
+        return marcaTiempoNanos / 1_000_000L;
+    }
+    
+    /**
+     * Obtiene el instante de la lectura en la zona horaria del sistema
+     * @return Fecha y hora de la lectura
+     */
+    public LocalDateTime getFechaHora() {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(0, marcaTiempoNanos), ZoneId.systemDefault());
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Lectura{sensor='%s', valor=%.2f %s, estado=%s, tiempo=%d}",
+                sensor.getId(), valor, sensor.getTipo().getUnidadMedida(), estadoConexion, getMarcaTiempoMillis());
+    }
+}
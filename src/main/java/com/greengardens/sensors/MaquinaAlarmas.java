@@ -0,0 +1,160 @@
+package com.greengardens.sensors;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Máquina de estados de alarma por sensor: DESPEJADA -> DISPARADA -> EN_CURSO -> DESPEJADA.
+ * Decide qué lecturas generan notificación: el disparo, un recordatorio cada
+ * intervalo de renotificación mientras sigue en curso, y el despeje.
+ */
+final class MaquinaAlarmas {
+    
+    /**
+     * Notificación que corresponde a una lectura
+     */
+    enum Transicion {
+        NINGUNA, DISPARO, RECORDATORIO, DESPEJE
+    }
+    
+    private final ConfiguracionAlarmas configuracion;
+    private final long intervaloRenotificacionNanos;
+    private final Map<String, EstadoSensor> estados;
+    
+    MaquinaAlarmas(ConfiguracionAlarmas configuracion) {
+        this.configuracion = configuracion;
+        this.intervaloRenotificacionNanos = configuracion.getIntervaloRenotificacion().toNanos();
+        this.estados = new HashMap<>();
+    }
+    
+    /**
+     * Actualiza el estado del sensor con la lectura del ciclo
+     * @param lectura Lectura con medida
+     * @return Notificación que debe emitirse
+     */
+    synchronized Transicion evaluar(Lectura lectura) {
+        if (!lectura.tieneMedida()) {
+            return Transicion.NINGUNA;
+        }
+        ISensor sensor = lectura.getSensor();
+        EstadoSensor estado = estados.get(sensor.getId());
+        long ahora = lectura.getMarcaTiempoNanos();
+        
+        if (estado == null || estado.estado == EstadoAlarma.DESPEJADA) {
+            if (!lectura.superaUmbral()) {
+                return Transicion.NINGUNA;
+            }
+            if (estado == null) {
+                estado = new EstadoSensor();
+                estados.put(sensor.getId(), estado);
+            }
+            estado.estado = EstadoAlarma.DISPARADA;
+            estado.ultimaNotificacionNanos = ahora;
+            return Transicion.DISPARO;
+        }
+        
+        if (lectura.getValor() < configuracion.nivelDespeje(sensor.getUmbral())) {
+            estado.estado = EstadoAlarma.DESPEJADA;
+            return Transicion.DESPEJE;
+        }
+        estado.estado = EstadoAlarma.EN_CURSO;
+        if (ahora - estado.ultimaNotificacionNanos >= intervaloRenotificacionNanos) {
+            estado.ultimaNotificacionNanos = ahora;
+            return Transicion.RECORDATORIO;
+        }
+        return Transicion.NINGUNA;
+    }
+    
+    synchronized EstadoAlarma getEstado(String id) {
+        EstadoSensor estado = estados.get(id);
+        return estado == null ? EstadoAlarma.DESPEJADA : estado.estado;
+    }
+    
+    synchronized void olvidar(String id) {
+        estados.remove(id);
+    }
+    
+    /**
+     * Saca de la máquina el estado de los sensores indicados para llevarlo a otra
+     * @param ids Identificadores de los sensores
+     * @param destino Mapa donde se dejan los estados; los sensores despejados no tienen entrada
+     */
+    synchronized void extraer(Collection<String> ids, Map<String, EstadoSensor> destino) {
+        for (String id : ids) {
+            EstadoSensor estado = estados.remove(id);
+            if (estado != null) {
+                destino.put(id, estado);
+            }
+        }
+    }
+    
+    /**
+     * Adopta estados extraídos de otra máquina
+     * @param trasladados Estados por id de sensor
+     */
+    synchronized void incorporar(Map<String, EstadoSensor> trasladados) {
+        estados.putAll(trasladados);
+    }
+    
+    ConfiguracionAlarmas getConfiguracion() {
+        return configuracion;
+    }
+    
+    /**
+     * Crea el agrupador de notificaciones de un ciclo, o null si el modo tormenta está desactivado
+     */
+    Agrupacion nuevaAgrupacion() {
+        return configuracion.isModoTormenta() ? new Agrupacion(configuracion.getUmbralTormenta()) : null;
+    }
+    
+    /**
+     * Estado de alarma de un sensor; opaco fuera de la máquina
+     */
+    static final class EstadoSensor {
+        private EstadoAlarma estado;
+        private long ultimaNotificacionNanos;
+    }
+    
+    /**
+     * Retiene las notificaciones de disparo y recordatorio de un ciclo agrupadas por tipo
+     */
+    static final class Agrupacion {
+        private final int umbralTormenta;
+        private final Map<TipoSensor, List<Pendiente>> porTipo;
+        
+        private Agrupacion(int umbralTormenta) {
+            this.umbralTormenta = umbralTormenta;
+            this.porTipo = new EnumMap<>(TipoSensor.class);
+        }
+        
+        void agregar(Lectura lectura, Transicion transicion) {
+            porTipo.computeIfAbsent(lectura.getSensor().getTipo(), tipo -> new ArrayList<>())
+                    .add(new Pendiente(lectura, transicion));
+        }
+        
+        boolean esTormenta(List<Pendiente> pendientes) {
+            return pendientes.size() >= umbralTormenta;
+        }
+        
+        Map<TipoSensor, List<Pendiente>> getPorTipo() {
+            return porTipo;
+        }
+    }
+    
+    /**
+     * Notificación retenida hasta el final del ciclo
+     */
+    static final class Pendiente {
+        final Lectura lectura;
+        final Transicion transicion;
+        
+        private Pendiente(Lectura lectura, Transicion transicion) {
+            this.lectura = lectura;
+            this.transicion = transicion;
+        }
+    }
+}
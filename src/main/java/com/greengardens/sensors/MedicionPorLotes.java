@@ -0,0 +1,105 @@
+package com.greengardens.sensors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Medición de un ciclo agrupando los sensores por tipo.
+ * Cada grupo se mide con una sola llamada a generarMedidas() que recorre las estrategias
+ * de sus sensores, todas de la misma clase, en lugar de medir sensor a sensor con su
+ * caché, su latencia y su llamada virtual. Cada medida sale del generador del propio
+ * sensor, así que con semilla fijada la secuencia es la misma que midiendo uno a uno.
+ * Flight Recorder registra un evento de medición por grupo, no uno por sensor.
+ * Los buffers se reutilizan entre ciclos; no es thread-safe, el ciclo lo usa bajo su bloqueo.
+ */
+final class MedicionPorLotes {
+    private static final Logger logger = LoggerFactory.getLogger(MedicionPorLotes.class);
+    private static final int CAPACIDAD_INICIAL = 64;
+    
+    private final Map<TipoSensor, Grupo> grupos;
+    
+    MedicionPorLotes() {
+        this.grupos = new EnumMap<>(TipoSensor.class);
+        for (TipoSensor tipo : TipoSensor.values()) {
+            grupos.put(tipo, new Grupo());
+        }
+    }
+    
+    /**
+     * Indica si el sensor puede medirse por lotes: solo hojas Sensor sin medición propia redefinida
+     */
+    static boolean admite(ISensor sensor) {
+        return sensor.getClass() == Sensor.class;
+    }
+    
+    void agregar(Sensor sensor) {
+        grupos.get(sensor.getTipo()).agregar(sensor);
+    }
+    
+    /**
+     * Mide los sensores agregados, registra cada medida en su sensor y entrega su lectura.
+     * Los grupos quedan vacíos para el siguiente ciclo.
+     * @param destino Receptor de las lecturas tomadas
+     */
+    void medir(Consumer<Lectura> destino) {
+        for (Map.Entry<TipoSensor, Grupo> entrada : grupos.entrySet()) {
+            Grupo grupo = entrada.getValue();
+            if (grupo.cantidad == 0) {
+                continue;
+            }
+            EventoMedicionJfr evento = GrabacionJfr.isActiva() ? new EventoMedicionJfr() : null;
+            if (evento != null) {
+                evento.begin();
+            }
+            grupo.estrategias[0].generarMedidas(grupo.estrategias, grupo.medidas, 0, grupo.cantidad);
+            if (evento != null) {
+                evento.confirmarLote(entrada.getKey(), grupo.cantidad);
+            }
+            long marcaNanos = HistorialLecturas.ahoraEpochNanos();
+            for (int i = 0; i < grupo.cantidad; i++) {
+                Sensor sensor = grupo.sensores[i];
+                grupo.sensores[i] = null;
+                grupo.estrategias[i] = null;
+                try {
+                    double medida = grupo.medidas[i];
+                    long marcaRegistrada = sensor.registrarMedida(medida, marcaNanos);
+                    destino.accept(new Lectura(sensor, medida, EstadoConexion.CONECTADO, marcaRegistrada));
+                } catch (Exception e) {
+                    logger.error("Error al verificar sensor {}: {}", sensor.getId(), e.getMessage());
+                }
+            }
+            grupo.cantidad = 0;
+        }
+    }
+    
+    /**
+     * Sensores de un tipo pendientes de medir, sus estrategias y el buffer de sus medidas
+     */
+    private static final class Grupo {
+        private Sensor[] sensores;
+        private EstrategiaMedicion[] estrategias;
+        private double[] medidas;
+        private int cantidad;
+        
+        private Grupo() {
+            this.sensores = new Sensor[CAPACIDAD_INICIAL];
+            this.estrategias = new EstrategiaMedicion[CAPACIDAD_INICIAL];
+            this.medidas = new double[CAPACIDAD_INICIAL];
+        }
+        
+        private void agregar(Sensor sensor) {
+            if (cantidad == sensores.length) {
+                sensores = Arrays.copyOf(sensores, cantidad * 2);
+                estrategias = Arrays.copyOf(estrategias, cantidad * 2);
+                medidas = Arrays.copyOf(medidas, cantidad * 2);
+            }
+            estrategias[cantidad] = sensor.getEstrategiaMedicion();
+            sensores[cantidad++] = sensor;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.greengardens.sensors;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Métricas del pipeline de monitoreo de un SistemaAlarma: duración de ciclo, latencia de
+ * lectura por sensor, alarmas notificadas y sensores sobre el umbral por ciclo, y tiempo
+ * de despacho a observers, en histogramas sin bloqueos. Las dos cuentas por ciclo difieren
+ * con la gestión por estados: una alarma en curso está sobre el umbral en cada ciclo, pero
+ * solo se notifican su disparo, sus recordatorios y su despeje, y una tormenta se notifica
+ * una vez. Registrar cuesta unas decenas de nanosegundos y no crea objetos, por lo que las
+ * métricas están siempre activas. Se publica por JMX como MetricasMonitoreoMBean.
+ */
+public class MetricasMonitoreo implements MetricasMonitoreoMBean {
+    private static final long NANOS_MAXIMOS = 3_600_000_000_000L; // Una hora
+    private static final long SENSORES_MAXIMOS = 10_000_000L;
+    
+    private final HistogramaLatencias duracionCiclo;
+    private final HistogramaLatencias lecturaSensor;
+    private final HistogramaLatencias alarmasPorCiclo;
+    private final HistogramaLatencias sobreUmbralPorCiclo;
+    private final HistogramaLatencias despachoObserver;
+    private final HistogramaLatencias publicacionAsincrona;
+    private final Supplier<? extends Collection<ISensor>> sensores;
+    
+    /**
+     * Constructor de las métricas
+     * @param sensores Sensores del sistema, para localizar los más lentos
+     */
+    public MetricasMonitoreo(Supplier<? extends Collection<ISensor>> sensores) {
+        this.sensores = Objects.requireNonNull(sensores, "El proveedor de sensores no puede ser null");
+        this.duracionCiclo = new HistogramaLatencias(NANOS_MAXIMOS);
+        this.lecturaSensor = new HistogramaLatencias(NANOS_MAXIMOS);
+        this.alarmasPorCiclo = new HistogramaLatencias(SENSORES_MAXIMOS);
+        this.sobreUmbralPorCiclo = new HistogramaLatencias(SENSORES_MAXIMOS);
+        this.despachoObserver = new HistogramaLatencias(NANOS_MAXIMOS);
+        this.publicacionAsincrona = new HistogramaLatencias(NANOS_MAXIMOS);
+    }
+    
+    void registrarCiclo(long nanos, int sobreUmbral, int alarmas) {
+        duracionCiclo.registrar(nanos);
+        sobreUmbralPorCiclo.registrar(sobreUmbral);
+        alarmasPorCiclo.registrar(alarmas);
+    }
+    
+    void registrarLectura(long nanos) {
+        lecturaSensor.registrar(nanos);
+    }
+    
+    void registrarDespachoObserver(long nanos) {
+        despachoObserver.registrar(nanos);
+    }
+    
+    void registrarPublicacionAsincrona(long nanos) {
+        publicacionAsincrona.registrar(nanos);
+    }
+    
+    public HistogramaLatencias getDuracionCiclo() {
+        return duracionCiclo;
+    }
+    
+    public HistogramaLatencias getLecturaSensor() {
+        return lecturaSensor;
+    }
+    
+    public HistogramaLatencias getAlarmasPorCiclo() {
+        return alarmasPorCiclo;
+    }
+    
+    public HistogramaLatencias getSobreUmbralPorCiclo() {
+        return sobreUmbralPorCiclo;
+    }
+    
+    public HistogramaLatencias getDespachoObserver() {
+        return despachoObserver;
+    }
+    
+    public HistogramaLatencias getPublicacionAsincrona() {
+        return publicacionAsincrona;
+    }
+    
+    @Override
+    public long getCiclos() {
+        return duracionCiclo.getCantidad();
+    }
+    
+    @Override
+    public long getDuracionCicloP50Micros() {
+        return duracionCiclo.percentil(50) / 1_000;
+    }
+    
+    @Override
+    public long getDuracionCicloP99Micros() {
+        return duracionCiclo.percentil(99) / 1_000;
+    }
+    
+    @Override
+    public long getDuracionCicloMaxMicros() {
+        return duracionCiclo.getMaximo() / 1_000;
+    }
+    
+    @Override
+    public long getLecturas() {
+        return lecturaSensor.getCantidad();
+    }
+    
+    @Override
+    public long getLecturaSensorP50Nanos() {
+        return lecturaSensor.percentil(50);
+    }
+    
+    @Override
+    public long getLecturaSensorP99Nanos() {
+        return lecturaSensor.percentil(99);
+    }
+    
+    @Override
+    public long getLecturaSensorMaxNanos() {
+        return lecturaSensor.getMaximo();
+    }
+    
+    @Override
+    public double getAlarmasPorCicloMedia() {
+        return alarmasPorCiclo.getMedia();
+    }
+    
+    @Override
+    public long getAlarmasPorCicloP99() {
+        return alarmasPorCiclo.percentil(99);
+    }
+    
+    @Override
+    public long getAlarmasPorCicloMax() {
+        return alarmasPorCiclo.getMaximo();
+    }
+    
+    @Override
+    public double getSobreUmbralPorCicloMedia() {
+        return sobreUmbralPorCiclo.getMedia();
+    }
+    
+    @Override
+    public long getSobreUmbralPorCicloP99() {
+        return sobreUmbralPorCiclo.percentil(99);
+    }
+    
+    @Override
+    public long getSobreUmbralPorCicloMax() {
+        return sobreUmbralPorCiclo.getMaximo();
+    }
+    
+    @Override
+    public long getDespachosObserver() {
+        return despachoObserver.getCantidad();
+    }
+    
+    @Override
+    public long getDespachoObserverP50Nanos() {
+        return despachoObserver.percentil(50);
+    }
+    
+    @Override
+    public long getDespachoObserverP99Nanos() {
+        return despachoObserver.percentil(99);
+    }
+    
+    @Override
+    public long getDespachoObserverMaxNanos() {
+        return despachoObserver.getMaximo();
+    }
+    
+    @Override
+    public long getPublicacionAsincronaP99Nanos() {
+        return publicacionAsincrona.percentil(99);
+    }
+    
+    @Override
+    public long getPublicacionAsincronaMaxNanos() {
+        return publicacionAsincrona.getMaximo();
+    }
+    
+    /**
+     * Recorre los sensores del sistema, incluidos los hijos de los compuestos,
+     * y ordena las hojas Sensor por latencia media de medición
+     */
+    @Override
+    public String[] sensoresMasLentos(int cantidad) {
+        if (cantidad < 0) {
+            throw new IllegalArgumentException("La cantidad no puede ser negativa");
+        }
+        List<Sensor> hojas = new ArrayList<>();
+        Deque<ISensor> pendientes = new ArrayDeque<>(sensores.get());
+        while (!pendientes.isEmpty()) {
+            ISensor sensor = pendientes.pop();
+            if (sensor instanceof SensorCompuesto compuesto) {
+                pendientes.addAll(compuesto.getSensoresHijos());
+            } else if (sensor instanceof Sensor hoja && hoja.getLatenciaMedicion().getCantidad() > 0) {
+                hojas.add(hoja);
+            }
+        }
+        return hojas.stream()
+                .sorted(Comparator.comparingDouble((Sensor s) -> s.getLatenciaMedicion().getMediaNanos()).reversed())
+                .limit(cantidad)
+                .map(s -> String.format("%s: media=%.0f ns, max=%d ns, medidas=%d", s.getId(),
+                        s.getLatenciaMedicion().getMediaNanos(), s.getLatenciaMedicion().getMaximoNanos(),
+                        s.getLatenciaMedicion().getCantidad()))
+                .toArray(String[]::new);
+    }
+    
+    @Override
+    public void reiniciar() {
+        duracionCiclo.reiniciar();
+        lecturaSensor.reiniciar();
+        alarmasPorCiclo.reiniciar();
+        sobreUmbralPorCiclo.reiniciar();
+        despachoObserver.reiniciar();
+        publicacionAsincrona.reiniciar();
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("MetricasMonitoreo{ciclos=%d, cicloP99=%d us, lecturaP99=%d ns, despachoP99=%d ns}",
+                getCiclos(), getDuracionCicloP99Micros(), getLecturaSensorP99Nanos(), getDespachoObserverP99Nanos());
+    }
+}
@@ -0,0 +1,60 @@
+package com.greengardens.sensors;
+
+/**
+ * Interface de gestión JMX de las métricas de monitoreo de un SistemaAlarma.
+ * Las duraciones se publican en microsegundos y las latencias individuales en nanosegundos.
+ */
+public interface MetricasMonitoreoMBean {
+    
+    long getCiclos();
+    
+    long getDuracionCicloP50Micros();
+    
+    long getDuracionCicloP99Micros();
+    
+    long getDuracionCicloMaxMicros();
+    
+    long getLecturas();
+    
+    long getLecturaSensorP50Nanos();
+    
+    long getLecturaSensorP99Nanos();
+    
+    long getLecturaSensorMaxNanos();
+    
+    double getAlarmasPorCicloMedia();
+    
+    long getAlarmasPorCicloP99();
+    
+    long getAlarmasPorCicloMax();
+    
+    double getSobreUmbralPorCicloMedia();
+    
+    long getSobreUmbralPorCicloP99();
+    
+    long getSobreUmbralPorCicloMax();
+    
+    long getDespachosObserver();
+    
+    long getDespachoObserverP50Nanos();
+    
+    long getDespachoObserverP99Nanos();
+    
+    long getDespachoObserverMaxNanos();
+    
+    long getPublicacionAsincronaP99Nanos();
+    
+    long getPublicacionAsincronaMaxNanos();
+    
+    /**
+     * Lista los sensores con mayor latencia media de medición
+     * @param cantidad Número máximo de sensores
+     * @return Una línea por sensor con su media, máximo y número de medidas
+     */
+    String[] sensoresMasLentos(int cantidad);
+    
+    /**
+     * Vacía todos los histogramas
+     */
+    void reiniciar();
+}
@@ -0,0 +1,24 @@
+package com.greengardens.sensors;
+
+/**
+ * Enumeración que representa cómo calcula un sensor compuesto su promedio
+ */
+public enum ModoAgregacion {
+    CONSULTA("Consulta a los hijos en cada lectura"),
+    PUSH("Los hijos notifican sus medidas y se mantiene un promedio incremental");
+    
+    private final String descripcion;
+    
+    ModoAgregacion(String descripcion) {
+        this.descripcion = descripcion;
+    }
+    
+    public String getDescripcion() {
+        return descripcion;
+    }
+    
+    @Override
+    public String toString() {
+        return descripcion;
+    }
+}
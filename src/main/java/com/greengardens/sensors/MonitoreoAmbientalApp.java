@@ -4,9 +4,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Scanner;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Aplicación principal para demostrar el sistema de monitoreo ambiental
@@ -21,6 +18,7 @@ public class MonitoreoAmbientalApp {
         
         // Crear sistema de alarma
         SistemaAlarma sistemaAlarma = new SistemaAlarma();
+        sistemaAlarma.setEcoConsola(true);
         
         // Agregar listener para mostrar alarmas
         sistemaAlarma.agregarAlarmaListener((sensor, mensaje) -> {
@@ -43,17 +41,10 @@ public class MonitoreoAmbientalApp {
         sistemaAlarma.agregarSensor(sensorTemp1);
         sistemaAlarma.agregarSensor(sensorLuz1);
         
-        // Crear scheduler para monitoreo automático
-        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-        
-        // Programar monitoreo cada 5 segundos
-        scheduler.scheduleAtFixedRate(() -> {
-            try {
-                sistemaAlarma.ejecutarCicloMonitoreo();
-            } catch (Exception e) {
-                logger.error("Error en ciclo de monitoreo: {}", e.getMessage());
-            }
-        }, 0, 5, TimeUnit.SECONDS);
+        // Muestreo adaptativo: cada sensor con su propio intervalo según su tipo y su evolución
+        PlanificadorMuestreo planificador = new PlanificadorMuestreo(sistemaAlarma);
+        planificador.programar(sistemaAlarma.getSensores());
+        planificador.iniciar();
         
         // Interfaz de usuario simple
         Scanner scanner = new Scanner(System.in);
@@ -73,13 +64,14 @@ public class MonitoreoAmbientalApp {
                 scanner.nextLine(); // Consumir nueva línea
                 
                 switch (opcion) {
-                    case 1 -> System.out.println(sistemaAlarma.generarReporteEstado());
+                    case 1 -> sistemaAlarma.escribirReporteEstado(System.out);
                     case 2 -> desconectarSensor(sistemaAlarma, scanner);
                     case 3 -> conectarSensor(sistemaAlarma, scanner);
                     case 4 -> toggleSistema(sistemaAlarma);
                     case 5 -> {
                         ejecutando = false;
-                        scheduler.shutdown();
+                        planificador.close();
+                        sistemaAlarma.cerrar();
                         System.out.println("Sistema finalizado. ¡Hasta luego!");
                     }
                     default -> System.out.println("Opción no válida");
@@ -101,9 +93,7 @@ public class MonitoreoAmbientalApp {
         System.out.print("ID del sensor a desconectar: ");
         String id = scanner.nextLine();
         
-        sistema.getSensores().stream()
-            .filter(s -> s.getId().equals(id))
-            .findFirst()
+        sistema.buscarSensor(id)
             .ifPresentOrElse(
                 sensor -> {
                     sensor.setEstadoConexion(EstadoConexion.DESCONECTADO);
@@ -121,9 +111,7 @@ public class MonitoreoAmbientalApp {
         System.out.print("ID del sensor a conectar: ");
         String id = scanner.nextLine();
         
-        sistema.getSensores().stream()
-            .filter(s -> s.getId().equals(id))
-            .findFirst()
+        sistema.buscarSensor(id)
             .ifPresentOrElse(
                 sensor -> {
                     sensor.setEstadoConexion(EstadoConexion.CONECTADO);
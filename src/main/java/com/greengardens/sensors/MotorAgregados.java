@@ -0,0 +1,150 @@
+package com.greengardens.sensors;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Motor de agregados incrementales por sensor y por tipo de sensor.
+ * Recibe cada lectura del ciclo de monitoreo (como LecturaObserver) y la acumula
+ * en intervalos de 1 minuto, 1 hora y 1 día, cada resolución con su propia retención.
+ * Las consultas recorren intervalos, nunca lecturas, por lo que su coste depende
+ * solo del número de intervalos del rango pedido.
+ */
+public class MotorAgregados implements SistemaAlarma.LecturaObserver {
+    public static final int RETENCION_MINUTOS_POR_DEFECTO = 120;
+    public static final int RETENCION_HORAS_POR_DEFECTO = 48;
+    public static final int RETENCION_DIAS_POR_DEFECTO = 30;
+    
+    private final Map<Resolucion, Integer> retenciones;
+    private final Map<String, SerieAgregada[]> seriesPorSensor;
+    private final Map<TipoSensor, SerieAgregada[]> seriesPorTipo;
+    
+    /**
+     * Constructor con las retenciones por defecto (2 horas, 2 días y 30 días)
+     */
+    public MotorAgregados() {
+        this(RETENCION_MINUTOS_POR_DEFECTO, RETENCION_HORAS_POR_DEFECTO, RETENCION_DIAS_POR_DEFECTO);
+    }
+    
+    /**
+     * Constructor indicando cuántos intervalos se conservan en cada resolución
+     * @param retencionMinutos Intervalos de 1 minuto conservados
+     * @param retencionHoras Intervalos de 1 hora conservados
+     * @param retencionDias Intervalos de 1 día conservados
+     */
+    public MotorAgregados(int retencionMinutos, int retencionHoras, int retencionDias) {
+        if (retencionMinutos <= 0 || retencionHoras <= 0 || retencionDias <= 0) {
+            throw new IllegalArgumentException("Las retenciones deben ser positivas");
+        }
+        this.retenciones = new EnumMap<>(Resolucion.class);
+        retenciones.put(Resolucion.MINUTO, retencionMinutos);
+        retenciones.put(Resolucion.HORA, retencionHoras);
+        retenciones.put(Resolucion.DIA, retencionDias);
+        this.seriesPorSensor = new ConcurrentHashMap<>();
+        this.seriesPorTipo = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * Acumula una lectura del ciclo de monitoreo. Las lecturas sin medida se ignoran.
+     * @param lectura Lectura tomada
+     */
+    @Override
+    public void onLectura(Lectura lectura) {
+        if (lectura.tieneMedida()) {
+            ISensor sensor = lectura.getSensor();
+            registrar(sensor.getId(), sensor.getTipo(), lectura.getMarcaTiempoMillis(), lectura.getValor());
+        }
+    }
+    
+    /**
+     * Acumula un valor en todas las resoluciones del sensor y de su tipo. O(1)
+     * @param idSensor Identificador del sensor
+     * @param tipo Tipo del sensor
+     * @param instanteMillis Instante de la lectura en milisegundos desde epoch
+     * @param valor Valor medido
+     */
+    public void registrar(String idSensor, TipoSensor tipo, long instanteMillis, double valor) {
+        SerieAgregada[] delSensor = seriesPorSensor.computeIfAbsent(idSensor, id -> crearSeries());
+        SerieAgregada[] delTipo = seriesPorTipo.computeIfAbsent(tipo, t -> crearSeries());
+        for (int i = 0; i < delSensor.length; i++) {
+            delSensor[i].registrar(instanteMillis, valor);
+            delTipo[i].registrar(instanteMillis, valor);
+        }
+    }
+    
+    /**
+     * Obtiene los intervalos de un sensor en el rango indicado
+     * @param idSensor Identificador del sensor
+     * @param resolucion Resolución de los intervalos
+     * @param desdeMillis Inicio del rango en milisegundos desde epoch
+     * @param hastaMillis Fin del rango en milisegundos desde epoch
+     * @return Intervalos con datos, del más antiguo al más reciente
+     */
+    public List<Agregado> consultarSensor(String idSensor, Resolucion resolucion, long desdeMillis, long hastaMillis) {
+        return consultar(seriesPorSensor.get(idSensor), resolucion, desdeMillis, hastaMillis);
+    }
+    
+    /**
+     * Obtiene los intervalos de todos los sensores de un tipo en el rango indicado
+     * @param tipo Tipo de sensor
+     * @param resolucion Resolución de los intervalos
+     * @param desdeMillis Inicio del rango en milisegundos desde epoch
+     * @param hastaMillis Fin del rango en milisegundos desde epoch
+     * @return Intervalos con datos, del más antiguo al más reciente
+     */
+    public List<Agregado> consultarTipo(TipoSensor tipo, Resolucion resolucion, long desdeMillis, long hastaMillis) {
+        return consultar(seriesPorTipo.get(tipo), resolucion, desdeMillis, hastaMillis);
+    }
+    
+    /**
+     * Combina en un solo agregado los intervalos de un sensor en el rango indicado
+     * @return Agregado combinado, o null si no hay datos
+     */
+    public Agregado resumirSensor(String idSensor, Resolucion resolucion, long desdeMillis, long hastaMillis) {
+        SerieAgregada[] series = seriesPorSensor.get(idSensor);
+        return series == null ? null : series[resolucion.ordinal()].resumir(desdeMillis, hastaMillis);
+    }
+    
+    /**
+     * Combina en un solo agregado los intervalos de un tipo en el rango indicado
+     * @return Agregado combinado, o null si no hay datos
+     */
+    public Agregado resumirTipo(TipoSensor tipo, Resolucion resolucion, long desdeMillis, long hastaMillis) {
+        SerieAgregada[] series = seriesPorTipo.get(tipo);
+        return series == null ? null : series[resolucion.ordinal()].resumir(desdeMillis, hastaMillis);
+    }
+    
+    /**
+     * Deja de agregar un sensor y libera sus series
+     * @param idSensor Identificador del sensor
+     */
+    public void olvidarSensor(String idSensor) {
+        seriesPorSensor.remove(idSensor);
+    }
+    
+    public int getRetencion(Resolucion resolucion) {
+        return retenciones.get(resolucion);
+    }
+    
+    private List<Agregado> consultar(SerieAgregada[] series, Resolucion resolucion, long desdeMillis, long hastaMillis) {
+        Objects.requireNonNull(resolucion, "La resolución no puede ser null");
+        List<Agregado> resultado = new ArrayList<>();
+        if (series != null && desdeMillis <= hastaMillis) {
+            series[resolucion.ordinal()].consultar(desdeMillis, hastaMillis, resultado);
+        }
+        return resultado;
+    }
+    
+    private SerieAgregada[] crearSeries() {
+        Resolucion[] resoluciones = Resolucion.values();
+        SerieAgregada[] series = new SerieAgregada[resoluciones.length];
+        for (Resolucion resolucion : resoluciones) {
+            series[resolucion.ordinal()] = new SerieAgregada(resolucion, retenciones.get(resolucion));
+        }
+        return series;
+    }
+}
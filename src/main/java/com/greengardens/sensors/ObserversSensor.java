@@ -0,0 +1,52 @@
+package com.greengardens.sensors;
+
+import java.util.Arrays;
+
+/**
+ * Lista copy-on-write de SensorObserver basada en un array.
+ * Notificar recorre el array por índice, sin crear iteradores,
+ * para que un sensor sin observers no pague nada al medir.
+ */
+final class ObserversSensor {
+    private static final SensorObserver[] VACIO = new SensorObserver[0];
+    
+    private volatile SensorObserver[] observers = VACIO;
+    
+    synchronized void agregar(SensorObserver observer) {
+        SensorObserver[] nuevos = Arrays.copyOf(observers, observers.length + 1);
+        nuevos[nuevos.length - 1] = observer;
+        observers = nuevos;
+    }
+    
+    synchronized boolean remover(SensorObserver observer) {
+        SensorObserver[] actuales = observers;
+        for (int i = 0; i < actuales.length; i++) {
+            if (actuales[i] == observer) {
+                SensorObserver[] nuevos = new SensorObserver[actuales.length - 1];
+                System.arraycopy(actuales, 0, nuevos, 0, i);
+                System.arraycopy(actuales, i + 1, nuevos, i, actuales.length - i - 1);
+                observers = nuevos;
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    void notificarMedida(ISensor sensor, double medida) {
+        SensorObserver[] actuales = observers;
+        for (SensorObserver observer : actuales) {
+            observer.onNuevaMedida(sensor, medida);
+        }
+    }
+    
+    void notificarEstado(ISensor sensor, EstadoConexion anterior, EstadoConexion nuevo) {
+        SensorObserver[] actuales = observers;
+        for (SensorObserver observer : actuales) {
+            observer.onCambioEstado(sensor, anterior, nuevo);
+        }
+    }
+    
+    boolean estaVacio() {
+        return observers.length == 0;
+    }
+}
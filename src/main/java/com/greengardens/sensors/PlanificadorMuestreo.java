@@ -0,0 +1,502 @@
+package com.greengardens.sensors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Planificador de muestreo adaptativo con un intervalo propio por sensor.
+ * Cada sensor parte de los IntervalosMuestreo de su tipo; tras cada lectura el intervalo
+ * se escala para que, al ritmo de variación observado, quepan varias lecturas antes de
+ * alcanzar el umbral: se acorta cuando la medida se acerca al umbral o varía mucho, y se
+ * alarga poco a poco cuando es estable y está lejos. En alarma se aplica lo mismo a la
+ * distancia que falta para volver a cruzar el umbral. Mientras esa distancia no supere el
+ * mayor salto entre dos lecturas visto en el sensor, el intervalo no pasa del de vigilancia,
+ * para que un salto así no se detecte más tarde que con el sondeo a ritmo fijo. Tampoco pasa
+ * de él durante las lecturas de aprendizaje del tipo: sin historia, el mayor salto visto es
+ * cero y un primer cruce brusco se detectaría hasta un intervalo máximo tarde.
+ *
+ * No hay una tarea por sensor: un único hilo despierta con la resolución indicada, saca
+ * de un montículo de prioridad los sensores vencidos, los lee en el pool de lectura del
+ * SistemaAlarma y le entrega sus lecturas como un ciclo. Cada lectura tiene un plazo: un
+ * sensor que no responde a tiempo se vuelve a programar con su intervalo actual sin
+ * retrasar a los demás, y mientras su lectura siga colgada no se lanza otra. Las lecturas
+ * se hacen sin el cerrojo del planificador. El estado de cada sensor vive en arrays primitivos.
+ */
+public class PlanificadorMuestreo implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(PlanificadorMuestreo.class);
+    private static final Duration RESOLUCION_POR_DEFECTO = Duration.ofMillis(100);
+    private static final Duration PLAZO_LECTURA_POR_DEFECTO = Duration.ofSeconds(1);
+    private static final int CAPACIDAD_INICIAL = 64;
+    private static final double LECTURAS_MARGEN = 8.0; // Lecturas que deben caber antes de alcanzar el umbral
+    private static final double FACTOR_RELAJACION = 1.5; // Crecimiento máximo del intervalo por lectura
+    private static final double RETENCION_RITMO = 0.9; // Lo que conserva el ritmo máximo en cada lectura
+    
+    private final SistemaAlarma sistema;
+    private final long resolucionNanos;
+    private final long plazoLecturaNanos;
+    private final Map<TipoSensor, IntervalosMuestreo> intervalosPorTipo;
+    private final Map<ISensor, Integer> posiciones; // Sensor -> ranura en los arrays
+    private ISensor[] sensores;
+    private long[] proximaNanos;
+    private long[] intervaloNanos;
+    private long[] minimoNanos;
+    private long[] maximoNanos;
+    private long[] vigilanciaNanos;
+    private double[] ultimoValor; // NaN hasta la primera lectura
+    private long[] ultimaLecturaNanos;
+    private double[] ritmoMaximo; // Mayor variación por nanosegundo reciente, que decae lectura a lectura
+    private double[] saltoMaximo; // Mayor diferencia entre dos lecturas seguidas, sin decaimiento
+    private int[] aprendizajeRestante; // Lecturas que faltan para poder pasar del intervalo de vigilancia
+    private boolean[] enLectura; // Fuera del montículo mientras se lee
+    private int[] monticulo; // Ranuras ordenadas por próxima lectura
+    private int[] indiceEnMonticulo;
+    private int tamanoMonticulo;
+    private int[] ranurasLibres;
+    private int numeroLibres;
+    private int ranurasUsadas;
+    private long lecturasRealizadas;
+    private long lecturasFueraDePlazo;
+    private final ScheduledExecutorService ejecutor;
+    private ScheduledFuture<?> tarea;
+    
+    /**
+     * Constructor del planificador con la resolución por defecto de 100 ms
+     * @param sistema Sistema que evalúa las lecturas
+     */
+    public PlanificadorMuestreo(SistemaAlarma sistema) {
+        this(sistema, RESOLUCION_POR_DEFECTO);
+    }
+    
+    /**
+     * Constructor del planificador
+     * @param sistema Sistema que evalúa las lecturas
+     * @param resolucion Cada cuánto se comprueban los sensores vencidos
+     */
+    public PlanificadorMuestreo(SistemaAlarma sistema, Duration resolucion) {
+        this(sistema, resolucion, PLAZO_LECTURA_POR_DEFECTO);
+    }
+    
+    /**
+     * Constructor del planificador
+     * @param sistema Sistema que evalúa las lecturas
+     * @param resolucion Cada cuánto se comprueban los sensores vencidos
+     * @param plazoLectura Tiempo máximo de espera por las lecturas de un tick
+     */
+    public PlanificadorMuestreo(SistemaAlarma sistema, Duration resolucion, Duration plazoLectura) {
+        this.sistema = Objects.requireNonNull(sistema, "El sistema no puede ser null");
+        Objects.requireNonNull(resolucion, "La resolución no puede ser null");
+        Objects.requireNonNull(plazoLectura, "El plazo de lectura no puede ser null");
+        if (resolucion.isNegative() || resolucion.isZero()) {
+            throw new IllegalArgumentException("La resolución debe ser positiva");
+        }
+        if (plazoLectura.isNegative() || plazoLectura.isZero()) {
+            throw new IllegalArgumentException("El plazo de lectura debe ser positivo");
+        }
+        this.resolucionNanos = resolucion.toNanos();
+        this.plazoLecturaNanos = plazoLectura.toNanos();
+        this.intervalosPorTipo = new EnumMap<>(TipoSensor.class);
+        for (TipoSensor tipo : TipoSensor.values()) {
+            intervalosPorTipo.put(tipo, IntervalosMuestreo.porDefecto(tipo));
+        }
+        this.posiciones = new IdentityHashMap<>();
+        this.sensores = new ISensor[CAPACIDAD_INICIAL];
+        this.proximaNanos = new long[CAPACIDAD_INICIAL];
+        this.intervaloNanos = new long[CAPACIDAD_INICIAL];
+        this.minimoNanos = new long[CAPACIDAD_INICIAL];
+        this.maximoNanos = new long[CAPACIDAD_INICIAL];
+        this.vigilanciaNanos = new long[CAPACIDAD_INICIAL];
+        this.ultimoValor = new double[CAPACIDAD_INICIAL];
+        this.ultimaLecturaNanos = new long[CAPACIDAD_INICIAL];
+        this.ritmoMaximo = new double[CAPACIDAD_INICIAL];
+        this.saltoMaximo = new double[CAPACIDAD_INICIAL];
+        this.aprendizajeRestante = new int[CAPACIDAD_INICIAL];
+        this.enLectura = new boolean[CAPACIDAD_INICIAL];
+        this.monticulo = new int[CAPACIDAD_INICIAL];
+        this.indiceEnMonticulo = new int[CAPACIDAD_INICIAL];
+        this.ranurasLibres = new int[CAPACIDAD_INICIAL];
+        this.ejecutor = Executors.newSingleThreadScheduledExecutor(tareaHilo -> {
+            Thread hilo = new Thread(tareaHilo, "PlanificadorMuestreo");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+    
+    /**
+     * Cambia los intervalos de un tipo. Afecta a los sensores que se programen después
+     * @param tipo Tipo de sensor
+     * @param intervalos Intervalos de muestreo del tipo
+     */
+    public synchronized void configurarTipo(TipoSensor tipo, IntervalosMuestreo intervalos) {
+        Objects.requireNonNull(tipo, "El tipo de sensor no puede ser null");
+        intervalosPorTipo.put(tipo, Objects.requireNonNull(intervalos, "Los intervalos no pueden ser null"));
+    }
+    
+    /**
+     * Programa el muestreo de un sensor con los intervalos de su tipo.
+     * La primera lectura se reparte dentro del intervalo inicial para no leer todos a la vez.
+     * @param sensor Sensor a muestrear
+     * @return true si se programó, false si ya estaba programado
+     */
+    public synchronized boolean programar(ISensor sensor) {
+        Objects.requireNonNull(sensor, "El sensor no puede ser null");
+        if (posiciones.containsKey(sensor)) {
+            return false;
+        }
+        int ranura = numeroLibres > 0 ? ranurasLibres[--numeroLibres] : nuevaRanura();
+        IntervalosMuestreo intervalos = intervalosPorTipo.get(sensor.getTipo());
+        sensores[ranura] = sensor;
+        minimoNanos[ranura] = intervalos.getMinimo().toNanos();
+        maximoNanos[ranura] = intervalos.getMaximo().toNanos();
+        vigilanciaNanos[ranura] = intervalos.getVigilancia().toNanos();
+        aprendizajeRestante[ranura] = intervalos.getLecturasAprendizaje();
+        intervaloNanos[ranura] = aprendizajeRestante[ranura] > 0
+                ? Math.min(intervalos.getInicial().toNanos(), vigilanciaNanos[ranura])
+                : intervalos.getInicial().toNanos();
+        ultimoValor[ranura] = Double.NaN;
+        ritmoMaximo[ranura] = 0.0;
+        saltoMaximo[ranura] = 0.0;
+        enLectura[ranura] = false;
+        // Desfase por la razón áurea: posiciones bien repartidas sea cual sea el número de sensores
+        double fase = (posiciones.size() * 0.6180339887498949) % 1.0;
+        proximaNanos[ranura] = System.nanoTime() + (long) (fase * intervaloNanos[ranura]);
+        posiciones.put(sensor, ranura);
+        insertar(ranura);
+        return true;
+    }
+    
+    /**
+     * Programa el muestreo de varios sensores
+     * @param nuevos Sensores a muestrear
+     */
+    public void programar(Collection<? extends ISensor> nuevos) {
+        for (ISensor sensor : nuevos) {
+            programar(sensor);
+        }
+    }
+    
+    /**
+     * Deja de muestrear un sensor
+     * @param sensor Sensor a retirar
+     * @return true si estaba programado
+     */
+    public synchronized boolean cancelar(ISensor sensor) {
+        Integer ranura = posiciones.remove(sensor);
+        if (ranura == null) {
+            return false;
+        }
+        // Una ranura en lectura ya está fuera del montículo; su resultado se descartará
+        if (enLectura[ranura]) {
+            enLectura[ranura] = false;
+        } else {
+            quitarDelMonticulo(ranura);
+        }
+        sensores[ranura] = null;
+        ranurasLibres[numeroLibres++] = ranura;
+        return true;
+    }
+    
+    private int nuevaRanura() {
+        if (ranurasUsadas == sensores.length) {
+            int capacidad = sensores.length * 2;
+            sensores = Arrays.copyOf(sensores, capacidad);
+            proximaNanos = Arrays.copyOf(proximaNanos, capacidad);
+            intervaloNanos = Arrays.copyOf(intervaloNanos, capacidad);
+            minimoNanos = Arrays.copyOf(minimoNanos, capacidad);
+            maximoNanos = Arrays.copyOf(maximoNanos, capacidad);
+            vigilanciaNanos = Arrays.copyOf(vigilanciaNanos, capacidad);
+            ultimoValor = Arrays.copyOf(ultimoValor, capacidad);
+            ultimaLecturaNanos = Arrays.copyOf(ultimaLecturaNanos, capacidad);
+            ritmoMaximo = Arrays.copyOf(ritmoMaximo, capacidad);
+            saltoMaximo = Arrays.copyOf(saltoMaximo, capacidad);
+            aprendizajeRestante = Arrays.copyOf(aprendizajeRestante, capacidad);
+            enLectura = Arrays.copyOf(enLectura, capacidad);
+            monticulo = Arrays.copyOf(monticulo, capacidad);
+            indiceEnMonticulo = Arrays.copyOf(indiceEnMonticulo, capacidad);
+            ranurasLibres = Arrays.copyOf(ranurasLibres, capacidad);
+        }
+        return ranurasUsadas++;
+    }
+    
+    /**
+     * Empieza a muestrear en segundo plano con la resolución configurada
+     */
+    public synchronized void iniciar() {
+        if (tarea != null) {
+            throw new IllegalStateException("El planificador ya está iniciado");
+        }
+        tarea = ejecutor.scheduleAtFixedRate(() -> {
+            try {
+                ejecutarTick(System.nanoTime());
+            } catch (Exception e) {
+                logger.error("Error en el muestreo adaptativo: {}", e.getMessage());
+            }
+        }, 0, resolucionNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Detiene el muestreo en segundo plano; se puede volver a iniciar
+     */
+    public synchronized void detener() {
+        if (tarea != null) {
+            tarea.cancel(false);
+            tarea = null;
+        }
+    }
+    
+    /**
+     * Lee los sensores vencidos en el instante indicado, ajusta sus intervalos
+     * y entrega sus lecturas al sistema como un ciclo. Los sensores vencidos se sacan del
+     * montículo bajo el cerrojo, se leen en paralelo sin él y se vuelven a programar al terminar.
+     * @param ahoraNanos Instante del tick en la escala de System.nanoTime()
+     * @return Número de lecturas entregadas
+     */
+    int ejecutarTick(long ahoraNanos) {
+        List<ISensor> aLeer = new ArrayList<>();
+        List<Integer> ranurasLeidas = new ArrayList<>();
+        synchronized (this) {
+            while (tamanoMonticulo > 0 && proximaNanos[monticulo[0]] - ahoraNanos <= 0) {
+                int ranura = monticulo[0];
+                quitarDelMonticulo(ranura);
+                if (sensores[ranura].getEstadoConexion() == EstadoConexion.CONECTADO) {
+                    enLectura[ranura] = true;
+                    aLeer.add(sensores[ranura]);
+                    ranurasLeidas.add(ranura);
+                } else {
+                    reprogramar(ranura, ahoraNanos);
+                }
+            }
+        }
+        if (aLeer.isEmpty()) {
+            return 0;
+        }
+        
+        List<CompletableFuture<Lectura>> resultados =
+                sistema.leerEnParalelo(aLeer, plazoLecturaNanos, plazoLecturaNanos);
+        
+        List<Lectura> lote = new ArrayList<>(aLeer.size());
+        int fueraDePlazo = 0;
+        synchronized (this) {
+            for (int i = 0; i < aLeer.size(); i++) {
+                int ranura = ranurasLeidas.get(i);
+                ISensor sensor = aLeer.get(i);
+                // Cancelado durante la lectura, quizá con la ranura ya reutilizada
+                if (sensores[ranura] != sensor || !enLectura[ranura]) {
+                    continue;
+                }
+                enLectura[ranura] = false;
+                CompletableFuture<Lectura> resultado = resultados.get(i);
+                if (resultado.isCancelled()) {
+                    fueraDePlazo++;
+                } else {
+                    try {
+                        Lectura lectura = resultado.join();
+                        lecturasRealizadas++;
+                        if (lectura.tieneMedida()) {
+                            adaptar(ranura, lectura.getValor(), ahoraNanos);
+                            lote.add(lectura);
+                        }
+                    } catch (CompletionException e) {
+                        if (e.getCause() instanceof TimeoutException) {
+                            fueraDePlazo++;
+                        } else {
+                            logger.error("Error al muestrear sensor {}: {}", sensor.getId(),
+                                    e.getCause().getMessage());
+                        }
+                    }
+                }
+                reprogramar(ranura, ahoraNanos);
+            }
+            lecturasFueraDePlazo += fueraDePlazo;
+        }
+        if (fueraDePlazo > 0) {
+            logger.warn("{} sensores no respondieron dentro del plazo de muestreo", fueraDePlazo);
+        }
+        if (!lote.isEmpty()) {
+            sistema.procesarLecturas(lote);
+        }
+        return lote.size();
+    }
+    
+    /**
+     * Calcula la próxima lectura de una ranura con su intervalo actual y la devuelve al montículo.
+     * Con retraso no se recuperan lecturas perdidas: se sigue desde ahora.
+     */
+    private void reprogramar(int ranura, long ahoraNanos) {
+        proximaNanos[ranura] += intervaloNanos[ranura];
+        if (proximaNanos[ranura] - ahoraNanos <= 0) {
+            proximaNanos[ranura] = ahoraNanos + intervaloNanos[ranura];
+        }
+        insertar(ranura);
+    }
+    
+    /**
+     * Ajusta el intervalo de un sensor con su nueva medida. El intervalo se elige para que,
+     * al mayor ritmo de cambio reciente, quepan LECTURAS_MARGEN lecturas hasta el umbral.
+     * Se usa el ritmo máximo y no el actual porque cerca de un pico la medida apenas cambia
+     * justo antes de cruzar el umbral.
+     */
+    private void adaptar(int ranura, double valor, long ahoraNanos) {
+        if (aprendizajeRestante[ranura] > 0) {
+            aprendizajeRestante[ranura]--;
+        }
+        double anterior = ultimoValor[ranura];
+        long transcurrido = ahoraNanos - ultimaLecturaNanos[ranura];
+        ultimoValor[ranura] = valor;
+        ultimaLecturaNanos[ranura] = ahoraNanos;
+        if (Double.isNaN(anterior) || transcurrido <= 0) {
+            return;
+        }
+        double salto = Math.abs(valor - anterior);
+        saltoMaximo[ranura] = Math.max(saltoMaximo[ranura], salto);
+        double ritmo = salto / transcurrido;
+        ritmoMaximo[ranura] = Math.max(ritmo, ritmoMaximo[ranura] * RETENCION_RITMO);
+        
+        // En alarma la distancia que cuenta es la que falta para volver a cruzar el umbral
+        double margen = Math.abs(sensores[ranura].getUmbral() - valor);
+        double objetivo = ritmoMaximo[ranura] > 0
+                ? margen / (ritmoMaximo[ranura] * LECTURAS_MARGEN) : Double.POSITIVE_INFINITY;
+        long intervalo = (long) Math.min(objetivo, intervaloNanos[ranura] * FACTOR_RELAJACION);
+        long techo = aprendizajeRestante[ranura] > 0 || margen <= saltoMaximo[ranura]
+                ? vigilanciaNanos[ranura] : maximoNanos[ranura];
+        intervaloNanos[ranura] = Math.max(minimoNanos[ranura], Math.min(techo, intervalo));
+    }
+    
+    // Montículo binario de ranuras ordenado por proximaNanos
+    
+    private void insertar(int ranura) {
+        monticulo[tamanoMonticulo] = ranura;
+        indiceEnMonticulo[ranura] = tamanoMonticulo;
+        subir(tamanoMonticulo++);
+    }
+    
+    private void quitarDelMonticulo(int ranura) {
+        int indice = indiceEnMonticulo[ranura];
+        int ultima = monticulo[--tamanoMonticulo];
+        if (indice == tamanoMonticulo) {
+            return;
+        }
+        colocar(indice, ultima);
+        subir(indice);
+        bajar(indiceEnMonticulo[ultima]);
+    }
+    
+    private void subir(int indice) {
+        int ranura = monticulo[indice];
+        while (indice > 0) {
+            int padre = (indice - 1) >>> 1;
+            if (proximaNanos[monticulo[padre]] - proximaNanos[ranura] <= 0) {
+                break;
+            }
+            colocar(indice, monticulo[padre]);
+            indice = padre;
+        }
+        colocar(indice, ranura);
+    }
+    
+    private void bajar(int indice) {
+        int ranura = monticulo[indice];
+        while (true) {
+            int hijo = 2 * indice + 1;
+            if (hijo >= tamanoMonticulo) {
+                break;
+            }
+            if (hijo + 1 < tamanoMonticulo
+                    && proximaNanos[monticulo[hijo + 1]] - proximaNanos[monticulo[hijo]] < 0) {
+                hijo++;
+            }
+            if (proximaNanos[ranura] - proximaNanos[monticulo[hijo]] <= 0) {
+                break;
+            }
+            colocar(indice, monticulo[hijo]);
+            indice = hijo;
+        }
+        colocar(indice, ranura);
+    }
+    
+    private void colocar(int indice, int ranura) {
+        monticulo[indice] = ranura;
+        indiceEnMonticulo[ranura] = indice;
+    }
+    
+    /**
+     * Obtiene el intervalo de muestreo actual de un sensor
+     * @param sensor Sensor programado
+     * @return Intervalo actual
+     */
+    public synchronized Duration getIntervalo(ISensor sensor) {
+        Integer ranura = posiciones.get(sensor);
+        if (ranura == null) {
+            throw new IllegalArgumentException("El sensor no está programado: " + sensor.getId());
+        }
+        return Duration.ofNanos(intervaloNanos[ranura]);
+    }
+    
+    /**
+     * Estima las lecturas por hora con los intervalos actuales de todos los sensores
+     * @return Lecturas por hora previstas
+     */
+    public synchronized double getLecturasPorHora() {
+        double total = 0.0;
+        for (int ranura : posiciones.values()) {
+            total += 3_600e9 / intervaloNanos[ranura];
+        }
+        return total;
+    }
+    
+    public synchronized long getLecturasRealizadas() {
+        return lecturasRealizadas;
+    }
+    
+    /**
+     * Obtiene cuántas lecturas no terminaron dentro del plazo, incluidas las que no se
+     * lanzaron porque la anterior del mismo sensor seguía en curso
+     * @return Lecturas fuera de plazo desde el inicio
+     */
+    public synchronized long getLecturasFueraDePlazo() {
+        return lecturasFueraDePlazo;
+    }
+    
+    public Duration getPlazoLectura() {
+        return Duration.ofNanos(plazoLecturaNanos);
+    }
+    
+    public synchronized int getNumeroSensores() {
+        return posiciones.size();
+    }
+    
+    public Duration getResolucion() {
+        return Duration.ofNanos(resolucionNanos);
+    }
+    
+    /**
+     * Detiene el muestreo y libera el hilo del planificador
+     */
+    @Override
+    public void close() {
+        detener();
+        ejecutor.shutdownNow();
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return String.format("PlanificadorMuestreo{sensores=%d, resolucion=%d ms, lecturasPorHora=%.0f}",
+                posiciones.size(), resolucionNanos / 1_000_000, getLecturasPorHora());
+    }
+}
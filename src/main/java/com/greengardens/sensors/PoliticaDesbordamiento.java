@@ -0,0 +1,27 @@
+package com.greengardens.sensors;
+
+/**
+ * Enumeración que representa qué hace el despacho asíncrono de alarmas
+ * cuando un observer no consume al ritmo al que se disparan.
+ * El publicador de lecturas la aplica igual a los suscriptores que piden menos de lo que llega.
+ */
+public enum PoliticaDesbordamiento {
+    BLOQUEAR("El ciclo de monitoreo espera a que el observer libere espacio"),
+    DESCARTAR_ANTIGUO("Se descartan las alarmas más antiguas que el observer no llegó a leer"),
+    COALESCER_POR_SENSOR("Se entrega solo la alarma más reciente de cada sensor pendiente");
+    
+    private final String descripcion;
+    
+    PoliticaDesbordamiento(String descripcion) {
+        this.descripcion = descripcion;
+    }
+    
+    public String getDescripcion() {
+        return descripcion;
+    }
+    
+    @Override
+    public String toString() {
+        return descripcion;
+    }
+}
@@ -0,0 +1,37 @@
+package com.greengardens.sensors;
+
+/**
+ * Pool acotado de eventos de alarma para que la notificación no cree objetos
+ * en régimen estable. Si el pool se vacía se crea un evento nuevo, y si está
+ * lleno al devolverlo se descarta.
+ */
+final class PoolEventosAlarma {
+    private static final int CAPACIDAD_POR_DEFECTO = 16;
+    
+    private final EventoAlarma[] libres;
+    private int cantidad;
+    
+    PoolEventosAlarma() {
+        this(CAPACIDAD_POR_DEFECTO);
+    }
+    
+    PoolEventosAlarma(int capacidad) {
+        this.libres = new EventoAlarma[capacidad];
+    }
+    
+    synchronized EventoAlarma obtener() {
+        if (cantidad == 0) {
+            return new EventoAlarma();
+        }
+        EventoAlarma evento = libres[--cantidad];
+        libres[cantidad] = null;
+        return evento;
+    }
+    
+    synchronized void liberar(EventoAlarma evento) {
+        evento.limpiar();
+        if (cantidad < libres.length) {
+            libres[cantidad++] = evento;
+        }
+    }
+}
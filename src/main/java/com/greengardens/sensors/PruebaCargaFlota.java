@@ -0,0 +1,153 @@
+package com.greengardens.sensors;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Prueba de carga sin interfaz sobre una flota sintética de GeneradorFlota.
+ * Ejecuta ciclos de SistemaAlarma al ritmo objetivo y al final informa de los
+ * sensores evaluados por segundo sostenidos, los percentiles de latencia por
+ * ciclo, las alarmas por segundo y la tasa de asignación del hilo de monitoreo.
+ * Si la latencia del ciclo supera el periodo objetivo, los ciclos se encadenan
+ * sin pausa y se cuentan como retrasados: es la señal de que el nodo está al límite.
+ *
+ * Uso: mvn exec:java -Dexec.mainClass="com.greengardens.sensors.PruebaCargaFlota" -Dexec.args="100000 3 8 1 30"
+ * (sensores, profundidad, ramificación, ciclos por segundo (0 = sin pausa), segundos y semilla opcional)
+ */
+public class PruebaCargaFlota {
+    private static final long NANOS_CALENTAMIENTO = 2_000_000_000L;
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+    
+    public static void main(String[] args) {
+        int numeroSensores = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int profundidad = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int ramificacion = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        double ciclosPorSegundo = args.length > 3 ? Double.parseDouble(args[3]) : 1.0;
+        int segundos = args.length > 4 ? Integer.parseInt(args[4]) : 30;
+        long semilla = args.length > 5 ? Long.parseLong(args[5]) : 42L;
+        
+        EstrategiaFactory.fijarSemilla(semilla);
+        GeneradorFlota generador = new GeneradorFlota(numeroSensores, profundidad, ramificacion, semilla);
+        List<ISensor> flota = generador.generar();
+        
+        System.out.println("🌱 GREEN GARDEN - Prueba de carga de flota");
+        System.out.printf("Hojas: %,d, compuestos: %,d, sensores de nivel superior: %,d%n",
+                generador.getHojasGeneradas(), generador.getCompuestosGenerados(), flota.size());
+        System.out.printf("Profundidad: %d, ramificación: %d, objetivo: %s, duración: %d s%n", profundidad,
+                ramificacion, ciclosPorSegundo > 0 ? ciclosPorSegundo + " ciclos/s" : "sin pausa", segundos);
+        
+        SistemaAlarma sistema = new SistemaAlarma();
+        try {
+            sistema.setEcoConsola(false);
+            sistema.configurarAlarmas(ConfiguracionAlarmas.POR_DEFECTO);
+            LongAdder eventos = new LongAdder();
+            sistema.agregarObserver(evento -> eventos.increment());
+            sistema.agregarSensores(flota);
+            
+            long finCalentamiento = System.nanoTime() + NANOS_CALENTAMIENTO;
+            while (System.nanoTime() < finCalentamiento) {
+                sistema.ejecutarCicloMonitoreo();
+            }
+            eventos.reset();
+            
+            ejecutar(sistema, generador.getHojasGeneradas(), ciclosPorSegundo, segundos, eventos);
+        } finally {
+            sistema.cerrar();
+            EstrategiaFactory.quitarSemilla();
+        }
+    }
+    
+    private static void ejecutar(SistemaAlarma sistema, int hojas, double ciclosPorSegundo, int segundos,
+                                 LongAdder eventos) {
+        ThreadMXBean hilos = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean hilosHotSpot = hilos instanceof com.sun.management.ThreadMXBean h
+                && h.isThreadAllocatedMemorySupported() ? h : null;
+        long periodoNanos = ciclosPorSegundo > 0 ? (long) (1e9 / ciclosPorSegundo) : 0L;
+        long[] latencias = new long[Math.max(16, (int) Math.min(1 << 20, ciclosPorSegundo * segundos + 1))];
+        int ciclos = 0;
+        int retrasados = 0;
+        long sensoresEnAlarma = 0;
+        long nanosOcupado = 0;
+        long colecciones = contarColecciones();
+        long bytesInicio = hilosHotSpot != null ? hilosHotSpot.getCurrentThreadAllocatedBytes() : -1;
+        
+        long inicio = System.nanoTime();
+        long fin = inicio + segundos * 1_000_000_000L;
+        long siguienteCiclo = inicio;
+        while (System.nanoTime() < fin) {
+            long antes = System.nanoTime();
+            sensoresEnAlarma += sistema.ejecutarCicloMonitoreo().size();
+            long latencia = System.nanoTime() - antes;
+            nanosOcupado += latencia;
+            if (ciclos == latencias.length) {
+                latencias = Arrays.copyOf(latencias, ciclos * 2);
+            }
+            latencias[ciclos++] = latencia;
+            
+            if (periodoNanos > 0) {
+                siguienteCiclo += periodoNanos;
+                long espera = siguienteCiclo - System.nanoTime();
+                if (espera > 0) {
+                    LockSupport.parkNanos(espera);
+                } else {
+                    // Sin recuperar ciclos perdidos: se mide la capacidad sostenida, no ráfagas
+                    retrasados++;
+                    siguienteCiclo = System.nanoTime();
+                }
+            }
+        }
+        double transcurrido = (System.nanoTime() - inicio) / 1e9;
+        long bytes = hilosHotSpot != null ? hilosHotSpot.getCurrentThreadAllocatedBytes() - bytesInicio : -1;
+        colecciones = contarColecciones() - colecciones;
+        
+        Arrays.sort(latencias, 0, ciclos);
+        System.out.println("\n=== RESULTADOS ===");
+        System.out.printf("Ciclos: %,d en %.1f s (%.2f ciclos/s), retrasados: %,d%n",
+                ciclos, transcurrido, ciclos / transcurrido, retrasados);
+        System.out.printf("Sensores/s sostenidos: %,.0f (utilización del hilo: %.1f%%)%n",
+                (double) ciclos * hojas / transcurrido, 100.0 * nanosOcupado / (transcurrido * 1e9));
+        System.out.print("Latencia de ciclo:");
+        for (double percentil : PERCENTILES) {
+            System.out.printf(" p%s=%.2f ms", formatearPercentil(percentil),
+                    percentil(latencias, ciclos, percentil) / 1e6);
+        }
+        System.out.printf(" max=%.2f ms%n", ciclos > 0 ? latencias[ciclos - 1] / 1e6 : 0.0);
+        System.out.printf("Alarmas/s: %,.1f sensores sobre umbral, %,.1f eventos notificados%n",
+                sensoresEnAlarma / transcurrido, eventos.sum() / transcurrido);
+        if (bytes >= 0) {
+            System.out.printf("Asignación del hilo de monitoreo: %,.1f MB/s, %,.0f bytes/ciclo, %.1f bytes/sensor%n",
+                    bytes / transcurrido / (1 << 20), (double) bytes / ciclos, (double) bytes / ciclos / hojas);
+        } else {
+            System.out.println("Asignación del hilo de monitoreo: no disponible en esta JVM");
+        }
+        System.out.printf("Recolecciones de basura: %,d%n", colecciones);
+    }
+    
+    /**
+     * Percentil por rango más cercano sobre las latencias ya ordenadas
+     */
+    private static long percentil(long[] ordenadas, int cantidad, double percentil) {
+        if (cantidad == 0) {
+            return 0;
+        }
+        int rango = (int) Math.ceil(percentil / 100.0 * cantidad);
+        return ordenadas[Math.max(0, Math.min(cantidad, rango) - 1)];
+    }
+    
+    private static String formatearPercentil(double percentil) {
+        return percentil == Math.rint(percentil) ? String.valueOf((long) percentil) : String.valueOf(percentil);
+    }
+    
+    private static long contarColecciones() {
+        long total = 0;
+        for (GarbageCollectorMXBean colector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, colector.getCollectionCount());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,461 @@
+package com.greengardens.sensors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Publicador de lecturas según java.util.concurrent.Flow, con contrapresión por demanda.
+ * Cada suscripción tiene su filtro, su buffer acotado y su PoliticaDesbordamiento para
+ * cuando el suscriptor no pide al ritmo al que llegan lecturas; con COALESCER_POR_SENSOR
+ * solo se conserva la lectura más reciente de cada sensor pendiente.
+ * Las entregas de una suscripción se serializan sobre el ejecutor y nunca se hacen en el
+ * hilo que publica, de modo que un suscriptor lento no retrasa el ciclo de monitoreo
+ * (salvo con la política BLOQUEAR, cuando su buffer se llena).
+ */
+public class PublicadorLecturas implements Flow.Publisher<Lectura>, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(PublicadorLecturas.class);
+    public static final int CAPACIDAD_POR_DEFECTO = 256;
+    
+    private final Executor ejecutor;
+    private final List<Suscripcion> suscripciones;
+    private volatile boolean cerrado;
+    private ISensor sensorOrigen; // Sensor observado por un publicador de sensor, o null
+    private SensorObserver observerOrigen;
+    
+    /**
+     * Constructor con entrega sobre el ejecutor compartido de los publicadores de lecturas.
+     * No se usa el pool común de fork/join: un suscriptor que se bloquea ocuparía hilos
+     * de los que dependen los streams paralelos y la EvaluacionParalela, y en una máquina
+     * con un solo núcleo el pool común apenas tiene hilos.
+     */
+    public PublicadorLecturas() {
+        this(EjecutorPorDefecto.INSTANCIA);
+    }
+    
+    /**
+     * Constructor del publicador
+     * @param ejecutor Ejecutor donde se entregan las lecturas a los suscriptores
+     */
+    public PublicadorLecturas(Executor ejecutor) {
+        this.ejecutor = Objects.requireNonNull(ejecutor, "El ejecutor no puede ser null");
+        this.suscripciones = new CopyOnWriteArrayList<>();
+    }
+    
+    /**
+     * Crea un publicador con las medidas de un sensor, recibidas por notificación push:
+     * publica cada medida que tome el sensor, la pida quien la pida, sin lecturas extra,
+     * y una lectura sin medida cuando se desconecta
+     * @param sensor Sensor que admite observers
+     * @return Publicador de las lecturas del sensor; al cerrarlo deja de observarlo
+     */
+    public static PublicadorLecturas de(ISensor sensor) {
+        Objects.requireNonNull(sensor, "El sensor no puede ser null");
+        PublicadorLecturas publicador = new PublicadorLecturas();
+        SensorObserver observer = new SensorObserver() {
+            @Override
+            public void onNuevaMedida(ISensor origen, double medida) {
+                if (publicador.tieneSuscriptores()) {
+                    long marcaNanos = origen instanceof Sensor simple
+                            ? simple.getUltimaActualizacionNanos() : HistorialLecturas.ahoraEpochNanos();
+                    publicador.publicar(new Lectura(origen, medida, EstadoConexion.CONECTADO, marcaNanos));
+                }
+            }
+            
+            @Override
+            public void onCambioEstado(ISensor origen, EstadoConexion anterior, EstadoConexion nuevo) {
+                if (nuevo == EstadoConexion.DESCONECTADO && publicador.tieneSuscriptores()) {
+                    publicador.publicar(Lectura.sinMedida(origen));
+                }
+            }
+        };
+        if (!sensor.agregarSensorObserver(observer)) {
+            throw new IllegalArgumentException("El sensor no admite notificaciones push: " + sensor.getId());
+        }
+        publicador.sensorOrigen = sensor;
+        publicador.observerOrigen = observer;
+        return publicador;
+    }
+    
+    /**
+     * Suscribe sin filtro, con el buffer por defecto y descartando las lecturas más antiguas
+     * @param subscriber Suscriptor
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super Lectura> subscriber) {
+        suscribir(subscriber, FiltroLecturas.TODAS, PoliticaDesbordamiento.DESCARTAR_ANTIGUO, CAPACIDAD_POR_DEFECTO);
+    }
+    
+    /**
+     * Suscribe con filtro y política de desbordamiento
+     * @param subscriber Suscriptor
+     * @param filtro Lecturas que recibirá el suscriptor
+     * @param politica Qué hacer cuando el buffer del suscriptor está lleno
+     * @param capacidad Lecturas pendientes que caben en el buffer; con COALESCER_POR_SENSOR
+     *                  el buffer guarda una por sensor y no se limita
+     * @return Suscripción con los contadores del suscriptor
+     */
+    public Suscripcion suscribir(Flow.Subscriber<? super Lectura> subscriber, FiltroLecturas filtro,
+                                 PoliticaDesbordamiento politica, int capacidad) {
+        Objects.requireNonNull(subscriber, "El suscriptor no puede ser null");
+        Objects.requireNonNull(filtro, "El filtro no puede ser null");
+        Objects.requireNonNull(politica, "La política no puede ser null");
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad debe ser positiva");
+        }
+        Suscripcion suscripcion = new Suscripcion(subscriber, filtro, politica, capacidad);
+        if (cerrado) {
+            suscripcion.completar();
+        } else {
+            suscripciones.add(suscripcion);
+            if (cerrado) {
+                // close() pudo recorrer la lista antes de que se añadiera esta suscripción
+                suscripcion.completar();
+            }
+        }
+        suscripcion.programarEntrega();
+        return suscripcion;
+    }
+    
+    /**
+     * Entrega la lectura a las suscripciones cuyo filtro la admite
+     * @param lectura Lectura a publicar
+     */
+    public void publicar(Lectura lectura) {
+        Objects.requireNonNull(lectura, "La lectura no puede ser null");
+        if (cerrado) {
+            return;
+        }
+        for (Suscripcion suscripcion : suscripciones) {
+            if (suscripcion.filtro.test(lectura)) {
+                suscripcion.encolar(lectura);
+            }
+        }
+    }
+    
+    /**
+     * Indica si hay alguien suscrito, para no crear lecturas que nadie va a recibir
+     * @return true si hay al menos una suscripción activa
+     */
+    public boolean tieneSuscriptores() {
+        return !suscripciones.isEmpty();
+    }
+    
+    public int getNumeroSuscriptores() {
+        return suscripciones.size();
+    }
+    
+    /**
+     * Cierra el publicador: cada suscriptor recibe onComplete tras las lecturas que tenía pendientes.
+     * Un publicador de sensor deja además de observar al sensor.
+     */
+    @Override
+    public void close() {
+        cerrado = true;
+        if (observerOrigen != null) {
+            sensorOrigen.removerSensorObserver(observerOrigen);
+        }
+        for (Suscripcion suscripcion : suscripciones) {
+            suscripcion.completar();
+        }
+    }
+    
+    /**
+     * Ejecutor compartido por defecto, creado al usarse por primera vez: hilos daemon que
+     * se crean bajo demanda y terminan tras un minuto sin entregas
+     */
+    private static final class EjecutorPorDefecto {
+        private static final AtomicInteger CONTADOR_HILOS = new AtomicInteger();
+        private static final ExecutorService INSTANCIA = Executors.newCachedThreadPool(tarea -> {
+            Thread hilo = new Thread(tarea, "PublicadorLecturas-" + CONTADOR_HILOS.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+    
+    /**
+     * Suscripción de un suscriptor con su buffer, su demanda y sus contadores
+     */
+    public final class Suscripcion implements Flow.Subscription {
+        private final Flow.Subscriber<? super Lectura> subscriber;
+        private final FiltroLecturas filtro;
+        private final PoliticaDesbordamiento politica;
+        private final int capacidad;
+        private final ReentrantLock lock;
+        private final Condition hayEspacio;
+        private final ArrayDeque<Lectura> cola; // Políticas BLOQUEAR y DESCARTAR_ANTIGUO
+        private final Map<ISensor, Lectura> ultimaPorSensor; // Política COALESCER_POR_SENSOR
+        private final AtomicLong demanda;
+        private final AtomicInteger pendientesDeEntrega; // Serializa las entregas sobre el ejecutor
+        private boolean suscrito; // onSubscribe ya enviado; solo lo toca la entrega
+        private volatile boolean cancelada;
+        private volatile boolean completada; // El publicador se cerró: onComplete al vaciar
+        private volatile long peticionInvalida = 1; // Petición no positiva pendiente de notificar; positivo si no hay
+        private volatile long entregadas;
+        private volatile long descartadas;
+        private volatile long coalescidas;
+        
+        private Suscripcion(Flow.Subscriber<? super Lectura> subscriber, FiltroLecturas filtro,
+                            PoliticaDesbordamiento politica, int capacidad) {
+            this.subscriber = subscriber;
+            this.filtro = filtro;
+            this.politica = politica;
+            this.capacidad = capacidad;
+            this.lock = new ReentrantLock();
+            this.hayEspacio = lock.newCondition();
+            this.cola = new ArrayDeque<>();
+            this.ultimaPorSensor = politica == PoliticaDesbordamiento.COALESCER_POR_SENSOR
+                    ? new LinkedHashMap<>() : null;
+            this.demanda = new AtomicLong();
+            this.pendientesDeEntrega = new AtomicInteger();
+        }
+        
+        private void encolar(Lectura lectura) {
+            lock.lock();
+            try {
+                if (cancelada) {
+                    return;
+                }
+                switch (politica) {
+                    case BLOQUEAR -> {
+                        while (cola.size() >= capacidad && !cancelada && !completada) {
+                            try {
+                                hayEspacio.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                descartadas++;
+                                return;
+                            }
+                        }
+                        if (cancelada || completada) {
+                            return;
+                        }
+                        cola.addLast(lectura);
+                    }
+                    case DESCARTAR_ANTIGUO -> {
+                        if (cola.size() >= capacidad) {
+                            cola.pollFirst();
+                            descartadas++;
+                        }
+                        cola.addLast(lectura);
+                    }
+                    case COALESCER_POR_SENSOR -> {
+                        // Conserva el orden de llegada del sensor y reemplaza su lectura pendiente
+                        if (ultimaPorSensor.put(lectura.getSensor(), lectura) != null) {
+                            coalescidas++;
+                        }
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            // Sin demanda no hay nada que entregar: la lanzará request(). La lectura ya está en
+            // el buffer cuando se consulta la demanda, así que una petición simultánea la verá.
+            // onSubscribe y las señales terminales las programan suscribir(), completar() y request()
+            if (demanda.get() > 0) {
+                programarEntrega();
+            }
+        }
+        
+        private Lectura tomar() {
+            lock.lock();
+            try {
+                if (ultimaPorSensor != null) {
+                    Iterator<Lectura> iterador = ultimaPorSensor.values().iterator();
+                    if (!iterador.hasNext()) {
+                        return null;
+                    }
+                    Lectura lectura = iterador.next();
+                    iterador.remove();
+                    return lectura;
+                }
+                Lectura lectura = cola.pollFirst();
+                if (lectura != null) {
+                    hayEspacio.signal();
+                }
+                return lectura;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        private boolean vacia() {
+            lock.lock();
+            try {
+                return ultimaPorSensor != null ? ultimaPorSensor.isEmpty() : cola.isEmpty();
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        private void programarEntrega() {
+            if (pendientesDeEntrega.getAndIncrement() == 0) {
+                try {
+                    ejecutor.execute(this::entregar);
+                } catch (RejectedExecutionException e) {
+                    logger.error("Ejecutor de lecturas rechazó la entrega: {}", e.getMessage());
+                    pendientesDeEntrega.set(0);
+                    cancel();
+                }
+            }
+        }
+        
+        /**
+         * Bucle de entrega: un solo hilo a la vez, que sigue mientras haya peticiones de entrega
+         */
+        private void entregar() {
+            int pendientes = 1;
+            while (true) {
+                if (!suscrito) {
+                    suscrito = true;
+                    if (!invocar(() -> subscriber.onSubscribe(this))) {
+                        return;
+                    }
+                }
+                if (peticionInvalida <= 0 && !cancelada) {
+                    long peticion = peticionInvalida;
+                    cancel();
+                    invocar(() -> subscriber.onError(new IllegalArgumentException(
+                            "La demanda debe ser positiva: " + peticion)));
+                }
+                while (!cancelada && demanda.get() > 0) {
+                    Lectura lectura = tomar();
+                    if (lectura == null) {
+                        break;
+                    }
+                    if (!invocar(() -> subscriber.onNext(lectura))) {
+                        return;
+                    }
+                    entregadas++;
+                    if (demanda.get() != Long.MAX_VALUE) {
+                        demanda.decrementAndGet();
+                    }
+                }
+                if (completada && !cancelada && vacia()) {
+                    cancel();
+                    invocar(subscriber::onComplete);
+                }
+                pendientes = pendientesDeEntrega.addAndGet(-pendientes);
+                if (pendientes == 0) {
+                    return;
+                }
+            }
+        }
+        
+        /**
+         * Invoca al suscriptor; si lanza una excepción la suscripción se cancela
+         * @return false si el suscriptor falló
+         */
+        private boolean invocar(Runnable senal) {
+            try {
+                senal.run();
+                return true;
+            } catch (Exception e) {
+                logger.error("Error en suscriptor de lecturas: {}", e.getMessage());
+                cancel();
+                pendientesDeEntrega.set(0);
+                return false;
+            }
+        }
+        
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                peticionInvalida = n;
+            } else {
+                demanda.accumulateAndGet(n, (actual, pedido) -> {
+                    long suma = actual + pedido;
+                    return suma < 0 ? Long.MAX_VALUE : suma;
+                });
+            }
+            programarEntrega();
+        }
+        
+        @Override
+        public void cancel() {
+            cancelada = true;
+            suscripciones.remove(this);
+            lock.lock();
+            try {
+                cola.clear();
+                if (ultimaPorSensor != null) {
+                    ultimaPorSensor.clear();
+                }
+                hayEspacio.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        private void completar() {
+            completada = true;
+            suscripciones.remove(this);
+            lock.lock();
+            try {
+                hayEspacio.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            programarEntrega();
+        }
+        
+        /**
+         * Obtiene las lecturas que esperan a que el suscriptor las pida
+         * @return Lecturas en el buffer
+         */
+        public int getPendientes() {
+            lock.lock();
+            try {
+                return ultimaPorSensor != null ? ultimaPorSensor.size() : cola.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        public FiltroLecturas getFiltro() {
+            return filtro;
+        }
+        
+        public PoliticaDesbordamiento getPolitica() {
+            return politica;
+        }
+        
+        public long getEntregadas() {
+            return entregadas;
+        }
+        
+        public long getDescartadas() {
+            return descartadas;
+        }
+        
+        public long getCoalescidas() {
+            return coalescidas;
+        }
+        
+        public boolean isCancelada() {
+            return cancelada;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("Suscripcion{politica=%s, entregadas=%d, descartadas=%d, coalescidas=%d, pendientes=%d}",
+                    politica.name(), entregadas, descartadas, coalescidas, getPendientes());
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.greengardens.sensors;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro de sensores indexado por id.
+ * La búsqueda por id es O(1) y agregar es O(1) amortizado: los sensores se añaden
+ * al final de un array que solo se copia al crecer, y cada escritura publica una
+ * instantánea inmutable (array + tamaño). Los ciclos de monitoreo recorren esa
+ * instantánea sin copiarla ni bloquear, aunque se agreguen sensores a la vez.
+ * Remover sí copia el array, ya que las instantáneas publicadas no pueden cambiar;
+ * para bajas masivas removerTodos hace una sola copia.
+ * Cada sensor recibe al darse de alta un handle entero que no se reutiliza.
+ */
+final class RegistroSensores {
+    private static final int CAPACIDAD_INICIAL = 16;
+    
+    private final Map<String, Entrada> porId;
+    private volatile Instantanea instantanea;
+    private int siguienteHandle;
+    
+    RegistroSensores() {
+        this.porId = new ConcurrentHashMap<>();
+        this.instantanea = new Instantanea(new ISensor[CAPACIDAD_INICIAL], 0);
+    }
+    
+    /**
+     * Agrega un sensor si su id no está registrado
+     * @return true si se agregó
+     */
+    synchronized boolean agregar(ISensor sensor) {
+        if (porId.putIfAbsent(sensor.getId(), new Entrada(sensor, siguienteHandle)) != null) {
+            return false;
+        }
+        siguienteHandle++;
+        Instantanea actual = instantanea;
+        ISensor[] datos = actual.sensores;
+        if (actual.tamano == datos.length) {
+            datos = Arrays.copyOf(datos, datos.length * 2);
+        }
+        // Escribir más allá del tamaño publicado no afecta a quien recorre la instantánea anterior
+        datos[actual.tamano] = sensor;
+        instantanea = new Instantanea(datos, actual.tamano + 1);
+        return true;
+    }
+    
+    /**
+     * Agrega todos los sensores con una sola copia del array.
+     * Si alguno es null o su id está repetido, no se agrega ninguno.
+     */
+    synchronized void agregarTodos(Collection<? extends ISensor> nuevos) {
+        Set<String> ids = new HashSet<>();
+        for (ISensor sensor : nuevos) {
+            Objects.requireNonNull(sensor, "El sensor no puede ser null");
+            if (porId.containsKey(sensor.getId()) || !ids.add(sensor.getId())) {
+                throw new IllegalArgumentException("El sensor ya existe en el sistema: " + sensor.getId());
+            }
+        }
+        
+        Instantanea actual = instantanea;
+        int tamano = actual.tamano + nuevos.size();
+        ISensor[] datos = actual.sensores;
+        if (tamano > datos.length) {
+            datos = Arrays.copyOf(datos, Math.max(tamano, datos.length * 2));
+        }
+        int posicion = actual.tamano;
+        for (ISensor sensor : nuevos) {
+            datos[posicion++] = sensor;
+            porId.put(sensor.getId(), new Entrada(sensor, siguienteHandle++));
+        }
+        instantanea = new Instantanea(datos, tamano);
+    }
+    
+    /**
+     * Remueve el sensor con el id indicado
+     * @return Sensor removido, o null si no existía
+     */
+    synchronized ISensor remover(String id) {
+        Entrada entrada = porId.remove(id);
+        if (entrada == null) {
+            return null;
+        }
+        ISensor removido = entrada.sensor;
+        Instantanea actual = instantanea;
+        ISensor[] datos = new ISensor[Math.max(CAPACIDAD_INICIAL, actual.sensores.length)];
+        int tamano = 0;
+        for (int i = 0; i < actual.tamano; i++) {
+            if (actual.sensores[i] != removido) {
+                datos[tamano++] = actual.sensores[i];
+            }
+        }
+        instantanea = new Instantanea(datos, tamano);
+        return removido;
+    }
+    
+    /**
+     * Remueve los sensores con los ids indicados con una sola copia del array.
+     * Los ids que no están registrados se ignoran.
+     * @return Sensores removidos
+     */
+    synchronized List<ISensor> removerTodos(Collection<String> ids) {
+        Set<ISensor> removidos = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (String id : ids) {
+            Entrada entrada = porId.remove(id);
+            if (entrada != null) {
+                removidos.add(entrada.sensor);
+            }
+        }
+        if (removidos.isEmpty()) {
+            return List.of();
+        }
+        Instantanea actual = instantanea;
+        ISensor[] datos = new ISensor[Math.max(CAPACIDAD_INICIAL, actual.sensores.length)];
+        List<ISensor> enOrden = new ArrayList<>(removidos.size());
+        int tamano = 0;
+        for (int i = 0; i < actual.tamano; i++) {
+            if (removidos.contains(actual.sensores[i])) {
+                enOrden.add(actual.sensores[i]);
+            } else {
+                datos[tamano++] = actual.sensores[i];
+            }
+        }
+        instantanea = new Instantanea(datos, tamano);
+        return enOrden;
+    }
+    
+    ISensor buscar(String id) {
+        Entrada entrada = porId.get(id);
+        return entrada == null ? null : entrada.sensor;
+    }
+    
+    /**
+     * Obtiene el handle asignado al sensor al darse de alta
+     * @return Handle del sensor, o -1 si no está registrado
+     */
+    int handleDe(String id) {
+        Entrada entrada = porId.get(id);
+        return entrada == null ? -1 : entrada.handle;
+    }
+    
+    int tamano() {
+        return instantanea.tamano;
+    }
+    
+    Instantanea instantanea() {
+        return instantanea;
+    }
+    
+    List<ISensor> comoLista() {
+        Instantanea actual = instantanea;
+        return List.of(Arrays.copyOf(actual.sensores, actual.tamano));
+    }
+    
+    private static final class Entrada {
+        private final ISensor sensor;
+        private final int handle;
+        
+        private Entrada(ISensor sensor, int handle) {
+            this.sensor = sensor;
+            this.handle = handle;
+        }
+    }
+    
+    /**
+     * Vista inmutable de los sensores registrados en un momento dado, en orden de alta
+     */
+    static final class Instantanea extends AbstractList<ISensor> implements RandomAccess {
+        private final ISensor[] sensores;
+        private final int tamano;
+        
+        private Instantanea(ISensor[] sensores, int tamano) {
+            this.sensores = sensores;
+            this.tamano = tamano;
+        }
+        
+        int tamano() {
+            return tamano;
+        }
+        
+        @Override
+        public ISensor get(int indice) {
+            Objects.checkIndex(indice, tamano);
+            return sensores[indice];
+        }
+        
+        @Override
+        public int size() {
+            return tamano;
+        }
+        
+        @Override
+        public Iterator<ISensor> iterator() {
+            return new Iterator<>() {
+                private int siguiente;
+                
+                @Override
+                public boolean hasNext() {
+                    return siguiente < tamano;
+                }
+                
+                @Override
+                public ISensor next() {
+                    if (siguiente >= tamano) {
+                        throw new NoSuchElementException();
+                    }
+                    return sensores[siguiente++];
+                }
+            };
+        }
+    }
+}
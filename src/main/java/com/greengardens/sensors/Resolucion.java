@@ -0,0 +1,40 @@
+package com.greengardens.sensors;
+
+/**
+ * Enumeración que representa las resoluciones temporales de los agregados
+ */
+public enum Resolucion {
+    MINUTO("1 minuto", 60_000L),
+    HORA("1 hora", 3_600_000L),
+    DIA("1 día", 86_400_000L);
+    
+    private final String descripcion;
+    private final long duracionMillis;
+    
+    Resolucion(String descripcion, long duracionMillis) {
+        this.descripcion = descripcion;
+        this.duracionMillis = duracionMillis;
+    }
+    
+    public String getDescripcion() {
+        return descripcion;
+    }
+    
+    public long getDuracionMillis() {
+        return duracionMillis;
+    }
+    
+    /**
+     * Calcula el inicio del intervalo que contiene el instante indicado (UTC)
+     * @param instanteMillis Milisegundos desde epoch
+     * @return Inicio del intervalo en milisegundos desde epoch
+     */
+    public long inicioIntervalo(long instanteMillis) {
+        return Math.floorDiv(instanteMillis, duracionMillis) * duracionMillis;
+    }
+    
+    @Override
+    public String toString() {
+        return descripcion;
+    }
+}
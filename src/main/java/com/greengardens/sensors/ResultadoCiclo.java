@@ -0,0 +1,71 @@
+package com.greengardens.sensors;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Resultado inmutable de un ciclo de monitoreo paralelo.
+ * Distingue los sensores que dispararon alarma de los que no respondieron
+ * dentro del plazo, en lugar de bloquear el ciclo esperándolos.
+ */
+public final class ResultadoCiclo {
+    private final List<Lectura> lecturasConAlarma;
+    private final List<ISensor> sensoresFueraDePlazo;
+    private final int sensoresEvaluados;
+    private final Duration duracion;
+    
+    /**
+     * Constructor del resultado de ciclo
+     * @param lecturasConAlarma Lecturas que superaron el umbral de su sensor
+     * @param sensoresFueraDePlazo Sensores que no respondieron a tiempo
+     * @param sensoresEvaluados Número de sensores leídos dentro del plazo
+     * @param duracion Tiempo total del ciclo
+     */
+    public ResultadoCiclo(List<Lectura> lecturasConAlarma, List<ISensor> sensoresFueraDePlazo,
+                          int sensoresEvaluados, Duration duracion) {
+        this.lecturasConAlarma = List.copyOf(lecturasConAlarma);
+        this.sensoresFueraDePlazo = List.copyOf(sensoresFueraDePlazo);
+        this.sensoresEvaluados = sensoresEvaluados;
+        this.duracion = Objects.requireNonNull(duracion, "La duración no puede ser null");
+    }
+    
+    public List<Lectura> getLecturasConAlarma() {
+        return lecturasConAlarma;
+    }
+    
+    /**
+     * Obtiene los sensores que dispararon alarma en el ciclo
+     * @return Lista de sensores con alarma
+     */
+    public List<ISensor> getSensoresConAlarma() {
+        return lecturasConAlarma.stream().map(Lectura::getSensor).toList();
+    }
+    
+    public List<ISensor> getSensoresFueraDePlazo() {
+        return sensoresFueraDePlazo;
+    }
+    
+    public int getSensoresEvaluados() {
+        return sensoresEvaluados;
+    }
+    
+    public Duration getDuracion() {
+        return duracion;
+    }
+    
+    /**
+     * Indica si todos los sensores respondieron dentro del plazo
+     * @return true si ningún sensor quedó fuera de plazo
+     */
+    public boolean isCompleto() {
+        return sensoresFueraDePlazo.isEmpty();
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("ResultadoCiclo{evaluados=%d, alarmas=%d, fueraDePlazo=%d, duracion=%d ms}",
+                sensoresEvaluados, lecturasConAlarma.size(), sensoresFueraDePlazo.size(),
+                duracion.toMillis());
+    }
+}
@@ -0,0 +1,43 @@
+package com.greengardens.sensors;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Resultado inmutable de la evaluación de un árbol de sensores compuestos
+ */
+public final class ResultadoEvaluacion {
+    private final double promedio;
+    private final long hojasEvaluadas;
+    private final Duration duracion;
+    
+    /**
+     * Constructor del resultado de evaluación
+     * @param promedio Promedio calculado para la raíz
+     * @param hojasEvaluadas Número de sensores hoja leídos
+     * @param duracion Tiempo que tardó la evaluación
+     */
+    public ResultadoEvaluacion(double promedio, long hojasEvaluadas, Duration duracion) {
+        this.promedio = promedio;
+        this.hojasEvaluadas = hojasEvaluadas;
+        this.duracion = Objects.requireNonNull(duracion, "La duración no puede ser null");
+    }
+    
+    public double getPromedio() {
+        return promedio;
+    }
+    
+    public long getHojasEvaluadas() {
+        return hojasEvaluadas;
+    }
+    
+    public Duration getDuracion() {
+        return duracion;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("ResultadoEvaluacion{promedio=%.4f, hojas=%d, duracion=%d ms}",
+                promedio, hojasEvaluadas, duracion.toMillis());
+    }
+}
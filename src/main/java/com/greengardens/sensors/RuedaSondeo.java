@@ -0,0 +1,498 @@
+package com.greengardens.sensors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Rueda de temporización jerárquica para sondear sensores con periodos fijos distintos.
+ * El tiempo avanza en ticks de la resolución indicada; hay NIVELES ruedas de RANURAS ranuras,
+ * cada una RANURAS veces más gruesa que la anterior. Un sondeo se cuelga en la ranura del
+ * nivel más bajo que alcanza su vencimiento y baja de nivel cuando la rueda inferior da la
+ * vuelta, así que programar y cancelar son O(1) y cada tick solo recorre los sondeos que vencen.
+ *
+ * Los sondeos viven en arrays primitivos enlazados por índice, sin una tarea por sensor ni
+ * objetos por sondeo: los vencidos de cada tick forman una tanda, con arrays del tamaño
+ * justo, que se reparte en lotes entre los hilos de trabajo. El último lote en terminar
+ * entrega al destino todas las lecturas del tick de una vez, de modo que el destino ve
+ * cada tick como un ciclo (el modo tormenta agrupa por tick) aunque se lea en paralelo.
+ * Si un sondeo vence mientras la tanda de su lectura anterior sigue en curso, se omite.
+ */
+public class RuedaSondeo implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(RuedaSondeo.class);
+    private static final Duration RESOLUCION_POR_DEFECTO = Duration.ofMillis(10);
+    private static final int BITS_RANURA = 8;
+    private static final int RANURAS = 1 << BITS_RANURA;
+    private static final int MASCARA_RANURA = RANURAS - 1;
+    private static final int NIVELES = 4; // 2^32 ticks: casi 50 días con ticks de 1 ms
+    private static final long MAXIMO_TICKS = 1L << (BITS_RANURA * NIVELES);
+    private static final int CAPACIDAD_INICIAL = 64;
+    private static final int TAMANO_LOTE = 256;
+    private static final int NINGUNO = -1;
+    private static final AtomicInteger contadorHilos = new AtomicInteger();
+    
+    private final long resolucionNanos;
+    private final Consumer<List<Lectura>> destino;
+    private final ExecutorService trabajadores;
+    private final int[] cabezas; // Primer sondeo de cada ranura, por nivel
+    private ISensor[] sensores; // null en las posiciones libres
+    private long[] periodoTicks;
+    private long[] venceTick;
+    private int[] siguiente; // Enlaces de la lista de su ranura, o de la lista de libres
+    private int[] anterior;
+    private int[] ranura; // Índice en cabezas de la ranura donde está colgado
+    private int[] generacion; // Invalida los identificadores de sondeos cancelados
+    private boolean[] enCurso;
+    private int primeroLibre;
+    private int posicionesUsadas;
+    private int programados;
+    private long tickActual;
+    private long sondeosLanzados;
+    private long sondeosOmitidos;
+    private final AtomicInteger lotesEnCurso;
+    private Thread hiloTicks;
+    private volatile boolean activa;
+    
+    /**
+     * Constructor de la rueda con resolución de 10 ms y un hilo de trabajo por procesador,
+     * que entrega las lecturas al sistema para evaluar sus alarmas
+     * @param sistema Sistema que evalúa las lecturas
+     */
+    public RuedaSondeo(SistemaAlarma sistema) {
+        this(RESOLUCION_POR_DEFECTO, Runtime.getRuntime().availableProcessors(),
+                Objects.requireNonNull(sistema, "El sistema no puede ser null")::procesarLecturas);
+    }
+    
+    /**
+     * Constructor de la rueda
+     * @param resolucion Duración de un tick; los periodos se redondean a ticks
+     * @param hilosTrabajo Hilos que leen los sensores vencidos
+     * @param destino Recibe juntas las lecturas de cada tick, desde el hilo de trabajo que termina
+     *                el último lote del tick; ticks distintos pueden entregarse concurrentemente.
+     *                La lista no se conserva
+     */
+    public RuedaSondeo(Duration resolucion, int hilosTrabajo, Consumer<List<Lectura>> destino) {
+        Objects.requireNonNull(resolucion, "La resolución no puede ser null");
+        if (resolucion.isNegative() || resolucion.isZero()) {
+            throw new IllegalArgumentException("La resolución debe ser positiva");
+        }
+        if (hilosTrabajo <= 0) {
+            throw new IllegalArgumentException("El número de hilos de trabajo debe ser positivo");
+        }
+        this.resolucionNanos = resolucion.toNanos();
+        this.destino = Objects.requireNonNull(destino, "El destino no puede ser null");
+        this.trabajadores = Executors.newFixedThreadPool(hilosTrabajo, tarea -> {
+            Thread hilo = new Thread(tarea, "RuedaSondeo-trabajo-" + contadorHilos.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.cabezas = new int[NIVELES * RANURAS];
+        Arrays.fill(cabezas, NINGUNO);
+        this.sensores = new ISensor[CAPACIDAD_INICIAL];
+        this.periodoTicks = new long[CAPACIDAD_INICIAL];
+        this.venceTick = new long[CAPACIDAD_INICIAL];
+        this.siguiente = new int[CAPACIDAD_INICIAL];
+        this.anterior = new int[CAPACIDAD_INICIAL];
+        this.ranura = new int[CAPACIDAD_INICIAL];
+        this.generacion = new int[CAPACIDAD_INICIAL];
+        this.enCurso = new boolean[CAPACIDAD_INICIAL];
+        this.primeroLibre = NINGUNO;
+        this.lotesEnCurso = new AtomicInteger();
+    }
+    
+    /**
+     * Programa el sondeo periódico de un sensor. O(1).
+     * El primer sondeo se reparte dentro del periodo para que los sensores programados
+     * juntos no venzan en el mismo tick.
+     * @param sensor Sensor a sondear; un mismo sensor puede tener varios sondeos
+     * @param periodo Tiempo entre sondeos, como mínimo un tick
+     * @return Identificador del sondeo, para cancelarlo
+     */
+    public synchronized long programar(ISensor sensor, Duration periodo) {
+        Objects.requireNonNull(sensor, "El sensor no puede ser null");
+        Objects.requireNonNull(periodo, "El periodo no puede ser null");
+        long ticks = Math.max(1, periodo.toNanos() / resolucionNanos);
+        if (periodo.isNegative() || periodo.isZero() || ticks >= MAXIMO_TICKS) {
+            throw new IllegalArgumentException("Periodo fuera del alcance de la rueda: " + periodo);
+        }
+        int indice = nuevaPosicion();
+        sensores[indice] = sensor;
+        periodoTicks[indice] = ticks;
+        enCurso[indice] = false;
+        // Desfase por la razón áurea sobre el número de sondeos ya programados
+        double fase = (programados * 0.6180339887498949) % 1.0;
+        venceTick[indice] = tickActual + 1 + (long) (fase * ticks);
+        colgar(indice);
+        programados++;
+        return ((long) generacion[indice] << 32) | indice;
+    }
+    
+    /**
+     * Cancela un sondeo. O(1). Una lectura ya lanzada termina, pero no se vuelve a programar
+     * @param sondeo Identificador devuelto por programar
+     * @return true si el sondeo seguía programado
+     */
+    public synchronized boolean cancelar(long sondeo) {
+        int indice = (int) sondeo;
+        if (indice < 0 || indice >= posicionesUsadas || sensores[indice] == null
+                || generacion[indice] != (int) (sondeo >>> 32)) {
+            return false;
+        }
+        descolgar(indice);
+        sensores[indice] = null;
+        generacion[indice]++;
+        siguiente[indice] = primeroLibre;
+        primeroLibre = indice;
+        programados--;
+        return true;
+    }
+    
+    private int nuevaPosicion() {
+        if (primeroLibre != NINGUNO) {
+            int indice = primeroLibre;
+            primeroLibre = siguiente[indice];
+            return indice;
+        }
+        if (posicionesUsadas == sensores.length) {
+            int capacidad = sensores.length * 2;
+            sensores = Arrays.copyOf(sensores, capacidad);
+            periodoTicks = Arrays.copyOf(periodoTicks, capacidad);
+            venceTick = Arrays.copyOf(venceTick, capacidad);
+            siguiente = Arrays.copyOf(siguiente, capacidad);
+            anterior = Arrays.copyOf(anterior, capacidad);
+            ranura = Arrays.copyOf(ranura, capacidad);
+            generacion = Arrays.copyOf(generacion, capacidad);
+            enCurso = Arrays.copyOf(enCurso, capacidad);
+        }
+        return posicionesUsadas++;
+    }
+    
+    /**
+     * Cuelga el sondeo en la ranura del nivel más bajo cuyo alcance cubre su vencimiento
+     */
+    private void colgar(int indice) {
+        long restante = venceTick[indice] - tickActual;
+        int nivel = 0;
+        while (nivel < NIVELES - 1 && restante >= 1L << (BITS_RANURA * (nivel + 1))) {
+            nivel++;
+        }
+        int posicion = nivel * RANURAS
+                + (int) ((venceTick[indice] >>> (BITS_RANURA * nivel)) & MASCARA_RANURA);
+        int cabeza = cabezas[posicion];
+        siguiente[indice] = cabeza;
+        anterior[indice] = NINGUNO;
+        if (cabeza != NINGUNO) {
+            anterior[cabeza] = indice;
+        }
+        cabezas[posicion] = indice;
+        ranura[indice] = posicion;
+    }
+    
+    private void descolgar(int indice) {
+        int previo = anterior[indice];
+        int posterior = siguiente[indice];
+        if (previo != NINGUNO) {
+            siguiente[previo] = posterior;
+        } else {
+            cabezas[ranura[indice]] = posterior;
+        }
+        if (posterior != NINGUNO) {
+            anterior[posterior] = previo;
+        }
+    }
+    
+    /**
+     * Avanza la rueda tick a tick hasta el indicado, lanzando los sondeos que vencen
+     * @param tickObjetivo Tick hasta el que avanzar, incluido
+     * @return Número de sondeos lanzados
+     */
+    synchronized int avanzarHasta(long tickObjetivo) {
+        int lanzados = 0;
+        while (tickActual < tickObjetivo) {
+            tickActual++;
+            bajarNiveles();
+            lanzados += lanzarVencidos(tickActual & MASCARA_RANURA);
+        }
+        return lanzados;
+    }
+    
+    /**
+     * Cuando una rueda completa la vuelta, recoloca los sondeos de la ranura que toca del
+     * nivel superior; al estar más cerca de vencer, caen en niveles más bajos
+     */
+    private void bajarNiveles() {
+        for (int nivel = 1; nivel < NIVELES; nivel++) {
+            if ((tickActual & ((1L << (BITS_RANURA * nivel)) - 1)) != 0) {
+                return;
+            }
+            int posicion = nivel * RANURAS + (int) ((tickActual >>> (BITS_RANURA * nivel)) & MASCARA_RANURA);
+            int indice = cabezas[posicion];
+            cabezas[posicion] = NINGUNO;
+            while (indice != NINGUNO) {
+                int posterior = siguiente[indice];
+                colgar(indice);
+                indice = posterior;
+            }
+        }
+    }
+    
+    private int lanzarVencidos(long posicion) {
+        int cabeza = cabezas[(int) posicion];
+        cabezas[(int) posicion] = NINGUNO;
+        int vencidos = 0;
+        for (int indice = cabeza; indice != NINGUNO; indice = siguiente[indice]) {
+            if (!enCurso[indice]) {
+                vencidos++;
+            }
+        }
+        Tanda tanda = vencidos == 0 ? null : new Tanda(vencidos);
+        int indice = cabeza;
+        while (indice != NINGUNO) {
+            int posterior = siguiente[indice];
+            if (enCurso[indice]) {
+                sondeosOmitidos++;
+            } else {
+                enCurso[indice] = true;
+                tanda.agregar(indice, generacion[indice], sensores[indice]);
+            }
+            venceTick[indice] += periodoTicks[indice];
+            colgar(indice);
+            indice = posterior;
+        }
+        for (int desde = 0; desde < vencidos; desde += TAMANO_LOTE) {
+            enviar(new Lote(tanda, desde, Math.min(vencidos, desde + TAMANO_LOTE)));
+        }
+        sondeosLanzados += vencidos;
+        return vencidos;
+    }
+    
+    private void enviar(Lote lote) {
+        lotesEnCurso.incrementAndGet();
+        try {
+            trabajadores.execute(lote);
+        } catch (RejectedExecutionException e) {
+            // El lote cuenta como terminado sin lecturas para que la tanda no quede esperándolo
+            lote.tanda.terminarLote();
+            lotesEnCurso.decrementAndGet();
+        }
+    }
+    
+    /**
+     * Tras entregar una tanda, sus sondeos pueden volver a lanzarse
+     */
+    private synchronized void liberar(Tanda tanda) {
+        for (int i = 0; i < tanda.tamano; i++) {
+            int indice = tanda.indices[i];
+            if (generacion[indice] == tanda.generaciones[i]) {
+                enCurso[indice] = false;
+            }
+        }
+    }
+    
+    /**
+     * Sondeos lanzados en un mismo tick. Cada lote escribe sus lecturas en su tramo de
+     * lecturas y el último en terminar las entrega todas.
+     */
+    private final class Tanda {
+        private final int[] indices;
+        private final int[] generaciones;
+        private final ISensor[] sensoresTanda;
+        private final Lectura[] lecturas; // null donde no hubo lectura
+        private final AtomicInteger lotesPendientes;
+        private int tamano; // Solo lo escribe el hilo de ticks, antes de enviar los lotes
+        
+        private Tanda(int capacidad) {
+            this.indices = new int[capacidad];
+            this.generaciones = new int[capacidad];
+            this.sensoresTanda = new ISensor[capacidad];
+            this.lecturas = new Lectura[capacidad];
+            this.lotesPendientes = new AtomicInteger((capacidad + TAMANO_LOTE - 1) / TAMANO_LOTE);
+        }
+        
+        private void agregar(int indice, int generacionSondeo, ISensor sensor) {
+            indices[tamano] = indice;
+            generaciones[tamano] = generacionSondeo;
+            sensoresTanda[tamano++] = sensor;
+        }
+        
+        /**
+         * Cuenta un lote terminado. El último ve las lecturas de todos los lotes, ya que cada
+         * uno las escribió antes de descontarse, y las entrega al destino
+         */
+        private void terminarLote() {
+            if (lotesPendientes.decrementAndGet() != 0) {
+                return;
+            }
+            try {
+                List<Lectura> leidas = new ArrayList<>(tamano);
+                for (Lectura lectura : lecturas) {
+                    if (lectura != null) {
+                        leidas.add(lectura);
+                    }
+                }
+                if (!leidas.isEmpty()) {
+                    destino.accept(leidas);
+                }
+            } catch (Exception e) {
+                logger.error("Error al entregar lecturas sondeadas: {}", e.getMessage());
+            } finally {
+                liberar(this);
+            }
+        }
+    }
+    
+    /**
+     * Tramo de una tanda que se lee en un hilo de trabajo
+     */
+    private final class Lote implements Runnable {
+        private final Tanda tanda;
+        private final int desde;
+        private final int hasta;
+        
+        private Lote(Tanda tanda, int desde, int hasta) {
+            this.tanda = tanda;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+        
+        @Override
+        public void run() {
+            try {
+                for (int i = desde; i < hasta; i++) {
+                    ISensor sensor = tanda.sensoresTanda[i];
+                    if (sensor.getEstadoConexion() != EstadoConexion.CONECTADO) {
+                        continue;
+                    }
+                    try {
+                        tanda.lecturas[i] = sensor.obtenerLectura();
+                    } catch (Exception e) {
+                        logger.error("Error al sondear sensor {}: {}", sensor.getId(), e.getMessage());
+                    }
+                }
+            } finally {
+                tanda.terminarLote();
+                lotesEnCurso.decrementAndGet();
+            }
+        }
+    }
+    
+    /**
+     * Empieza a avanzar la rueda en segundo plano; el tiempo sigue desde el tick en que se detuvo
+     */
+    public synchronized void iniciar() {
+        if (hiloTicks != null) {
+            throw new IllegalStateException("La rueda ya está iniciada");
+        }
+        long tickInicial = tickActual;
+        long origenNanos = System.nanoTime() - tickInicial * resolucionNanos;
+        activa = true;
+        hiloTicks = new Thread(() -> girar(origenNanos, tickInicial), "RuedaSondeo");
+        hiloTicks.setDaemon(true);
+        hiloTicks.start();
+    }
+    
+    /**
+     * Bucle del hilo de ticks: duerme hasta el siguiente tick y, si se retrasó,
+     * procesa de una vez los ticks pendientes
+     */
+    private void girar(long origenNanos, long tickInicial) {
+        long tick = tickInicial;
+        while (activa) {
+            long espera = origenNanos + (tick + 1) * resolucionNanos - System.nanoTime();
+            if (espera > 0) {
+                LockSupport.parkNanos(this, espera);
+                continue;
+            }
+            tick = (System.nanoTime() - origenNanos) / resolucionNanos;
+            try {
+                avanzarHasta(tick);
+            } catch (Exception e) {
+                logger.error("Error al avanzar la rueda de sondeo: {}", e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Detiene el avance de la rueda; las lecturas en curso terminan. Se puede volver a iniciar
+     */
+    public void detener() {
+        Thread hilo;
+        synchronized (this) {
+            hilo = hiloTicks;
+            hiloTicks = null;
+            activa = false;
+        }
+        if (hilo != null) {
+            LockSupport.unpark(hilo);
+            try {
+                hilo.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    public synchronized int getProgramados() {
+        return programados;
+    }
+    
+    public synchronized long getSondeosLanzados() {
+        return sondeosLanzados;
+    }
+    
+    /**
+     * Obtiene los sondeos omitidos porque la tanda anterior del mismo sondeo seguía en curso
+     * @return Sondeos omitidos desde la creación
+     */
+    public synchronized long getSondeosOmitidos() {
+        return sondeosOmitidos;
+    }
+    
+    /**
+     * Obtiene los lotes enviados a los hilos de trabajo que aún no han terminado
+     * @return Lotes pendientes o en lectura
+     */
+    public int getLotesEnCurso() {
+        return lotesEnCurso.get();
+    }
+    
+    public Duration getResolucion() {
+        return Duration.ofNanos(resolucionNanos);
+    }
+    
+    /**
+     * Detiene la rueda y libera los hilos. Los lotes ya lanzados se leen,
+     * esperando como mucho 5 segundos
+     */
+    @Override
+    public void close() {
+        detener();
+        trabajadores.shutdown();
+        try {
+            if (!trabajadores.awaitTermination(5, TimeUnit.SECONDS)) {
+                trabajadores.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            trabajadores.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return String.format("RuedaSondeo{sondeos=%d, resolucion=%.1f ms, tick=%d, lanzados=%d, omitidos=%d}",
+                programados, resolucionNanos / 1e6, tickActual, sondeosLanzados, sondeosOmitidos);
+    }
+}
@@ -1,7 +1,13 @@
 package com.greengardens.sensors;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Objects;
+import java.util.Optional;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 
 /**
  * Clase base que representa un sensor individual
@@ -9,13 +15,38 @@ import java.util.Objects;
  * Patrón Strategy - Context para diferentes estrategias de medición
  */
 public class Sensor implements ISensor {
+    public static final int CAPACIDAD_HISTORIAL_POR_DEFECTO = 60;
+    private static final VarHandle ACIERTOS_CACHE;
+    private static final VarHandle FALLOS_CACHE;
+    private static final VarHandle MARCA_PUBLICADA;
+    
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            ACIERTOS_CACHE = lookup.findVarHandle(Sensor.class, "aciertosCache", long.class);
+            FALLOS_CACHE = lookup.findVarHandle(Sensor.class, "fallosCache", long.class);
+            MARCA_PUBLICADA = lookup.findVarHandle(Sensor.class, "marcaPublicadaNanos", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    
     private final String id;
     private final TipoSensor tipo;
     private EstadoConexion estadoConexion;
     private final double umbral;
-    private double medidaActual;
-    private LocalDateTime ultimaActualizacion;
+    private volatile double medidaActual;
+    private volatile boolean medido; // Hay al menos una medida física que reutilizar
+    private volatile long ultimaActualizacionNanos; // Nanosegundos desde epoch, sin objetos por lectura
+    private volatile long versionMedida; // Impar mientras se escriben medida y marca
+    private volatile long marcaPublicadaNanos = Long.MIN_VALUE; // Última medida entregada a los suscriptores
+    private volatile long edadMaximaCacheNanos; // 0: cada lectura consulta la estrategia
+    private volatile long aciertosCache; // Contadores en el propio sensor, sin objetos aparte
+    private volatile long fallosCache;
+    private final EstadisticaLatencia latenciaMedicion; // Tiempo de la estrategia en cada medida
     private final EstrategiaMedicion estrategiaMedicion;
+    private final HistorialLecturas historial;
+    private final ObserversSensor observers; // Patrón Observer - Notificación push de medidas
     
     /**
      * Constructor para crear un sensor
@@ -24,20 +55,46 @@ public class Sensor implements ISensor {
      * @param umbral Valor umbral para disparar alarmas
      */
     public Sensor(String id, TipoSensor tipo, double umbral) {
+        this(id, tipo, umbral, CAPACIDAD_HISTORIAL_POR_DEFECTO);
+    }
+    
+    /**
+     * Constructor para crear un sensor con un historial de capacidad concreta
+     * @param id Identificador único del sensor
+     * @param tipo Tipo de sensor
+     * @param umbral Valor umbral para disparar alarmas
+     * @param capacidadHistorial Número de lecturas recientes que se conservan
+     */
+    public Sensor(String id, TipoSensor tipo, double umbral, int capacidadHistorial) {
+        this(id, tipo, umbral, new HistorialLecturas(capacidadHistorial));
+    }
+    
+    /**
+     * Constructor para crear un sensor con un historial ya configurado
+     * @param id Identificador único del sensor
+     * @param tipo Tipo de sensor
+     * @param umbral Valor umbral para disparar alarmas
+     * @param historial Historial donde se registran las lecturas
+     */
+    public Sensor(String id, TipoSensor tipo, double umbral, HistorialLecturas historial) {
         this.id = Objects.requireNonNull(id, "El ID del sensor no puede ser null");
         this.tipo = Objects.requireNonNull(tipo, "El tipo de sensor no puede ser null");
         this.umbral = umbral;
         this.estadoConexion = EstadoConexion.CONECTADO;
         this.medidaActual = 0.0;
-        this.ultimaActualizacion = LocalDateTime.now();
+        this.ultimaActualizacionNanos = HistorialLecturas.ahoraEpochNanos();
+        this.historial = Objects.requireNonNull(historial, "El historial no puede ser null");
+        this.observers = new ObserversSensor();
+        this.latenciaMedicion = new EstadisticaLatencia();
         
         // Patrón Strategy - Asignar estrategia según el tipo
-        this.estrategiaMedicion = EstrategiaFactory.crearEstrategia(tipo);
+        this.estrategiaMedicion = EstrategiaFactory.crearEstrategia(tipo, id);
     }
     
     /**
      * Obtiene la medida actual del sensor
      * Patrón Strategy - Delega la medición a la estrategia específica
+     * Con caché activada, reutiliza la última medida si no supera la edad máxima.
      * @return Valor actual medido por el sensor
      */
     @Override
@@ -46,10 +103,182 @@ public class Sensor implements ISensor {
             throw new IllegalStateException("No se puede obtener medida de un sensor desconectado");
         }
         
+        if (!GrabacionJfr.isActiva()) {
+            return medidaConCache();
+        }
+        EventoMedicionJfr evento = new EventoMedicionJfr();
+        evento.begin();
+        double medida = medidaConCache();
+        evento.confirmar(this);
+        return medida;
+    }
+    
+    private double medidaConCache() {
+        long edadMaxima = edadMaximaCacheNanos;
+        if (edadMaxima > 0) {
+            // La marca se lee antes que el valor: el valor es al menos tan reciente como ella
+            long marcaNanos = ultimaActualizacionNanos;
+            if (medido && HistorialLecturas.ahoraEpochNanos() - marcaNanos <= edadMaxima) {
+                ACIERTOS_CACHE.getAndAdd(this, 1L);
+                return medidaActual;
+            }
+            FALLOS_CACHE.getAndAdd(this, 1L);
+        }
+        return medir();
+    }
+    
+    /**
+     * Obtiene una medida nueva de la estrategia aunque la caché tenga un valor reciente
+     * @return Valor medido por el sensor
+     */
+    public double obtenerMedidaFresca() {
+        if (estadoConexion == EstadoConexion.DESCONECTADO) {
+            throw new IllegalStateException("No se puede obtener medida de un sensor desconectado");
+        }
+        return medir();
+    }
+    
+    /**
+     * Mide con la estrategia, registra en el historial y notifica a los observers
+     */
+    private double medir() {
+        long inicio = System.nanoTime();
         // Usar estrategia específica para generar la medida
-        this.medidaActual = estrategiaMedicion.generarMedida();
-        this.ultimaActualizacion = LocalDateTime.now();
-        return medidaActual;
+        double medida = estrategiaMedicion.generarMedida();
+        long fin = System.nanoTime();
+        latenciaMedicion.registrar(fin - inicio);
+        registrarMedida(medida, HistorialLecturas.aEpochNanos(fin));
+        return medida;
+    }
+    
+    EstrategiaMedicion getEstrategiaMedicion() {
+        return estrategiaMedicion;
+    }
+    
+    /**
+     * Registra como medida actual un valor generado fuera del sensor, en la medición por lotes
+     * @param medida Valor medido
+     * @param marcaNanos Instante de la medida en nanosegundos desde epoch
+     * @return Marca con la que quedó registrada, que el historial nunca deja retroceder
+     */
+    long registrarMedida(double medida, long marcaNanos) {
+        // Los escritores se ordenan con el cerrojo del historial; los lectores no lo toman
+        long marcaRegistrada;
+        synchronized (historial) {
+            marcaRegistrada = historial.registrar(medida, marcaNanos);
+            versionMedida++;
+            this.medidaActual = medida;
+            this.medido = true;
+            this.ultimaActualizacionNanos = marcaRegistrada;
+            versionMedida++;
+        }
+        observers.notificarMedida(this, medida);
+        return marcaRegistrada;
+    }
+    
+    /**
+     * Toma una lectura con la misma marca de tiempo que queda en el historial.
+     * Valor y marca salen siempre de la misma medida, aunque otro hilo mida a la vez;
+     * con caché, un acierto devuelve la marca de la medida reutilizada, no la actual.
+     * @return Lectura del sensor
+     */
+    @Override
+    public Lectura obtenerLectura() {
+        if (estadoConexion == EstadoConexion.DESCONECTADO) {
+            return Lectura.sinMedida(this);
+        }
+        obtenerMedidaActual();
+        return ultimaMedida();
+    }
+    
+    /**
+     * Lee medida y marca como un par sin bloquear: se repite si un escritor las cambió entre medias
+     */
+    private Lectura ultimaMedida() {
+        while (true) {
+            long version = versionMedida;
+            double medida = medidaActual;
+            long marcaNanos = ultimaActualizacionNanos;
+            if ((version & 1) == 0 && version == versionMedida) {
+                return new Lectura(this, medida, EstadoConexion.CONECTADO, marcaNanos);
+            }
+            Thread.onSpinWait();
+        }
+    }
+    
+    /**
+     * Anota que la medida con esta marca se ha entregado a los suscriptores de lecturas.
+     * Una lectura servida desde la caché repite la marca de la anterior y no avanza.
+     * @param marcaNanos Marca de la lectura a publicar
+     * @return true si la marca es posterior a la última publicada
+     */
+    boolean avanzarMarcaPublicada(long marcaNanos) {
+        long anterior;
+        do {
+            anterior = marcaPublicadaNanos;
+            if (marcaNanos <= anterior) {
+                return false;
+            }
+        } while (!MARCA_PUBLICADA.compareAndSet(this, anterior, marcaNanos));
+        return true;
+    }
+    
+    /**
+     * Configura la caché de lectura: mientras la última medida tenga como mucho esta edad,
+     * obtenerMedidaActual() la reutiliza en lugar de consultar la estrategia
+     * @param edadMaxima Edad máxima de la medida reutilizada; Duration.ZERO desactiva la caché
+     */
+    public void setEdadMaximaCache(Duration edadMaxima) {
+        Objects.requireNonNull(edadMaxima, "La edad máxima no puede ser null");
+        if (edadMaxima.isNegative()) {
+            throw new IllegalArgumentException("La edad máxima no puede ser negativa");
+        }
+        this.edadMaximaCacheNanos = edadMaxima.toNanos();
+    }
+    
+    public Duration getEdadMaximaCache() {
+        return Duration.ofNanos(edadMaximaCacheNanos);
+    }
+    
+    /**
+     * Obtiene cuántas lecturas reutilizaron la medida en caché
+     * @return Aciertos de caché
+     */
+    public long getAciertosCache() {
+        return aciertosCache;
+    }
+    
+    /**
+     * Obtiene cuántas lecturas con caché activada tuvieron que consultar la estrategia
+     * @return Fallos de caché
+     */
+    public long getFallosCache() {
+        return fallosCache;
+    }
+    
+    /**
+     * Obtiene la latencia de las medidas tomadas por la estrategia de este sensor.
+     * Las lecturas servidas desde la caché y las medidas por lotes no cuentan.
+     * @return Estadística de latencia de medición
+     */
+    public EstadisticaLatencia getLatenciaMedicion() {
+        return latenciaMedicion;
+    }
+    
+    /**
+     * Obtiene la última lectura registrada en el historial, sin volver a medir
+     * @return Última lectura, o vacío si el sensor no ha medido todavía
+     */
+    @Override
+    public Optional<Lectura> getUltimaLectura() {
+        // Los métodos del historial se sincronizan sobre él: valor y marca salen de la misma lectura
+        synchronized (historial) {
+            long marcaNanos = historial.ultimaMarcaNanos();
+            if (marcaNanos == Long.MIN_VALUE) {
+                return Optional.empty();
+            }
+            return Optional.of(new Lectura(this, historial.ultimoValor(), EstadoConexion.CONECTADO, marcaNanos));
+        }
     }
     
     /**
@@ -80,8 +309,25 @@ public class Sensor implements ISensor {
         return estadoConexion;
     }
     
+    @Override
     public void setEstadoConexion(EstadoConexion estadoConexion) {
+        EstadoConexion anterior = this.estadoConexion;
         this.estadoConexion = Objects.requireNonNull(estadoConexion);
+        if (anterior != estadoConexion) {
+            EventoConexionJfr.registrar(this, anterior, estadoConexion);
+            observers.notificarEstado(this, anterior, estadoConexion);
+        }
+    }
+    
+    @Override
+    public boolean agregarSensorObserver(SensorObserver observer) {
+        observers.agregar(Objects.requireNonNull(observer, "El observer no puede ser null"));
+        return true;
+    }
+    
+    @Override
+    public boolean removerSensorObserver(SensorObserver observer) {
+        return observers.remover(observer);
     }
     
     @Override
@@ -94,7 +340,20 @@ public class Sensor implements ISensor {
     }
     
     public LocalDateTime getUltimaActualizacion() {
-        return ultimaActualizacion;
+        Instant instante = Instant.ofEpochSecond(0, ultimaActualizacionNanos);
+        return LocalDateTime.ofInstant(instante, ZoneId.systemDefault());
+    }
+    
+    public long getUltimaActualizacionNanos() {
+        return ultimaActualizacionNanos;
+    }
+    
+    /**
+     * Obtiene el historial de lecturas recientes del sensor
+     * @return Historial de capacidad fija
+     */
+    public HistorialLecturas getHistorial() {
+        return historial;
     }
     
     @Override
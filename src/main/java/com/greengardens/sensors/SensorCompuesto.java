@@ -1,20 +1,45 @@
 package com.greengardens.sensors;
 
-import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Clase que representa un sensor compuesto por múltiples sensores individuales.
  * Patrón Composite - Composite
  * Implementa la misma interface que los sensores individuales
+ *
+ * En modo PUSH los hijos notifican cada medida (Patrón Observer) y el compuesto
+ * mantiene la suma y la cuenta de los hijos conectados, de modo que leerlo es O(1)
+ * y no vuelve a medir a los hijos. En ese modo los hijos deben ser leídos por otro
+ * camino, por ejemplo registrándolos también en el SistemaAlarma. La suma es
+ * compensada (Neumaier) para que sustituir valores grandes por pequeños no deje
+ * error de redondeo, y además se rehace desde las aportaciones de los hijos cada
+ * tantas actualizaciones como hijos haya, de modo que el error no crezca sin límite.
+ * La lista de hijos es copy-on-write: se recorre sin bloqueo aunque cambie a la vez.
  */
 public class SensorCompuesto implements ISensor {
+    public static final int UMBRAL_SECUENCIAL_POR_DEFECTO = 256;
+    private static final int RECALCULO_MINIMO = 1024; // Actualizaciones PUSH mínimas entre dos sumas exactas
+    
     private final String id;
     private final TipoSensor tipo;
     private EstadoConexion estadoConexion;
     private final double umbral;
     private final List<ISensor> sensoresHijos;
+    private final ModoAgregacion modo;
+    private final Map<ISensor, Contribucion> contribuciones; // Solo en modo PUSH
+    private final ObserversSensor observers;
+    private double sumaConectados; // Modo PUSH, protegido por this
+    private double compensacionSuma; // Error de redondeo acumulado de sumaConectados
+    private int cuentaConectados;
+    private int actualizacionesSinRecalcular;
+    private double ultimoPromedio; // Último promedio calculado o recibido, protegido por this
+    private long ultimoPromedioNanos;
     
     /**
      * Constructor para crear un sensor compuesto
@@ -23,11 +48,25 @@ public class SensorCompuesto implements ISensor {
      * @param umbral Valor umbral para el promedio de los sensores
      */
     public SensorCompuesto(String id, TipoSensor tipo, double umbral) {
+        this(id, tipo, umbral, ModoAgregacion.CONSULTA);
+    }
+    
+    /**
+     * Constructor para crear un sensor compuesto indicando el modo de agregación
+     * @param id Identificador único del sensor compuesto
+     * @param tipo Tipo de sensor compuesto
+     * @param umbral Valor umbral para el promedio de los sensores
+     * @param modo Modo de cálculo del promedio
+     */
+    public SensorCompuesto(String id, TipoSensor tipo, double umbral, ModoAgregacion modo) {
         this.id = Objects.requireNonNull(id, "El ID no puede ser null");
         this.tipo = Objects.requireNonNull(tipo, "El tipo no puede ser null");
         this.umbral = umbral;
         this.estadoConexion = EstadoConexion.CONECTADO;
-        this.sensoresHijos = new ArrayList<>();
+        this.sensoresHijos = new CopyOnWriteArrayList<>();
+        this.modo = Objects.requireNonNull(modo, "El modo no puede ser null");
+        this.contribuciones = new IdentityHashMap<>();
+        this.observers = new ObserversSensor();
     }
     
     /**
@@ -47,9 +86,42 @@ public class SensorCompuesto implements ISensor {
             throw new IllegalArgumentException("Un sensor compuesto no puede contenerse a sí mismo");
         }
         
+        if (modo == ModoAgregacion.PUSH) {
+            Contribucion contribucion = new Contribucion(sensor.getEstadoConexion() == EstadoConexion.CONECTADO);
+            synchronized (this) {
+                // Un segundo observer sobre el mismo hijo lo contaría dos veces en el promedio
+                if (contribuciones.putIfAbsent(sensor, contribucion) != null) {
+                    throw new IllegalArgumentException("El sensor ya forma parte del compuesto: " + sensor.getId());
+                }
+                sensoresHijos.add(sensor);
+            }
+            if (!sensor.agregarSensorObserver(contribucion)) {
+                synchronized (this) {
+                    contribuciones.remove(sensor);
+                    sensoresHijos.remove(sensor);
+                }
+                throw new IllegalArgumentException("El sensor no admite notificaciones push: " + sensor.getId());
+            }
+            sembrarValorInicial(sensor);
+            return;
+        }
+        
         sensoresHijos.add(sensor);
     }
     
+    /**
+     * Lee una vez al hijo recién agregado para que el promedio tenga valor desde el inicio
+     */
+    private void sembrarValorInicial(ISensor sensor) {
+        if (sensor.getEstadoConexion() == EstadoConexion.CONECTADO) {
+            try {
+                sensor.obtenerMedidaActual(); // La contribución recibe la medida por notificación
+            } catch (IllegalStateException e) {
+                // Un compuesto sin hijos conectados aportará valor cuando los tenga
+            }
+        }
+    }
+    
     /**
      * Remueve un sensor del compuesto
      * Patrón Composite - Operación para manejar hijos
@@ -57,6 +129,19 @@ public class SensorCompuesto implements ISensor {
      * @return true si fue removido
      */
     public boolean removerSensor(ISensor sensor) {
+        if (modo == ModoAgregacion.PUSH) {
+            Contribucion contribucion;
+            synchronized (this) {
+                contribucion = contribuciones.remove(sensor);
+                if (contribucion == null) {
+                    return false;
+                }
+                contribucion.retirar();
+                sensoresHijos.remove(sensor);
+            }
+            sensor.removerSensorObserver(contribucion);
+            return true;
+        }
         return sensoresHijos.remove(sensor);
     }
     
@@ -71,12 +156,121 @@ public class SensorCompuesto implements ISensor {
             throw new IllegalStateException("No se puede obtener medida de un sensor desconectado");
         }
         
+        double promedio = medirPromedio();
+        if (Double.isNaN(promedio)) {
+            throw new IllegalStateException("No hay sensores conectados para calcular el promedio");
+        }
+        registrarPromedio(promedio);
+        return promedio;
+    }
+    
+    /**
+     * Calcula el promedio de los hijos dentro de un evento de medición de Flight Recorder
+     * @return Promedio de los hijos conectados, o NaN si no hay ninguno
+     */
+    private double medirPromedio() {
+        if (!GrabacionJfr.isActiva()) {
+            return calcularPromedio();
+        }
+        EventoMedicionJfr evento = new EventoMedicionJfr();
+        evento.begin();
+        double promedio = calcularPromedio();
+        evento.confirmar(this);
+        return promedio;
+    }
+    
+    /**
+     * Guarda un promedio recién medido como última lectura y, en modo CONSULTA, lo notifica
+     * a los observers; en modo PUSH ya lo notifica la contribución del hijo que cambió
+     * @param promedio Promedio de los hijos conectados
+     */
+    void registrarPromedio(double promedio) {
+        registrarPromedio(promedio, HistorialLecturas.ahoraEpochNanos());
+    }
+    
+    private void registrarPromedio(double promedio, long marcaNanos) {
+        recordarPromedio(promedio, marcaNanos);
+        if (modo == ModoAgregacion.CONSULTA) {
+            observers.notificarMedida(this, promedio);
+        }
+    }
+    
+    /**
+     * Evalúa el árbol de sensores en paralelo sobre el pool común (fork/join)
+     * @return Promedio, hojas evaluadas y duración de la evaluación
+     */
+    public ResultadoEvaluacion evaluarEnParalelo() {
+        return evaluarEnParalelo(ForkJoinPool.commonPool(), UMBRAL_SECUENCIAL_POR_DEFECTO);
+    }
+    
+    /**
+     * Evalúa el árbol de sensores en paralelo dividiendo el trabajo por tamaño de subárbol.
+     * Devuelve exactamente el mismo promedio que obtenerMedidaActual().
+     * @param pool Pool fork/join donde evaluar
+     * @param umbralSecuencial Número de hojas por debajo del cual se evalúa secuencialmente
+     * @return Promedio, hojas evaluadas y duración de la evaluación
+     */
+    public ResultadoEvaluacion evaluarEnParalelo(ForkJoinPool pool, int umbralSecuencial) {
+        Objects.requireNonNull(pool, "El pool no puede ser null");
+        if (umbralSecuencial <= 0) {
+            throw new IllegalArgumentException("El umbral secuencial debe ser positivo");
+        }
+        return EvaluacionParalela.evaluar(this, pool, umbralSecuencial);
+    }
+    
+    /**
+     * Toma una lectura del promedio; sin hijos conectados devuelve una lectura sin medida
+     * @return Lectura del sensor compuesto
+     */
+    @Override
+    public Lectura obtenerLectura() {
+        if (estadoConexion == EstadoConexion.DESCONECTADO) {
+            return Lectura.sinMedida(this);
+        }
+        
+        double promedio = medirPromedio();
+        if (Double.isNaN(promedio)) {
+            return Lectura.sinMedida(this);
+        }
+        long marcaNanos = HistorialLecturas.ahoraEpochNanos();
+        registrarPromedio(promedio, marcaNanos);
+        return new Lectura(this, promedio, EstadoConexion.CONECTADO, marcaNanos);
+    }
+    
+    /**
+     * Obtiene el último promedio calculado, o recibido de los hijos en modo PUSH, sin volver a medir
+     * @return Última lectura, o vacío si todavía no hay promedio
+     */
+    @Override
+    public synchronized Optional<Lectura> getUltimaLectura() {
+        if (ultimoPromedioNanos == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new Lectura(this, ultimoPromedio, EstadoConexion.CONECTADO, ultimoPromedioNanos));
+    }
+    
+    private synchronized void recordarPromedio(double promedio, long marcaNanos) {
+        ultimoPromedio = promedio;
+        ultimoPromedioNanos = marcaNanos;
+    }
+    
+    /**
+     * Calcula el promedio de los sensores hijos conectados
+     * @return Promedio, o NaN si no hay sensores conectados
+     */
+    private double calcularPromedio() {
+        if (modo == ModoAgregacion.PUSH) {
+            synchronized (this) {
+                return promedioPush();
+            }
+        }
+        
         List<ISensor> sensoresConectados = sensoresHijos.stream()
                 .filter(sensor -> sensor.getEstadoConexion() == EstadoConexion.CONECTADO)
                 .toList();
         
         if (sensoresConectados.isEmpty()) {
-            throw new IllegalStateException("No hay sensores conectados para calcular el promedio");
+            return Double.NaN;
         }
         
         double suma = sensoresConectados.stream()
@@ -86,6 +280,47 @@ public class SensorCompuesto implements ISensor {
         return suma / sensoresConectados.size();
     }
     
+    /**
+     * Promedio incremental de los hijos conectados. Requiere el bloqueo de this.
+     * @return Promedio, o NaN si ningún hijo conectado ha medido todavía
+     */
+    private double promedioPush() {
+        return cuentaConectados == 0 ? Double.NaN : (sumaConectados + compensacionSuma) / cuentaConectados;
+    }
+    
+    /**
+     * Suma compensada de Neumaier: guarda aparte lo que el redondeo pierde en cada suma.
+     * Requiere el bloqueo de this.
+     */
+    private void sumar(double valor) {
+        double suma = sumaConectados + valor;
+        if (Math.abs(sumaConectados) >= Math.abs(valor)) {
+            compensacionSuma += (sumaConectados - suma) + valor;
+        } else {
+            compensacionSuma += (valor - suma) + sumaConectados;
+        }
+        sumaConectados = suma;
+    }
+    
+    /**
+     * Cuenta un cambio incremental de la suma y, cada max(RECALCULO_MINIMO, hijos) cambios,
+     * la rehace sumando las aportaciones actuales: el error queda acotado con coste O(1)
+     * amortizado. Requiere el bloqueo de this.
+     */
+    private void contarActualizacion() {
+        if (++actualizacionesSinRecalcular < Math.max(RECALCULO_MINIMO, contribuciones.size())) {
+            return;
+        }
+        actualizacionesSinRecalcular = 0;
+        sumaConectados = 0.0;
+        compensacionSuma = 0.0;
+        for (Contribucion contribucion : contribuciones.values()) {
+            if (contribucion.conectado && contribucion.tieneValor) {
+                sumar(contribucion.valor);
+            }
+        }
+    }
+    
     /**
      * Verifica si el valor medio supera el umbral
      * Patrón Composite - Operación que se propaga a los hijos
@@ -120,8 +355,29 @@ public class SensorCompuesto implements ISensor {
         return estadoConexion;
     }
     
+    @Override
     public void setEstadoConexion(EstadoConexion estadoConexion) {
+        EstadoConexion anterior = this.estadoConexion;
         this.estadoConexion = Objects.requireNonNull(estadoConexion);
+        if (anterior != estadoConexion) {
+            EventoConexionJfr.registrar(this, anterior, estadoConexion);
+            observers.notificarEstado(this, anterior, estadoConexion);
+        }
+    }
+    
+    @Override
+    public boolean agregarSensorObserver(SensorObserver observer) {
+        observers.agregar(Objects.requireNonNull(observer, "El observer no puede ser null"));
+        return true;
+    }
+    
+    @Override
+    public boolean removerSensorObserver(SensorObserver observer) {
+        return observers.remover(observer);
+    }
+    
+    public ModoAgregacion getModo() {
+        return modo;
     }
     
     @Override
@@ -155,6 +411,92 @@ public class SensorCompuesto implements ISensor {
                 .count();
     }
     
+    /**
+     * Aportación de un hijo al promedio incremental en modo PUSH.
+     * Recuerda el último valor del hijo para poder sustituirlo o retirarlo en O(1).
+     */
+    private final class Contribucion implements SensorObserver {
+        private double valor;
+        private boolean tieneValor;
+        private boolean conectado;
+        
+        Contribucion(boolean conectado) {
+            this.conectado = conectado;
+        }
+        
+        @Override
+        public void onNuevaMedida(ISensor sensor, double medida) {
+            double promedio;
+            synchronized (SensorCompuesto.this) {
+                boolean sumaba = conectado && tieneValor;
+                double anterior = valor;
+                valor = medida;
+                tieneValor = true;
+                if (conectado) {
+                    if (sumaba) {
+                        sumar(-anterior);
+                        sumar(medida);
+                    } else {
+                        sumar(medida);
+                        cuentaConectados++;
+                    }
+                    contarActualizacion();
+                }
+                promedio = promedioPush();
+                if (!Double.isNaN(promedio)) {
+                    ultimoPromedio = promedio;
+                    ultimoPromedioNanos = HistorialLecturas.ahoraEpochNanos();
+                }
+            }
+            // Propaga el nuevo promedio a un posible compuesto padre
+            if (!Double.isNaN(promedio)) {
+                observers.notificarMedida(SensorCompuesto.this, promedio);
+            }
+        }
+        
+        @Override
+        public void onCambioEstado(ISensor sensor, EstadoConexion anterior, EstadoConexion nuevo) {
+            synchronized (SensorCompuesto.this) {
+                boolean ahoraConectado = nuevo == EstadoConexion.CONECTADO;
+                if (ahoraConectado == conectado) {
+                    return;
+                }
+                conectado = ahoraConectado;
+                if (tieneValor) {
+                    if (ahoraConectado) {
+                        sumar(valor);
+                        cuentaConectados++;
+                        contarActualizacion();
+                    } else {
+                        retirarValor();
+                    }
+                }
+            }
+        }
+        
+        /**
+         * Quita la aportación del hijo. Requiere el bloqueo del compuesto.
+         */
+        void retirar() {
+            if (conectado && tieneValor) {
+                retirarValor();
+            }
+            conectado = false;
+        }
+        
+        private void retirarValor() {
+            cuentaConectados--;
+            // Sin hijos se reinicia la suma para no arrastrar error de redondeo
+            if (cuentaConectados == 0) {
+                sumaConectados = 0.0;
+                compensacionSuma = 0.0;
+            } else {
+                sumar(-valor);
+            }
+            contarActualizacion();
+        }
+    }
+    
     @Override
     public String toString() {
         return String.format("SensorCompuesto{id='%s', tipo=%s, sensores=%d/%d conectados, umbral=%.2f}",
@@ -0,0 +1,23 @@
+package com.greengardens.sensors;
+
+/**
+ * Interface Observer para recibir los cambios de un sensor en cuanto se producen
+ * Patrón Observer - Observer
+ */
+public interface SensorObserver {
+    
+    /**
+     * Se invoca cada vez que el sensor obtiene una nueva medida
+     * @param sensor Sensor que ha medido
+     * @param medida Nueva medida
+     */
+    void onNuevaMedida(ISensor sensor, double medida);
+    
+    /**
+     * Se invoca cuando cambia el estado de conexión del sensor
+     * @param sensor Sensor que ha cambiado
+     * @param anterior Estado anterior
+     * @param nuevo Estado nuevo
+     */
+    void onCambioEstado(ISensor sensor, EstadoConexion anterior, EstadoConexion nuevo);
+}
@@ -0,0 +1,109 @@
+package com.greengardens.sensors;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Serie circular de intervalos agregados para una resolución concreta.
+ * Cada intervalo ocupa una posición fija calculada a partir de su inicio, de modo que
+ * registrar es O(1) y los intervalos más antiguos que la retención se reutilizan.
+ */
+class SerieAgregada {
+    private final Resolucion resolucion;
+    private final long[] inicios;
+    private final double[] minimos;
+    private final double[] maximos;
+    private final double[] sumas;
+    private final long[] cuentas;
+    private long inicioMasReciente;
+    
+    SerieAgregada(Resolucion resolucion, int retencion) {
+        this.resolucion = resolucion;
+        this.inicios = new long[retencion];
+        this.minimos = new double[retencion];
+        this.maximos = new double[retencion];
+        this.sumas = new double[retencion];
+        this.cuentas = new long[retencion];
+        Arrays.fill(inicios, Long.MIN_VALUE);
+        this.inicioMasReciente = Long.MIN_VALUE;
+    }
+    
+    /**
+     * Acumula un valor en el intervalo que contiene el instante indicado
+     */
+    synchronized void registrar(long instanteMillis, double valor) {
+        long inicio = resolucion.inicioIntervalo(instanteMillis);
+        int indice = posicion(inicio);
+        
+        if (inicios[indice] != inicio) {
+            if (inicios[indice] > inicio) {
+                return; // Lectura más antigua que la retención configurada
+            }
+            inicios[indice] = inicio;
+            inicioMasReciente = Math.max(inicioMasReciente, inicio);
+            minimos[indice] = valor;
+            maximos[indice] = valor;
+            sumas[indice] = 0.0;
+            cuentas[indice] = 0;
+        }
+        
+        minimos[indice] = Math.min(minimos[indice], valor);
+        maximos[indice] = Math.max(maximos[indice], valor);
+        sumas[indice] += valor;
+        cuentas[indice]++;
+    }
+    
+    /**
+     * Añade a destino los intervalos con datos entre desde y hasta (incluidos), en orden
+     */
+    synchronized void consultar(long desdeMillis, long hastaMillis, List<Agregado> destino) {
+        if (inicioMasReciente == Long.MIN_VALUE) {
+            return;
+        }
+        long duracion = resolucion.getDuracionMillis();
+        long ultimo = Math.min(resolucion.inicioIntervalo(hastaMillis), inicioMasReciente);
+        long primero = Math.max(resolucion.inicioIntervalo(desdeMillis),
+                inicioMasReciente - (inicios.length - 1) * duracion);
+        
+        for (long inicio = primero; inicio <= ultimo; inicio += duracion) {
+            int indice = posicion(inicio);
+            if (inicios[indice] == inicio && cuentas[indice] > 0) {
+                destino.add(new Agregado(inicio, resolucion, minimos[indice], maximos[indice],
+                        sumas[indice], cuentas[indice]));
+            }
+        }
+    }
+    
+    /**
+     * Combina en un único agregado los intervalos entre desde y hasta
+     * @return Agregado combinado, o null si no hay datos
+     */
+    synchronized Agregado resumir(long desdeMillis, long hastaMillis) {
+        if (inicioMasReciente == Long.MIN_VALUE) {
+            return null;
+        }
+        long duracion = resolucion.getDuracionMillis();
+        long ultimo = Math.min(resolucion.inicioIntervalo(hastaMillis), inicioMasReciente);
+        long primero = Math.max(resolucion.inicioIntervalo(desdeMillis),
+                inicioMasReciente - (inicios.length - 1) * duracion);
+        double minimo = Double.POSITIVE_INFINITY;
+        double maximo = Double.NEGATIVE_INFINITY;
+        double suma = 0.0;
+        long cuenta = 0;
+        
+        for (long inicio = primero; inicio <= ultimo; inicio += duracion) {
+            int indice = posicion(inicio);
+            if (inicios[indice] == inicio && cuentas[indice] > 0) {
+                minimo = Math.min(minimo, minimos[indice]);
+                maximo = Math.max(maximo, maximos[indice]);
+                suma += sumas[indice];
+                cuenta += cuentas[indice];
+            }
+        }
+        return cuenta == 0 ? null : new Agregado(primero, resolucion, minimo, maximo, suma, cuenta);
+    }
+    
+    private int posicion(long inicio) {
+        return (int) Math.floorMod(inicio / resolucion.getDuracionMillis(), (long) inicios.length);
+    }
+}
@@ -3,12 +3,35 @@ package com.greengardens.sensors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Sistema de alarma que implementa el patrón Observer
@@ -17,17 +40,53 @@ import java.util.concurrent.CopyOnWriteArrayList;
 public class SistemaAlarma {
     private static final Logger logger = LoggerFactory.getLogger(SistemaAlarma.class);
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int HILOS_LECTURA_POR_DEFECTO = Runtime.getRuntime().availableProcessors() * 4;
+    private static final int COLA_LECTURAS_POR_HILO = 4; // Tareas de lectura en espera por hilo del pool
     
-    private final List<ISensor> sensores;
-    private final List<AlarmaObserver> observers; // Patrón Observer - Lista de observers
+    private final RegistroSensores sensores; // Índice por id, recorrido sin copias
+    private volatile AlarmaObserver[] observers; // Patrón Observer - Copia al escribir, se recorre sin iterador
+    private final Object observersLock;
+    private final List<LecturaObserver> lecturaObservers;
+    private final DespachadorAlarmas despachador; // Observers asíncronos, fuera del hilo de monitoreo
+    private final PublicadorLecturas publicadorLecturas; // Suscriptores Flow de las lecturas
+    private final PoolEventosAlarma poolEventos;
+    private final int hilosLectura;
+    private ExecutorService ejecutorLecturas; // Creado bajo demanda por el modo paralelo
+    private final Set<ISensor> lecturasEnCurso; // Sensores con una lectura paralela sin terminar
+    private volatile DiarioLecturas diario; // Persistencia opcional de lecturas
+    private volatile MaquinaAlarmas maquinaAlarmas; // null: se notifica en cada ciclo que supera el umbral
     private boolean sistemaActivo;
+    private volatile boolean ecoConsola; // Imprime cada alarma por consola
+    private volatile boolean medicionPorLotes;
+    private MedicionPorLotes lotes; // Buffers de la medición por lotes, protegidos por sí mismos
+    private final MetricasMonitoreo metricas;
+    private ObjectName nombreJmx; // Registro de las métricas en el servidor de MBeans, si se publicaron
     
     /**
      * Constructor del sistema de alarma
      */
     public SistemaAlarma() {
-        this.sensores = new CopyOnWriteArrayList<>();
-        this.observers = new CopyOnWriteArrayList<>();
+        this(HILOS_LECTURA_POR_DEFECTO);
+    }
+    
+    /**
+     * Constructor del sistema de alarma indicando el tamaño del pool de lectura
+     * @param hilosLectura Número máximo de lecturas simultáneas en el modo paralelo
+     */
+    public SistemaAlarma(int hilosLectura) {
+        if (hilosLectura <= 0) {
+            throw new IllegalArgumentException("El número de hilos de lectura debe ser positivo");
+        }
+        this.sensores = new RegistroSensores();
+        this.observers = new AlarmaObserver[0];
+        this.observersLock = new Object();
+        this.lecturaObservers = new CopyOnWriteArrayList<>();
+        this.despachador = new DespachadorAlarmas();
+        this.publicadorLecturas = new PublicadorLecturas();
+        this.poolEventos = new PoolEventosAlarma();
+        this.metricas = new MetricasMonitoreo(sensores::comoLista);
+        this.hilosLectura = hilosLectura;
+        this.lecturasEnCurso = ConcurrentHashMap.newKeySet();
         this.sistemaActivo = true;
     }
     
@@ -38,27 +97,114 @@ public class SistemaAlarma {
     public void agregarSensor(ISensor sensor) {
         Objects.requireNonNull(sensor, "El sensor no puede ser null");
         
-        if (sensores.contains(sensor)) {
+        if (!sensores.agregar(sensor)) {
             throw new IllegalArgumentException("El sensor ya existe en el sistema: " + sensor.getId());
         }
         
-        sensores.add(sensor);
         logger.info("Sensor agregado al sistema: {}", sensor.getId());
     }
     
+    /**
+     * Agrega varios sensores de una vez, copiando el registro una sola vez.
+     * Si alguno es null o tiene un id ya registrado, no se agrega ninguno.
+     * @param nuevos Sensores a agregar
+     */
+    public void agregarSensores(Collection<? extends ISensor> nuevos) {
+        Objects.requireNonNull(nuevos, "La colección de sensores no puede ser null");
+        sensores.agregarTodos(nuevos);
+        logger.info("{} sensores agregados al sistema", nuevos.size());
+    }
+    
     /**
      * Remueve un sensor del sistema
      * @param sensor Sensor a remover
      * @return true si fue removido
      */
     public boolean removerSensor(ISensor sensor) {
-        boolean removido = sensores.remove(sensor);
-        if (removido) {
-            logger.info("Sensor removido del sistema: {}", sensor.getId());
+        return removerSensorPorId(sensor.getId()) != null;
+    }
+    
+    /**
+     * Remueve un sensor del sistema a partir de su id
+     * @param id Identificador del sensor
+     * @return Sensor removido, o null si no existía
+     */
+    public ISensor removerSensorPorId(String id) {
+        ISensor removido = sensores.remover(id);
+        MaquinaAlarmas maquina = maquinaAlarmas;
+        if (maquina != null) {
+            maquina.olvidar(id);
+        }
+        if (removido != null) {
+            logger.info("Sensor removido del sistema: {}", id);
         }
         return removido;
     }
     
+    /**
+     * Remueve varios sensores de una vez, copiando el registro una sola vez.
+     * Los ids que no están en el sistema se ignoran.
+     * @param ids Identificadores de los sensores
+     * @return Sensores removidos
+     */
+    public List<ISensor> removerSensoresPorId(Collection<String> ids) {
+        Objects.requireNonNull(ids, "La colección de ids no puede ser null");
+        List<ISensor> removidos = sensores.removerTodos(ids);
+        MaquinaAlarmas maquina = maquinaAlarmas;
+        if (maquina != null) {
+            for (ISensor sensor : removidos) {
+                maquina.olvidar(sensor.getId());
+            }
+        }
+        if (!removidos.isEmpty()) {
+            logger.info("{} sensores removidos del sistema", removidos.size());
+        }
+        return removidos;
+    }
+    
+    /**
+     * Remueve sensores para trasladarlos a otro sistema, sacando también su estado de alarma
+     * en lugar de olvidarlo, de modo que una alarma en curso no se vuelva a disparar al llegar
+     * @param ids Identificadores de los sensores
+     * @param estados Mapa donde se dejan los estados de alarma de los sensores removidos
+     * @return Sensores removidos
+     */
+    List<ISensor> trasladarSensores(Collection<String> ids, Map<String, MaquinaAlarmas.EstadoSensor> estados) {
+        List<ISensor> removidos = sensores.removerTodos(ids);
+        MaquinaAlarmas maquina = maquinaAlarmas;
+        if (maquina != null && !removidos.isEmpty()) {
+            List<String> idsRemovidos = new ArrayList<>(removidos.size());
+            for (ISensor sensor : removidos) {
+                idsRemovidos.add(sensor.getId());
+            }
+            maquina.extraer(idsRemovidos, estados);
+        }
+        return removidos;
+    }
+    
+    /**
+     * Recibe sensores trasladados desde otro sistema con su estado de alarma.
+     * El estado se adopta antes de dar de alta los sensores, para que ningún ciclo los evalúe sin él.
+     * @param recibidos Sensores trasladados
+     * @param estados Estados de alarma por id de sensor
+     */
+    void recibirSensores(List<ISensor> recibidos, Map<String, MaquinaAlarmas.EstadoSensor> estados) {
+        MaquinaAlarmas maquina = maquinaAlarmas;
+        if (maquina != null && !estados.isEmpty()) {
+            maquina.incorporar(estados);
+        }
+        sensores.agregarTodos(recibidos);
+    }
+    
+    /**
+     * Busca un sensor por su id en O(1)
+     * @param id Identificador del sensor
+     * @return Sensor encontrado, si existe
+     */
+    public Optional<ISensor> buscarSensor(String id) {
+        return Optional.ofNullable(sensores.buscar(id));
+    }
+    
     /**
      * Agrega un observer para recibir notificaciones de alarmas
      * Patrón Observer - Método para suscribir observers
@@ -66,7 +212,23 @@ public class SistemaAlarma {
      */
     public void agregarObserver(AlarmaObserver observer) {
         Objects.requireNonNull(observer, "El observer no puede ser null");
-        observers.add(observer);
+        synchronized (observersLock) {
+            AlarmaObserver[] actuales = observers;
+            AlarmaObserver[] nuevos = Arrays.copyOf(actuales, actuales.length + 1);
+            nuevos[actuales.length] = observer;
+            observers = nuevos;
+        }
+    }
+    
+    /**
+     * Agrega un observer que recibe las alarmas en su propio hilo.
+     * El ciclo de monitoreo solo paga una escritura en el anillo del despachador por alarma.
+     * @param observer Observer a agregar
+     * @param politica Qué hacer si el observer no consume al ritmo de las alarmas
+     * @return Suscripción con los contadores de entregas, descartes y retrasos
+     */
+    public DespachadorAlarmas.Suscripcion agregarObserver(AlarmaObserver observer, PoliticaDesbordamiento politica) {
+        return despachador.suscribir(observer, politica);
     }
     
     /**
@@ -76,14 +238,47 @@ public class SistemaAlarma {
      * @return true si fue removido
      */
     public boolean removerObserver(AlarmaObserver observer) {
-        return observers.remove(observer);
+        boolean removido = false;
+        synchronized (observersLock) {
+            AlarmaObserver[] actuales = observers;
+            for (int i = 0; i < actuales.length; i++) {
+                if (actuales[i].equals(observer)) {
+                    AlarmaObserver[] nuevos = new AlarmaObserver[actuales.length - 1];
+                    System.arraycopy(actuales, 0, nuevos, 0, i);
+                    System.arraycopy(actuales, i + 1, nuevos, i, nuevos.length - i);
+                    observers = nuevos;
+                    removido = true;
+                    break;
+                }
+            }
+        }
+        return removido | despachador.desuscribir(observer);
+    }
+    
+    /**
+     * Agrega un observer que recibe cada lectura tomada durante los ciclos de monitoreo
+     * Patrón Observer - Método para suscribir observers de lecturas
+     * @param observer Observer a agregar
+     */
+    public void agregarLecturaObserver(LecturaObserver observer) {
+        Objects.requireNonNull(observer, "El observer no puede ser null");
+        lecturaObservers.add(observer);
+    }
+    
+    /**
+     * Remueve un observer de lecturas
+     * @param observer Observer a remover
+     * @return true si fue removido
+     */
+    public boolean removerLecturaObserver(LecturaObserver observer) {
+        return lecturaObservers.remove(observer);
     }
     
     /**
      * Método de conveniencia para mantener compatibilidad
      */
     public void agregarAlarmaListener(AlarmaListener listener) {
-        agregarObserver(listener::onAlarmaDisparada);
+        agregarObserver(listener.comoObserver());
     }
     
     /**
@@ -95,50 +290,494 @@ public class SistemaAlarma {
             logger.warn("Sistema de alarma desactivado");
             return List.of();
         }
+        EventoCicloJfr evento = GrabacionJfr.isActiva() ? new EventoCicloJfr() : null;
+        if (evento != null) {
+            evento.begin();
+        }
+        long inicio = System.nanoTime();
+        CicloAlarmas ciclo;
+        boolean porLotes = medicionPorLotes;
+        if (porLotes) {
+            MedicionPorLotes buffers = obtenerLotes();
+            synchronized (buffers) {
+                ciclo = ejecutarCiclo(buffers);
+            }
+        } else {
+            ciclo = ejecutarCiclo(null);
+        }
+        metricas.registrarCiclo(System.nanoTime() - inicio, ciclo.sensoresConAlarma.size(), ciclo.notificadas);
+        confirmarCicloJfr(evento, porLotes ? "LOTES" : "SECUENCIAL", ciclo.notificadas);
+        return ciclo.sensoresConAlarma;
+    }
+    
+    private void confirmarCicloJfr(EventoCicloJfr evento, String modo, int alarmas) {
+        if (evento == null) {
+            return;
+        }
+        evento.end();
+        if (evento.shouldCommit()) {
+            evento.modo = modo;
+            evento.sensores = sensores.tamano();
+            evento.alarmas = alarmas;
+            evento.commit();
+        }
+    }
+    
+    /**
+     * Recorre los sensores del ciclo. Con medición por lotes, las hojas Sensor se agrupan
+     * por tipo y se miden al final con una llamada por tipo; el resto se mide de uno en uno.
+     * @param lotes Buffers de la medición por lotes, o null para medir cada sensor por separado
+     * @return Sensores que superaron el umbral y alarmas notificadas en el ciclo
+     */
+    private CicloAlarmas ejecutarCiclo(MedicionPorLotes lotes) {
+        CicloAlarmas ciclo = new CicloAlarmas();
+        MaquinaAlarmas maquina = maquinaAlarmas;
+        MaquinaAlarmas.Agrupacion agrupacion = maquina == null ? null : maquina.nuevaAgrupacion();
         
-        List<ISensor> sensoresConAlarma = new ArrayList<>();
+        for (ISensor sensor : sensores.instantanea()) {
+            try {
+                if (sensor.getEstadoConexion() != EstadoConexion.CONECTADO) {
+                    continue;
+                }
+                if (lotes != null && MedicionPorLotes.admite(sensor)) {
+                    lotes.agregar((Sensor) sensor);
+                    continue;
+                }
+                // Una sola muestra por sensor y ciclo: el umbral y la alarma usan el mismo valor
+                long inicioLectura = System.nanoTime();
+                Lectura lectura = sensor.obtenerLectura();
+                metricas.registrarLectura(System.nanoTime() - inicioLectura);
+                evaluarLectura(lectura, ciclo, maquina, agrupacion);
+            } catch (Exception e) {
+                logger.error("Error al verificar sensor {}: {}", sensor.getId(), e.getMessage());
+            }
+        }
+        if (lotes != null) {
+            lotes.medir(lectura -> evaluarLectura(lectura, ciclo, maquina, agrupacion));
+        }
+        ciclo.notificadas += emitirAgrupacion(agrupacion);
+        
+        return ciclo;
+    }
+    
+    /**
+     * Evalúa como un ciclo lecturas tomadas fuera del sistema, por ejemplo por un
+     * planificador de muestreo: se publican y pasan por la gestión de alarmas,
+     * agrupándose en modo tormenta igual que las de un ciclo de monitoreo
+     * @param lecturas Lecturas a evaluar; la lista no se conserva
+     * @return Lista de sensores cuyas lecturas superan el umbral
+     */
+    public List<ISensor> procesarLecturas(List<Lectura> lecturas) {
+        Objects.requireNonNull(lecturas, "Las lecturas no pueden ser null");
+        if (!sistemaActivo) {
+            return List.of();
+        }
+        CicloAlarmas ciclo = new CicloAlarmas();
+        MaquinaAlarmas maquina = maquinaAlarmas;
+        MaquinaAlarmas.Agrupacion agrupacion = maquina == null ? null : maquina.nuevaAgrupacion();
+        for (Lectura lectura : lecturas) {
+            try {
+                evaluarLectura(lectura, ciclo, maquina, agrupacion);
+            } catch (Exception e) {
+                logger.error("Error al evaluar lectura de {}: {}", lectura.getSensor().getId(), e.getMessage());
+            }
+        }
+        emitirAgrupacion(agrupacion);
+        return ciclo.sensoresConAlarma;
+    }
+    
+    private void evaluarLectura(Lectura lectura, CicloAlarmas ciclo,
+                                MaquinaAlarmas maquina, MaquinaAlarmas.Agrupacion agrupacion) {
+        publicarLectura(lectura);
+        if (lectura.superaUmbral()) {
+            ciclo.sensoresConAlarma.add(lectura.getSensor());
+        }
+        ciclo.notificadas += procesarAlarma(lectura, maquina, agrupacion);
+    }
+    
+    private synchronized MedicionPorLotes obtenerLotes() {
+        if (lotes == null) {
+            lotes = new MedicionPorLotes();
+        }
+        return lotes;
+    }
+    
+    /**
+     * Ejecuta un ciclo de monitoreo leyendo los sensores en paralelo sobre un pool acotado.
+     * Cada lectura tiene su propio plazo, contado desde que empieza; el ciclo completo
+     * nunca espera más que plazoCiclo. Los sensores que no responden a tiempo se
+     * reportan como fuera de plazo en lugar de bloquear el ciclo, de modo que su
+     * duración depende del sensor más lento y no del número de sensores.
+     * Las notificaciones se envían desde el hilo que invoca el ciclo.
+     * @param plazoPorSensor Tiempo máximo para una lectura individual
+     * @param plazoCiclo Tiempo máximo para el ciclo completo
+     * @return Resultado con las alarmas y los sensores fuera de plazo
+     */
+    public ResultadoCiclo ejecutarCicloMonitoreoParalelo(Duration plazoPorSensor, Duration plazoCiclo) {
+        Objects.requireNonNull(plazoPorSensor, "El plazo por sensor no puede ser null");
+        Objects.requireNonNull(plazoCiclo, "El plazo del ciclo no puede ser null");
+        
+        if (!sistemaActivo) {
+            logger.warn("Sistema de alarma desactivado");
+            return new ResultadoCiclo(List.of(), List.of(), 0, Duration.ZERO);
+        }
+        EventoCicloJfr evento = GrabacionJfr.isActiva() ? new EventoCicloJfr() : null;
+        if (evento != null) {
+            evento.begin();
+        }
+        long inicio = System.nanoTime();
         
-        for (ISensor sensor : sensores) {
+        RegistroSensores.Instantanea evaluados = sensores.instantanea();
+        List<CompletableFuture<Lectura>> lecturas = leerEnParalelo(evaluados,
+                plazoPorSensor.toNanos(), plazoCiclo.toNanos());
+        
+        List<Lectura> lecturasConAlarma = new ArrayList<>();
+        List<ISensor> sensoresFueraDePlazo = new ArrayList<>();
+        int sensoresLeidos = 0;
+        int notificadas = 0;
+        MaquinaAlarmas maquina = maquinaAlarmas;
+        MaquinaAlarmas.Agrupacion agrupacion = maquina == null ? null : maquina.nuevaAgrupacion();
+        
+        for (int i = 0; i < evaluados.tamano(); i++) {
+            ISensor sensor = evaluados.get(i);
+            CompletableFuture<Lectura> lectura = lecturas.get(i);
+            
+            if (lectura.isCancelled()) {
+                sensoresFueraDePlazo.add(sensor);
+                continue;
+            }
+            
             try {
-                if (sensor.getEstadoConexion() == EstadoConexion.CONECTADO && sensor.superaUmbral()) {
-                    sensoresConAlarma.add(sensor);
-                    notificarAlarma(sensor);
+                Lectura muestra = lectura.join();
+                sensoresLeidos++;
+                publicarLectura(muestra);
+                if (muestra.superaUmbral()) {
+                    lecturasConAlarma.add(muestra);
+                }
+                notificadas += procesarAlarma(muestra, maquina, agrupacion);
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof TimeoutException) {
+                    sensoresFueraDePlazo.add(sensor);
+                } else {
+                    sensoresLeidos++;
+                    logger.error("Error al verificar sensor {}: {}", sensor.getId(), e.getCause().getMessage());
                 }
             } catch (Exception e) {
                 logger.error("Error al verificar sensor {}: {}", sensor.getId(), e.getMessage());
             }
         }
         
-        return sensoresConAlarma;
+        notificadas += emitirAgrupacion(agrupacion);
+        
+        if (!sensoresFueraDePlazo.isEmpty()) {
+            logger.warn("{} sensores no respondieron dentro del plazo", sensoresFueraDePlazo.size());
+        }
+        
+        long duracion = System.nanoTime() - inicio;
+        metricas.registrarCiclo(duracion, lecturasConAlarma.size(), notificadas);
+        confirmarCicloJfr(evento, "PARALELO", notificadas);
+        return new ResultadoCiclo(lecturasConAlarma, sensoresFueraDePlazo, sensoresLeidos, Duration.ofNanos(duracion));
     }
     
     /**
-     * Notifica a todos los observers sobre una alarma
-     * Patrón Observer - Método para notificar a todos los observers
-     * @param sensor Sensor que disparó la alarma
-     */
-    private void notificarAlarma(ISensor sensor) {
-        String mensaje = String.format(
-            "ALARMA DISPARADA - Sensor: %s, Tipo: %s, Valor: %.2f %s, Umbral: %.2f, Tiempo: %s",
-            sensor.getId(),
-            sensor.getTipo().getNombre(),
-            sensor.obtenerMedidaActual(),
-            sensor.getTipo().getUnidadMedida(),
-            sensor.getUmbral(),
-            LocalDateTime.now().format(FORMATTER)
-        );
-        
-        logger.warn(mensaje);
-        System.out.println("🚨 " + mensaje);
-        
-        // Notificar a todos los observers
-        for (AlarmaObserver observer : observers) {
+     * Lee los sensores en paralelo sobre el pool de lectura. Cada lectura tiene su plazo,
+     * contado desde que empieza, y ninguna espera más que el plazo total.
+     * No se envía una tarea por sensor: como mucho hilosLectura tareas se reparten los
+     * sensores, así que la cola del pool no crece con la flota. Un sensor cuya lectura
+     * anterior sigue en curso, por ejemplo porque está colgado, no se vuelve a leer y
+     * se da por fuera de plazo: un sensor colgado retiene como mucho un hilo.
+     * @param aLeer Sensores a leer
+     * @param nanosPorSensor Plazo de cada lectura
+     * @param nanosCiclo Plazo total
+     * @return Una lectura por sensor, en el mismo orden; las que no terminaron a tiempo
+     *         quedan canceladas y las de sensores ocupados, o todas si el pool no acepta
+     *         ninguna tarea, completadas con TimeoutException
+     */
+    List<CompletableFuture<Lectura>> leerEnParalelo(List<? extends ISensor> aLeer, long nanosPorSensor,
+                                                     long nanosCiclo) {
+        int total = aLeer.size();
+        List<CompletableFuture<Lectura>> lecturas = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            lecturas.add(new CompletableFuture<>());
+        }
+        AtomicInteger siguiente = new AtomicInteger();
+        Runnable tarea = () -> {
+            for (int i = siguiente.getAndIncrement(); i < total; i = siguiente.getAndIncrement()) {
+                CompletableFuture<Lectura> lectura = lecturas.get(i);
+                // Un ciclo ya cerrado cancela las lecturas que no han empezado
+                if (lectura.isDone()) {
+                    continue;
+                }
+                ISensor sensor = aLeer.get(i);
+                if (!lecturasEnCurso.add(sensor)) {
+                    lectura.completeExceptionally(new TimeoutException("Lectura anterior en curso"));
+                    continue;
+                }
+                lectura.orTimeout(nanosPorSensor, TimeUnit.NANOSECONDS);
+                Lectura muestra = null;
+                Exception error = null;
+                try {
+                    long inicioLectura = System.nanoTime();
+                    muestra = sensor.obtenerLectura();
+                    metricas.registrarLectura(System.nanoTime() - inicioLectura);
+                } catch (Exception e) {
+                    error = e;
+                } finally {
+                    lecturasEnCurso.remove(sensor);
+                }
+                // Se libera antes de completar: quien recibe la lectura puede pedir otra enseguida
+                if (error == null) {
+                    lectura.complete(muestra);
+                } else {
+                    lectura.completeExceptionally(error);
+                }
+            }
+        };
+        
+        ExecutorService ejecutor = obtenerEjecutorLecturas();
+        int tareas = Math.min(hilosLectura, total);
+        int enviadas = 0;
+        while (enviadas < tareas) {
+            try {
+                ejecutor.execute(tarea);
+                enviadas++;
+            } catch (RejectedExecutionException e) {
+                // Cola llena: los hilos siguen ocupados con lecturas de ciclos anteriores
+                logger.warn("Pool de lectura saturado: {} de {} tareas enviadas", enviadas, tareas);
+                break;
+            }
+        }
+        if (enviadas == 0 && total > 0) {
+            // Nadie va a leer: esperar el plazo del ciclo solo retrasaría el resultado
+            TimeoutException saturado = new TimeoutException("Pool de lectura saturado");
+            for (CompletableFuture<Lectura> lectura : lecturas) {
+                lectura.completeExceptionally(saturado);
+            }
+            return lecturas;
+        }
+        
+        try {
+            CompletableFuture.allOf(lecturas.toArray(new CompletableFuture<?>[0]))
+                    .get(nanosCiclo, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // Los fallos y retrasos individuales los clasifica quien pidió las lecturas
+        }
+        for (CompletableFuture<Lectura> lectura : lecturas) {
+            lectura.cancel(false);
+        }
+        return lecturas;
+    }
+    
+    /**
+     * Obtiene el pool de lectura, creándolo la primera vez que se usa.
+     * Los hilos son daemon para no impedir la salida de la aplicación, y la cola está
+     * acotada: leerEnParalelo nunca envía más tareas que hilos.
+     * @return Ejecutor de lecturas de sensores
+     */
+    private synchronized ExecutorService obtenerEjecutorLecturas() {
+        if (ejecutorLecturas == null) {
+            AtomicInteger contador = new AtomicInteger();
+            ThreadFactory fabrica = tarea -> {
+                Thread hilo = new Thread(tarea, "LecturaSensores-" + contador.incrementAndGet());
+                hilo.setDaemon(true);
+                return hilo;
+            };
+            ThreadPoolExecutor ejecutor = new ThreadPoolExecutor(hilosLectura, hilosLectura,
+                    30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(hilosLectura * COLA_LECTURAS_POR_HILO), fabrica);
+            ejecutor.allowCoreThreadTimeOut(true);
+            ejecutorLecturas = ejecutor;
+        }
+        return ejecutorLecturas;
+    }
+    
+    /**
+     * Persiste la lectura si hay un diario adjunto y la entrega a los observers de lecturas
+     * y a los suscriptores del publicador. Un fallo del diario o de un observer no detiene el ciclo.
+     * Una lectura servida desde la caché de un Sensor, cuya marca no avanza, ya se publicó y
+     * se omite; sigue pasando por la gestión de alarmas.
+     * @param lectura Lectura tomada en el ciclo
+     */
+    private void publicarLectura(Lectura lectura) {
+        if (lectura.getSensor() instanceof Sensor hoja && !hoja.avanzarMarcaPublicada(lectura.getMarcaTiempoNanos())) {
+            return;
+        }
+        DiarioLecturas destino = diario;
+        if (destino != null) {
+            try {
+                destino.registrar(lectura);
+            } catch (Exception e) {
+                logger.error("Error al registrar lectura de {} en el diario: {}",
+                        lectura.getSensor().getId(), e.getMessage());
+            }
+        }
+        
+        for (LecturaObserver observer : lecturaObservers) {
             try {
-                observer.onAlarmaDisparada(sensor, mensaje);
+                observer.onLectura(lectura);
             } catch (Exception e) {
-                logger.error("Error al notificar observer: {}", e.getMessage());
+                logger.error("Error al notificar lectura a observer: {}", e.getMessage());
             }
         }
+        
+        if (publicadorLecturas.tieneSuscriptores()) {
+            publicadorLecturas.publicar(lectura);
+        }
+    }
+    
+    /**
+     * Decide qué notificación genera la lectura según la gestión de alarmas configurada
+     * @param lectura Lectura tomada en el ciclo
+     * @param maquina Máquina de estados, o null para notificar cada lectura que supera el umbral
+     * @param agrupacion Notificaciones retenidas del ciclo en modo tormenta, o null
+     * @return Número de notificaciones enviadas: 0 o 1; las retenidas cuentan al emitir la agrupación
+     */
+    private int procesarAlarma(Lectura lectura, MaquinaAlarmas maquina, MaquinaAlarmas.Agrupacion agrupacion) {
+        if (maquina == null) {
+            if (lectura.superaUmbral()) {
+                notificar(TipoEventoAlarma.DISPARO, lectura, 1);
+                return 1;
+            }
+            return 0;
+        }
+        
+        MaquinaAlarmas.Transicion transicion = maquina.evaluar(lectura);
+        switch (transicion) {
+            case DISPARO, RECORDATORIO -> {
+                if (agrupacion != null) {
+                    agrupacion.agregar(lectura, transicion);
+                    return 0;
+                }
+                notificar(tipoEventoDe(transicion), lectura, 1);
+                return 1;
+            }
+            case DESPEJE -> {
+                notificar(TipoEventoAlarma.DESPEJE, lectura, 1);
+                return 1;
+            }
+            default -> {
+                return 0;
+            }
+        }
+    }
+    
+    /**
+     * Emite las notificaciones retenidas en el ciclo: una por tipo si hay tormenta, o una por sensor
+     * @param agrupacion Notificaciones retenidas, o null si el modo tormenta está desactivado
+     * @return Número de notificaciones enviadas; una tormenta cuenta como una
+     */
+    private int emitirAgrupacion(MaquinaAlarmas.Agrupacion agrupacion) {
+        if (agrupacion == null) {
+            return 0;
+        }
+        int notificadas = 0;
+        for (List<MaquinaAlarmas.Pendiente> grupo : agrupacion.getPorTipo().values()) {
+            if (agrupacion.esTormenta(grupo)) {
+                notificar(TipoEventoAlarma.TORMENTA, peorLectura(grupo), grupo.size());
+                notificadas++;
+            } else {
+                for (MaquinaAlarmas.Pendiente pendiente : grupo) {
+                    notificar(tipoEventoDe(pendiente.transicion), pendiente.lectura, 1);
+                }
+                notificadas += grupo.size();
+            }
+        }
+        return notificadas;
+    }
+    
+    private static TipoEventoAlarma tipoEventoDe(MaquinaAlarmas.Transicion transicion) {
+        return transicion == MaquinaAlarmas.Transicion.RECORDATORIO
+                ? TipoEventoAlarma.RECORDATORIO : TipoEventoAlarma.DISPARO;
+    }
+    
+    /**
+     * Obtiene la lectura más alejada del umbral de su sensor
+     */
+    private static Lectura peorLectura(List<MaquinaAlarmas.Pendiente> pendientes) {
+        Lectura peor = pendientes.get(0).lectura;
+        for (MaquinaAlarmas.Pendiente pendiente : pendientes) {
+            Lectura lectura = pendiente.lectura;
+            if (lectura.getValor() - lectura.getSensor().getUmbral()
+                    > peor.getValor() - peor.getSensor().getUmbral()) {
+                peor = lectura;
+            }
+        }
+        return peor;
+    }
+    
+    /**
+     * Notifica a todos los observers sobre una alarma
+     * Patrón Observer - Método para notificar a todos los observers
+     * El evento sale del pool y el mensaje solo se genera si alguien lo pide.
+     * @param tipoEvento Clase de notificación
+     * @param lectura Lectura que la provoca; en una tormenta, la del peor sensor
+     * @param sensoresAfectados Alarmas agrupadas en el evento
+     */
+    void notificar(TipoEventoAlarma tipoEvento, Lectura lectura, int sensoresAfectados) {
+        ISensor sensor = lectura.getSensor();
+        EventoAlarma evento = poolEventos.obtener();
+        try {
+            evento.rellenar(tipoEvento, sensor, sensores.handleDe(sensor.getId()), lectura.getValor(),
+                    sensor.getUmbral(), lectura.getMarcaTiempoNanos(), sensoresAfectados);
+            
+            // Cada alarma solo se registra en DEBUG: en WARN, activo por defecto, la línea costaría
+            // un Object[] y tres boxeos por alarma. El mensaje lo generan los observers o el eco
+            if (logger.isDebugEnabled()) {
+                logger.debug("{} - Sensor: {}, Valor: {}, Umbral: {}, Afectados: {}", tipoEvento.getTitulo(),
+                        sensor.getId(), lectura.getValor(), sensor.getUmbral(), sensoresAfectados);
+            }
+            if (ecoConsola) {
+                System.out.println((tipoEvento == TipoEventoAlarma.DESPEJE ? "✅ " : "🚨 ") + evento.getMensaje());
+            }
+            
+            // Notificar a todos los observers
+            // Se recorre el array publicado: un iterador costaría un objeto por alarma
+            for (AlarmaObserver observer : observers) {
+                EventoNotificacionJfr eventoJfr = EventoNotificacionJfr.iniciar();
+                long inicio = System.nanoTime();
+                try {
+                    observer.onAlarma(evento);
+                } catch (Exception e) {
+                    logger.error("Error al notificar observer: {}", e.getMessage());
+                }
+                metricas.registrarDespachoObserver(System.nanoTime() - inicio);
+                EventoNotificacionJfr.confirmar(eventoJfr, evento, observer, false);
+            }
+            long inicio = System.nanoTime();
+            despachador.publicar(evento);
+            metricas.registrarPublicacionAsincrona(System.nanoTime() - inicio);
+        } finally {
+            poolEventos.liberar(evento);
+        }
+    }
+    
+    /**
+     * Escribe el reporte de estado de todos los sensores sin medirlos
+     * @param destino Writer, PrintStream o StringBuilder donde escribir
+     * @return Número de sensores incluidos
+     * @throws IOException Si falla la escritura en el destino
+     */
+    public int escribirReporteEstado(Appendable destino) throws IOException {
+        return escribirReporteEstado(destino, EnumSet.allOf(TipoSensor.class), EnumSet.allOf(EstadoConexion.class));
+    }
+    
+    /**
+     * Escribe el reporte de estado en streaming, sensor a sensor.
+     * En lugar de medir cada sensor usa su última lectura conocida e indica su antigüedad,
+     * y la memoria usada es constante sea cual sea el número de sensores.
+     * @param destino Writer, PrintStream o StringBuilder donde escribir
+     * @param tipos Tipos de sensor incluidos
+     * @param estados Estados de conexión incluidos
+     * @return Número de sensores incluidos
+     * @throws IOException Si falla la escritura en el destino
+     */
+    public int escribirReporteEstado(Appendable destino, Set<TipoSensor> tipos,
+                                     Set<EstadoConexion> estados) throws IOException {
+        Objects.requireNonNull(destino, "El destino no puede ser null");
+        Objects.requireNonNull(tipos, "Los tipos no pueden ser null");
+        Objects.requireNonNull(estados, "Los estados no pueden ser null");
+        return new EscritorReporte(destino, tipos, estados).escribir(sensores.instantanea(), sistemaActivo);
     }
     
     /**
@@ -149,10 +788,10 @@ public class SistemaAlarma {
         StringBuilder reporte = new StringBuilder();
         reporte.append("=== REPORTE DEL SISTEMA DE ALARMA ===\n");
         reporte.append(String.format("Estado del sistema: %s\n", sistemaActivo ? "ACTIVO" : "INACTIVO"));
-        reporte.append(String.format("Total de sensores: %d\n", sensores.size()));
+        reporte.append(String.format("Total de sensores: %d\n", sensores.tamano()));
         reporte.append(String.format("Tiempo de reporte: %s\n\n", LocalDateTime.now().format(FORMATTER)));
         
-        for (ISensor sensor : sensores) {
+        for (ISensor sensor : sensores.instantanea()) {
             reporte.append(String.format("Sensor ID: %s\n", sensor.getId()));
             reporte.append(String.format("  Tipo: %s\n", sensor.getTipo().getNombre()));
             reporte.append(String.format("  Estado: %s\n", sensor.getEstadoConexion()));
@@ -160,10 +799,14 @@ public class SistemaAlarma {
             
             if (sensor.getEstadoConexion() == EstadoConexion.CONECTADO) {
                 try {
-                    double medida = sensor.obtenerMedidaActual();
-                    boolean alarma = sensor.superaUmbral();
-                    reporte.append(String.format("  Medida actual: %.2f %s %s\n", 
-                        medida, sensor.getTipo().getUnidadMedida(), alarma ? "⚠️ ALARMA" : "✅ OK"));
+                    Lectura lectura = sensor.obtenerLectura();
+                    if (lectura.tieneMedida()) {
+                        reporte.append(String.format("  Medida actual: %.2f %s %s\n", 
+                            lectura.getValor(), sensor.getTipo().getUnidadMedida(),
+                            lectura.superaUmbral() ? "⚠️ ALARMA" : "✅ OK"));
+                    } else {
+                        reporte.append("  Sin medida disponible\n");
+                    }
                 } catch (Exception e) {
                     reporte.append("  Error al leer medida: ").append(e.getMessage()).append("\n");
                 }
@@ -182,7 +825,11 @@ public class SistemaAlarma {
     
     // Getters y métodos de control
     public List<ISensor> getSensores() {
-        return List.copyOf(sensores);
+        return sensores.comoLista();
+    }
+    
+    public int getNumeroSensores() {
+        return sensores.tamano();
     }
     
     public boolean isSistemaActivo() {
@@ -199,12 +846,188 @@ public class SistemaAlarma {
         logger.info("Sistema de alarma desactivado");
     }
     
+    /**
+     * Adjunta un diario donde se persistirán todas las lecturas de cada ciclo
+     * @param diario Diario de lecturas
+     */
+    public void adjuntarDiario(DiarioLecturas diario) {
+        this.diario = Objects.requireNonNull(diario, "El diario no puede ser null");
+        logger.info("Diario de lecturas adjuntado: {}", diario.getDirectorio());
+    }
+    
+    /**
+     * Desadjunta el diario actual sin cerrarlo
+     * @return Diario que estaba adjunto, o null si no había ninguno
+     */
+    public DiarioLecturas desadjuntarDiario() {
+        DiarioLecturas anterior = diario;
+        diario = null;
+        return anterior;
+    }
+    
+    /**
+     * Activa la gestión de alarmas por estados: histéresis, recordatorios espaciados y modo tormenta.
+     * Reemplaza la configuración anterior y reinicia el estado de alarma de todos los sensores.
+     * @param configuracion Configuración de alarmas
+     */
+    public void configurarAlarmas(ConfiguracionAlarmas configuracion) {
+        Objects.requireNonNull(configuracion, "La configuración de alarmas no puede ser null");
+        this.maquinaAlarmas = new MaquinaAlarmas(configuracion);
+        logger.info("Gestión de alarmas configurada: {}", configuracion);
+    }
+    
+    /**
+     * Vuelve a notificar cada lectura que supera el umbral, sin estados
+     */
+    public void desactivarGestionAlarmas() {
+        this.maquinaAlarmas = null;
+    }
+    
+    /**
+     * Activa la medición por lotes en ejecutarCicloMonitoreo(): los sensores Sensor se agrupan
+     * por TipoSensor y cada grupo se mide con una sola llamada que recorre sus estrategias.
+     * Cada medida sale de la estrategia del propio sensor y se registra en él, por lo que con
+     * semilla fijada las lecturas coinciden con las del ciclo normal; la caché de lectura de
+     * los sensores no se consulta. Las alarmas se notifican agrupadas por tipo.
+     * Las lecturas medidas por lotes no entran en las métricas de latencia de lectura, y
+     * Flight Recorder registra un evento de medición por grupo de tipo, no uno por sensor.
+     * @param medicionPorLotes true para medir por lotes
+     */
+    public void setMedicionPorLotes(boolean medicionPorLotes) {
+        this.medicionPorLotes = medicionPorLotes;
+    }
+    
+    public boolean isMedicionPorLotes() {
+        return medicionPorLotes;
+    }
+    
+    /**
+     * Indica si cada alarma se imprime también por consola. Desactivado por defecto:
+     * activarlo obliga a generar el mensaje de cada alarma aunque ningún observer lo use.
+     * @param ecoConsola true para imprimir las alarmas por consola
+     */
+    public void setEcoConsola(boolean ecoConsola) {
+        this.ecoConsola = ecoConsola;
+    }
+    
+    /**
+     * Obtiene las métricas del pipeline de monitoreo
+     * @return Métricas de este sistema
+     */
+    public MetricasMonitoreo getMetricas() {
+        return metricas;
+    }
+    
+    /**
+     * Obtiene el publicador Flow de las lecturas de todos los ciclos, con contrapresión
+     * por demanda. Para filtrar o coalescer se usa suscribir() en lugar de subscribe()
+     * @return Publicador de lecturas de este sistema
+     */
+    public PublicadorLecturas getPublicadorLecturas() {
+        return publicadorLecturas;
+    }
+    
+    /**
+     * Publica las métricas como MBean en el servidor de la plataforma,
+     * con el nombre com.greengardens.sensors:type=SistemaAlarma,name=nombre
+     * @param nombre Nombre que distingue a este sistema en JMX
+     * @return Nombre JMX con el que se registró
+     */
+    public synchronized ObjectName registrarMetricasJmx(String nombre) {
+        Objects.requireNonNull(nombre, "El nombre no puede ser null");
+        if (nombreJmx != null) {
+            throw new IllegalStateException("Las métricas ya están registradas como " + nombreJmx);
+        }
+        try {
+            ObjectName objectName = new ObjectName("com.greengardens.sensors:type=SistemaAlarma,name="
+                    + ObjectName.quote(nombre));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metricas, objectName);
+            nombreJmx = objectName;
+            logger.info("Métricas publicadas en JMX como {}", objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("No se pudieron registrar las métricas en JMX: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Retira las métricas del servidor de MBeans si estaban publicadas
+     */
+    public synchronized void desregistrarMetricasJmx() {
+        if (nombreJmx == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(nombreJmx);
+        } catch (JMException e) {
+            logger.warn("No se pudieron retirar las métricas de JMX: {}", e.getMessage());
+        }
+        nombreJmx = null;
+    }
+    
+    /**
+     * Obtiene la configuración de alarmas activa
+     * @return Configuración, si la gestión por estados está activada
+     */
+    public Optional<ConfiguracionAlarmas> getConfiguracionAlarmas() {
+        MaquinaAlarmas maquina = maquinaAlarmas;
+        return maquina == null ? Optional.empty() : Optional.of(maquina.getConfiguracion());
+    }
+    
+    /**
+     * Obtiene el estado de alarma de un sensor
+     * @param id Identificador del sensor
+     * @return Estado de alarma; DESPEJADA si la gestión por estados está desactivada
+     */
+    public EstadoAlarma getEstadoAlarma(String id) {
+        MaquinaAlarmas maquina = maquinaAlarmas;
+        return maquina == null ? EstadoAlarma.DESPEJADA : maquina.getEstado(id);
+    }
+    
+    /**
+     * Libera el pool de lectura del modo paralelo, si se llegó a crear, y cierra el despacho asíncrono.
+     * Las lecturas en curso no se interrumpen, pero las pendientes se descartan.
+     * Los observers asíncronos reciben las alarmas que tenían pendientes.
+     * Las métricas se retiran de JMX si estaban publicadas.
+     * Los suscriptores de lecturas reciben onComplete tras las que tenían pendientes.
+     */
+    public synchronized void cerrar() {
+        desregistrarMetricasJmx();
+        if (ejecutorLecturas != null) {
+            ejecutorLecturas.shutdownNow();
+            ejecutorLecturas = null;
+        }
+        despachador.close();
+        publicadorLecturas.close();
+    }
+    
     /**
      * Interface Observer para el patrón Observer
      */
     @FunctionalInterface
     public interface AlarmaObserver {
-        void onAlarmaDisparada(ISensor sensor, String mensaje);
+        /**
+         * Recibe un evento de alarma. El evento se reutiliza tras la llamada:
+         * para conservarlo hay que usar evento.copiar()
+         */
+        void onAlarma(EventoAlarma evento);
+    }
+    
+    /**
+     * Resultado de un ciclo en curso: los sensores que superaron el umbral y las
+     * notificaciones enviadas, que con la gestión por estados pueden ser muchas menos
+     */
+    private static final class CicloAlarmas {
+        final List<ISensor> sensoresConAlarma = new ArrayList<>();
+        int notificadas;
+    }
+    
+    /**
+     * Interface Observer para recibir las lecturas de cada ciclo de monitoreo
+     */
+    @FunctionalInterface
+    public interface LecturaObserver {
+        void onLectura(Lectura lectura);
     }
     
     /**
@@ -213,5 +1036,18 @@ public class SistemaAlarma {
     @FunctionalInterface
     public interface AlarmaListener {
         void onAlarmaDisparada(ISensor sensor, String mensaje);
+        
+        /**
+         * Adapta el listener a AlarmaObserver: recibe disparos, recordatorios y tormentas
+         * con su mensaje de texto, e ignora los despejes
+         * @return Observer equivalente
+         */
+        default AlarmaObserver comoObserver() {
+            return evento -> {
+                if (evento.getTipoEvento() != TipoEventoAlarma.DESPEJE) {
+                    onAlarmaDisparada(evento.getSensor(), evento.getMensaje());
+                }
+            };
+        }
     }
 }
@@ -0,0 +1,434 @@
+package com.greengardens.sensors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sistema de alarma repartido en fragmentos para aprovechar todos los núcleos.
+ * Cada fragmento es un SistemaAlarma con su propio hilo de monitoreo. Los sensores
+ * se asignan por hash de su id con rendezvous hashing: al añadir un fragmento solo
+ * se mueven los sensores que pasan a pertenecerle.
+ * Las alarmas de todos los fragmentos se reenvían a los observers de este sistema,
+ * desde el hilo del fragmento que las dispara, por lo que deben ser thread-safe.
+ * Los observers asíncronos reciben el flujo unificado desde un único despachador.
+ * La gestión de alarmas por estados funciona dentro de cada fragmento: un sensor que cambia
+ * de fragmento se lleva su estado, pero el modo tormenta cuenta las alarmas de cada fragmento
+ * por separado, así que una tormenta repartida entre N fragmentos necesita llegar al umbral
+ * en alguno de ellos para agruparse.
+ */
+public class SistemaAlarmaFragmentado {
+    private static final Logger logger = LoggerFactory.getLogger(SistemaAlarmaFragmentado.class);
+    
+    private final List<SistemaAlarma.AlarmaObserver> observers; // Patrón Observer - Flujo único de alarmas
+    private final DespachadorAlarmas despachador;
+    private volatile List<Fragmento> fragmentos; // Inmutable, se reemplaza al añadir fragmentos
+    private ConfiguracionAlarmas configuracionAlarmas; // Se aplica también a los fragmentos nuevos
+    private Duration periodo; // Periodo de monitoreo si el sistema está iniciado
+    
+    /**
+     * Constructor con un fragmento por núcleo disponible
+     */
+    public SistemaAlarmaFragmentado() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+    
+    /**
+     * Constructor indicando el número de fragmentos
+     * @param numeroFragmentos Número inicial de fragmentos
+     */
+    public SistemaAlarmaFragmentado(int numeroFragmentos) {
+        if (numeroFragmentos <= 0) {
+            throw new IllegalArgumentException("El número de fragmentos debe ser positivo");
+        }
+        this.observers = new CopyOnWriteArrayList<>();
+        this.despachador = new DespachadorAlarmas();
+        List<Fragmento> iniciales = new ArrayList<>();
+        for (int i = 0; i < numeroFragmentos; i++) {
+            iniciales.add(crearFragmento(i));
+        }
+        this.fragmentos = List.copyOf(iniciales);
+    }
+    
+    /**
+     * Agrega un sensor al fragmento que le corresponde por su id
+     * @param sensor Sensor a agregar
+     */
+    public synchronized void agregarSensor(ISensor sensor) {
+        Objects.requireNonNull(sensor, "El sensor no puede ser null");
+        fragmentoDe(sensor.getId(), fragmentos).sistema.agregarSensor(sensor);
+    }
+    
+    /**
+     * Agrega varios sensores agrupándolos por fragmento, con un alta masiva por fragmento
+     * @param nuevos Sensores a agregar
+     */
+    public synchronized void agregarSensores(Collection<? extends ISensor> nuevos) {
+        Objects.requireNonNull(nuevos, "La colección de sensores no puede ser null");
+        List<Fragmento> actuales = fragmentos;
+        List<List<ISensor>> porFragmento = new ArrayList<>();
+        for (int i = 0; i < actuales.size(); i++) {
+            porFragmento.add(new ArrayList<>());
+        }
+        for (ISensor sensor : nuevos) {
+            Objects.requireNonNull(sensor, "El sensor no puede ser null");
+            porFragmento.get(indiceDe(sensor.getId(), actuales)).add(sensor);
+        }
+        for (int i = 0; i < actuales.size(); i++) {
+            if (!porFragmento.get(i).isEmpty()) {
+                actuales.get(i).sistema.agregarSensores(porFragmento.get(i));
+            }
+        }
+    }
+    
+    /**
+     * Remueve un sensor a partir de su id
+     * @param id Identificador del sensor
+     * @return Sensor removido, o null si no existía
+     */
+    public synchronized ISensor removerSensorPorId(String id) {
+        return fragmentoDe(id, fragmentos).sistema.removerSensorPorId(id);
+    }
+    
+    /**
+     * Busca un sensor por su id en el fragmento que le corresponde
+     * @param id Identificador del sensor
+     * @return Sensor encontrado, si existe
+     */
+    public Optional<ISensor> buscarSensor(String id) {
+        return fragmentoDe(id, fragmentos).sistema.buscarSensor(id);
+    }
+    
+    /**
+     * Agrega un observer que recibe las alarmas de todos los fragmentos
+     * @param observer Observer a agregar
+     */
+    public void agregarObserver(SistemaAlarma.AlarmaObserver observer) {
+        Objects.requireNonNull(observer, "El observer no puede ser null");
+        observers.add(observer);
+    }
+    
+    /**
+     * Agrega un observer que recibe las alarmas de todos los fragmentos en su propio hilo
+     * @param observer Observer a agregar
+     * @param politica Qué hacer si el observer no consume al ritmo de las alarmas
+     * @return Suscripción con los contadores del observer
+     */
+    public DespachadorAlarmas.Suscripcion agregarObserver(SistemaAlarma.AlarmaObserver observer,
+                                                          PoliticaDesbordamiento politica) {
+        return despachador.suscribir(observer, politica);
+    }
+    
+    public boolean removerObserver(SistemaAlarma.AlarmaObserver observer) {
+        return observers.remove(observer) | despachador.desuscribir(observer);
+    }
+    
+    /**
+     * Activa la gestión de alarmas por estados en todos los fragmentos.
+     * El modo tormenta agrupa las alarmas de cada fragmento por separado.
+     * @param configuracion Configuración de alarmas
+     */
+    public synchronized void configurarAlarmas(ConfiguracionAlarmas configuracion) {
+        Objects.requireNonNull(configuracion, "La configuración de alarmas no puede ser null");
+        this.configuracionAlarmas = configuracion;
+        for (Fragmento fragmento : fragmentos) {
+            fragmento.sistema.configurarAlarmas(configuracion);
+        }
+    }
+    
+    /**
+     * Ejecuta un ciclo en todos los fragmentos a la vez, cada uno en su hilo, y espera a que terminen
+     * @return Sensores que dispararon alarma en cualquier fragmento
+     */
+    public List<ISensor> ejecutarCicloMonitoreo() {
+        List<Fragmento> actuales = fragmentos;
+        List<Future<List<ISensor>>> ciclos = new ArrayList<>(actuales.size());
+        for (Fragmento fragmento : actuales) {
+            ciclos.add(fragmento.hilo.submit(fragmento.sistema::ejecutarCicloMonitoreo));
+        }
+        
+        List<ISensor> alarmas = new ArrayList<>();
+        for (Future<List<ISensor>> ciclo : ciclos) {
+            try {
+                alarmas.addAll(ciclo.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                logger.error("Error en ciclo de fragmento: {}", e.getCause().getMessage());
+            }
+        }
+        return alarmas;
+    }
+    
+    /**
+     * Inicia el monitoreo periódico: cada fragmento ejecuta su ciclo en su propio hilo
+     * @param periodo Periodo entre ciclos
+     */
+    public synchronized void iniciar(Duration periodo) {
+        Objects.requireNonNull(periodo, "El periodo no puede ser null");
+        if (this.periodo != null) {
+            throw new IllegalStateException("El sistema fragmentado ya está iniciado");
+        }
+        this.periodo = periodo;
+        for (Fragmento fragmento : fragmentos) {
+            programar(fragmento);
+        }
+        logger.info("Monitoreo fragmentado iniciado con {} fragmentos", fragmentos.size());
+    }
+    
+    /**
+     * Detiene el monitoreo periódico sin liberar los hilos
+     */
+    public synchronized void detener() {
+        for (Fragmento fragmento : fragmentos) {
+            if (fragmento.tarea != null) {
+                fragmento.tarea.cancel(false);
+                fragmento.tarea = null;
+            }
+        }
+        periodo = null;
+    }
+    
+    /**
+     * Añade un fragmento y mueve a él los sensores que le corresponden
+     * @return Número de sensores movidos
+     */
+    public synchronized int agregarFragmento() {
+        List<Fragmento> nuevos = new ArrayList<>(fragmentos);
+        Fragmento fragmento = crearFragmento(nuevos.size());
+        nuevos.add(fragmento);
+        fragmentos = List.copyOf(nuevos);
+        if (periodo != null) {
+            programar(fragmento);
+        }
+        int movidos = rebalancear();
+        logger.info("Fragmento {} añadido, {} sensores movidos", fragmento.numero, movidos);
+        return movidos;
+    }
+    
+    /**
+     * Mueve cada sensor al fragmento que le corresponde según la asignación actual.
+     * Cada fragmento de origen da de baja a la vez todos los sensores que salen de él,
+     * y cada destino da de alta a la vez todos los que recibe, junto con su estado de
+     * alarma: una alarma en curso sigue en curso en el nuevo fragmento.
+     * Las bajas y altas se ejecutan en el hilo de cada fragmento, entre dos de sus ciclos.
+     * Durante el movimiento un sensor puede faltar en un ciclo de su fragmento.
+     * @return Número de sensores movidos
+     */
+    public synchronized int rebalancear() {
+        List<Fragmento> actuales = fragmentos;
+        List<List<ISensor>> porDestino = new ArrayList<>(actuales.size());
+        Map<String, MaquinaAlarmas.EstadoSensor> estados = new HashMap<>();
+        for (int i = 0; i < actuales.size(); i++) {
+            porDestino.add(new ArrayList<>());
+        }
+        int movidos = 0;
+        for (int origen = 0; origen < actuales.size(); origen++) {
+            Fragmento fragmento = actuales.get(origen);
+            List<String> salientes = new ArrayList<>();
+            for (ISensor sensor : fragmento.sistema.getSensores()) {
+                if (indiceDe(sensor.getId(), actuales) != origen) {
+                    salientes.add(sensor.getId());
+                }
+            }
+            if (salientes.isEmpty()) {
+                continue;
+            }
+            List<ISensor> removidos = enHilo(fragmento,
+                    () -> fragmento.sistema.trasladarSensores(salientes, estados));
+            for (ISensor sensor : removidos) {
+                porDestino.get(indiceDe(sensor.getId(), actuales)).add(sensor);
+                movidos++;
+            }
+        }
+        for (int destino = 0; destino < actuales.size(); destino++) {
+            List<ISensor> entrantes = porDestino.get(destino);
+            if (entrantes.isEmpty()) {
+                continue;
+            }
+            Map<String, MaquinaAlarmas.EstadoSensor> estadosEntrantes = new HashMap<>();
+            for (ISensor sensor : entrantes) {
+                MaquinaAlarmas.EstadoSensor estado = estados.get(sensor.getId());
+                if (estado != null) {
+                    estadosEntrantes.put(sensor.getId(), estado);
+                }
+            }
+            Fragmento fragmento = actuales.get(destino);
+            enHilo(fragmento, () -> {
+                fragmento.sistema.recibirSensores(entrantes, estadosEntrantes);
+                return null;
+            });
+        }
+        if (movidos > 0) {
+            logger.info("{} sensores movidos entre fragmentos", movidos);
+        }
+        return movidos;
+    }
+    
+    /**
+     * Ejecuta una tarea en el hilo del fragmento y espera su resultado. La espera no se
+     * abandona por una interrupción: un traslado a medias dejaría sensores sin fragmento.
+     */
+    private static <T> T enHilo(Fragmento fragmento, Callable<T> tarea) {
+        Future<T> resultado = fragmento.hilo.submit(tarea);
+        boolean interrumpido = false;
+        try {
+            while (true) {
+                try {
+                    return resultado.get();
+                } catch (InterruptedException e) {
+                    interrumpido = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Error en el fragmento " + fragmento.numero
+                            + ": " + e.getCause().getMessage(), e.getCause());
+                }
+            }
+        } finally {
+            if (interrumpido) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * Detiene el monitoreo y libera los hilos de todos los fragmentos
+     */
+    public synchronized void cerrar() {
+        detener();
+        for (Fragmento fragmento : fragmentos) {
+            fragmento.hilo.shutdownNow();
+            fragmento.sistema.cerrar();
+        }
+        despachador.close();
+    }
+    
+    public int getNumeroFragmentos() {
+        return fragmentos.size();
+    }
+    
+    public int getNumeroSensores() {
+        int total = 0;
+        for (Fragmento fragmento : fragmentos) {
+            total += fragmento.sistema.getNumeroSensores();
+        }
+        return total;
+    }
+    
+    /**
+     * Obtiene cuántos sensores tiene cada fragmento
+     * @return Array con el número de sensores por fragmento
+     */
+    public int[] getSensoresPorFragmento() {
+        List<Fragmento> actuales = fragmentos;
+        int[] tamanos = new int[actuales.size()];
+        for (int i = 0; i < tamanos.length; i++) {
+            tamanos[i] = actuales.get(i).sistema.getNumeroSensores();
+        }
+        return tamanos;
+    }
+    
+    private void programar(Fragmento fragmento) {
+        long nanos = periodo.toNanos();
+        fragmento.tarea = fragmento.hilo.scheduleAtFixedRate(() -> {
+            try {
+                fragmento.sistema.ejecutarCicloMonitoreo();
+            } catch (Exception e) {
+                logger.error("Error en ciclo de monitoreo del fragmento {}: {}", fragmento.numero, e.getMessage());
+            }
+        }, 0, nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    private Fragmento crearFragmento(int numero) {
+        SistemaAlarma sistema = new SistemaAlarma();
+        sistema.agregarObserver(this::reenviarAlarma);
+        if (configuracionAlarmas != null) {
+            sistema.configurarAlarmas(configuracionAlarmas);
+        }
+        ScheduledExecutorService hilo = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread t = new Thread(tarea, "Fragmento-" + numero);
+            t.setDaemon(true);
+            return t;
+        });
+        return new Fragmento(numero, sistema, hilo);
+    }
+    
+    /**
+     * Reenvía al flujo unificado un evento de cualquier fragmento
+     */
+    private void reenviarAlarma(EventoAlarma evento) {
+        for (SistemaAlarma.AlarmaObserver observer : observers) {
+            try {
+                observer.onAlarma(evento);
+            } catch (Exception e) {
+                logger.error("Error al notificar observer: {}", e.getMessage());
+            }
+        }
+        despachador.publicar(evento);
+    }
+    
+    private static Fragmento fragmentoDe(String id, List<Fragmento> fragmentos) {
+        return fragmentos.get(indiceDe(id, fragmentos));
+    }
+    
+    /**
+     * Rendezvous hashing: gana el fragmento con mayor puntuación para el id
+     */
+    private static int indiceDe(String id, List<Fragmento> fragmentos) {
+        long hashId = mezclar(id.hashCode());
+        int mejor = 0;
+        long mejorPuntuacion = Long.MIN_VALUE;
+        for (int i = 0; i < fragmentos.size(); i++) {
+            long puntuacion = mezclar(hashId ^ fragmentos.get(i).semilla);
+            if (puntuacion > mejorPuntuacion) {
+                mejorPuntuacion = puntuacion;
+                mejor = i;
+            }
+        }
+        return mejor;
+    }
+    
+    /**
+     * Función de mezcla de 64 bits (finalizador de SplitMix64)
+     */
+    private static long mezclar(long valor) {
+        long z = valor + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    /**
+     * Un fragmento: un SistemaAlarma con su propio hilo de monitoreo
+     */
+    private static final class Fragmento {
+        private final int numero;
+        private final long semilla;
+        private final SistemaAlarma sistema;
+        private final ScheduledExecutorService hilo;
+        private ScheduledFuture<?> tarea;
+        
+        Fragmento(int numero, SistemaAlarma sistema, ScheduledExecutorService hilo) {
+            this.numero = numero;
+            this.semilla = mezclar(numero * 0x632BE59BD9B4E019L);
+            this.sistema = sistema;
+            this.hilo = hilo;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.greengardens.sensors;
+
+/**
+ * Enumeración que representa la clase de notificación de un evento de alarma
+ */
+public enum TipoEventoAlarma {
+    DISPARO("ALARMA DISPARADA"),
+    RECORDATORIO("ALARMA EN CURSO"),
+    DESPEJE("ALARMA DESPEJADA"),
+    TORMENTA("TORMENTA DE ALARMAS");
+    
+    private final String titulo;
+    
+    TipoEventoAlarma(String titulo) {
+        this.titulo = titulo;
+    }
+    
+    public String getTitulo() {
+        return titulo;
+    }
+    
+    @Override
+    public String toString() {
+        return titulo;
+    }
+}
@@ -0,0 +1,112 @@
+package com.greengardens.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Evaluación de umbrales del banco con la misma semántica que Sensor.superaUmbral()
+ */
+class BancoSensoresTest {
+    
+    @Test
+    void soloLosConectadosConMedidaPorEncimaDelUmbralEntranEnAlarma() {
+        BancoSensores banco = new BancoSensores();
+        int encima = banco.registrar("ENCIMA", TipoSensor.HUMEDAD_SUELO, 50.0);
+        int igual = banco.registrar("IGUAL", TipoSensor.HUMEDAD_SUELO, 50.0);
+        int debajo = banco.registrar("DEBAJO", TipoSensor.HUMEDAD_SUELO, 50.0);
+        int sinMedida = banco.registrar("SIN-MEDIDA", TipoSensor.HUMEDAD_SUELO, 50.0);
+        int desconectado = banco.registrar("DESCONECTADO", TipoSensor.HUMEDAD_SUELO, 50.0);
+        banco.actualizarMedida(encima, 50.5, 1L);
+        banco.actualizarMedida(igual, 50.0, 1L);
+        banco.actualizarMedida(debajo, 10.0, 1L);
+        banco.actualizarMedida(desconectado, 90.0, 1L);
+        banco.setConectado(desconectado, false);
+        
+        BitSet enAlarma = new BitSet();
+        enAlarma.set(sinMedida); // Debe limpiarse antes de evaluar
+        
+        assertEquals(1, banco.evaluarUmbrales(enAlarma));
+        assertTrue(enAlarma.get(encima));
+        assertEquals(1, enAlarma.cardinality());
+    }
+    
+    @Test
+    void laEvaluacionCruzaPalabrasYSigueLaConexionTrasCrecer() {
+        BancoSensores banco = new BancoSensores(1);
+        for (int i = 0; i < 130; i++) {
+            int handle = banco.registrar("S-" + i, TipoSensor.TEMPERATURA, 20.0);
+            banco.actualizarMedida(handle, i % 2 == 0 ? 30.0 : 10.0, 1L);
+        }
+        banco.setConectado(64, false);
+        banco.setConectado(128, false);
+        
+        BitSet enAlarma = new BitSet();
+        
+        assertEquals(63, banco.evaluarUmbrales(enAlarma));
+        assertFalse(enAlarma.get(64));
+        assertFalse(enAlarma.get(128));
+        assertTrue(enAlarma.get(0));
+        assertTrue(enAlarma.get(126));
+        
+        banco.setConectado(128, true);
+        
+        assertEquals(64, banco.evaluarUmbrales(enAlarma));
+        assertTrue(enAlarma.get(128));
+    }
+    
+    @Test
+    void laVistaSuperaElUmbralComoUnSensorYNoMideDesconectada() {
+        BancoSensores banco = new BancoSensores();
+        ISensor siempre = banco.vista(banco.registrar("SIEMPRE", TipoSensor.LUZ_SOLAR, Double.NEGATIVE_INFINITY));
+        ISensor nunca = banco.vista(banco.registrar("NUNCA", TipoSensor.LUZ_SOLAR, Double.POSITIVE_INFINITY));
+        
+        assertTrue(siempre.superaUmbral());
+        assertFalse(nunca.superaUmbral());
+        assertTrue(siempre.getUltimaLectura().isPresent());
+        
+        siempre.setEstadoConexion(EstadoConexion.DESCONECTADO);
+        double medidaAnterior = siempre.getUltimaLectura().orElseThrow().getValor();
+        
+        assertFalse(siempre.superaUmbral());
+        assertEquals(medidaAnterior, siempre.getUltimaLectura().orElseThrow().getValor());
+    }
+    
+    @Test
+    void cambiarLaConexionDeUnaVistaRegistraUnEventoPorCambio() throws IOException {
+        BancoSensores banco = new BancoSensores();
+        ISensor vista = banco.vista(banco.registrar("VISTA", TipoSensor.VIENTO, 40.0));
+        
+        Path destino = Files.createTempFile("conexion", ".jfr");
+        List<RecordedEvent> eventos;
+        try (Recording grabacion = new Recording()) {
+            grabacion.enable("com.greengardens.sensors.CambioConexion").withThreshold(Duration.ZERO);
+            grabacion.start();
+            vista.setEstadoConexion(EstadoConexion.DESCONECTADO);
+            vista.setEstadoConexion(EstadoConexion.DESCONECTADO);
+            vista.setEstadoConexion(EstadoConexion.CONECTADO);
+            grabacion.stop();
+            grabacion.dump(destino);
+            eventos = RecordingFile.readAllEvents(destino);
+        } finally {
+            Files.deleteIfExists(destino);
+        }
+        
+        assertEquals(2, eventos.size());
+        assertEquals("VISTA", eventos.get(0).getString("sensor"));
+        assertEquals("CONECTADO", eventos.get(0).getString("anterior"));
+        assertEquals("DESCONECTADO", eventos.get(0).getString("nuevo"));
+        assertEquals("CONECTADO", eventos.get(1).getString("nuevo"));
+    }
+}
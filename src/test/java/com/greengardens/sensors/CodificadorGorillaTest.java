@@ -0,0 +1,157 @@
+package com.greengardens.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Ida y vuelta del codec Gorilla: lo que se codifica debe decodificarse bit a bit igual,
+ * en modo XOR y en modo decimal, y también tras serializar el bloque.
+ */
+class CodificadorGorillaTest {
+    private static final int LECTURAS = 10_000;
+    
+    @Test
+    void modoXorConservaCadaBit() {
+        long[] marcas = marcasIrregulares(new SplittableRandom(1));
+        double[] valores = new double[LECTURAS];
+        SplittableRandom aleatorio = new SplittableRandom(2);
+        for (int i = 0; i < LECTURAS; i++) {
+            // Valores repetidos, cercanos y sin relación para pasar por las tres ramas del XOR
+            valores[i] = switch (i % 4) {
+                case 0 -> i == 0 ? 20.0 : valores[i - 1];
+                case 1 -> valores[i - 1] + aleatorio.nextDouble(-0.5, 0.5);
+                case 2 -> aleatorio.nextDouble(-1e6, 1e6);
+                default -> Double.longBitsToDouble(aleatorio.nextLong());
+            };
+        }
+        comprobarIdaYVuelta(new CodificadorGorilla(), marcas, valores);
+    }
+    
+    @Test
+    void modoDecimalConservaCadaBit() {
+        long[] marcas = marcasIrregulares(new SplittableRandom(3));
+        double[] valores = new double[LECTURAS];
+        SplittableRandom aleatorio = new SplittableRandom(4);
+        for (int i = 0; i < LECTURAS; i++) {
+            // Valores con dos decimales como los de las estrategias, más alguno sin representación exacta
+            valores[i] = i % 50 == 49
+                    ? aleatorio.nextDouble()
+                    : Math.round(aleatorio.nextDouble(-100.0, 100.0) * 100.0) / 100.0;
+        }
+        comprobarIdaYVuelta(new CodificadorGorilla(2), marcas, valores);
+    }
+    
+    @Test
+    void valoresEspecialesEnAmbosModos() {
+        double[] valores = {0.0, -0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                Double.MIN_VALUE, Double.MAX_VALUE, 1e300, -1e-300, 12.34, 12.34, 0.0};
+        long[] marcas = new long[valores.length];
+        for (int i = 0; i < marcas.length; i++) {
+            marcas[i] = 1_000_000_000L * i;
+        }
+        comprobarIdaYVuelta(new CodificadorGorilla(), marcas, valores);
+        comprobarIdaYVuelta(new CodificadorGorilla(2), marcas, valores);
+    }
+    
+    @Test
+    void saltosDeEnteroQueNecesitanElTramoDe64Bits() {
+        // En modo decimal el tramo de 64 bits y el escape en crudo comparten prefijo
+        double[] valores = {-9e12, 9e12, -9e12, 0.01, 9e12};
+        long[] marcas = {0L, Long.MAX_VALUE / 4, 0L, Long.MAX_VALUE / 2, Long.MAX_VALUE / 2};
+        comprobarIdaYVuelta(new CodificadorGorilla(2), marcas, valores);
+        comprobarIdaYVuelta(new CodificadorGorilla(), marcas, valores);
+    }
+    
+    @Test
+    void bloqueVacio() {
+        BloqueGorilla bloque = new CodificadorGorilla().sellar();
+        assertEquals(0, bloque.getCantidad());
+        assertFalse(bloque.decodificador().siguiente());
+        assertFalse(serializarYLeer(bloque).decodificador().siguiente());
+    }
+    
+    @Test
+    void sellarReiniciaElCodificador() {
+        CodificadorGorilla codificador = new CodificadorGorilla(2);
+        codificador.agregar(1L, 1.5);
+        codificador.sellar();
+        assertEquals(0, codificador.getCantidad());
+        assertEquals(0, codificador.getBitsEscritos());
+        
+        comprobarIdaYVuelta(codificador, new long[] {10L, 20L}, new double[] {2.25, 2.5});
+    }
+    
+    @Test
+    void lecturasRegularesComprimen() {
+        CodificadorGorilla codificador = new CodificadorGorilla(2);
+        for (int i = 0; i < LECTURAS; i++) {
+            codificador.agregar(1_000_000_000L * i, 21.5 + (i % 3) * 0.01);
+        }
+        assertTrue(codificador.sellar().getRatioCompresion() > 10.0);
+    }
+    
+    @Test
+    void decimalesFueraDeRango() {
+        assertThrows(IllegalArgumentException.class, () -> new CodificadorGorilla(-2));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CodificadorGorilla(CodificadorGorilla.MAX_DECIMALES + 1));
+    }
+    
+    private static void comprobarIdaYVuelta(CodificadorGorilla codificador, long[] marcas, double[] valores) {
+        for (int i = 0; i < marcas.length; i++) {
+            codificador.agregar(marcas[i], valores[i]);
+        }
+        BloqueGorilla bloque = codificador.sellar();
+        assertEquals(marcas.length, bloque.getCantidad());
+        assertEquals(marcas[0], bloque.getPrimeraMarca());
+        assertEquals(marcas[marcas.length - 1], bloque.getUltimaMarca());
+        
+        comprobarLecturas(bloque.decodificador(), marcas, valores);
+        comprobarLecturas(serializarYLeer(bloque).decodificador(), marcas, valores);
+    }
+    
+    private static void comprobarLecturas(DecodificadorGorilla decodificador, long[] marcas, double[] valores) {
+        for (int i = 0; i < marcas.length; i++) {
+            assertTrue(decodificador.siguiente(), "Faltan lecturas desde la " + i);
+            assertEquals(marcas[i], decodificador.marca(), "Marca " + i);
+            assertEquals(Double.doubleToRawLongBits(valores[i]), Double.doubleToRawLongBits(decodificador.valor()),
+                    "Valor " + i + ": esperado " + valores[i] + ", leído " + decodificador.valor());
+        }
+        assertFalse(decodificador.siguiente());
+    }
+    
+    private static BloqueGorilla serializarYLeer(BloqueGorilla bloque) {
+        ByteBuffer buffer = ByteBuffer.allocate(bloque.getTamanoSerializado());
+        bloque.escribirEn(buffer);
+        assertEquals(bloque.getTamanoSerializado(), buffer.position());
+        buffer.flip();
+        return BloqueGorilla.leerDe(buffer);
+    }
+    
+    /**
+     * Marcas no decrecientes con intervalos regulares, con ruido y con saltos grandes,
+     * para recorrer todos los tramos del delta de deltas
+     */
+    private static long[] marcasIrregulares(SplittableRandom aleatorio) {
+        long[] marcas = new long[LECTURAS];
+        marcas[0] = 1_700_000_000_000_000_000L;
+        for (int i = 1; i < LECTURAS; i++) {
+            long delta = switch (i % 6) {
+                case 0 -> 1_000_000_000L;
+                case 1 -> 1_000_000_000L + aleatorio.nextLong(-50, 50);
+                case 2 -> aleatorio.nextLong(0, 4_000);
+                case 3 -> aleatorio.nextLong(0, 1L << 19);
+                case 4 -> aleatorio.nextLong(0, 1L << 31);
+                default -> aleatorio.nextLong(0, 1L << 40);
+            };
+            marcas[i] = marcas[i - 1] + delta;
+        }
+        return marcas;
+    }
+}
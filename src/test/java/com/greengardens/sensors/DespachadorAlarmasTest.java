@@ -0,0 +1,243 @@
+package com.greengardens.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Políticas de desbordamiento del despachador con un observer que se queda atrás.
+ * El observer se detiene en la primera alarma hasta que la prueba lo suelta, de modo
+ * que todo lo que se publica mientras tanto queda pendiente en el anillo.
+ */
+class DespachadorAlarmasTest {
+    private static final long ESPERA_MAXIMA = TimeUnit.SECONDS.toNanos(10);
+    
+    private final Sensor sensorA = new Sensor("VIENTO-A", TipoSensor.VIENTO, 100.0);
+    private final Sensor sensorB = new Sensor("VIENTO-B", TipoSensor.VIENTO, 100.0);
+    private final Sensor sensorC = new Sensor("VIENTO-C", TipoSensor.VIENTO, 100.0);
+    private final EventoAlarma evento = new EventoAlarma();
+    private DespachadorAlarmas despachador;
+    
+    @AfterEach
+    void cerrarDespachador() {
+        if (despachador != null) {
+            despachador.close();
+        }
+    }
+    
+    @Test
+    void bloquearFrenaAlProductorSinPerderAlarmas() throws InterruptedException {
+        despachador = new DespachadorAlarmas(4, Duration.ofMinutes(1));
+        ObserverDetenido observer = new ObserverDetenido();
+        DespachadorAlarmas.Suscripcion suscripcion = despachador.suscribir(observer, PoliticaDesbordamiento.BLOQUEAR);
+        
+        publicar(sensorA, 0);
+        observer.esperarPrimera();
+        Thread productor = new Thread(() -> {
+            for (int i = 1; i < 10; i++) {
+                publicar(sensorA, i);
+            }
+        });
+        productor.start();
+        // Con el anillo de 4 lleno, el productor queda esperando al observer
+        productor.join(200);
+        assertTrue(productor.isAlive());
+        
+        observer.soltar();
+        productor.join(TimeUnit.NANOSECONDS.toMillis(ESPERA_MAXIMA));
+        assertFalse(productor.isAlive());
+        esperarEntregadas(suscripcion, 10);
+        assertEquals(List.of(0.0, 1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0, 9.0), observer.valores);
+        assertEquals(0, suscripcion.getDescartadas());
+    }
+    
+    @Test
+    void descartarAntiguoConservaLasMasRecientes() throws InterruptedException {
+        despachador = new DespachadorAlarmas(4, Duration.ofMinutes(1));
+        ObserverDetenido observer = new ObserverDetenido();
+        DespachadorAlarmas.Suscripcion suscripcion =
+                despachador.suscribir(observer, PoliticaDesbordamiento.DESCARTAR_ANTIGUO);
+        
+        publicar(sensorA, 0);
+        observer.esperarPrimera();
+        // El productor no espera aunque el observer esté detenido
+        for (int i = 1; i < 20; i++) {
+            publicar(sensorA, i);
+        }
+        assertEquals(4, suscripcion.getPendientes());
+        
+        observer.soltar();
+        esperarEntregadas(suscripcion, 5);
+        assertEquals(List.of(0.0, 16.0, 17.0, 18.0, 19.0), observer.valores);
+        assertEquals(15, suscripcion.getDescartadas());
+    }
+    
+    @Test
+    void coalescerEntregaLaUltimaDeCadaSensor() throws InterruptedException {
+        despachador = new DespachadorAlarmas(16, Duration.ofMinutes(1));
+        ObserverDetenido observer = new ObserverDetenido();
+        DespachadorAlarmas.Suscripcion suscripcion =
+                despachador.suscribir(observer, PoliticaDesbordamiento.COALESCER_POR_SENSOR);
+        
+        publicar(sensorA, 0);
+        observer.esperarPrimera();
+        for (int i = 1; i <= 4; i++) {
+            publicar(sensorA, 10 + i);
+            publicar(sensorB, 20 + i);
+            publicar(sensorC, 30 + i);
+        }
+        
+        observer.soltar();
+        esperarEntregadas(suscripcion, 4);
+        assertEquals(List.of(0.0, 14.0, 24.0, 34.0), observer.valores);
+        assertEquals(9, suscripcion.getCoalescidas());
+        assertEquals(0, suscripcion.getDescartadas());
+    }
+    
+    @Test
+    void coalescerNoPierdeNingunSensorAunqueElRetrasoSupereLaCapacidad() throws InterruptedException {
+        despachador = new DespachadorAlarmas(4, Duration.ofMinutes(1));
+        ObserverDetenido observer = new ObserverDetenido();
+        DespachadorAlarmas.Suscripcion suscripcion =
+                despachador.suscribir(observer, PoliticaDesbordamiento.COALESCER_POR_SENSOR);
+        Sensor[] sensores = new Sensor[50];
+        for (int i = 0; i < sensores.length; i++) {
+            sensores[i] = new Sensor("VIENTO-" + i, TipoSensor.VIENTO, 100.0);
+        }
+        
+        publicar(sensorA, -1);
+        observer.esperarPrimera();
+        // 500 alarmas de 50 sensores con un anillo de 4: el observer queda muy por detrás
+        for (int ronda = 0; ronda < 10; ronda++) {
+            for (int i = 0; i < sensores.length; i++) {
+                publicar(sensores[i], ronda * 1000 + i);
+            }
+        }
+        assertEquals(50, suscripcion.getPendientes());
+        
+        observer.soltar();
+        esperarEntregadas(suscripcion, 51);
+        List<Double> esperados = new ArrayList<>();
+        esperados.add(-1.0);
+        for (int i = 0; i < sensores.length; i++) {
+            esperados.add(9000.0 + i);
+        }
+        assertEquals(esperados, observer.valores);
+        assertEquals(0, suscripcion.getDescartadas());
+        assertEquals(450, suscripcion.getCoalescidas());
+        
+        // Una alarma posterior de un sensor ya entregado vuelve a entregarse
+        publicar(sensores[7], 42);
+        esperarEntregadas(suscripcion, 52);
+        assertEquals(42.0, observer.valores.get(51));
+    }
+    
+    @Test
+    void unObserverLentoNoRetrasaALosDemas() throws InterruptedException {
+        despachador = new DespachadorAlarmas(4, Duration.ofMinutes(1));
+        ObserverDetenido lento = new ObserverDetenido();
+        List<Double> recibidas = new CopyOnWriteArrayList<>();
+        despachador.suscribir(lento, PoliticaDesbordamiento.DESCARTAR_ANTIGUO);
+        DespachadorAlarmas.Suscripcion rapida =
+                despachador.suscribir(alarma -> recibidas.add(alarma.getValor()), PoliticaDesbordamiento.BLOQUEAR);
+        
+        publicar(sensorA, 0);
+        lento.esperarPrimera();
+        for (int i = 1; i < 50; i++) {
+            publicar(sensorA, i);
+        }
+        esperarEntregadas(rapida, 50);
+        assertEquals(50, recibidas.size());
+        lento.soltar();
+    }
+    
+    @Test
+    void desuscribirDetieneLasEntregas() throws InterruptedException {
+        despachador = new DespachadorAlarmas(4, Duration.ofMinutes(1));
+        List<Double> recibidas = new CopyOnWriteArrayList<>();
+        SistemaAlarma.AlarmaObserver observer = alarma -> recibidas.add(alarma.getValor());
+        DespachadorAlarmas.Suscripcion suscripcion = despachador.suscribir(observer, PoliticaDesbordamiento.BLOQUEAR);
+        publicar(sensorA, 1);
+        esperarEntregadas(suscripcion, 1);
+        
+        assertTrue(despachador.desuscribir(observer));
+        assertFalse(despachador.desuscribir(observer));
+        assertEquals(0, despachador.getNumeroSuscripciones());
+        publicar(sensorA, 2);
+        assertEquals(List.of(1.0), recibidas);
+    }
+    
+    @Test
+    void cerrarEntregaLoPendienteYRechazaSuscripciones() throws InterruptedException {
+        despachador = new DespachadorAlarmas(64, Duration.ofMinutes(1));
+        List<Double> recibidas = new CopyOnWriteArrayList<>();
+        despachador.suscribir(alarma -> recibidas.add(alarma.getValor()), PoliticaDesbordamiento.BLOQUEAR);
+        for (int i = 0; i < 20; i++) {
+            publicar(sensorA, i);
+        }
+        
+        assertTrue(despachador.cerrar(Duration.ofSeconds(10)));
+        assertEquals(20, recibidas.size());
+        assertThrows(IllegalStateException.class,
+                () -> despachador.suscribir(alarma -> { }, PoliticaDesbordamiento.BLOQUEAR));
+    }
+    
+    @Test
+    void capacidadSeRedondeaAPotenciaDeDos() {
+        assertEquals(8, new DespachadorAlarmas(5, Duration.ofSeconds(1)).getCapacidad());
+        assertEquals(1, new DespachadorAlarmas(1, Duration.ofSeconds(1)).getCapacidad());
+        assertThrows(IllegalArgumentException.class, () -> new DespachadorAlarmas(0, Duration.ofSeconds(1)));
+    }
+    
+    private void publicar(Sensor sensor, double valor) {
+        evento.rellenar(TipoEventoAlarma.DISPARO, sensor, 0, valor, sensor.getUmbral(), System.nanoTime(), 1);
+        despachador.publicar(evento);
+    }
+    
+    private static void esperarEntregadas(DespachadorAlarmas.Suscripcion suscripcion, long esperadas) {
+        long limite = System.nanoTime() + ESPERA_MAXIMA;
+        while (suscripcion.getEntregadas() < esperadas && System.nanoTime() < limite) {
+            LockSupport.parkNanos(1_000_000);
+        }
+        assertEquals(esperadas, suscripcion.getEntregadas());
+    }
+    
+    /**
+     * Observer que se detiene en su primera alarma hasta que se le suelta
+     */
+    private static final class ObserverDetenido implements SistemaAlarma.AlarmaObserver {
+        private final CountDownLatch primera = new CountDownLatch(1);
+        private final CountDownLatch suelto = new CountDownLatch(1);
+        private final List<Double> valores = new CopyOnWriteArrayList<>();
+        
+        @Override
+        public void onAlarma(EventoAlarma alarma) {
+            valores.add(alarma.getValor());
+            primera.countDown();
+            try {
+                suelto.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        void esperarPrimera() throws InterruptedException {
+            assertTrue(primera.await(10, TimeUnit.SECONDS));
+        }
+        
+        void soltar() {
+            suelto.countDown();
+        }
+    }
+}
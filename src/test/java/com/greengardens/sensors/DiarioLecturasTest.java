@@ -0,0 +1,98 @@
+package com.greengardens.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Recuperación del diario tras una caída: ficheros que quedaron a medio escribir
+ */
+class DiarioLecturasTest {
+    private Path directorio;
+    
+    @BeforeEach
+    void crearDirectorio() throws IOException {
+        directorio = Files.createTempDirectory("diario");
+    }
+    
+    @AfterEach
+    void borrarDirectorio() throws IOException {
+        try (Stream<Path> rutas = Files.walk(directorio)) {
+            for (Path ruta : rutas.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(ruta);
+            }
+        }
+    }
+    
+    @Test
+    void losHandlesNuevosSiguenAlMayorAunqueHayaHuecos() throws IOException {
+        escribirSensores("0;A\n5;B\n");
+        
+        try (DiarioLecturas diario = abrir()) {
+            assertEquals(0, diario.obtenerHandle("A"));
+            assertEquals(5, diario.obtenerHandle("B"));
+            assertEquals(6, diario.obtenerHandle("C"));
+        }
+        assertEquals(Map.of(0, "A", 5, "B", 6, "C"), DiarioLecturas.leerSensores(directorio));
+    }
+    
+    @Test
+    void unaLineaDeSensorCortadaSeDescartaAlReabrir() throws IOException {
+        escribirSensores("0;A\n1;B\n2;sens");
+        assertEquals(Map.of(0, "A", 1, "B"), DiarioLecturas.leerSensores(directorio));
+        
+        try (DiarioLecturas diario = abrir()) {
+            assertEquals(2, diario.obtenerHandle("C"));
+        }
+        // La línea nueva no queda pegada a la cortada
+        assertEquals("0;A\n1;B\n2;C\n", Files.readString(directorio.resolve("sensores.txt")));
+    }
+    
+    @Test
+    void unRegistroACuyoCrcNoCuadraCortaLaReproduccion() throws IOException {
+        try (DiarioLecturas diario = abrir()) {
+            int handle = diario.obtenerHandle("A");
+            for (int i = 0; i < 3; i++) {
+                diario.registrar(handle, 1_000L + i, i, 0);
+            }
+        }
+        Path segmento;
+        try (Stream<Path> rutas = Files.list(directorio)) {
+            segmento = rutas.filter(ruta -> ruta.getFileName().toString().endsWith(".diario"))
+                    .findFirst().orElseThrow();
+        }
+        // Simula una caída a mitad del tercer registro: su valor se escribió, su CRC no
+        try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.wrap(new byte[] {0x7f}), 2L * DiarioLecturas.TAMANO_REGISTRO + 16);
+        }
+        
+        List<Long> marcas = new ArrayList<>();
+        long leidos = DiarioLecturas.reproducir(directorio,
+                (handle, marcaNanos, valor, flags) -> marcas.add(marcaNanos));
+        assertEquals(2, leidos);
+        assertEquals(List.of(1_000L, 1_001L), marcas);
+    }
+    
+    private DiarioLecturas abrir() {
+        return new DiarioLecturas(directorio, 16, Duration.ofHours(1));
+    }
+    
+    private void escribirSensores(String contenido) throws IOException {
+        Files.write(directorio.resolve("sensores.txt"), contenido.getBytes(StandardCharsets.UTF_8));
+    }
+}
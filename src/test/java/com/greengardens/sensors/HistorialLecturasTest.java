@@ -0,0 +1,41 @@
+package com.greengardens.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Ventanas por tiempo del historial cuando las lecturas llegan fuera de orden
+ */
+class HistorialLecturasTest {
+    
+    @Test
+    void unaMarcaAnteriorALaUltimaSeRegistraJustoDespues() {
+        HistorialLecturas historial = new HistorialLecturas(8);
+        assertEquals(100L, historial.registrar(1.0, 100L));
+        assertEquals(200L, historial.registrar(2.0, 200L));
+        assertEquals(201L, historial.registrar(3.0, 150L));
+        assertEquals(202L, historial.registrar(4.0, 201L));
+        
+        assertEquals(202L, historial.ultimaMarcaNanos());
+        // La búsqueda binaria ve las marcas ordenadas
+        assertEquals(3, historial.contarDesde(200L));
+        assertEquals(2, historial.contarDesde(201L));
+        double[] destino = new double[4];
+        assertEquals(3, historial.desde(150L, destino));
+        assertArrayEquals(new double[] {2.0, 3.0, 4.0, 0.0}, destino);
+    }
+    
+    @Test
+    void lasMarcasSiguenOrdenadasAlDarLaVueltaAlBuffer() {
+        HistorialLecturas historial = new HistorialLecturas(4);
+        for (int i = 0; i < 10; i++) {
+            // Cada tercera lectura llega con una marca atrasada
+            historial.registrar(i, i % 3 == 2 ? i * 10L - 25 : i * 10L);
+        }
+        assertEquals(4, historial.contarDesde(Long.MIN_VALUE));
+        assertEquals(1, historial.contarDesde(historial.ultimaMarcaNanos()));
+        assertEquals(0, historial.contarDesde(historial.ultimaMarcaNanos() + 1));
+    }
+}
@@ -0,0 +1,119 @@
+package com.greengardens.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Transiciones de la máquina de alarmas: disparo, histéresis del despeje,
+ * recordatorios mientras la alarma sigue en curso y traslado de estados.
+ */
+class MaquinaAlarmasTest {
+    private static final long SEGUNDO = Duration.ofSeconds(1).toNanos();
+    
+    // Umbral 100 con banda del 5%: despeja por debajo de 95; recuerda cada 60 s
+    private final ConfiguracionAlarmas configuracion = new ConfiguracionAlarmas(0.05, Duration.ofSeconds(60), 10);
+    private MaquinaAlarmas maquina;
+    private Sensor sensor;
+    
+    @BeforeEach
+    void crearMaquina() {
+        maquina = new MaquinaAlarmas(configuracion);
+        sensor = new Sensor("TEMP-1", TipoSensor.TEMPERATURA, 100.0);
+    }
+    
+    @Test
+    void medidaBajoElUmbralNoNotifica() {
+        assertEquals(MaquinaAlarmas.Transicion.NINGUNA, maquina.evaluar(lectura(99.0, 0)));
+        assertEquals(MaquinaAlarmas.Transicion.NINGUNA, maquina.evaluar(lectura(100.0, SEGUNDO)));
+        assertEquals(EstadoAlarma.DESPEJADA, maquina.getEstado(sensor.getId()));
+    }
+    
+    @Test
+    void superarElUmbralDisparaUnaSolaVez() {
+        assertEquals(MaquinaAlarmas.Transicion.DISPARO, maquina.evaluar(lectura(101.0, 0)));
+        assertEquals(EstadoAlarma.DISPARADA, maquina.getEstado(sensor.getId()));
+        
+        assertEquals(MaquinaAlarmas.Transicion.NINGUNA, maquina.evaluar(lectura(102.0, SEGUNDO)));
+        assertEquals(EstadoAlarma.EN_CURSO, maquina.getEstado(sensor.getId()));
+    }
+    
+    @Test
+    void laHisteresisRetieneElDespeje() {
+        maquina.evaluar(lectura(101.0, 0));
+        
+        // Por debajo del umbral pero dentro de la banda: la alarma sigue en curso
+        assertEquals(MaquinaAlarmas.Transicion.NINGUNA, maquina.evaluar(lectura(99.0, SEGUNDO)));
+        assertEquals(MaquinaAlarmas.Transicion.NINGUNA, maquina.evaluar(lectura(95.0, 2 * SEGUNDO)));
+        assertEquals(EstadoAlarma.EN_CURSO, maquina.getEstado(sensor.getId()));
+        
+        assertEquals(MaquinaAlarmas.Transicion.DESPEJE, maquina.evaluar(lectura(94.9, 3 * SEGUNDO)));
+        assertEquals(EstadoAlarma.DESPEJADA, maquina.getEstado(sensor.getId()));
+        
+        // Tras despejar, volver a superar el umbral es un disparo nuevo
+        assertEquals(MaquinaAlarmas.Transicion.DISPARO, maquina.evaluar(lectura(101.0, 4 * SEGUNDO)));
+    }
+    
+    @Test
+    void oscilarAlrededorDelUmbralNoRepiteDisparos() {
+        assertEquals(MaquinaAlarmas.Transicion.DISPARO, maquina.evaluar(lectura(100.5, 0)));
+        for (int i = 1; i <= 20; i++) {
+            double valor = i % 2 == 0 ? 100.5 : 99.5;
+            assertEquals(MaquinaAlarmas.Transicion.NINGUNA, maquina.evaluar(lectura(valor, i * SEGUNDO)));
+        }
+    }
+    
+    @Test
+    void recuerdaCadaIntervaloMientrasSigueEnCurso() {
+        maquina.evaluar(lectura(101.0, 0));
+        
+        assertEquals(MaquinaAlarmas.Transicion.NINGUNA, maquina.evaluar(lectura(101.0, 59 * SEGUNDO)));
+        assertEquals(MaquinaAlarmas.Transicion.RECORDATORIO, maquina.evaluar(lectura(101.0, 60 * SEGUNDO)));
+        // El intervalo cuenta desde el último recordatorio, no desde el disparo
+        assertEquals(MaquinaAlarmas.Transicion.NINGUNA, maquina.evaluar(lectura(101.0, 119 * SEGUNDO)));
+        assertEquals(MaquinaAlarmas.Transicion.RECORDATORIO, maquina.evaluar(lectura(101.0, 120 * SEGUNDO)));
+    }
+    
+    @Test
+    void sinIntervaloRecuerdaEnCadaLectura() {
+        maquina = new MaquinaAlarmas(new ConfiguracionAlarmas(0.05, Duration.ZERO, 10));
+        maquina.evaluar(lectura(101.0, 0));
+        
+        assertEquals(MaquinaAlarmas.Transicion.RECORDATORIO, maquina.evaluar(lectura(101.0, 1)));
+        assertEquals(MaquinaAlarmas.Transicion.RECORDATORIO, maquina.evaluar(lectura(101.0, 2)));
+    }
+    
+    @Test
+    void lecturaSinMedidaNoCambiaElEstado() {
+        maquina.evaluar(lectura(101.0, 0));
+        Lectura desconectada = new Lectura(sensor, Double.NaN, EstadoConexion.DESCONECTADO, 90 * SEGUNDO);
+        
+        assertEquals(MaquinaAlarmas.Transicion.NINGUNA, maquina.evaluar(desconectada));
+        assertEquals(EstadoAlarma.DISPARADA, maquina.getEstado(sensor.getId()));
+    }
+    
+    @Test
+    void elEstadoTrasladadoConservaElRecordatorio() {
+        maquina.evaluar(lectura(101.0, 0));
+        Map<String, MaquinaAlarmas.EstadoSensor> estados = new HashMap<>();
+        maquina.extraer(List.of(sensor.getId(), "SIN-ALARMA"), estados);
+        
+        assertEquals(1, estados.size());
+        assertEquals(EstadoAlarma.DESPEJADA, maquina.getEstado(sensor.getId()));
+        
+        MaquinaAlarmas destino = new MaquinaAlarmas(configuracion);
+        destino.incorporar(estados);
+        assertEquals(EstadoAlarma.DISPARADA, destino.getEstado(sensor.getId()));
+        assertEquals(MaquinaAlarmas.Transicion.NINGUNA, destino.evaluar(lectura(101.0, 30 * SEGUNDO)));
+        assertEquals(MaquinaAlarmas.Transicion.RECORDATORIO, destino.evaluar(lectura(101.0, 60 * SEGUNDO)));
+    }
+    
+    private Lectura lectura(double valor, long marcaTiempoNanos) {
+        return new Lectura(sensor, valor, EstadoConexion.CONECTADO, marcaTiempoNanos);
+    }
+}
@@ -0,0 +1,109 @@
+package com.greengardens.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Adaptación del intervalo de muestreo, con ticks a instantes que fija la prueba
+ */
+class PlanificadorMuestreoTest {
+    private static final Duration VIGILANCIA = Duration.ofSeconds(2);
+    private static final long PASO_NANOS = Duration.ofMinutes(2).toNanos(); // Más que el intervalo máximo
+    
+    private SistemaAlarma sistema;
+    private PlanificadorMuestreo planificador;
+    
+    @BeforeEach
+    void crearPlanificador() {
+        sistema = new SistemaAlarma();
+        // Plazo holgado: una lectura fuera de plazo no adapta el intervalo
+        planificador = new PlanificadorMuestreo(sistema, Duration.ofMillis(100), Duration.ofSeconds(30));
+    }
+    
+    @AfterEach
+    void cerrar() {
+        planificador.close();
+        sistema.cerrar();
+    }
+    
+    @Test
+    void sinHistoriaElIntervaloNoPasaDelDeVigilancia() {
+        planificador.configurarTipo(TipoSensor.HUMEDAD_SUELO, new IntervalosMuestreo(Duration.ofSeconds(30),
+                Duration.ofSeconds(1), Duration.ofMinutes(1), VIGILANCIA, 5));
+        SensorEstable sensor = new SensorEstable();
+        planificador.programar(sensor);
+        assertEquals(VIGILANCIA, planificador.getIntervalo(sensor));
+        
+        long ahora = System.nanoTime();
+        for (int lectura = 1; lectura < 5; lectura++) {
+            ahora += PASO_NANOS;
+            assertEquals(1, planificador.ejecutarTick(ahora));
+            assertEquals(VIGILANCIA, planificador.getIntervalo(sensor));
+        }
+        // Con la historia mínima, una medida estable y lejos del umbral se relaja
+        ahora += PASO_NANOS;
+        assertEquals(1, planificador.ejecutarTick(ahora));
+        assertTrue(planificador.getIntervalo(sensor).compareTo(VIGILANCIA) > 0);
+    }
+    
+    @Test
+    void sinLecturasDeAprendizajeSeRelajaDesdeLaSegundaLectura() {
+        planificador.configurarTipo(TipoSensor.HUMEDAD_SUELO, new IntervalosMuestreo(Duration.ofSeconds(30),
+                Duration.ofSeconds(1), Duration.ofMinutes(1), VIGILANCIA, 0));
+        SensorEstable sensor = new SensorEstable();
+        planificador.programar(sensor);
+        assertEquals(Duration.ofSeconds(30), planificador.getIntervalo(sensor));
+        
+        long ahora = System.nanoTime();
+        assertEquals(1, planificador.ejecutarTick(ahora + PASO_NANOS));
+        assertEquals(1, planificador.ejecutarTick(ahora + 2 * PASO_NANOS));
+        assertEquals(Duration.ofSeconds(45), planificador.getIntervalo(sensor));
+    }
+    
+    /**
+     * Sensor de medida constante, lejos de su umbral
+     */
+    private static final class SensorEstable implements ISensor {
+        private EstadoConexion estado = EstadoConexion.CONECTADO;
+        
+        @Override
+        public double obtenerMedidaActual() {
+            return 10.0;
+        }
+        
+        @Override
+        public boolean superaUmbral() {
+            return false;
+        }
+        
+        @Override
+        public String getId() {
+            return "ESTABLE";
+        }
+        
+        @Override
+        public TipoSensor getTipo() {
+            return TipoSensor.HUMEDAD_SUELO;
+        }
+        
+        @Override
+        public EstadoConexion getEstadoConexion() {
+            return estado;
+        }
+        
+        @Override
+        public void setEstadoConexion(EstadoConexion estado) {
+            this.estado = estado;
+        }
+        
+        @Override
+        public double getUmbral() {
+            return 50.0;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.greengardens.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Reglas de java.util.concurrent.Flow que cumple el publicador: onSubscribe primero,
+ * nunca más onNext que la demanda, señales serializadas, error ante peticiones no
+ * positivas, cancelación y onComplete al cerrar tras lo pendiente.
+ */
+class PublicadorLecturasTest {
+    private static final long ESPERA_MAXIMA = TimeUnit.SECONDS.toNanos(10);
+    
+    private final Sensor sensorA = new Sensor("PH-A", TipoSensor.PH_SUELO, 8.0);
+    private final Sensor sensorB = new Sensor("PH-B", TipoSensor.PH_SUELO, 8.0);
+    private ExecutorService ejecutor;
+    private PublicadorLecturas publicador;
+    
+    @BeforeEach
+    void crearPublicador() {
+        ejecutor = Executors.newFixedThreadPool(2);
+        publicador = new PublicadorLecturas(ejecutor);
+    }
+    
+    @AfterEach
+    void cerrarPublicador() throws InterruptedException {
+        publicador.close();
+        ejecutor.shutdown();
+        assertTrue(ejecutor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    void onSubscribeLlegaPrimeroYFueraDelHiloQuePublica() {
+        SuscriptorRegistro suscriptor = new SuscriptorRegistro(0);
+        publicador.subscribe(suscriptor);
+        esperar(() -> suscriptor.suscripcion != null);
+        
+        assertEquals(List.of("subscribe"), suscriptor.senales);
+        assertNotEquals(Thread.currentThread(), suscriptor.hiloSuscripcion);
+    }
+    
+    @Test
+    void nuncaEntregaMasQueLaDemanda() {
+        SuscriptorRegistro suscriptor = new SuscriptorRegistro(0);
+        PublicadorLecturas.Suscripcion suscripcion = publicador.suscribir(suscriptor, FiltroLecturas.TODAS,
+                PoliticaDesbordamiento.DESCARTAR_ANTIGUO, 16);
+        esperar(() -> suscriptor.suscripcion != null);
+        for (int i = 0; i < 5; i++) {
+            publicador.publicar(lectura(sensorA, i));
+        }
+        assertEquals(5, suscripcion.getPendientes());
+        
+        suscriptor.suscripcion.request(2);
+        esperar(() -> suscriptor.valores.size() == 2);
+        // Sin más demanda el resto se queda en el buffer
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(List.of(0.0, 1.0), suscriptor.valores);
+        assertEquals(3, suscripcion.getPendientes());
+        
+        suscriptor.suscripcion.request(10);
+        esperar(() -> suscriptor.valores.size() == 5);
+        publicador.publicar(lectura(sensorA, 5));
+        esperar(() -> suscriptor.valores.size() == 6);
+        assertEquals(List.of(0.0, 1.0, 2.0, 3.0, 4.0, 5.0), suscriptor.valores);
+        assertEquals(6, suscripcion.getEntregadas());
+    }
+    
+    @Test
+    void lasSenalesNoSeSolapanConPublicacionesConcurrentes() throws InterruptedException {
+        SuscriptorRegistro suscriptor = new SuscriptorRegistro(Long.MAX_VALUE);
+        publicador.suscribir(suscriptor, FiltroLecturas.TODAS, PoliticaDesbordamiento.BLOQUEAR, 8);
+        esperar(() -> suscriptor.suscripcion != null);
+        
+        List<Thread> productores = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            Thread productor = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    publicador.publicar(lectura(sensorA, i));
+                }
+            });
+            productores.add(productor);
+            productor.start();
+        }
+        for (Thread productor : productores) {
+            productor.join();
+        }
+        esperar(() -> suscriptor.valores.size() == 2000);
+        assertFalse(suscriptor.solapada.get());
+    }
+    
+    @Test
+    void peticionNoPositivaTerminaConError() {
+        SuscriptorRegistro suscriptor = new SuscriptorRegistro(0);
+        PublicadorLecturas.Suscripcion suscripcion = publicador.suscribir(suscriptor, FiltroLecturas.TODAS,
+                PoliticaDesbordamiento.DESCARTAR_ANTIGUO, 16);
+        esperar(() -> suscriptor.suscripcion != null);
+        publicador.publicar(lectura(sensorA, 1));
+        
+        suscriptor.suscripcion.request(0);
+        esperar(() -> suscriptor.error != null);
+        assertInstanceOf(IllegalArgumentException.class, suscriptor.error);
+        assertTrue(suscripcion.isCancelada());
+        assertEquals(0, publicador.getNumeroSuscriptores());
+        assertTrue(suscriptor.valores.isEmpty());
+    }
+    
+    @Test
+    void cancelarDetieneLasEntregas() {
+        SuscriptorRegistro suscriptor = new SuscriptorRegistro(Long.MAX_VALUE);
+        publicador.subscribe(suscriptor);
+        esperar(() -> suscriptor.suscripcion != null);
+        publicador.publicar(lectura(sensorA, 1));
+        esperar(() -> suscriptor.valores.size() == 1);
+        
+        suscriptor.suscripcion.cancel();
+        suscriptor.suscripcion.cancel();
+        assertFalse(publicador.tieneSuscriptores());
+        publicador.publicar(lectura(sensorA, 2));
+        suscriptor.suscripcion.request(1);
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(List.of(1.0), suscriptor.valores);
+        assertEquals(List.of("subscribe", "next"), suscriptor.senales);
+    }
+    
+    @Test
+    void cerrarCompletaTrasEntregarLoPendiente() {
+        SuscriptorRegistro suscriptor = new SuscriptorRegistro(1);
+        publicador.subscribe(suscriptor);
+        esperar(() -> suscriptor.suscripcion != null);
+        for (int i = 0; i < 3; i++) {
+            publicador.publicar(lectura(sensorA, i));
+        }
+        esperar(() -> suscriptor.valores.size() == 1);
+        
+        publicador.close();
+        publicador.publicar(lectura(sensorA, 99));
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+        assertFalse(suscriptor.completado);
+        
+        suscriptor.suscripcion.request(5);
+        esperar(() -> suscriptor.completado);
+        assertEquals(List.of(0.0, 1.0, 2.0), suscriptor.valores);
+        assertEquals(List.of("subscribe", "next", "next", "next", "complete"), suscriptor.senales);
+    }
+    
+    @Test
+    void suscribirseTrasCerrarCompletaEnseguida() {
+        publicador.close();
+        SuscriptorRegistro suscriptor = new SuscriptorRegistro(0);
+        publicador.subscribe(suscriptor);
+        
+        esperar(() -> suscriptor.completado);
+        assertEquals(List.of("subscribe", "complete"), suscriptor.senales);
+    }
+    
+    @Test
+    void coalescerEntregaLaUltimaDeCadaSensor() {
+        SuscriptorRegistro suscriptor = new SuscriptorRegistro(0);
+        PublicadorLecturas.Suscripcion suscripcion = publicador.suscribir(suscriptor, FiltroLecturas.TODAS,
+                PoliticaDesbordamiento.COALESCER_POR_SENSOR, 1);
+        esperar(() -> suscriptor.suscripcion != null);
+        for (int i = 1; i <= 3; i++) {
+            publicador.publicar(lectura(sensorA, 10 + i));
+            publicador.publicar(lectura(sensorB, 20 + i));
+        }
+        assertEquals(2, suscripcion.getPendientes());
+        assertEquals(4, suscripcion.getCoalescidas());
+        
+        suscriptor.suscripcion.request(Long.MAX_VALUE);
+        esperar(() -> suscriptor.valores.size() == 2);
+        assertEquals(List.of(13.0, 23.0), suscriptor.valores);
+    }
+    
+    @Test
+    void suscriptorQueFallaQuedaCancelado() {
+        AtomicInteger llamadas = new AtomicInteger();
+        SuscriptorRegistro suscriptor = new SuscriptorRegistro(Long.MAX_VALUE) {
+            @Override
+            public void onNext(Lectura lectura) {
+                llamadas.incrementAndGet();
+                throw new IllegalStateException("Fallo del suscriptor");
+            }
+        };
+        PublicadorLecturas.Suscripcion suscripcion = publicador.suscribir(suscriptor, FiltroLecturas.TODAS,
+                PoliticaDesbordamiento.DESCARTAR_ANTIGUO, 16);
+        esperar(() -> suscriptor.suscripcion != null);
+        publicador.publicar(lectura(sensorA, 1));
+        
+        esperar(suscripcion::isCancelada);
+        publicador.publicar(lectura(sensorA, 2));
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(1, llamadas.get());
+    }
+    
+    private static Lectura lectura(Sensor sensor, double valor) {
+        return new Lectura(sensor, valor, EstadoConexion.CONECTADO, System.nanoTime());
+    }
+    
+    private static void esperar(BooleanSupplier condicion) {
+        long limite = System.nanoTime() + ESPERA_MAXIMA;
+        while (!condicion.getAsBoolean()) {
+            assertTrue(System.nanoTime() < limite, "La condición no se cumplió a tiempo");
+            LockSupport.parkNanos(1_000_000);
+        }
+    }
+    
+    /**
+     * Suscriptor que anota cada señal y detecta si dos señales se solapan
+     */
+    private static class SuscriptorRegistro implements Flow.Subscriber<Lectura> {
+        private final long demandaInicial;
+        private final List<String> senales = new CopyOnWriteArrayList<>();
+        private final List<Double> valores = new CopyOnWriteArrayList<>();
+        private final AtomicBoolean enSenal = new AtomicBoolean();
+        private final AtomicBoolean solapada = new AtomicBoolean();
+        private volatile Flow.Subscription suscripcion;
+        private volatile Thread hiloSuscripcion;
+        private volatile Throwable error;
+        private volatile boolean completado;
+        
+        SuscriptorRegistro(long demandaInicial) {
+            this.demandaInicial = demandaInicial;
+        }
+        
+        @Override
+        public void onSubscribe(Flow.Subscription suscripcion) {
+            entrar("subscribe");
+            hiloSuscripcion = Thread.currentThread();
+            if (demandaInicial > 0) {
+                suscripcion.request(demandaInicial);
+            }
+            this.suscripcion = suscripcion;
+            salir();
+        }
+        
+        @Override
+        public void onNext(Lectura lectura) {
+            entrar("next");
+            valores.add(lectura.getValor());
+            salir();
+        }
+        
+        @Override
+        public void onError(Throwable throwable) {
+            entrar("error");
+            error = throwable;
+            salir();
+        }
+        
+        @Override
+        public void onComplete() {
+            entrar("complete");
+            completado = true;
+            salir();
+        }
+        
+        private void entrar(String senal) {
+            if (!enSenal.compareAndSet(false, true)) {
+                solapada.set(true);
+            }
+            senales.add(senal);
+        }
+        
+        private void salir() {
+            enSenal.set(false);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.greengardens.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Comprueba que la rueda dispara cada sondeo exactamente con su periodo, también cuando
+ * el periodo cruza los límites entre niveles de la cascada (256, 65536 y 16777216 ticks).
+ * Los ticks se avanzan a mano y se espera a que terminen los lotes de cada uno.
+ */
+class RuedaSondeoTest {
+    private static final Duration RESOLUCION = Duration.ofMillis(1);
+    
+    private RuedaSondeo rueda;
+    private List<Integer> tamanosEntregas;
+    private volatile long tickActual;
+    
+    @BeforeEach
+    void crearRueda() {
+        tamanosEntregas = new CopyOnWriteArrayList<>();
+        rueda = new RuedaSondeo(RESOLUCION, 2, lecturas -> tamanosEntregas.add(lecturas.size()));
+    }
+    
+    @AfterEach
+    void cerrarRueda() {
+        rueda.close();
+    }
+    
+    @Test
+    void periodosCortosSeDisparanConSuPeriodo() {
+        comprobarPeriodos(new long[] {1, 255, 256, 257, 1000}, 5_000);
+    }
+    
+    @Test
+    void periodosQueCruzanElSegundoNivel() {
+        comprobarPeriodos(new long[] {65_535, 65_536, 65_537}, 3 * 65_537L);
+    }
+    
+    @Test
+    void periodosQueCruzanElTercerNivel() {
+        comprobarPeriodos(new long[] {16_777_215, 16_777_216, 16_777_300}, 2 * 16_777_300L + 1);
+    }
+    
+    @Test
+    void sondeoCanceladoDejaDeDispararse() {
+        SensorContador sensor = new SensorContador("cancelado");
+        long sondeo = rueda.programar(sensor, Duration.ofMillis(3));
+        avanzar(1, 30);
+        int disparos = sensor.ticks.size();
+        assertTrue(disparos >= 9, "Disparos antes de cancelar: " + disparos);
+        
+        assertTrue(rueda.cancelar(sondeo));
+        assertFalse(rueda.cancelar(sondeo));
+        avanzar(31, 60);
+        assertEquals(disparos, sensor.ticks.size());
+        assertEquals(0, rueda.getProgramados());
+    }
+    
+    @Test
+    void cadaTickSeEntregaDeUnaVez() {
+        int sensores = 3_000;
+        for (int i = 0; i < sensores; i++) {
+            rueda.programar(new SensorContador("s" + i), Duration.ofMillis(10));
+        }
+        avanzar(1, 100);
+        
+        int total = 0;
+        for (int tamano : tamanosEntregas) {
+            total += tamano;
+        }
+        assertEquals(10L * sensores, total);
+        // Unos 300 sondeos por tick son dos lotes, pero cada tick llega al destino una sola vez
+        assertEquals(100, tamanosEntregas.size());
+        assertTrue(tamanosEntregas.stream().anyMatch(tamano -> tamano > 256));
+    }
+    
+    private void comprobarPeriodos(long[] periodos, long ticks) {
+        List<SensorContador> sensores = new ArrayList<>();
+        for (long periodo : periodos) {
+            SensorContador sensor = new SensorContador("p" + periodo);
+            sensores.add(sensor);
+            rueda.programar(sensor, Duration.ofMillis(periodo));
+        }
+        avanzar(1, ticks);
+        
+        for (int i = 0; i < periodos.length; i++) {
+            List<Long> disparos = sensores.get(i).ticks;
+            assertTrue(disparos.size() >= 2, "Periodo " + periodos[i] + ": " + disparos.size() + " disparos");
+            assertTrue(disparos.get(0) <= periodos[i], "Periodo " + periodos[i] + ": primer disparo " + disparos.get(0));
+            for (int j = 1; j < disparos.size(); j++) {
+                assertEquals(periodos[i], disparos.get(j) - disparos.get(j - 1), "Periodo " + periodos[i]);
+            }
+        }
+    }
+    
+    private void avanzar(long desde, long hasta) {
+        for (long tick = desde; tick <= hasta; tick++) {
+            tickActual = tick;
+            if (rueda.avanzarHasta(tick) > 0) {
+                while (rueda.getLotesEnCurso() > 0) {
+                    LockSupport.parkNanos(20_000);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Sensor que anota el tick en que se lee
+     */
+    private final class SensorContador implements ISensor {
+        private final String id;
+        private final List<Long> ticks = new CopyOnWriteArrayList<>();
+        
+        private SensorContador(String id) {
+            this.id = id;
+        }
+        
+        @Override
+        public double obtenerMedidaActual() {
+            ticks.add(tickActual);
+            return 1.0;
+        }
+        
+        @Override
+        public boolean superaUmbral() {
+            return false;
+        }
+        
+        @Override
+        public String getId() {
+            return id;
+        }
+        
+        @Override
+        public TipoSensor getTipo() {
+            return TipoSensor.VIENTO;
+        }
+        
+        @Override
+        public EstadoConexion getEstadoConexion() {
+            return EstadoConexion.CONECTADO;
+        }
+        
+        @Override
+        public void setEstadoConexion(EstadoConexion estado) {
+        }
+        
+        @Override
+        public double getUmbral() {
+            return 100.0;
+        }
+    }
+}
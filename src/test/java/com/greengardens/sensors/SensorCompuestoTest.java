@@ -0,0 +1,240 @@
+package com.greengardens.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Promedio del compuesto en los dos modos de agregación, con hijos cuya medida fija la prueba
+ */
+class SensorCompuestoTest {
+    private static final double PRECISION = 1e-9;
+    
+    @Test
+    void pushPromediaLasMedidasQueNotificanLosHijos() {
+        SensorCompuesto compuesto = new SensorCompuesto("COMP", TipoSensor.HUMEDAD_SUELO, 50.0, ModoAgregacion.PUSH);
+        SensorFijo a = new SensorFijo("A", 10.0);
+        SensorFijo b = new SensorFijo("B", 20.0);
+        compuesto.agregarSensor(a);
+        compuesto.agregarSensor(b);
+        assertEquals(15.0, compuesto.obtenerMedidaActual(), PRECISION);
+        
+        b.medir(40.0);
+        assertEquals(25.0, compuesto.obtenerMedidaActual(), PRECISION);
+        // Leer el compuesto en PUSH no vuelve a medir a los hijos
+        assertEquals(1, a.lecturas);
+    }
+    
+    @Test
+    void pushRemoverRetiraLaAportacionDelHijo() {
+        SensorCompuesto compuesto = new SensorCompuesto("COMP", TipoSensor.HUMEDAD_SUELO, 50.0, ModoAgregacion.PUSH);
+        SensorFijo a = new SensorFijo("A", 10.0);
+        SensorFijo b = new SensorFijo("B", 30.0);
+        compuesto.agregarSensor(a);
+        compuesto.agregarSensor(b);
+        
+        assertTrue(compuesto.removerSensor(b));
+        assertFalse(compuesto.removerSensor(b));
+        assertEquals(10.0, compuesto.obtenerMedidaActual(), PRECISION);
+        assertEquals(0, b.observers.size());
+        
+        // Las medidas del hijo removido ya no llegan al compuesto
+        b.medir(1000.0);
+        assertEquals(10.0, compuesto.obtenerMedidaActual(), PRECISION);
+        assertEquals(1, compuesto.getNumeroSensores());
+    }
+    
+    @Test
+    void pushRechazaUnHijoRepetido() {
+        SensorCompuesto compuesto = new SensorCompuesto("COMP", TipoSensor.HUMEDAD_SUELO, 50.0, ModoAgregacion.PUSH);
+        SensorFijo a = new SensorFijo("A", 10.0);
+        SensorFijo b = new SensorFijo("B", 20.0);
+        compuesto.agregarSensor(a);
+        compuesto.agregarSensor(b);
+        
+        assertThrows(IllegalArgumentException.class, () -> compuesto.agregarSensor(a));
+        assertEquals(1, a.observers.size());
+        assertEquals(2, compuesto.getNumeroSensores());
+        a.medir(30.0);
+        assertEquals(25.0, compuesto.obtenerMedidaActual(), PRECISION);
+        
+        assertTrue(compuesto.removerSensor(a));
+        assertEquals(0, a.observers.size());
+        assertEquals(20.0, compuesto.obtenerMedidaActual(), PRECISION);
+    }
+    
+    @Test
+    void pushDesconectarYReconectarUnHijo() {
+        SensorCompuesto compuesto = new SensorCompuesto("COMP", TipoSensor.HUMEDAD_SUELO, 50.0, ModoAgregacion.PUSH);
+        SensorFijo a = new SensorFijo("A", 10.0);
+        SensorFijo b = new SensorFijo("B", 20.0);
+        compuesto.agregarSensor(a);
+        compuesto.agregarSensor(b);
+        
+        b.setEstadoConexion(EstadoConexion.DESCONECTADO);
+        assertEquals(10.0, compuesto.obtenerMedidaActual(), PRECISION);
+        // Mientras está desconectado su medida se recuerda pero no cuenta
+        b.medir(60.0);
+        assertEquals(10.0, compuesto.obtenerMedidaActual(), PRECISION);
+        
+        b.setEstadoConexion(EstadoConexion.CONECTADO);
+        assertEquals(35.0, compuesto.obtenerMedidaActual(), PRECISION);
+        
+        a.setEstadoConexion(EstadoConexion.DESCONECTADO);
+        b.setEstadoConexion(EstadoConexion.DESCONECTADO);
+        assertThrows(IllegalStateException.class, compuesto::obtenerMedidaActual);
+        assertFalse(compuesto.obtenerLectura().tieneMedida());
+    }
+    
+    @Test
+    void hijoAgregadoDesconectadoNoCuentaHastaConectarse() {
+        SensorCompuesto compuesto = new SensorCompuesto("COMP", TipoSensor.HUMEDAD_SUELO, 50.0, ModoAgregacion.PUSH);
+        SensorFijo a = new SensorFijo("A", 10.0);
+        SensorFijo b = new SensorFijo("B", 20.0);
+        b.setEstadoConexion(EstadoConexion.DESCONECTADO);
+        compuesto.agregarSensor(a);
+        compuesto.agregarSensor(b);
+        assertEquals(10.0, compuesto.obtenerMedidaActual(), PRECISION);
+        
+        b.setEstadoConexion(EstadoConexion.CONECTADO);
+        b.medir(30.0);
+        assertEquals(20.0, compuesto.obtenerMedidaActual(), PRECISION);
+    }
+    
+    @Test
+    void obtenerLecturaRegistraUnEventoDeMedicion() throws IOException {
+        SensorCompuesto compuesto = new SensorCompuesto("COMP", TipoSensor.HUMEDAD_SUELO, 50.0);
+        compuesto.agregarSensor(new SensorFijo("A", 10.0));
+        
+        Path destino = Files.createTempFile("medicion", ".jfr");
+        List<RecordedEvent> eventos;
+        try (Recording grabacion = new Recording()) {
+            grabacion.enable("com.greengardens.sensors.Medicion").withThreshold(Duration.ZERO);
+            grabacion.start();
+            compuesto.obtenerLectura();
+            grabacion.stop();
+            grabacion.dump(destino);
+            eventos = RecordingFile.readAllEvents(destino);
+        } finally {
+            Files.deleteIfExists(destino);
+        }
+        
+        assertEquals(1, eventos.size());
+        assertEquals("COMP", eventos.get(0).getString("sensor"));
+        assertTrue(eventos.get(0).getBoolean("compuesto"));
+    }
+    
+    @Test
+    void consultaNotificaElPromedioLeidoPorLectura() {
+        SensorCompuesto hijo = new SensorCompuesto("HIJO", TipoSensor.HUMEDAD_SUELO, 50.0);
+        hijo.agregarSensor(new SensorFijo("A", 10.0));
+        hijo.agregarSensor(new SensorFijo("B", 30.0));
+        SensorCompuesto padre = new SensorCompuesto("PADRE", TipoSensor.HUMEDAD_SUELO, 50.0, ModoAgregacion.PUSH);
+        padre.agregarSensor(hijo);
+        List<Double> notificadas = new ArrayList<>();
+        hijo.agregarSensorObserver(new SensorObserver() {
+            @Override
+            public void onNuevaMedida(ISensor sensor, double medida) {
+                notificadas.add(medida);
+            }
+            
+            @Override
+            public void onCambioEstado(ISensor sensor, EstadoConexion anterior, EstadoConexion nuevo) {
+            }
+        });
+        
+        // El ciclo de monitoreo lee por obtenerLectura: el promedio debe llegar al padre
+        Lectura lectura = hijo.obtenerLectura();
+        assertEquals(20.0, lectura.getValor(), PRECISION);
+        assertEquals(List.of(20.0), notificadas);
+        assertEquals(20.0, padre.obtenerMedidaActual(), PRECISION);
+        assertEquals(lectura.getMarcaTiempoNanos(), hijo.getUltimaLectura().orElseThrow().getMarcaTiempoNanos());
+    }
+    
+    /**
+     * Sensor cuya medida fija la prueba; notifica a sus observers cada vez que mide
+     */
+    private static final class SensorFijo implements ISensor {
+        private final String id;
+        private final List<SensorObserver> observers = new ArrayList<>();
+        private double valor;
+        private EstadoConexion estado = EstadoConexion.CONECTADO;
+        private int lecturas;
+        
+        private SensorFijo(String id, double valor) {
+            this.id = id;
+            this.valor = valor;
+        }
+        
+        void medir(double nuevoValor) {
+            valor = nuevoValor;
+            obtenerMedidaActual();
+        }
+        
+        @Override
+        public double obtenerMedidaActual() {
+            lecturas++;
+            for (SensorObserver observer : observers) {
+                observer.onNuevaMedida(this, valor);
+            }
+            return valor;
+        }
+        
+        @Override
+        public boolean superaUmbral() {
+            return false;
+        }
+        
+        @Override
+        public String getId() {
+            return id;
+        }
+        
+        @Override
+        public TipoSensor getTipo() {
+            return TipoSensor.HUMEDAD_SUELO;
+        }
+        
+        @Override
+        public EstadoConexion getEstadoConexion() {
+            return estado;
+        }
+        
+        @Override
+        public void setEstadoConexion(EstadoConexion nuevo) {
+            EstadoConexion anterior = estado;
+            estado = nuevo;
+            for (SensorObserver observer : observers) {
+                observer.onCambioEstado(this, anterior, nuevo);
+            }
+        }
+        
+        @Override
+        public double getUmbral() {
+            return 50.0;
+        }
+        
+        @Override
+        public boolean agregarSensorObserver(SensorObserver observer) {
+            observers.add(observer);
+            return true;
+        }
+        
+        @Override
+        public boolean removerSensorObserver(SensorObserver observer) {
+            return observers.remove(observer);
+        }
+    }
+}
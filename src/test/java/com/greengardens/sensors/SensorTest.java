@@ -0,0 +1,63 @@
+package com.greengardens.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Lecturas de un sensor simple con la caché activada
+ */
+class SensorTest {
+    
+    @Test
+    void unaLecturaDeCacheRepiteLaMarcaDeLaMedidaReutilizada() {
+        Sensor sensor = new Sensor("HUMEDAD-1", TipoSensor.HUMEDAD_SUELO, 50.0);
+        sensor.setEdadMaximaCache(Duration.ofHours(1));
+        
+        Lectura primera = sensor.obtenerLectura();
+        Lectura segunda = sensor.obtenerLectura();
+        
+        assertEquals(primera.getMarcaTiempoNanos(), segunda.getMarcaTiempoNanos());
+        assertEquals(primera.getValor(), segunda.getValor());
+        assertEquals(1, sensor.getAciertosCache());
+        assertTrue(sensor.avanzarMarcaPublicada(primera.getMarcaTiempoNanos()));
+        assertFalse(sensor.avanzarMarcaPublicada(segunda.getMarcaTiempoNanos()));
+    }
+    
+    @Test
+    void valorYMarcaSalenDeLaMismaMedidaAunqueOtroHiloMida() throws InterruptedException {
+        Map<Long, Double> medidas = new ConcurrentHashMap<>();
+        HistorialLecturas historial = new HistorialLecturas(16) {
+            @Override
+            public synchronized long registrar(double valor, long marcaNanos) {
+                long marcaRegistrada = super.registrar(valor, marcaNanos);
+                medidas.put(marcaRegistrada, valor);
+                return marcaRegistrada;
+            }
+        };
+        Sensor sensor = new Sensor("VIENTO-1", TipoSensor.VIENTO, 50.0, historial);
+        sensor.setEdadMaximaCache(Duration.ofHours(1));
+        sensor.obtenerMedidaFresca();
+        
+        Thread medidor = new Thread(() -> {
+            for (int i = 0; i < 200_000; i++) {
+                sensor.obtenerMedidaFresca();
+            }
+        });
+        medidor.start();
+        int lecturas = 0;
+        while (medidor.isAlive()) {
+            Lectura lectura = sensor.obtenerLectura();
+            // El historial recibe cada medida antes de que pase a ser la actual
+            assertEquals(medidas.get(lectura.getMarcaTiempoNanos()), lectura.getValor());
+            lecturas++;
+        }
+        medidor.join();
+        assertTrue(lecturas > 0);
+    }
+}
@@ -0,0 +1,246 @@
+package com.greengardens.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Comportamiento del sistema de alarma que no se ve desde un solo ciclo de monitoreo
+ */
+class SistemaAlarmaTest {
+    private SistemaAlarma sistema;
+    
+    @BeforeEach
+    void crearSistema() {
+        sistema = new SistemaAlarma();
+    }
+    
+    @AfterEach
+    void cerrarSistema() {
+        sistema.cerrar();
+    }
+    
+    @Test
+    void notificarUnaAlarmaNoAsignaMemoria() {
+        com.sun.management.ThreadMXBean hilos = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Sensor sensor = new Sensor("VIENTO-1", TipoSensor.VIENTO, 10.0);
+        sistema.agregarSensor(sensor);
+        AtomicLong recibidas = new AtomicLong();
+        sistema.agregarObserver(evento -> recibidas.incrementAndGet());
+        sistema.agregarObserver(evento -> { }, PoliticaDesbordamiento.DESCARTAR_ANTIGUO);
+        sistema.agregarObserver(evento -> { }, PoliticaDesbordamiento.COALESCER_POR_SENSOR);
+        Lectura lectura = new Lectura(sensor, 50.0, EstadoConexion.CONECTADO, HistorialLecturas.ahoraEpochNanos());
+        
+        // Calentamiento: el pool de eventos y el JIT llegan a su estado estable
+        for (int i = 0; i < 50_000; i++) {
+            sistema.notificar(TipoEventoAlarma.DISPARO, lectura, 1);
+        }
+        long medicionVacia = hilos.getCurrentThreadAllocatedBytes();
+        medicionVacia = hilos.getCurrentThreadAllocatedBytes() - medicionVacia;
+        
+        // Si notificar crea objetos, los crea en todas las rondas. Una ronda aislada puede contar
+        // los que rehace el JIT al desoptimizar el bucle cuando otro hilo carga clases
+        long asignados = Long.MAX_VALUE;
+        int rondas = 0;
+        while (asignados > 0 && rondas < 5) {
+            long antes = hilos.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < 10_000; i++) {
+                sistema.notificar(TipoEventoAlarma.DISPARO, lectura, 1);
+                sistema.notificar(TipoEventoAlarma.DESPEJE, lectura, 1);
+            }
+            asignados = Math.min(asignados, hilos.getCurrentThreadAllocatedBytes() - antes - medicionVacia);
+            rondas++;
+        }
+        
+        assertEquals(0, asignados);
+        assertEquals(50_000 + rondas * 20_000L, recibidas.get());
+    }
+    
+    @Test
+    void lasAlarmasPorCicloCuentanNotificacionesYNoSensoresSobreElUmbral() {
+        sistema.configurarAlarmas(new ConfiguracionAlarmas(0.05, Duration.ofHours(1), 0));
+        List<SensorFijo> fijos = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            SensorFijo sensor = new SensorFijo("FIJO-" + i, 80.0);
+            fijos.add(sensor);
+            sistema.agregarSensor(sensor);
+        }
+        AtomicLong recibidas = new AtomicLong();
+        sistema.agregarObserver(evento -> recibidas.incrementAndGet());
+        
+        // Tres ciclos con la alarma en curso: solo el primero notifica el disparo
+        for (int ciclo = 0; ciclo < 3; ciclo++) {
+            sistema.ejecutarCicloMonitoreo();
+        }
+        fijos.forEach(sensor -> sensor.valor = 10.0);
+        sistema.ejecutarCicloMonitoreo();
+        
+        MetricasMonitoreo metricas = sistema.getMetricas();
+        assertEquals(6, recibidas.get());
+        assertEquals(4, metricas.getAlarmasPorCiclo().getCantidad());
+        assertEquals(1.5, metricas.getAlarmasPorCicloMedia());
+        assertEquals(3, metricas.getAlarmasPorCicloMax());
+        assertEquals(2.25, metricas.getSobreUmbralPorCicloMedia());
+    }
+    
+    @Test
+    void flightRecorderRegistraLasAlarmasNotificadasYLasMedicionesPorLotes() throws IOException {
+        sistema.configurarAlarmas(new ConfiguracionAlarmas(0.05, Duration.ofHours(1), 0));
+        sistema.agregarSensor(new SensorFijo("FIJO-1", 80.0));
+        sistema.agregarSensor(new Sensor("HUMEDAD-1", TipoSensor.HUMEDAD_SUELO, 100.0));
+        sistema.agregarSensor(new Sensor("HUMEDAD-2", TipoSensor.HUMEDAD_SUELO, 100.0));
+        sistema.setMedicionPorLotes(true);
+        
+        Path destino = Files.createTempFile("ciclos", ".jfr");
+        List<RecordedEvent> eventos;
+        try (Recording grabacion = new Recording()) {
+            grabacion.enable("com.greengardens.sensors.CicloMonitoreo").withThreshold(Duration.ZERO);
+            grabacion.enable("com.greengardens.sensors.Medicion").withThreshold(Duration.ZERO);
+            grabacion.start();
+            sistema.ejecutarCicloMonitoreo();
+            sistema.ejecutarCicloMonitoreo();
+            grabacion.stop();
+            grabacion.dump(destino);
+            eventos = RecordingFile.readAllEvents(destino);
+        } finally {
+            Files.deleteIfExists(destino);
+        }
+        
+        List<Integer> alarmas = new ArrayList<>();
+        List<Integer> lotes = new ArrayList<>();
+        for (RecordedEvent evento : eventos) {
+            if (evento.getEventType().getName().endsWith("CicloMonitoreo")) {
+                alarmas.add(evento.getInt("alarmas"));
+            } else if (evento.getString("sensor") == null) {
+                lotes.add(evento.getInt("sensoresMedidos"));
+            }
+        }
+        // La alarma sigue en curso en el segundo ciclo, pero solo el primero la notifica
+        assertEquals(List.of(1, 0), alarmas);
+        assertEquals(List.of(2, 2), lotes);
+    }
+    
+    @Test
+    void unaLecturaServidaDesdeLaCacheNoSePublicaDeNuevo() {
+        Sensor sensor = new Sensor("HUMEDAD-1", TipoSensor.HUMEDAD_SUELO, 100.0);
+        sensor.setEdadMaximaCache(Duration.ofHours(1));
+        sistema.agregarSensor(sensor);
+        List<Lectura> publicadas = new ArrayList<>();
+        sistema.agregarLecturaObserver(publicadas::add);
+        
+        for (int ciclo = 0; ciclo < 3; ciclo++) {
+            sistema.ejecutarCicloMonitoreo();
+        }
+        assertEquals(1, publicadas.size());
+        assertEquals(2, sensor.getAciertosCache());
+        
+        sensor.obtenerMedidaFresca();
+        sistema.ejecutarCicloMonitoreo();
+        assertEquals(2, publicadas.size());
+    }
+    
+    @Test
+    void conElPoolSaturadoLasLecturasFallanSinEsperarElPlazoDelCiclo() {
+        sistema.cerrar();
+        sistema = new SistemaAlarma(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        Sensor colgado = new Sensor("COLGADO", TipoSensor.HUMEDAD_SUELO, 50.0) {
+            @Override
+            public Lectura obtenerLectura() {
+                try {
+                    liberar.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.obtenerLectura();
+            }
+        };
+        long plazoCorto = TimeUnit.MILLISECONDS.toNanos(10);
+        try {
+            // El único hilo queda colgado y cada ciclo siguiente deja una tarea en la cola hasta llenarla
+            for (int ciclo = 0; ciclo < 5; ciclo++) {
+                sistema.leerEnParalelo(List.of(colgado), plazoCorto, plazoCorto);
+            }
+            
+            long inicio = System.nanoTime();
+            List<CompletableFuture<Lectura>> lecturas = sistema.leerEnParalelo(
+                    List.of(new SensorFijo("LIBRE", 10.0)), plazoCorto, TimeUnit.MINUTES.toNanos(1));
+            
+            assertTrue(System.nanoTime() - inicio < TimeUnit.SECONDS.toNanos(10));
+            CompletionException fallo = assertThrows(CompletionException.class, () -> lecturas.get(0).join());
+            assertInstanceOf(TimeoutException.class, fallo.getCause());
+        } finally {
+            liberar.countDown();
+        }
+    }
+    
+    /**
+     * Sensor con una medida fija que el test cambia entre ciclos
+     */
+    private static final class SensorFijo implements ISensor {
+        private final String id;
+        private double valor;
+        private EstadoConexion estado = EstadoConexion.CONECTADO;
+        
+        private SensorFijo(String id, double valor) {
+            this.id = id;
+            this.valor = valor;
+        }
+        
+        @Override
+        public double obtenerMedidaActual() {
+            return valor;
+        }
+        
+        @Override
+        public boolean superaUmbral() {
+            return valor > getUmbral();
+        }
+        
+        @Override
+        public String getId() {
+            return id;
+        }
+        
+        @Override
+        public TipoSensor getTipo() {
+            return TipoSensor.HUMEDAD_SUELO;
+        }
+        
+        @Override
+        public EstadoConexion getEstadoConexion() {
+            return estado;
+        }
+        
+        @Override
+        public void setEstadoConexion(EstadoConexion estado) {
+            this.estado = estado;
+        }
+        
+        @Override
+        public double getUmbral() {
+            return 50.0;
+        }
+    }
+}